@@ -0,0 +1,156 @@
+package searchengine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the JSON results of a JMH run with a baseline, the results of an
+ * earlier run saved with the Gradle task {@code jmhBaseline}. For each
+ * benchmark and parameter combination, the score and the allocated bytes
+ * per operation (reported by the GC profiler) are compared. A benchmark has
+ * regressed if it got worse by more than the threshold, and by more than the
+ * error of both scores. The program exits with status 1 if a benchmark has
+ * regressed, or if there is no baseline to compare with, so the Gradle task
+ * {@code jmhCompare} fails.
+ *
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class BenchmarkComparison {
+
+    /**
+     * the secondary metric of the GC profiler with the allocated bytes per operation.
+     */
+    private static final String ALLOCATION = "\u00b7gc.alloc.rate.norm";
+
+    /**
+     * Compares results with a baseline.
+     * @param args the baseline file, the results file and optionally the threshold, 0.1 for 10 percent
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        Path baselineFile = Paths.get(args[0]);
+        Path resultsFile = Paths.get(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        if (!Files.exists(baselineFile)) {
+            System.out.println("**Failure** There is no baseline \"" + baselineFile + "\" to compare with, save the results of a run with the task jmhBaseline.");
+            System.exit(1);
+        }
+        Map<String, JsonNode> baseline = read(baselineFile);
+        Map<String, JsonNode> results = read(resultsFile);
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> result : results.entrySet()) {
+            JsonNode base = baseline.get(result.getKey());
+            if (base == null) {
+                System.out.println("NEW        " + result.getKey());
+                continue;
+            }
+            boolean higherIsBetter = "thrpt".equals(result.getValue().path("mode").asText());
+            regressions += compare(result.getKey(), "score", getMetric(base, null), getMetric(result.getValue(), null), higherIsBetter, threshold);
+            regressions += compare(result.getKey(), "allocation", getMetric(base, ALLOCATION), getMetric(result.getValue(), ALLOCATION), false, threshold);
+        }
+        for (String key : baseline.keySet()) {
+            if (!results.containsKey(key)) {
+                System.out.println("MISSING    " + key);
+            }
+        }
+        System.out.println(regressions + " regressions of " + results.size() + " benchmarks, threshold " + Math.round(threshold * 100) + "%.");
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares one metric of a benchmark and prints the change.
+     * @return 1 if the metric has regressed, otherwise 0
+     */
+    private static int compare(String key, String name, JsonNode base, JsonNode result,
+                               boolean higherIsBetter, double threshold) {
+        if (base == null || result == null) {
+            return 0;
+        }
+        double baseScore = getNumber(base, "score");
+        double score = getNumber(result, "score");
+        if (Double.isNaN(baseScore) || Double.isNaN(score) || baseScore == 0) {
+            return 0;
+        }
+        double change = (score - baseScore) / baseScore;
+        double worse = higherIsBetter ? -change : change;
+        double error = zeroIfNaN(getNumber(base, "scoreError")) + zeroIfNaN(getNumber(result, "scoreError"));
+        boolean regressed = worse > threshold && Math.abs(score - baseScore) > error;
+        boolean improved = -worse > threshold && Math.abs(score - baseScore) > error;
+        System.out.println(String.format(Locale.ROOT, "%-10s %s %s: %.4g -> %.4g %s (%+.1f%%)",
+                regressed ? "REGRESSED" : improved ? "IMPROVED" : "SAME", key, name, baseScore, score,
+                result.path("scoreUnit").asText(), change * 100));
+        return regressed ? 1 : 0;
+    }
+
+    /**
+     * Reads a JMH results file.
+     * @return the results by benchmark name and parameters
+     */
+    static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            results.put(getKey(result), result);
+        }
+        return results;
+    }
+
+    /**
+     * @return the name of the benchmark with its parameters in alphabetical order
+     */
+    static String getKey(JsonNode result) {
+        StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+        JsonNode params = result.get("params");
+        if (params != null) {
+            Map<String, String> sorted = new TreeMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> fields = params.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                sorted.put(param.getKey(), param.getValue().asText());
+            }
+            key.append(sorted);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param metric the name of a secondary metric, or null for the primary metric
+     * @return the metric, or null if the result does not have it
+     */
+    private static JsonNode getMetric(JsonNode result, String metric) {
+        if (metric == null) {
+            return result.get("primaryMetric");
+        }
+        JsonNode secondaryMetrics = result.get("secondaryMetrics");
+        return secondaryMetrics == null ? null : secondaryMetrics.get(metric);
+    }
+
+    /**
+     * @return the number, which JMH writes as string if it is not a number
+     */
+    private static double getNumber(JsonNode metric, String name) {
+        JsonNode value = metric.get(name);
+        if (value == null || value.isNull()) {
+            return Double.NaN;
+        }
+        return value.isNumber() ? value.doubleValue() : Double.parseDouble(value.asText());
+    }
+
+    private static double zeroIfNaN(double value) {
+        return Double.isNaN(value) ? 0 : value;
+    }
+}
@@ -0,0 +1,110 @@
+package searchengine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * The databases the benchmarks run on. Besides the files in {@code data}, the corpus "generated" is a file
+ * containing the pages of enwiki-small a number of times, with distinct urls, and a corpus like
+ * "synthetic-100MB" is generated by the {@code CorpusGenerator} with the given size, so the benchmarks can be
+ * compared for corpora of different sizes.
+ */
+public class BenchmarkCorpus {
+
+    /**
+     * the database the generated corpus is made of.
+     */
+    private static final String SOURCE = "data/enwiki-small.txt";
+
+    /**
+     * the seed of the synthetic corpora, so every run benchmarks the same corpus.
+     */
+    private static final long SEED = 1;
+
+    private final Path generated;
+    private final String filename;
+
+    /**
+     * Opens a corpus, generating its file if needed.
+     * @param database the path of a database file, "generated", or "synthetic-" followed by a size like 100MB
+     * @param copies the number of times the generated file contains the pages of enwiki-small
+     * @throws IOException if the generated file cannot be written
+     */
+    public BenchmarkCorpus(String database, int copies) throws IOException {
+        if (isSynthetic(database)) {
+            generated = Files.createTempFile("synthetic", ".txt");
+            try (Writer writer = Files.newBufferedWriter(generated, StandardCharsets.UTF_8)) {
+                new CorpusGenerator(SEED).generate(writer, CorpusGenerator.parseSize(database.substring("synthetic-".length())), false);
+            }
+            filename = generated.toString();
+            return;
+        }
+        if (!database.equals("generated")) {
+            generated = null;
+            filename = database;
+            return;
+        }
+        generated = Files.createTempFile("enwiki-generated", ".txt");
+        List<String> lines = Files.readAllLines(Paths.get(SOURCE), StandardCharsets.UTF_8);
+        for (int copy = 0; copy < copies; copy++) {
+            StringBuilder builder = new StringBuilder();
+            for (String line : lines) {
+                // makes the urls of every copy distinct
+                builder.append(line.startsWith("*PAGE:") ? line + "?copy=" + copy : line).append('\n');
+            }
+            Files.write(generated, builder.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        }
+        filename = generated.toString();
+    }
+
+    /**
+     * @param database the name of a corpus
+     * @return true if the corpus is generated by the {@code CorpusGenerator}, whose words are not English
+     */
+    public static boolean isSynthetic(String database) {
+        return database.startsWith("synthetic-");
+    }
+
+    /**
+     * @return the path of the database file
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Deletes the generated file.
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        if (generated != null) {
+            Files.deleteIfExists(generated);
+        }
+    }
+
+    /**
+     * Creates an empty index of a type, by its class name.
+     * @param type SimpleIndex, InvertedIndexHashMap, InvertedIndexTreeMap or InvertedIndexOffHeap
+     * @return the index
+     */
+    public static Index createIndex(String type) {
+        switch (type) {
+            case "SimpleIndex":
+                return new SimpleIndex();
+            case "InvertedIndexHashMap":
+                return new InvertedIndexHashMap();
+            case "InvertedIndexTreeMap":
+                return new InvertedIndexTreeMap();
+            case "InvertedIndexOffHeap":
+                return new InvertedIndexOffHeap();
+            default:
+                throw new IllegalArgumentException("Unknown index type " + type);
+        }
+    }
+}
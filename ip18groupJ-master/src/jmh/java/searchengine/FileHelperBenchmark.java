@@ -0,0 +1,139 @@
+package searchengine;
+
+// JMH Imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Other Imports
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The database loading benchmark. It compares the original {@code Scanner}
+ * based parser with the memory mapped parser of {@code FileHelper}, both
+ * on their own and when the websites are indexed while the file is read.
+ * Besides {@code data/enwiki-small.txt}, a much larger file is generated
+ * by repeating the pages of enwiki-small with distinct urls, see
+ * {@code BenchmarkCorpus}. Both files are also read compressed in blocks
+ * by {@code BlockCompressedOutputStream}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileHelperBenchmark {
+
+    /**
+     * The database file the benchmarks read. "generated" stands for a file
+     * containing the pages of enwiki-small {@code copies} times.
+     */
+    @State(Scope.Benchmark)
+    public static class DatabaseState {
+        @Param({"data/enwiki-small.txt", "generated"})
+        public String database;
+
+        @Param({"50"})
+        public int copies;
+
+        public String filename;
+        public String compressedFilename;
+        private BenchmarkCorpus corpus;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            corpus = new BenchmarkCorpus(database, copies);
+            filename = corpus.getFilename();
+            // the same file compressed in blocks, like the crawler writes it
+            Path compressed = Files.createTempFile("benchmark-database", ".gz");
+            try (OutputStream out = new BlockCompressedOutputStream(Files.newOutputStream(compressed))) {
+                Files.copy(Paths.get(filename), out);
+            }
+            compressedFilename = compressed.toString();
+            System.out.println("\nCompressed " + Files.size(Paths.get(filename)) + " bytes to " + Files.size(compressed));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            corpus.delete();
+            Files.delete(Paths.get(compressedFilename));
+        }
+    }
+
+    @Benchmark
+    public List<Website> parseWithScanner(DatabaseState state) {
+        return FileHelper.parseFileWithScanner(state.filename);
+    }
+
+    @Benchmark
+    public List<Website> parseMemoryMapped(DatabaseState state) {
+        return FileHelper.parseFile(state.filename);
+    }
+
+    /**
+     * Decompresses the blocks of the compressed file in parallel while they are parsed.
+     */
+    @Benchmark
+    public List<Website> parseCompressed(DatabaseState state) {
+        return FileHelper.parseFile(state.compressedFilename);
+    }
+
+    /**
+     * Reads the whole file into a list first and then builds the search engine, as before.
+     */
+    @Benchmark
+    public SearchEngine loadWithScanner(DatabaseState state) {
+        return new SearchEngine(FileHelper.parseFileWithScanner(state.filename));
+    }
+
+    /**
+     * Streams the websites from the memory mapped file into the index builder.
+     */
+    @Benchmark
+    public SearchEngine loadStreaming(DatabaseState state) throws IOException {
+        return new SearchEngine(state.filename);
+    }
+
+    /**
+     * Streams the websites from the compressed file into the index builder.
+     */
+    @Benchmark
+    public SearchEngine loadCompressed(DatabaseState state) throws IOException {
+        return new SearchEngine(state.compressedFilename);
+    }
+
+    /**
+     * JMH-magic. This needs to be here, but this {@code main} is
+     * actually never run. JMH generates lots of other classes, and
+     * then runs those instead.
+     */
+    public static void main(String[] args) throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(FileHelperBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
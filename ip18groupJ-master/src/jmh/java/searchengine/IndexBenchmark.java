@@ -3,84 +3,175 @@ package searchengine;
 // JMH Imports
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 // Other Imports
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
- * The Indexing benchmark. This prototype benchmarks the efficiency of
- * the search engine's index by querying it multiple times and taking
- * time measurements. The benchmark is implemented with JMH, which
- * e.g. takes care of warming up the JVM. It is in part inspired by
+ * The Indexing benchmark. It benchmarks the efficiency of the search
+ * engine's index by querying it multiple times and taking time
+ * measurements. The benchmark is implemented with JMH, which e.g. takes
+ * care of warming up the JVM. It is in part inspired by
  * {@code BenchmarkModes} and {@code States} in the JMH Samples. This
  * does not start a web server.
- * 
+ *
+ * Each query type has a benchmark of its own, so a regression can be
+ * traced to single word, AND, OR, prefix or site queries. The queries
+ * are answered by a {@code QueryHandler} directly, since the query result
+ * cache of the {@code SearchEngine} would answer all but the first one.
+ * Every benchmark runs for each index type and corpus, and ranks the
+ * websites by their Okapi BM25 score.
+ *
  * @author Willard Rafnsson
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
  * @see <a href="https://openjdk.java.net/projects/code-tools/jmh/">JMH</a>
  * @see <a href="https://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/">JMH Samples</a>
  * @see <a href="https://appdoc.app/artifact/org.openjdk.jmh/jmh-core/1.10.2/org/openjdk/jmh/annotations/package-summary.html">JMH Annotations Documentation</a>
  */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
 public class IndexBenchmark {
 
+    /**
+     * The queries of each type, from frequent to missing words. Each
+     * benchmark answers all queries of its type per invocation.
+     */
+    static final String[] SINGLE_WORD_QUERIES = {"the", "germany", "university", "denmark", "copenhagen", "emotion", "xylophone"};
+    static final String[] AND_QUERIES = {"the of", "university copenhagen", "german economy", "political group islands", "denmark xylophone"};
+    static final String[] OR_QUERIES = {"the OR and", "denmark OR germany", "university copenhagen OR university denmark", "york OR xylophone"};
+    static final String[] PREFIX_QUERIES = {"t*", "den*", "univ*", "germ* economy", "xylo*"};
+    static final String[] SITE_QUERIES = {"site:en.wikipedia.org the", "site:en.wikipedia.org denmark",
+            "site:wikipedia.org/wiki/d the OR and", "site:example.com the"};
+
+    /**
+     * The queries of each type for the synthetic corpora, with the same
+     * number of queries. The words of the {@code CorpusGenerator} are
+     * ranked by their frequency: "ba" is the most frequent word, "cu" the
+     * 10th, "cuba" the 100th, "cuda" the 1000th and "cugaba" the 10000th.
+     * The largest hosts are "ba.org" and "be.net".
+     */
+    static final String[] SYNTHETIC_SINGLE_WORD_QUERIES = {"ba", "be", "cu", "cuba", "cuda", "cugaba", "xylophone"};
+    static final String[] SYNTHETIC_AND_QUERIES = {"ba be", "cu cuba", "cuba cuda", "ba cuda cugaba", "ba xylophone"};
+    static final String[] SYNTHETIC_OR_QUERIES = {"ba OR be", "cuba OR cuda", "cu cuba OR cu cuda", "cugaba OR xylophone"};
+    static final String[] SYNTHETIC_PREFIX_QUERIES = {"b*", "cu*", "cug*", "cu* cuba", "xylo*"};
+    static final String[] SYNTHETIC_SITE_QUERIES = {"site:ba.org ba", "site:ba.org cuba",
+            "site:be.net ba OR be", "site:example.com ba"};
+
     /**
      * The state used by all each run of the benchmark. This is JMH's
      * way to share state between benchmark runs; you do not need to
      * know how it works (this is an "inner class"). This is where we
-     * create an instance of {@code SearchEngine}. We want multiple
-     * queries to the same {@code SearchEngine} instance, since
-     * otherwise, it would be hard to argue that the time measurements
-     * we get are the index look-ups specifically, and not e.g. the
-     * time it takes to read a file, obtain a {@code SearchEngine}
-     * instance, and so on.
+     * build the index and create the {@code QueryHandler}. We want
+     * multiple queries to the same index, since otherwise, it would be
+     * hard to argue that the time measurements we get are the index
+     * look-ups specifically, and not e.g. the time it takes to read a
+     * file, build the index, and so on.
      */
     @State(Scope.Benchmark)
     public static class BenchmarkState {
-        public SearchEngine searchengine;
-        public BenchmarkState(){
-            // Executed each time "# Fork: X of 5" appears in the output.
-            List<Website> sites = FileHelper.parseFile("data/enwiki-small.txt");
-            searchengine = new SearchEngine(sites);
+        @Param({"SimpleIndex", "InvertedIndexHashMap", "InvertedIndexTreeMap", "InvertedIndexOffHeap"})
+        public String index;
+
+        /**
+         * The database file, or the size of a synthetic corpus, see
+         * {@code BenchmarkCorpus}.
+         */
+        @Param({"data/enwiki-tiny.txt", "data/enwiki-small.txt", "synthetic-10MB", "synthetic-100MB"})
+        public String database;
+
+        public QueryHandler queryHandler;
+        public String[] singleWordQueries, andQueries, orQueries, prefixQueries, siteQueries;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            boolean synthetic = BenchmarkCorpus.isSynthetic(database);
+            singleWordQueries = synthetic ? SYNTHETIC_SINGLE_WORD_QUERIES : SINGLE_WORD_QUERIES;
+            andQueries = synthetic ? SYNTHETIC_AND_QUERIES : AND_QUERIES;
+            orQueries = synthetic ? SYNTHETIC_OR_QUERIES : OR_QUERIES;
+            prefixQueries = synthetic ? SYNTHETIC_PREFIX_QUERIES : PREFIX_QUERIES;
+            siteQueries = synthetic ? SYNTHETIC_SITE_QUERIES : SITE_QUERIES;
+
+            BenchmarkCorpus corpus = new BenchmarkCorpus(database, 0);
+            List<Website> sites = FileHelper.parseFile(corpus.getFilename());
+            corpus.delete();
+
+            Index idx = BenchmarkCorpus.createIndex(index);
+            idx.build(sites);
+            queryHandler = new QueryHandler(idx, new OkapiBM25());
+        }
+    }
+
+    /**
+     * Answers queries and passes their results to the black hole, so
+     * the JVM cannot leave out the work.
+     */
+    private static void search(BenchmarkState state, String[] queries, Blackhole blackhole) {
+        for (String query : queries) {
+            blackhole.consume(state.queryHandler.getMatchingWebsites(query));
         }
     }
-    
+
     /**
-     * Measures the average execution time of this method. 
+     * Measures the average execution time of a query.
      *
      * How it works: JMH continuously calls this method in a fixed
      * (rather long) window of time, measures the time each method
      * call took, and counts how many times the method was called. JMH
-     * then uses this data to compute the average execution time.
+     * then uses this data to compute the average execution time, which
+     * is divided by the number of queries per call.
      */
     @Benchmark
-    @BenchmarkMode(Mode.AverageTime)
-    @OutputTimeUnit(TimeUnit.NANOSECONDS)
-    public void measureAvgTime(BenchmarkState state) throws InterruptedException {
-        // STUDENTS, make your changes here
-        // REMEMBER to vary the size of the data file (see above)
-        state.searchengine.search("denmark");
-        state.searchengine.search("germany");
-        state.searchengine.search("a");
-        state.searchengine.search("and");
-        state.searchengine.search("or");
-        state.searchengine.search(" ");
-        state.searchengine.search("");
-        state.searchengine.search("123");
-        state.searchengine.search("*??:_:/");
-        state.searchengine.search("æøå");
-        state.searchengine.search("københavn");
-        state.searchengine.search("of");
-        state.searchengine.search("emotion");
-        state.searchengine.search("york");
-        state.searchengine.search("for");
+    @OperationsPerInvocation(7)
+    public void singleWord(BenchmarkState state, Blackhole blackhole) {
+        search(state, state.singleWordQueries, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(5)
+    public void and(BenchmarkState state, Blackhole blackhole) {
+        search(state, state.andQueries, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void or(BenchmarkState state, Blackhole blackhole) {
+        search(state, state.orQueries, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(5)
+    public void prefix(BenchmarkState state, Blackhole blackhole) {
+        search(state, state.prefixQueries, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void site(BenchmarkState state, Blackhole blackhole) {
+        search(state, state.siteQueries, blackhole);
     }
 
     /**
@@ -89,7 +180,7 @@ public class IndexBenchmark {
      * then runs those instead.
      */
     public static void main(String[] args) throws RunnerException {
-        
+
         Options opt = new OptionsBuilder()
                 .include(IndexBenchmark.class.getSimpleName())
                 .forks(1)
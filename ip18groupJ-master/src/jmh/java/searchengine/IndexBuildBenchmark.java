@@ -0,0 +1,107 @@
+package searchengine;
+
+// JMH Imports
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Other Imports
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The index build benchmark. It measures how long {@code Index.build}
+ * takes for each index type and corpus, from websites that have already
+ * been parsed, and how long parsing the database with
+ * {@code FileHelper.parseFile} takes on its own.
+ *
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexBuildBenchmark {
+
+    /**
+     * The parsed websites of a corpus: a database file, or a synthetic
+     * corpus of the given size, see {@code BenchmarkCorpus}.
+     */
+    @State(Scope.Benchmark)
+    public static class CorpusState {
+        @Param({"data/enwiki-tiny.txt", "data/enwiki-small.txt", "synthetic-10MB", "synthetic-100MB"})
+        public String database;
+
+        public String filename;
+        public List<Website> sites;
+        private BenchmarkCorpus corpus;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            corpus = new BenchmarkCorpus(database, 0);
+            filename = corpus.getFilename();
+            sites = FileHelper.parseFile(filename);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            corpus.delete();
+        }
+    }
+
+    /**
+     * The type of the index that is built. It is a state of its own, so
+     * the parse benchmark does not run for each index type.
+     */
+    @State(Scope.Benchmark)
+    public static class IndexState {
+        @Param({"SimpleIndex", "InvertedIndexHashMap", "InvertedIndexTreeMap"})
+        public String index;
+    }
+
+    @Benchmark
+    public Index build(CorpusState corpus, IndexState state) {
+        Index idx = BenchmarkCorpus.createIndex(state.index);
+        idx.build(corpus.sites);
+        return idx;
+    }
+
+    @Benchmark
+    public List<Website> parseFile(CorpusState state) {
+        return FileHelper.parseFile(state.filename);
+    }
+
+    /**
+     * JMH-magic. This needs to be here, but this {@code main} is
+     * actually never run. JMH generates lots of other classes, and
+     * then runs those instead.
+     */
+    public static void main(String[] args) throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(IndexBuildBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
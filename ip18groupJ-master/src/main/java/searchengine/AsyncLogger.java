@@ -0,0 +1,126 @@
+package searchengine;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes log messages on a background thread, so threads answering requests never wait for the console.
+ * The messages are kept in a bounded queue; when it is full, because messages are logged faster than they can
+ * be printed, new messages are dropped and counted instead of blocking the caller. {@code close} prints the
+ * queued messages and stops the thread.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class AsyncLogger implements AutoCloseable {
+
+    /**
+     * the messages waiting to be printed.
+     */
+    private final BlockingQueue<String> messages;
+
+    /**
+     * the stream the messages are printed to.
+     */
+    private final PrintStream out;
+
+    /**
+     * the number of messages dropped because the queue was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * the thread printing the messages.
+     */
+    private final Thread writer;
+
+    /**
+     * whether the logger has been closed; later messages are dropped.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a {@code AsyncLogger} object and starts its thread.
+     * @param out the stream the messages are printed to
+     * @param capacity the maximum number of messages waiting to be printed
+     */
+    public AsyncLogger(PrintStream out, int capacity) {
+        this.out = out;
+        this.messages = new ArrayBlockingQueue<>(capacity);
+        writer = new Thread(this::writeMessages, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a message to be printed. Never blocks.
+     * @param message the message
+     */
+    public void log(String message) {
+        if (closed || !messages.offer(message)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of messages dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Prints the queued messages and stops the thread. Messages logged afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prints the queued messages, several at a time, until the logger is closed.
+     */
+    private void writeMessages() {
+        List<String> batch = new ArrayList<>();
+        long reported = 0;
+        while (!closed) {
+            try {
+                batch.add(messages.take());
+            } catch (InterruptedException e) {
+                // closed; the remaining messages are printed below
+            }
+            messages.drainTo(batch);
+            reported = print(batch, reported);
+        }
+        messages.drainTo(batch);
+        print(batch, reported);
+    }
+
+    /**
+     * Prints a batch of messages and the number of messages dropped since the last report.
+     * @return the number of dropped messages reported so far
+     */
+    private long print(List<String> batch, long reported) {
+        for (String message : batch) {
+            out.println(message);
+        }
+        batch.clear();
+        long lost = dropped.get();
+        if (lost != reported) {
+            out.println("Dropped " + (lost - reported) + " log messages.");
+            reported = lost;
+        }
+        out.flush();
+        return reported;
+    }
+}
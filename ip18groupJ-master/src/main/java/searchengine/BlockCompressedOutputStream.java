@@ -0,0 +1,182 @@
+package searchengine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a database file compressed in blocks, which {@code FileHelper} decompresses in parallel.
+ *
+ * Each block is a complete gzip member of its own, so the file as a whole is an ordinary gzip file that
+ * {@code gunzip} or {@code zcat} can read, and files can be concatenated with {@code cat}. The header of each
+ * block carries an extra field with the size of the compressed block, so a reader can find the next block
+ * without decompressing the current one, and every block ends at a line break, so no line is split
+ * between two blocks.
+ *
+ * The bytes are collected in memory until there are at least {@code blockSize} of them, and then all complete
+ * lines are compressed into a block. {@code flush} writes the complete lines right away.
+ *
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class BlockCompressedOutputStream extends OutputStream {
+
+    /**
+     * The default number of uncompressed bytes per block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+
+    /**
+     * The size of the gzip header of a block: the fixed header of 10 bytes, the length of the extra field,
+     * and the extra field "MS" which holds the size of the compressed block, header and trailer included.
+     */
+    static final int HEADER_SIZE = 20;
+
+    /**
+     * The size of the gzip trailer of a block: the CRC-32 and the length of the uncompressed data.
+     */
+    static final int TRAILER_SIZE = 8;
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+
+    // The uncompressed bytes that have not been written yet, and the position after their last line break
+    private byte[] buffer;
+    private int count = 0;
+    private int linesEnd = 0;
+
+    private byte[] compressed = new byte[1 << 16];
+
+    /**
+     * Creates a {@code BlockCompressedOutputStream} object with blocks of {@value #DEFAULT_BLOCK_SIZE} bytes.
+     * @param out the stream the blocks are written to
+     */
+    public BlockCompressedOutputStream(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a {@code BlockCompressedOutputStream} object.
+     * @param out the stream the blocks are written to
+     * @param blockSize the number of uncompressed bytes per block, unless a line is longer
+     * @param level the compression level of {@code Deflater}, from 0 to 9
+     */
+    public BlockCompressedOutputStream(OutputStream out, int blockSize, int level) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("The blocks must hold at least one byte, got " + blockSize);
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.buffer = new byte[blockSize + 1024];
+        this.deflater = new Deflater(level, true);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (count + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(count + length, buffer.length * 2));
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+        // only the new bytes are searched for the last line break
+        for (int i = count - 1; i >= count - length; i--) {
+            if (buffer[i] == '\n') {
+                linesEnd = i + 1;
+                break;
+            }
+        }
+        if (count >= blockSize && linesEnd > 0) {
+            writeBlock(linesEnd);
+        }
+    }
+
+    /**
+     * Writes the complete lines as a block, and flushes the underlying stream. The beginning of an
+     * unfinished line stays in memory until its line break is written.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (linesEnd > 0) {
+            writeBlock(linesEnd);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining bytes as the last block, and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (count > 0) {
+                writeBlock(count);
+            }
+            out.close();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compresses the first bytes of the buffer into a block, and moves the rest to the beginning of the buffer.
+     * @param length the number of bytes of the block
+     */
+    private void writeBlock(int length) throws IOException {
+        deflater.reset();
+        deflater.setInput(buffer, 0, length);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+        crc.reset();
+        crc.update(buffer, 0, length);
+
+        byte[] header = {
+                0x1f, (byte) 0x8b, // gzip
+                8,                 // deflate
+                4,                 // flags: extra field
+                0, 0, 0, 0,        // no modification time
+                0,                 // no extra flags
+                (byte) 255,        // unknown operating system
+                8, 0,              // length of the extra field
+                'M', 'S', 4, 0,    // field "MS" of 4 bytes
+                0, 0, 0, 0         // the size of the block
+        };
+        writeInt(header, 16, HEADER_SIZE + size + TRAILER_SIZE);
+        byte[] trailer = new byte[TRAILER_SIZE];
+        writeInt(trailer, 0, (int) crc.getValue());
+        writeInt(trailer, 4, length);
+        out.write(header);
+        out.write(compressed, 0, size);
+        out.write(trailer);
+
+        System.arraycopy(buffer, length, buffer, 0, count - length);
+        count -= length;
+        linesEnd = Math.max(0, linesEnd - length);
+    }
+
+    /**
+     * Writes an int in little-endian byte order, like all numbers of gzip.
+     */
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+}
@@ -1,5 +1,6 @@
 package searchengine;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
 
@@ -25,11 +26,24 @@ public class CLIApplication {
     public static void main(String[] args) {
         System.out.println("Welcome to the SearchEngine!");
         
-        System.out.println("Reading database...");
-        List<Website> sites = FileHelper.parseFile(args);
-        
-        System.out.println("Building the search engine...");
-        searchengine = new SearchEngine(sites);
+        String database = FileHelper.getDatabasePath(args);
+
+        System.out.println("Reading database and building the search engine...");
+        try {
+            searchengine = SearchEngine.load(database);
+        } catch (IOException e) {
+            System.out.println("Error: Could not read the database \"" + database + "\": " + e);
+            System.exit(1);
+        }
+
+        // the optional second argument is a query log, whose queries fill the query result cache
+        if (args.length > 1) {
+            try {
+                searchengine.warmUp(args[1]);
+            } catch (IOException e) {
+                System.out.println("Could not read the query log \"" + args[1] + "\": " + e);
+            }
+        }
 
         System.out.println("Search engine is ready to receive queries.");
         System.out.println("Starting command-line interface:");
@@ -45,7 +59,7 @@ public class CLIApplication {
                 break;
             }
             System.out.println();
-            sites = searchengine.search(query);
+            List<Website> sites = searchengine.search(query);
             System.out.println("Found " + sites.size() + " websites matching the query.");
             for (Website w : sites) {
                 System.out.println(w.getTitle() + ":");
@@ -0,0 +1,324 @@
+package searchengine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic databases of any size, from megabytes to tens of gigabytes, to test how the search engine
+ * scales. The words are made of syllables, and the more frequent a word is, the shorter it is. Like in natural
+ * language, the word frequencies follow Zipf's law, the number of distinct words grows with the square root of
+ * the size of the corpus (Heaps' law), and the lengths of the websites follow a log-normal distribution. The
+ * websites are spread over many hosts, some of which have many more websites than others.
+ *
+ * The output only depends on the seed and the target size, so the same corpus can be generated again instead of
+ * being stored. It is written in the format of the database files, or in the format of the web crawler, where
+ * each website starts with an empty line and the words keep the upper case letters of their sentence.
+ *
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class CorpusGenerator {
+
+    /**
+     * the syllables words are made of: a consonant followed by a vowel.
+     */
+    private static final String CONSONANTS = "bcdfghjklmnprstvwz";
+    private static final String VOWELS = "aeiou";
+    private static final int SYLLABLES = CONSONANTS.length() * VOWELS.length();
+
+    private static final String[] TOP_LEVEL_DOMAINS = {"com", "org", "net", "dk", "de", "uk", "io", "edu"};
+
+    /**
+     * the exponent of Zipf's law for the word frequencies, about 1 for natural language.
+     */
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    /**
+     * the median number of words of a website, and the standard deviation of its logarithm.
+     */
+    private static final double MEDIAN_LENGTH = 250;
+    private static final double LENGTH_SIGMA = 0.9;
+    private static final int MAX_LENGTH = 20000;
+
+    /**
+     * the average number of bytes of a word line, and the average number of websites of a host, used to estimate
+     * the number of words, websites and hosts of a target size.
+     */
+    private static final double BYTES_PER_WORD = 5;
+    private static final double WEBSITES_PER_HOST = 40;
+
+    /**
+     * the number of frequent words whose strings are kept, instead of being built for every occurrence.
+     */
+    private static final int CACHED_WORDS = 1 << 16;
+
+    private final long seed;
+    private final String[] cachedWords = new String[CACHED_WORDS];
+
+    /**
+     * Creates a {@code CorpusGenerator} object.
+     * @param seed the seed of the random numbers, the same seed generates the same corpus
+     */
+    public CorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Writes websites until the output has at least the target size.
+     * @param output the writer receiving the corpus
+     * @param targetBytes the size of the corpus in bytes
+     * @param crawlerFormat true for the format of the web crawler, false for the format of the database files
+     * @return the number of websites written
+     * @throws IOException if the output cannot be written
+     */
+    public long generate(Writer output, long targetBytes, boolean crawlerFormat) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        ZipfDistribution words = new ZipfDistribution(getVocabulary(targetBytes), ZIPF_EXPONENT);
+        ZipfDistribution hostSizes = new ZipfDistribution(getHosts(targetBytes), ZIPF_EXPONENT);
+
+        StringBuilder page = new StringBuilder();
+        long bytes = 0;
+        long websites = 0;
+        while (bytes < targetBytes) {
+            page.setLength(0);
+
+            // the title is made of words that are less frequent than the most common words, like names
+            int titleLength = 1 + random.nextInt(4);
+            StringBuilder title = new StringBuilder();
+            for (int i = 0; i < titleLength; i++) {
+                String word = getWord(100 + words.sample(random));
+                title.append(i == 0 ? "" : " ").append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            }
+            int host = hostSizes.sample(random);
+            if (crawlerFormat) {
+                page.append('\n');
+            }
+            page.append("*PAGE:https://www.").append(getWord(host)).append('.')
+                    .append(TOP_LEVEL_DOMAINS[host % TOP_LEVEL_DOMAINS.length]).append('/')
+                    .append(title.toString().replace(' ', '_')).append('_').append(websites).append('\n');
+            page.append(title).append('\n');
+
+            int length = (int) Math.min(MAX_LENGTH, Math.max(1, Math.round(MEDIAN_LENGTH * Math.exp(LENGTH_SIGMA * nextGaussian(random)))));
+            int sentenceEnd = 0;
+            for (int i = 0; i < length; i++) {
+                String word = getWord(words.sample(random));
+                if (crawlerFormat && i == sentenceEnd) {
+                    // the crawler keeps the case of the words, so the first word of each sentence is capitalized
+                    page.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                    sentenceEnd += 8 + random.nextInt(18);
+                } else {
+                    page.append(word);
+                }
+                page.append('\n');
+            }
+            output.append(page);
+            // all characters are ASCII, so each character is one byte
+            bytes += page.length();
+            websites++;
+        }
+        output.flush();
+        return websites;
+    }
+
+    /**
+     * Writes a query log, one query per line, with queries like the ones users ask: mostly one or two frequent
+     * words, sometimes with OR, a prefix or a site filter. It can be given to {@code SearchEngine.warmUp} or be
+     * replayed against the web server.
+     * @param output the writer receiving the queries
+     * @param targetBytes the size of the corpus the queries are asked on, see {@code generate}
+     * @param queries the number of queries
+     * @throws IOException if the output cannot be written
+     */
+    public void generateQueries(Writer output, long targetBytes, int queries) throws IOException {
+        // a seed of its own, so the queries do not depend on how many websites were generated before
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        int hosts = getHosts(targetBytes);
+        // users rarely search for the most common words, so the words are drawn from a flatter distribution
+        ZipfDistribution words = new ZipfDistribution(getVocabulary(targetBytes), 0.8);
+
+        for (int i = 0; i < queries; i++) {
+            int type = random.nextInt(100);
+            String query = getWord(words.sample(random));
+            if (type < 40) {
+                query += " " + getWord(words.sample(random));
+            } else if (type < 50) {
+                query += " OR " + getWord(words.sample(random));
+            } else if (type < 55) {
+                query = query.substring(0, Math.min(query.length(), 4)) + "*";
+            } else if (type < 60) {
+                int host = 1 + random.nextInt(hosts);
+                query = "site:" + getWord(host) + "." + TOP_LEVEL_DOMAINS[host % TOP_LEVEL_DOMAINS.length] + " " + query;
+            }
+            output.write(query + "\n");
+        }
+        output.flush();
+    }
+
+    /**
+     * @return the number of distinct words of a corpus, which grows with the square root of its size
+     */
+    private static int getVocabulary(long targetBytes) {
+        return (int) Math.min(Integer.MAX_VALUE - 1, Math.max(1000, 40 * Math.sqrt(targetBytes / BYTES_PER_WORD)));
+    }
+
+    /**
+     * @return the number of hosts of a corpus, which grows with the number of websites
+     */
+    private static int getHosts(long targetBytes) {
+        // the mean of the log-normal distribution of the lengths is above its median
+        double websites = targetBytes / BYTES_PER_WORD / (MEDIAN_LENGTH * Math.exp(LENGTH_SIGMA * LENGTH_SIGMA / 2));
+        return (int) Math.max(1, websites / WEBSITES_PER_HOST);
+    }
+
+    /**
+     * @param rank the rank of a word, starting with 1 for the most frequent word
+     * @return the word, made of the syllables of the rank in bijective base {@value #SYLLABLES}, so every rank
+     * has a word of its own
+     */
+    String getWord(int rank) {
+        if (rank < CACHED_WORDS && cachedWords[rank] != null) {
+            return cachedWords[rank];
+        }
+        StringBuilder word = new StringBuilder();
+        for (long n = rank; n > 0; n = (n - 1) / SYLLABLES) {
+            int syllable = (int) ((n - 1) % SYLLABLES);
+            word.append(CONSONANTS.charAt(syllable / VOWELS.length())).append(VOWELS.charAt(syllable % VOWELS.length()));
+        }
+        String result = word.toString();
+        if (rank < CACHED_WORDS) {
+            cachedWords[rank] = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return a normally distributed random number with mean 0 and standard deviation 1 (Box-Muller transform)
+     */
+    private static double nextGaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Draws numbers from 1 to n, where the probability of k is proportional to 1 / k^s. It uses the
+     * rejection-inversion method of Hörmann and Derflinger, which needs constant memory and time for any n.
+     */
+    static class ZipfDistribution {
+        private final int n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double threshold;
+
+        ZipfDistribution(int n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.threshold = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        int sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                int k = (int) Math.max(1, Math.min(n, (long) (x + 0.5)));
+                if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        /**
+         * @return the integral of h from 1 to x
+         */
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return expm1OverX((1 - exponent) * logX) * logX;
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1, x * (1 - exponent));
+            return Math.exp(log1pOverX(t) * x);
+        }
+
+        /**
+         * @return log(1 + x) / x, also for x close to 0
+         */
+        private static double log1pOverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        /**
+         * @return (exp(x) - 1) / x, also for x close to 0
+         */
+        private static double expm1OverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+
+    /**
+     * Generates a corpus file.
+     * @param args the output file, the target size like 500MB or 10GB, and optionally the seed (default 1),
+     *             "crawler" for the format of the web crawler, and the number of queries of a query log, which is
+     *             written next to the output file with the extension ".queries"
+     * @throws IOException if the output cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: CorpusGenerator <output file> <size, e.g. 500MB or 10GB> [seed] [crawler] [queries]");
+            return;
+        }
+        Path output = Paths.get(args[0]);
+        long targetBytes = parseSize(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        boolean crawlerFormat = args.length > 3 && args[3].equals("crawler");
+        int queries = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        CorpusGenerator generator = new CorpusGenerator(seed);
+        long start = System.currentTimeMillis();
+        long websites;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(output), StandardCharsets.UTF_8), 1 << 16)) {
+            websites = generator.generate(writer, targetBytes, crawlerFormat);
+        }
+        System.out.println("Generated " + websites + " websites (" + Files.size(output) + " bytes) in \"" + output
+                + "\" in " + (System.currentTimeMillis() - start) + " ms.");
+        if (queries > 0) {
+            Path queryLog = Paths.get(args[0] + ".queries");
+            try (Writer writer = Files.newBufferedWriter(queryLog, StandardCharsets.UTF_8)) {
+                generator.generateQueries(writer, targetBytes, queries);
+            }
+            System.out.println("Generated " + queries + " queries in \"" + queryLog + "\".");
+        }
+    }
+
+    /**
+     * @param size a number of bytes, optionally followed by KB, MB or GB
+     * @return the number of bytes
+     */
+    static long parseSize(String size) {
+        String upper = size.trim().toUpperCase();
+        long unit = 1;
+        if (upper.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (upper.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (upper.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        String number = unit == 1 ? upper : upper.substring(0, upper.length() - 2).trim();
+        return (long) (Double.parseDouble(number) * unit);
+    }
+}
@@ -1,6 +1,7 @@
 package searchengine;
 
 // For reading database file
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
@@ -15,6 +16,31 @@ import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+// For memory mapping the database file
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// For reading compressed database files
+import java.io.EOFException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
 /**
  * FileHelper contains all methods that help reading a database of
  * websites from a file.
@@ -44,6 +70,364 @@ public class FileHelper {
     public static List<Website> parseFile(String filename) {
         // Will contain all the websites that we have found in the file
         List<Website> sites = new ArrayList<Website>();
+        try {
+            parseFile(filename, sites::add);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return sites;
+    }
+
+    /**
+     * Parses a file and passes each website to the consumer as soon as it has been read, so the websites
+     * can be indexed while the file is read, without collecting them in a list first.
+     *
+     * The file is memory mapped in windows of up to {@value #MAPPED_WINDOW_SIZE} bytes, so files larger than
+     * the heap can be read. The lines are found by scanning the mapped bytes for line breaks, and each line is
+     * copied into one reused buffer and decoded from UTF-8 from there. Empty lines are skipped.
+     *
+     * Files compressed with gzip are decompressed while they are read. The blocks of files written by
+     * {@code BlockCompressedOutputStream} are decompressed and split into lines in parallel, by one thread
+     * per processor, while the websites are still passed to the consumer in the order of the file.
+     *
+     * @param filename The filename of the file that we want to load.
+     * @param consumer receives the websites in the order they appear in the file
+     * @throws IOException if the file cannot be read
+     */
+    public static void parseFile(String filename, Consumer<Website> consumer) throws IOException {
+        PageParser parser = new PageParser(consumer);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(BlockCompressedOutputStream.HEADER_SIZE);
+            channel.read(header, 0);
+            if (isBlockHeader(header)) {
+                parseBlocks(channel, parser);
+            } else if (header.position() >= 2 && header.get(0) == 0x1f && header.get(1) == (byte) 0x8b) {
+                // a gzip file of another program, which can only be decompressed from the beginning to the end
+                BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(Channels.newInputStream(channel), 1 << 16), StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    parser.line(line);
+                }
+            } else {
+                parseMapped(channel, parser);
+            }
+        }
+        // When we have read the whole file, we have to create the very last website manually.
+        parser.finish();
+    }
+
+    /**
+     * Parses an uncompressed file by memory mapping it window by window.
+     */
+    private static void parseMapped(FileChannel channel, PageParser parser) throws IOException {
+        long size = channel.size();
+        byte[] line = new byte[256]; // the part of a line that started in the previous window
+        int carried = 0;
+        for (long position = 0; position < size; ) {
+            long windowSize = Math.min(MAPPED_WINDOW_SIZE, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            int limit = (int) windowSize;
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (window.get(i) != '\n') {
+                    continue;
+                }
+                line = appendBytes(line, carried, window, lineStart, i);
+                parser.line(decodeLine(line, 0, carried + i - lineStart));
+                carried = 0;
+                lineStart = i + 1;
+            }
+            // keep the beginning of a line that continues in the next window
+            line = appendBytes(line, carried, window, lineStart, limit);
+            carried += limit - lineStart;
+            position += windowSize;
+        }
+        if (carried > 0) {
+            parser.line(decodeLine(line, 0, carried));
+        }
+    }
+
+    /**
+     * Parses a file of {@code BlockCompressedOutputStream}. This thread reads the blocks one after the other and
+     * hands them to the decompressing threads, and passes the lines of the oldest block to the parser. At most
+     * two blocks per thread are read ahead, so the memory needed does not depend on the size of the file.
+     */
+    private static void parseBlocks(FileChannel channel, PageParser parser) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService decompressors = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "block-decompressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<String[]>> blocks = new ArrayDeque<>();
+        try {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(BlockCompressedOutputStream.HEADER_SIZE);
+            for (long position = 0; position < size; ) {
+                header.clear();
+                readFully(channel, header, position);
+                if (!isBlockHeader(header)) {
+                    throw new IOException("No compressed block at byte " + position);
+                }
+                int blockSize = readInt(header.array(), 16);
+                if (blockSize < BlockCompressedOutputStream.HEADER_SIZE + BlockCompressedOutputStream.TRAILER_SIZE
+                        || blockSize > size - position) {
+                    throw new IOException("Compressed block at byte " + position + " has an invalid size of "
+                            + blockSize + " bytes");
+                }
+                ByteBuffer block = ByteBuffer.allocate(blockSize);
+                readFully(channel, block, position);
+                long blockPosition = position;
+                blocks.addLast(decompressors.submit(() -> decompressBlock(block.array(), blockPosition)));
+                position += block.capacity();
+                if (blocks.size() >= 2 * threads) {
+                    parseLines(blocks.removeFirst(), parser);
+                }
+            }
+            while (!blocks.isEmpty()) {
+                parseLines(blocks.removeFirst(), parser);
+            }
+        } finally {
+            decompressors.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for a block to be decompressed, and passes its lines to the parser.
+     */
+    private static void parseLines(Future<String[]> block, PageParser parser) throws IOException {
+        String[] lines;
+        try {
+            lines = block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decompressing the file");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        for (String line : lines) {
+            parser.line(line);
+        }
+    }
+
+    /**
+     * Decompresses a block and splits it into lines. The CRC-32 of the block is checked.
+     * @param block the block, including its header and trailer
+     * @param position the byte offset of the block in the file
+     * @return the lines of the block
+     * @throws IOException if the block is corrupt
+     */
+    private static String[] decompressBlock(byte[] block, long position) throws IOException {
+        int header = BlockCompressedOutputStream.HEADER_SIZE;
+        int trailer = block.length - BlockCompressedOutputStream.TRAILER_SIZE;
+        // deflate compresses at most 1032 to 1, so a larger uncompressed size can only come from a corrupt trailer
+        int uncompressedSize = readInt(block, trailer + 4);
+        if (uncompressedSize < 0 || uncompressedSize > MAX_BLOCK_DATA_SIZE
+                || uncompressedSize > 1032L * (trailer - header)) {
+            throw new IOException("Compressed block at byte " + position + " has an invalid uncompressed size of "
+                    + uncompressedSize + " bytes");
+        }
+        byte[] data = new byte[uncompressedSize];
+        Inflater inflater = new Inflater(true);
+        try {
+            // the trailer is passed too, as nowrap mode needs a byte after the compressed data
+            inflater.setInput(block, header, block.length - header);
+            int length = 0;
+            while (length < data.length && !inflater.finished() && !inflater.needsInput()) {
+                length += inflater.inflate(data, length, data.length - length);
+            }
+            if (length < data.length) {
+                throw new IOException("Compressed block at byte " + position + " is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed block at byte " + position + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if ((int) crc.getValue() != readInt(block, trailer)) {
+            throw new IOException("Compressed block at byte " + position + " has a wrong checksum");
+        }
+
+        List<String> lines = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n') {
+                lines.add(decodeLine(data, lineStart, i - lineStart));
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < data.length) {
+            lines.add(decodeLine(data, lineStart, data.length - lineStart));
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    /**
+     * @return true if the bytes are a gzip header with the extra field of {@code BlockCompressedOutputStream}
+     */
+    private static boolean isBlockHeader(ByteBuffer header) {
+        byte[] bytes = header.array();
+        return header.position() == BlockCompressedOutputStream.HEADER_SIZE
+                && bytes[0] == 0x1f && bytes[1] == (byte) 0x8b && bytes[2] == 8 && (bytes[3] & 4) != 0
+                && bytes[10] == 8 && bytes[11] == 0 && bytes[12] == 'M' && bytes[13] == 'S'
+                && bytes[14] == 4 && bytes[15] == 0;
+    }
+
+    /**
+     * Reads an int in the little-endian byte order of gzip.
+     */
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Fills a buffer with the bytes of a channel from the given position.
+     * @throws EOFException if the channel ends before the buffer is full
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Compressed block is truncated at byte " + (position + buffer.position()));
+            }
+        }
+    }
+
+    /**
+     * Parses websites in the format of a database file from a reader, for example websites sent to the
+     * web application, and passes each website to the consumer.
+     *
+     * @param reader the reader of the websites
+     * @param consumer receives the websites in the order they are read
+     * @throws IOException if the reader fails
+     */
+    public static void parse(BufferedReader reader, Consumer<Website> consumer) throws IOException {
+        PageParser parser = new PageParser(consumer);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parser.line(line);
+        }
+        parser.finish();
+    }
+
+    /**
+     * the maximum number of bytes of the database file that are memory mapped at once.
+     */
+    static final long MAPPED_WINDOW_SIZE = 1L << 30;
+
+    /**
+     * the maximum number of uncompressed bytes of a block. The blocks of {@code BlockCompressedOutputStream}
+     * are far smaller, unless a line is longer.
+     */
+    static final int MAX_BLOCK_DATA_SIZE = 1 << 30;
+
+    /**
+     * Decodes a line from UTF-8, without a trailing carriage return.
+     * @param line the bytes of the line
+     * @param offset the position of the first byte of the line
+     * @param length the number of bytes of the line
+     * @return the decoded line
+     */
+    private static String decodeLine(byte[] line, int offset, int length) {
+        if (length > 0 && line[offset + length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies bytes of a mapped window to the end of a line buffer, growing the buffer if necessary.
+     * @param line the line buffer
+     * @param length the number of bytes already in the line buffer
+     * @param window the mapped window
+     * @param start the position of the first byte to copy
+     * @param end the position after the last byte to copy
+     * @return the line buffer, which may be a new array
+     */
+    private static byte[] appendBytes(byte[] line, int length, ByteBuffer window, int start, int end) {
+        int needed = length + end - start;
+        if (needed > line.length) {
+            line = Arrays.copyOf(line, Math.max(needed, line.length * 2));
+        }
+        window.position(start);
+        window.get(line, length, end - start);
+        return line;
+    }
+
+    /**
+     * Turns the lines of a database file into websites. It remembers the url, the title and the words of the
+     * website that is currently read, and passes the website on when the next "*PAGE:" line starts.
+     */
+    private static class PageParser {
+        private final Consumer<Website> consumer;
+
+        // We use these variables to store the url, title, and the term ids
+        // of the words that we find for a website in the file
+        private String url = null, title = null;
+        private int[] termIds = new int[256];
+        private int numberOfWords = 0;
+
+        // foundFirstPage is true as soon as we found the first "*PAGE:" line
+        // and is used to skip any erroneous lines at the beginning of the file.
+        private boolean foundFirstPage = false;
+        // isNextLineTitle distinguishes if the line is the title or if the line is a word
+        private boolean isNextLineTitle = false;
+
+        PageParser(Consumer<Website> consumer) {
+            this.consumer = consumer;
+        }
+
+        void line(String line) {
+            if (line.startsWith("*PAGE:")) {
+                // new website entry starts, so create previous website from data gathered
+                finish();
+
+                // clear all variables to start new website entry
+                url = line.substring(6); // 6 is length of "*PAGE:"; get rest of line to capture url
+                title = null;            // title not known
+                numberOfWords = 0;       // no words are known
+
+                foundFirstPage = true;
+                isNextLineTitle = true;
+            } else if (line.isEmpty()) {
+                return;
+            } else if (foundFirstPage && isNextLineTitle) {
+                // this is the title of the website
+                title = line;
+                isNextLineTitle = false; // the subsequent lines are the words of the website
+            } else if (foundFirstPage) {
+                // the word is stored as its term id, the buffer grows for long websites
+                if (numberOfWords == termIds.length) {
+                    termIds = Arrays.copyOf(termIds, termIds.length * 2);
+                }
+                termIds[numberOfWords++] = Vocabulary.getTermId(line);
+            }
+        }
+
+        void finish() {
+            if (url != null && title != null && numberOfWords > 0) {
+                consumer.accept(new Website(url, title, Arrays.copyOf(termIds, numberOfWords)));
+            }
+            url = null;
+        }
+    }
+
+    /**
+     * Parses a file with a {@code Scanner}, line by line, and extracts all the websites that are
+     * contained in the file. This is the original parser, which is kept to compare the memory mapped
+     * parser against in the benchmarks.
+     *
+     * @param filename The filename of the file that we want to
+     * load. Needs to include the directory path as well.
+     * @return The list of websites that contain all websites that
+     * were found in the file.
+     */
+    public static List<Website> parseFileWithScanner(String filename) {
+        // Will contain all the websites that we have found in the file
+        List<Website> sites = new ArrayList<Website>();
 
         // We use these variables to store the url, title, and the
         // words that we find for a website in the file
@@ -131,7 +515,14 @@ public class FileHelper {
         return database;
     }
 
-    public static List<Website> parseFile(String[] args) {
+    /**
+     * Returns the path of the database file, given as first program argument or,
+     * if there is none, in the file {@code config.properties}.
+     *
+     * @param args command-line arguments.
+     * @return the path of the database file
+     */
+    public static String getDatabasePath(String[] args) {
         String database;
         if (args.length < 1) {
             database = FileHelper.readConfig();
@@ -145,6 +536,10 @@ public class FileHelper {
             database = args[0];
             System.out.println("Path \"" + database + "\" as program argument.");
         }
-        return parseFile(database);
+        return database;
+    }
+
+    public static List<Website> parseFile(String[] args) {
+        return parseFile(getDatabasePath(args));
     }
 }
@@ -0,0 +1,110 @@
+package searchengine;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative long values, like latencies in nanoseconds or result sizes, in the style of an
+ * HdrHistogram. Values below 32 have a bucket of their own; above, every power of two is divided into 16 buckets,
+ * so a value is known with a relative error of at most 1/16 in a fixed array of 960 counters. Recording a value is
+ * a few shifts and one atomic increment, without locks or allocation, so it can be called on every query.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class Histogram {
+
+    /**
+     * the number of buckets per power of two, as power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(getIndex(Long.MAX_VALUE) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value a value
+     * @return the bucket of the value
+     */
+    static int getIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * shift + (int) (value >>> shift);
+    }
+
+    /**
+     * @param index a bucket
+     * @return the highest value of the bucket
+     */
+    static long getHighestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     * @param value the value
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts.incrementAndGet(getIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long previous = max.get();
+        while (value > previous && !max.compareAndSet(previous, value)) {
+            previous = max.get();
+        }
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the sum of the recorded values
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * @return the highest recorded value, 0 if no value has been recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Estimates a quantile of the recorded values. The result is the highest value of the bucket containing the
+     * quantile, but never above the highest recorded value.
+     * @param quantile the quantile, between 0 and 1
+     * @return the estimated quantile, 0 if no value has been recorded
+     */
+    public long getValueAtQuantile(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(getHighestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+}
@@ -0,0 +1,388 @@
+package searchengine;
+
+// HTTP Server Imports
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Other Imports
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves our search engine to the Web with the HTTP server built into the JDK, as a lightweight alternative to
+ * the Spring Boot {@code WebApplication}. It answers the same requests: "/search", "/search/page", "/cache",
+ * "/metrics", "/websites" and "/refresh", and serves the files of the directory {@code static}.
+ *
+ * Requests are answered by a fixed number of threads with a bounded queue of waiting requests; when the queue is
+ * full, the thread accepting connections answers the request itself, so no more connections are accepted until
+ * the server catches up. Requests are logged on a background thread.
+ *
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class HttpServerApplication {
+
+    /**
+     * the port the server listens on, unless the system property "server.port" is set.
+     */
+    private static final int DEFAULT_PORT = 8080;
+
+    /**
+     * the maximum number of websites on a page of "/search/page".
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * the number of requests waiting for a thread, before the server stops accepting connections.
+     */
+    private static final int QUEUE_SIZE = 256;
+
+    /**
+     * the content types of the files in the directory {@code static}, by file extension.
+     */
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+    static {
+        CONTENT_TYPES.put("html", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("js", "application/javascript; charset=utf-8");
+        CONTENT_TYPES.put("css", "text/css; charset=utf-8");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("ico", "image/x-icon");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+    }
+
+    // Search Engine instance
+    private final SearchEngine searchengine;
+
+    // The directory of the static files
+    private final Path staticDirectory;
+
+    // The log of the requests
+    private final AsyncLogger log;
+
+    /**
+     * Creates a {@code HttpServerApplication} object.
+     *
+     * @param searchengine the search engine answering the queries
+     * @param staticDirectory the directory of the static files
+     * @param log the log of the requests
+     */
+    public HttpServerApplication(SearchEngine searchengine, Path staticDirectory, AsyncLogger log) {
+        this.searchengine = searchengine;
+        this.staticDirectory = staticDirectory.toAbsolutePath().normalize();
+        this.log = log;
+    }
+
+    /**
+     * Starts a web server that serves our search engine to the Web, without Spring. It reads the list of websites
+     * from the input file given as argument, constructs an instance of {@code SearchEngine} using that, and
+     * finally, starts the HTTP server of the JDK.
+     *
+     * @param args command-line arguments.
+     */
+    public static void main(String[] args) {
+        System.out.println("Welcome to the SearchEngine!");
+
+        String database = FileHelper.getDatabasePath(args);
+
+        System.out.println("Reading database and building the search engine...");
+        SearchEngine searchengine = null;
+        try {
+            searchengine = SearchEngine.load(database);
+        } catch (IOException e) {
+            System.out.println("Error: Could not read the database \"" + database + "\": " + e);
+            System.exit(1);
+        }
+
+        // the optional second argument is a query log, whose queries fill the query result cache
+        if (args.length > 1) {
+            try {
+                searchengine.warmUp(args[1]);
+            } catch (IOException e) {
+                System.out.println("Could not read the query log \"" + args[1] + "\": " + e);
+            }
+        }
+
+        System.out.println("Search engine is ready to receive queries.");
+        int port = Integer.getInteger("server.port", DEFAULT_PORT);
+        try {
+            new HttpServerApplication(searchengine, Paths.get("static"), new AsyncLogger(System.out, 10000)).start(port);
+        } catch (IOException e) {
+            System.out.println("Error: Could not start the web server on port " + port + ": " + e);
+            System.exit(1);
+        }
+        System.out.println("Web server is listening on port " + port + ".");
+    }
+
+    /**
+     * Starts the HTTP server.
+     *
+     * @param port the port to listen on, 0 for any free port
+     * @return the running server, which is stopped with {@code stop}
+     * @throws IOException if the server cannot listen on the port
+     */
+    public HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/search", exchange -> handle(exchange, "GET", this::search));
+        server.createContext("/search/page", exchange -> handle(exchange, "GET", this::searchPage));
+        server.createContext("/cache", exchange -> handle(exchange, "GET", this::cacheStatistics));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET", this::metrics));
+        server.createContext("/websites", exchange -> handle(exchange, exchange.getRequestMethod().equals("DELETE") ? "DELETE" : "POST", this::websites));
+        server.createContext("/refresh", exchange -> handle(exchange, "POST", this::refresh));
+        server.createContext("/", exchange -> handle(exchange, "GET", this::staticFile));
+        server.setExecutor(createExecutor());
+        server.start();
+        return server;
+    }
+
+    /**
+     * @return a pool of one thread per core, twice, with a bounded queue. When the queue is full, the request is
+     * answered by the thread that accepted it.
+     */
+    private static ExecutorService createExecutor() {
+        int threads = 2 * Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "http-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Answers a request of a path.
+     */
+    private interface RequestHandler {
+        void handle(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException;
+    }
+
+    /**
+     * Checks the request method, parses the request parameters and passes the request to the handler. Invalid
+     * numbers in the parameters are answered with status 400, other errors with status 500.
+     */
+    private void handle(HttpExchange exchange, String method, RequestHandler handler) {
+        try {
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            if (!exchange.getRequestMethod().equals(method)) {
+                sendStatus(exchange, 405);
+                return;
+            }
+            handler.handle(exchange, parseParameters(exchange.getRequestURI().getRawQuery()));
+        } catch (NumberFormatException e) {
+            sendStatus(exchange, 400);
+        } catch (Exception e) {
+            log.log("Error handling request " + exchange.getRequestURI() + ": " + e);
+            sendStatus(exchange, 500);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends a response without body, unless the response has been started already.
+     */
+    private static void sendStatus(HttpExchange exchange, int status) {
+        try {
+            exchange.sendResponseHeaders(status, -1);
+        } catch (IOException | IllegalStateException e) {
+            // the response headers have been sent already, the client sees the connection close
+        }
+    }
+
+    /**
+     * Parses the parameters of a query string, like "query=word1+word2&limit=10".
+     *
+     * @param rawQuery the query string of the request, url encoded, or null
+     * @return the values of each parameter
+     */
+    static Map<String, List<String>> parseParameters(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, List<String>> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), "UTF-8");
+            String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), "UTF-8");
+            parameters.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        return parameters;
+    }
+
+    /**
+     * @return the first value of the parameter, or the default value if the request does not have the parameter
+     */
+    private static String getParameter(Map<String, List<String>> parameters, String name, String defaultValue) {
+        List<String> values = parameters.get(name);
+        return values == null ? defaultValue : values.get(0);
+    }
+
+    /**
+     * Starts a JSON response, which is sent in chunks while it is written.
+     */
+    private static Writer startJson(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Answers "/search" like {@code WebApplication.search}: all websites matching the query, or the best ones
+     * if a limit is given, with their title, url and words.
+     */
+    private void search(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        String query = getParameter(parameters, "query", "");
+        int limit = Integer.parseInt(getParameter(parameters, "limit", "0"));
+        long start = System.nanoTime();
+        List<Website> resultList = limit > 0 ? searchengine.search(query, limit) : searchengine.search(query);
+        log.log("Query \"" + query + "\": found " + resultList.size() + " websites in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+        Writer writer = startJson(exchange);
+        writer.write('[');
+        for (int i = 0; i < resultList.size(); i++) {
+            Website website = resultList.get(i);
+            writer.write(i == 0 ? "{\"title\":" : ",{\"title\":");
+            SearchResultPage.writeString(writer, website.getTitle());
+            writer.write(",\"url\":");
+            SearchResultPage.writeString(writer, website.getUrl());
+            writer.write(",\"words\":[");
+            List<String> words = website.getWords();
+            for (int j = 0; j < words.size(); j++) {
+                if (j > 0) {
+                    writer.write(',');
+                }
+                SearchResultPage.writeString(writer, words.get(j));
+            }
+            writer.write("]}");
+        }
+        writer.write(']');
+        writer.flush();
+    }
+
+    /**
+     * Answers "/search/page" like {@code WebApplication.searchPage}: one page of the websites matching the query,
+     * with their title and url, and the total number of matching websites.
+     */
+    private void searchPage(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        String query = getParameter(parameters, "query", "");
+        int offset = Math.max(0, Integer.parseInt(getParameter(parameters, "offset", "0")));
+        int limit = Math.max(0, Math.min(MAX_PAGE_SIZE, Integer.parseInt(getParameter(parameters, "limit", "50"))));
+        long start = System.nanoTime();
+        SearchResultPage page = searchengine.search(query, offset, limit);
+        log.log("Query \"" + query + "\": found " + page.getTotal() + " websites in " + (System.nanoTime() - start) / 1000000 + " ms");
+        page.writeJson(startJson(exchange));
+    }
+
+    /**
+     * Answers "/cache" with the statistics of the query result cache.
+     */
+    private void cacheStatistics(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        writeObject(exchange, searchengine.getCache().getStatistics());
+    }
+
+    /**
+     * Answers "/metrics" like {@code WebApplication.metrics}, in the text format of Prometheus.
+     */
+    private void metrics(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        searchengine.writeMetrics(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Answers "/websites": a POST request adds or replaces the websites in its body, given in the format of a
+     * database file, and a DELETE request deletes the websites with the urls given as "url" parameters.
+     */
+    private void websites(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        if (exchange.getRequestMethod().equals("DELETE")) {
+            List<String> urls = parameters.getOrDefault("url", Collections.<String>emptyList());
+            log.log("Handling request to delete " + urls.size() + " websites");
+            searchengine.update(Collections.<Website>emptyList(), urls);
+            result.put("deleted", urls.size());
+        } else {
+            List<Website> websites = new ArrayList<>();
+            FileHelper.parse(new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)), websites::add);
+            log.log("Handling request to add " + websites.size() + " websites");
+            searchengine.update(websites, Collections.<String>emptyList());
+            result.put("added", websites.size());
+        }
+        writeObject(exchange, result);
+    }
+
+    /**
+     * Answers "/refresh" by making all added and deleted websites searchable.
+     */
+    private void refresh(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        searchengine.refresh();
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    /**
+     * Writes a map of numbers as JSON object.
+     */
+    private static void writeObject(HttpExchange exchange, Map<String, ? extends Number> values) throws IOException {
+        Writer writer = startJson(exchange);
+        writer.write('{');
+        boolean first = true;
+        for (Map.Entry<String, ? extends Number> entry : values.entrySet()) {
+            writer.write(first ? "" : ",");
+            SearchResultPage.writeString(writer, entry.getKey());
+            writer.write(':');
+            writer.write(entry.getValue().toString());
+            first = false;
+        }
+        writer.write('}');
+        writer.flush();
+    }
+
+    /**
+     * Sends a file of the directory {@code static}, "index.html" for the path "/". Paths outside of the directory
+     * are not found.
+     */
+    private void staticFile(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Path file = staticDirectory.resolve(path.equals("/") ? "index.html" : path.substring(1)).normalize();
+        if (!file.startsWith(staticDirectory) || !Files.isRegularFile(file)) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        String name = file.getFileName().toString();
+        String contentType = CONTENT_TYPES.get(name.substring(name.lastIndexOf('.') + 1).toLowerCase());
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType == null ? "application/octet-stream" : contentType);
+        exchange.sendResponseHeaders(200, Files.size(file));
+        try (OutputStream out = exchange.getResponseBody()) {
+            Files.copy(file, out);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package searchengine;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the progress of an index build, which may run on several threads at the same time.
+ * While the build runs, the number of indexed websites and words, and the websites and words per second,
+ * are printed to standard output once per second.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class IndexBuildProgress {
+
+    /**
+     * the number of websites that will be indexed, negative if it is not known in advance.
+     */
+    private final int totalWebsites;
+
+    /**
+     * the number of websites indexed so far.
+     */
+    private final AtomicLong websites = new AtomicLong();
+
+    /**
+     * the number of words indexed so far.
+     */
+    private final AtomicLong words = new AtomicLong();
+
+    /**
+     * the time when the build started, in nanoseconds.
+     */
+    private long startTime;
+
+    /**
+     * prints the progress once per second while the build is running.
+     */
+    private ScheduledExecutorService reporter;
+
+    /**
+     * Creates a {@code IndexBuildProgress} object.
+     * @param totalWebsites the number of websites that will be indexed, negative if it is not known
+     */
+    public IndexBuildProgress(int totalWebsites) {
+        this.totalWebsites = totalWebsites;
+    }
+
+    /**
+     * Starts measuring the time and printing the progress once per second.
+     */
+    public void start() {
+        startTime = System.nanoTime();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-build-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(report()), 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records that a website has been indexed.
+     * @param numberOfWords the number of words on the website
+     */
+    public void websiteIndexed(int numberOfWords) {
+        websites.incrementAndGet();
+        words.addAndGet(numberOfWords);
+    }
+
+    /**
+     * Stops printing the progress and prints a summary of the build.
+     */
+    public void finish() {
+        finish(true);
+    }
+
+    /**
+     * Stops printing the progress.
+     * @param printSummary true to print a summary of the build
+     */
+    public void finish(boolean printSummary) {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            if (printSummary) {
+                System.out.println(report());
+            }
+        }
+    }
+
+    /**
+     * @return a line describing the progress and throughput of the build
+     */
+    public String report() {
+        double seconds = Math.max((System.nanoTime() - startTime) / 1e9, 1e-9);
+        long indexedWebsites = websites.get();
+        long indexedWords = words.get();
+        String of = totalWebsites < 0 ? "" : " of " + totalWebsites;
+        return String.format("Indexed %d%s websites in %.1f s (%.0f websites/sec, %.0f words/sec)",
+                indexedWebsites, of, seconds, indexedWebsites / seconds, indexedWords / seconds);
+    }
+
+    /**
+     * @return the number of websites indexed so far
+     */
+    public long getWebsites() {
+        return websites.get();
+    }
+
+    /**
+     * @return the number of words indexed so far
+     */
+    public long getWords() {
+        return words.get();
+    }
+}
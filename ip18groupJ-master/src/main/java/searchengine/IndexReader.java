@@ -0,0 +1,306 @@
+package searchengine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The read side of an index with postings lists: the postings lists of the words, the document table, the corpus
+ * statistics and the upper bounds of the scores. The {@code QueryHandler} and the scores answer queries with
+ * these methods only, so they work the same on an {@code InvertedIndex}, a {@code SimpleIndex} and a
+ * {@code SegmentedIndexReader}.
+ * The queries themselves, like looking up a word, merging the words of a prefix and intersecting postings lists,
+ * are implemented here on top of the abstract methods.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public abstract class IndexReader {
+
+    /**
+     * the length norm of each website, indexed by document id, for each class of score that has been used.
+     */
+    private final Map<Class<? extends Score>, double[]> lengthNorms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the postings list of a word.
+     * @param word a word
+     * @return the postings list of the word, or null if no website contains the word.
+     */
+    protected abstract Postings getPostings(String word);
+
+    /**
+     * @param prefix the prefix
+     * @return all words of the index starting with the prefix, in sorted order
+     */
+    public abstract List<String> getWordsWithPrefix(String prefix);
+
+    /**
+     * Finds the websites that may match a site url, so site queries are filtered by intersecting postings lists.
+     * The websites still have to be checked with {@code SiteIndex.matches}.
+     * @param siteUrl the lower case site url of a query
+     * @return a postings list of the websites of the host and first directory of the site url
+     */
+    public abstract Postings getSitePostings(String siteUrl);
+
+    /**
+     * @param word a word
+     * @return an upper bound of the Okapi BM25 score the word has on any website, 0 if the word is not in the index.
+     */
+    public abstract double getMaxScore(String word);
+
+    /**
+     * Returns an upper bound of the Okapi BM25 score of a word within each block of its postings list. Block i
+     * contains the postings from position i * {@code PostingsCodec.BLOCK_SIZE} on.
+     * @param word a word
+     * @return the upper bounds of the scores in each block, an empty array if the word is not in the index.
+     */
+    public abstract float[] getBlockMaxScores(String word);
+
+    /**
+     * @return the list of indexed websites, the position of a website is its document id.
+     */
+    protected abstract List<Website> getDocuments();
+
+    /**
+     * @param website a website
+     * @return the document id of the website, or -1 if the website is not indexed.
+     */
+    protected abstract int getDocId(Website website);
+
+    /**
+     * @param docId a document id
+     * @return the number of words on the website with the given document id.
+     */
+    public abstract int getDocumentLength(int docId);
+
+    /**
+     * @return the number of websites in the corpus
+     */
+    public abstract double getCorpusSize();
+
+    /**
+     * @return the average number of words on the websites in the corpus
+     */
+    public abstract double getAverageDocumentLength();
+
+    /**
+     * Returns the reader of an index. A segmented index is read by the reader of its current segments, the other
+     * indices read themselves.
+     * @param index an index
+     * @return the reader of the index
+     * @throws IllegalArgumentException if the index cannot be read as an {@code IndexReader}
+     */
+    public static IndexReader of(Index index) {
+        if (index instanceof SegmentedIndex) {
+            return ((SegmentedIndex) index).getReader();
+        }
+        if (index instanceof IndexReader) {
+            return (IndexReader) index;
+        }
+        throw new IllegalArgumentException("no reader for index " + index.getClass().getSimpleName());
+    }
+
+    /**
+     * Calculates the number of websites where the given word occurs.
+     * @param word a query word
+     * @return number of websites where the word occurs.
+     */
+    public Double getNumberOfWebsites(String word){
+        double websitesContainingQuery;
+        Postings postings = getPostings(word);
+        if (postings != null){
+            websitesContainingQuery = (double) postings.size();
+            return websitesContainingQuery;
+        }
+        else {
+            return 0.0;
+        }
+    }
+
+    /**
+     * Receives a word word and returns a list of all websites that contain the word.
+     * @param word The word.
+     * @return the list of websites that contain the word.
+     */
+    public List<Website> lookup(String word) {
+
+        if (word.endsWith("*")){
+
+            String prefixStr = word.substring(0, word.length()-1);  // Stores the word in front of "*" as a new prefix string
+
+            // Merges the postings lists of all words starting with the prefix string
+            return new ArrayList<>(getPostingsWithPrefix(prefixStr));
+        }
+
+        // Checks if the word does not end with "*" and if the index contains the word.
+        Postings postings = getPostings(word);
+        if (postings != null){
+            // Stores the list of websites that contains the word in the list of results
+            return new ArrayList<>(postings);
+        }
+        // Returns an empty list if the indexMap does not contain the word word
+        return new ArrayList<Website>();
+    }
+
+    /**
+     * Returns how often a word occurs on a website, as recorded in the word's postings list.
+     * @param word a query word
+     * @param website an indexed website
+     * @return the term frequency of the word on the website, 0 if the word does not occur on it.
+     */
+    public int getTermFrequency(String word, Website website) {
+        Postings postings = getPostings(word);
+        int docId = getDocId(website);
+        if (postings == null || docId < 0) {
+            return 0;
+        }
+        return postings.getFrequencyOfDocId(docId);
+    }
+
+    /**
+     * Returns a postings list of all websites containing a word that starts with the prefix.
+     * The words are found with {@code getWordsWithPrefix}, and their postings lists are merged by document id,
+     * so each website is contained once.
+     * @param prefix the prefix
+     * @return the merged postings list, the term frequencies of all words with the prefix are added up.
+     */
+    public Postings getPostingsWithPrefix(String prefix) {
+        List<Postings> lists = new ArrayList<>();
+        for (String keyWord : getWordsWithPrefix(prefix)) {
+            lists.add(getPostings(keyWord));
+        }
+        return Postings.union(lists, getDocuments());
+    }
+
+    /**
+     * Finds the websites containing all given words (a conjunctive query). Words ending with "*" match all words
+     * with the prefix. The words are processed in the order of their document frequency, starting with the rarest,
+     * and the intersection stops as soon as no website is left.
+     * @param words the words of the query
+     * @return a postings list of the websites that contain all words
+     */
+    public Postings getPostingsContainingAll(String[] words) {
+        List<Postings> lists = getPostingsLists(words);
+        return lists == null ? new Postings(getDocuments()) : intersect(lists);
+    }
+
+    /**
+     * Reads the postings lists of the distinct words of a conjunctive query, the first step of
+     * {@code getPostingsContainingAll}. Words ending with "*" get the merged postings list of all words with the prefix.
+     * @param words the words of the query
+     * @return the postings lists of the words, or null if one of the words (not a prefix) does not occur
+     */
+    public List<Postings> getPostingsLists(String[] words) {
+        // Removes repeated words, they do not change the intersection
+        Set<String> distinctWords = new LinkedHashSet<>(Arrays.asList(words));
+
+        // Checks the document frequencies first, so no postings list is read if one of the words does not occur
+        for (String word : distinctWords) {
+            if (!word.endsWith("*") && getNumberOfWebsites(word) == 0) {
+                return null;
+            }
+        }
+        List<Postings> lists = new ArrayList<>();
+        for (String word : distinctWords) {
+            if (word.endsWith("*")) {
+                lists.add(getPostingsWithPrefix(word.substring(0, word.length() - 1)));
+            } else {
+                lists.add(getPostings(word));
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * Intersects postings lists, the second step of {@code getPostingsContainingAll}. The lists are ordered by
+     * their length, starting with the shortest, and the intersection stops as soon as no website is left.
+     * @param lists the postings lists
+     * @return a new postings list of the websites contained in all lists, which never is one of the index's lists
+     */
+    public Postings intersect(List<Postings> lists) {
+        if (lists.isEmpty()) {
+            return new Postings(getDocuments());
+        }
+        if (lists.size() == 1) {
+            // the list may be the postings list of the index itself, which must not be changed by the caller
+            return lists.get(0).copy();
+        }
+        List<Postings> sorted = new ArrayList<>(lists);
+        // Orders the postings lists by their document frequency, starting with the rarest word
+        sorted.sort(Comparator.comparingInt(Postings::size));
+
+        Postings result = sorted.get(0);
+        for (int i = 1; i < sorted.size() && !result.isEmpty(); i++) {
+            result = result.intersect(sorted.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of words on a website, as recorded when the index was built.
+     * @param website a website
+     * @return the document length of the website.
+     */
+    public int getDocumentLength(Website website) {
+        int docId = getDocId(website);
+        return docId < 0 ? website.getNumberOfWords() : getDocumentLength(docId);
+    }
+
+    /**
+     * Returns the length norm of every website for a score, which is calculated the first time the score is used
+     * with the index.
+     * @param score a score
+     * @return the value of {@code score.getLengthNorm} for each website, indexed by document id.
+     */
+    public double[] getLengthNorms(Score score) {
+        return lengthNorms.computeIfAbsent(score.getClass(), scoreClass -> {
+            double[] norms = new double[getDocuments().size()];
+            double average = getAverageDocumentLength();
+            for (int docId = 0; docId < norms.length; docId++) {
+                norms[docId] = score.getLengthNorm(getDocumentLength(docId), average);
+            }
+            return norms;
+        });
+    }
+
+    /**
+     * Calculates an upper bound of the Okapi BM25 score within each block of a postings list of this index, for
+     * an index without stored bounds. The bound of a block is the score of its highest term frequency on its
+     * shortest website; the score grows with the term frequency and shrinks with the length, so no website of the
+     * block scores higher. The bounds are rounded up to the next float.
+     * @param postings the postings list of a word, which holds all websites containing the word
+     * @return the upper bounds of the scores in each block, an empty array if the list is null or empty
+     */
+    protected float[] calculateBlockMaxScores(Postings postings) {
+        if (postings == null || postings.isEmpty()) {
+            return new float[0];
+        }
+        double idf = Math.log10(getCorpusSize() / postings.size());
+        double averageDocumentLength = getAverageDocumentLength();
+        float[] blocks = new float[(postings.size() + PostingsCodec.BLOCK_SIZE - 1) / PostingsCodec.BLOCK_SIZE];
+        for (int block = 0, start = 0; start < postings.size(); block++, start += PostingsCodec.BLOCK_SIZE) {
+            int end = Math.min(start + PostingsCodec.BLOCK_SIZE, postings.size());
+            int maxFrequency = 0;
+            int minLength = Integer.MAX_VALUE;
+            for (int i = start; i < end; i++) {
+                maxFrequency = Math.max(maxFrequency, postings.getFrequency(i));
+                minLength = Math.min(minLength, getDocumentLength(postings.getDocId(i)));
+            }
+            blocks[block] = Math.nextUp((float) OkapiBM25.getScore(maxFrequency, idf, minLength, averageDocumentLength));
+        }
+        return blocks;
+    }
+
+    /**
+     * Removes the length norms calculated so far, when the websites of the index change.
+     */
+    protected void clearLengthNorms() {
+        lengthNorms.clear();
+    }
+}
@@ -0,0 +1,295 @@
+package searchengine;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable part of a {@code SegmentedIndex}. A segment holds an inverted index of a group of websites,
+ * which get the document ids 0 to size - 1 within the segment, and a bitmap of the websites deleted since the
+ * segment was written. Deleting websites does not change a segment, it creates a new version of the segment that
+ * shares the index and has its own copy of the bitmap, so readers of the old version are not affected.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class IndexSegment {
+
+    /**
+     * identifies the segment, all versions of a segment have the same id.
+     */
+    private final long id;
+
+    /**
+     * the inverted index of all websites of the segment, including the deleted ones.
+     */
+    private final InvertedIndex index;
+
+    /**
+     * the document ids of the websites, mapped by url. If several websites have the same url, the first one
+     * is mapped, and sameUrl links each of them to the next one.
+     */
+    private final Map<String, Integer> docIdsByUrl;
+
+    /**
+     * the document id of the next website with the same url, -1 for the last one. Null if all urls are distinct.
+     */
+    private final int[] sameUrl;
+
+    /**
+     * the document ids of the deleted websites.
+     */
+    private final BitSet deletedDocs;
+
+    /**
+     * the number of websites and words that are not deleted.
+     */
+    private final int liveDocs;
+    private final long liveWords;
+
+    /**
+     * Creates a {@code IndexSegment} object by indexing a list of websites.
+     * @param id the id of the segment
+     * @param websites the websites
+     */
+    IndexSegment(long id, List<Website> websites) {
+        this(id, buildIndex(websites));
+    }
+
+    /**
+     * Creates a {@code IndexSegment} object from an inverted index that has already been built, for example
+     * the index a search engine was started with. The index must not be changed afterwards.
+     * @param id the id of the segment
+     * @param index the built index
+     */
+    IndexSegment(long id, InvertedIndex index) {
+        this.id = id;
+        this.index = index;
+        this.docIdsByUrl = new HashMap<>();
+        List<Website> websites = index.getDocuments();
+        int[] next = null;
+        int[] last = null;
+        long words = 0;
+        for (int docId = 0; docId < websites.size(); docId++) {
+            Integer first = docIdsByUrl.putIfAbsent(websites.get(docId).getUrl(), docId);
+            if (first != null) {
+                // links the website to the previous website with the same url
+                if (next == null) {
+                    next = new int[websites.size()];
+                    Arrays.fill(next, -1);
+                    last = new int[websites.size()];
+                    for (int i = 0; i < websites.size(); i++) {
+                        last[i] = i;
+                    }
+                }
+                next[last[first]] = docId;
+                last[first] = docId;
+            }
+            words += index.getDocumentLength(docId);
+        }
+        this.sameUrl = next;
+        this.deletedDocs = new BitSet();
+        this.liveDocs = websites.size();
+        this.liveWords = words;
+    }
+
+    /**
+     * @return a compressed inverted index of the websites
+     */
+    private static InvertedIndex buildIndex(List<Website> websites) {
+        InvertedIndex index = new InvertedIndexCompressed();
+        index.build(websites);
+        return index;
+    }
+
+    /**
+     * Creates a new version of a segment with more deleted websites.
+     */
+    private IndexSegment(IndexSegment segment, BitSet deletedDocs) {
+        this.id = segment.id;
+        this.index = segment.index;
+        this.docIdsByUrl = segment.docIdsByUrl;
+        this.sameUrl = segment.sameUrl;
+        this.deletedDocs = deletedDocs;
+        long words = 0;
+        for (int docId = 0; docId < segment.size(); docId++) {
+            if (!deletedDocs.get(docId)) {
+                words += index.getDocumentLength(docId);
+            }
+        }
+        this.liveDocs = segment.size() - deletedDocs.cardinality();
+        this.liveWords = words;
+    }
+
+    /**
+     * Deletes the websites with the given urls.
+     * @param urls the urls of the websites to delete
+     * @return a new version of the segment, or this segment if none of the urls is a live website of it
+     */
+    IndexSegment withDeletedUrls(Collection<String> urls) {
+        BitSet deleted = null;
+        for (String url : urls) {
+            Integer first = docIdsByUrl.get(url);
+            for (int docId = first == null ? -1 : first; docId >= 0; docId = sameUrl == null ? -1 : sameUrl[docId]) {
+                if (!deletedDocs.get(docId)) {
+                    if (deleted == null) {
+                        deleted = (BitSet) deletedDocs.clone();
+                    }
+                    deleted.set(docId);
+                }
+            }
+        }
+        return deleted == null ? this : new IndexSegment(this, deleted);
+    }
+
+    /**
+     * Deletes the websites with the given document ids.
+     * @param docIds the document ids of the websites to delete
+     * @return a new version of the segment, or this segment if all of them are deleted already
+     */
+    IndexSegment withDeletedDocs(Collection<Integer> docIds) {
+        BitSet deleted = (BitSet) deletedDocs.clone();
+        for (int docId : docIds) {
+            deleted.set(docId);
+        }
+        return deleted.equals(deletedDocs) ? this : new IndexSegment(this, deleted);
+    }
+
+    /**
+     * @return the id of the segment
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the inverted index of the segment, which also contains the deleted websites
+     */
+    public InvertedIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the number of websites in the segment, including the deleted ones
+     */
+    public int size() {
+        return index.getDocuments().size();
+    }
+
+    /**
+     * @param docId a document id of the segment
+     * @return the website with the document id
+     */
+    public Website getWebsite(int docId) {
+        return index.getDocuments().get(docId);
+    }
+
+    /**
+     * @param docId a document id of the segment
+     * @return true if the website with the document id is deleted
+     */
+    public boolean isDeleted(int docId) {
+        return deletedDocs.get(docId);
+    }
+
+    /**
+     * @return the number of websites that are not deleted
+     */
+    public int getLiveDocs() {
+        return liveDocs;
+    }
+
+    /**
+     * @return the number of words on the websites that are not deleted
+     */
+    public long getLiveWords() {
+        return liveWords;
+    }
+
+    /**
+     * @return the number of deleted websites
+     */
+    public int getDeletedDocs() {
+        return size() - liveDocs;
+    }
+
+    /**
+     * Finds the document id of a live website of the segment.
+     * @param website a website
+     * @return the document id of the website, or -1 if it is not in the segment or deleted
+     */
+    public int getDocId(Website website) {
+        int docId = index.getDocId(website);
+        return docId >= 0 && !deletedDocs.get(docId) ? docId : -1;
+    }
+
+    /**
+     * Counts the live websites containing a word. Only segments with deleted websites decode the postings list.
+     * @param word a word
+     * @return the number of live websites containing the word
+     */
+    public int getDocumentFrequency(String word) {
+        if (liveDocs == size()) {
+            return index.getNumberOfWebsites(word).intValue();
+        }
+        Postings postings = index.getPostings(word);
+        if (postings == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < postings.size(); i++) {
+            if (!deletedDocs.get(postings.getDocId(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds the live postings of a word to a postings list, with the document ids shifted by the given base.
+     * @param word a word
+     * @param base the number added to the document ids of the segment
+     * @param target the postings list receiving the postings
+     */
+    void appendLivePostings(String word, int base, Postings target) {
+        Postings postings = index.getPostings(word);
+        if (postings != null) {
+            appendLive(postings, base, target);
+        }
+    }
+
+    /**
+     * Adds the live websites that may match a site url to a postings list, with the document ids shifted by the
+     * given base.
+     * @param siteUrl the lower case site url of a query
+     * @param base the number added to the document ids of the segment
+     * @param target the postings list receiving the postings
+     */
+    void appendLiveSitePostings(String siteUrl, int base, Postings target) {
+        appendLive(index.getSitePostings(siteUrl), base, target);
+    }
+
+    /**
+     * Adds the postings of the websites that are not deleted to a postings list.
+     */
+    private void appendLive(Postings postings, int base, Postings target) {
+        for (int i = 0; i < postings.size(); i++) {
+            int docId = postings.getDocId(i);
+            if (!deletedDocs.get(docId)) {
+                target.add(base + docId, postings.getFrequency(i));
+            }
+        }
+    }
+
+    /**
+     * Overrides the toString method
+     * @return a string containing the id and the number of live and deleted websites
+     */
+    @Override
+    public String toString() {
+        return "IndexSegment{id=" + id + ", liveDocs=" + liveDocs + ", deletedDocs=" + getDeletedDocs() + '}';
+    }
+}
@@ -0,0 +1,505 @@
+package searchengine;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Saves a built inverted index to a file and opens it again without rebuilding it.
+ *
+ * The file starts with a header of {@value #HEADER_SIZE} bytes: the magic number, the format version, the number
+ * of websites and words, the corpus size and the average document length, the size and modification time of the
+ * database the index was built from, the position and length of each section, and the length of the whole file.
+ * It is followed by the sections, each starting at a multiple of 8 bytes:
+ * the urls and titles of the websites, the words of each website as variable-byte encoded term ids,
+ * the document table (the position of the url and of the words for each website), the document lengths,
+ * the block offsets and the front coded words of the term dictionary, the Okapi BM25 upper bound of each word,
+ * the block maxima and the position of each word's block maxima, the postings lists encoded by the
+ * {@code PostingsCodec}, and the position of each word's postings list.
+ *
+ * Opening a snapshot checks the header and memory maps the sections; nothing else is read. All numbers are
+ * stored with a fixed size, so the index reads them straight from the mapped sections, and a website's url,
+ * title and words are only decoded when the website is used. Opening therefore takes the same short time for
+ * any number of websites. Each section can hold up to 2 GB.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class IndexSnapshot {
+
+    /**
+     * the first four bytes of every snapshot, "MKSI".
+     */
+    static final int MAGIC = 0x4D4B5349;
+
+    /**
+     * the version of the file format, increased whenever the format changes.
+     */
+    static final int VERSION = 3;
+
+    /**
+     * the sections of a snapshot, in the order they are stored.
+     */
+    private static final int DOCUMENT_DATA = 0, WORDS = 1, DOCUMENTS = 2, DOCUMENT_LENGTHS = 3,
+            DICTIONARY_BLOCKS = 4, DICTIONARY = 5, MAX_SCORES = 6, BLOCK_MAX_SCORES = 7, BLOCK_MAX_OFFSETS = 8,
+            POSTINGS = 9, POSTINGS_OFFSETS = 10;
+    private static final int NUMBER_OF_SECTIONS = 11;
+
+    /**
+     * the size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 4 * 4 + 2 * 8 + 2 * 8 + NUMBER_OF_SECTIONS * 2 * 8 + 8;
+
+    /**
+     * Saves an inverted index. The snapshot is written to a temporary file next to the target first and then
+     * moved in place, so a search engine opening the target never reads a partially written snapshot.
+     * @param index a built inverted index
+     * @param file the path of the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void save(InvertedIndex index, Path file) throws IOException {
+        save(index, file, null);
+    }
+
+    /**
+     * Saves an inverted index built from a database file. The size and modification time of the database are
+     * stored in the header, so {@code isUpToDate} can tell whether the database has changed since.
+     * @param index a built inverted index
+     * @param file the path of the snapshot
+     * @param database the attributes of the database file, read before the index was built, or null
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void save(InvertedIndex index, Path file, BasicFileAttributes database) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            write(index, temporary, database);
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Checks whether a snapshot has been saved from the current content of a database file: the size and the
+     * modification time of the database must be the ones stored in the snapshot's header.
+     * @param file the path of the snapshot
+     * @param database the path of the database file
+     * @return true if the snapshot belongs to the database as it is now, false if either file does not exist,
+     * the database has changed, or the snapshot was saved without a database
+     * @throws IOException if the snapshot exists but is not a valid snapshot of this version
+     */
+    public static boolean isUpToDate(Path file, Path database) throws IOException {
+        if (!Files.isRegularFile(file) || !Files.isRegularFile(database)) {
+            return false;
+        }
+        Header header;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            header = Header.read(channel, file);
+        }
+        BasicFileAttributes attributes = Files.readAttributes(database, BasicFileAttributes.class);
+        return header.databaseSize >= 0 && header.databaseSize == attributes.size()
+                && header.databaseModified == attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Opens a snapshot written by {@code save}.
+     * @param file the path of the snapshot
+     * @return a compressed inverted index reading everything from the mapped file
+     * @throws IOException if the file cannot be read, or is not a valid snapshot of this version
+     */
+    public static InvertedIndexCompressed open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = Header.read(channel, file);
+            ByteBuffer[] sections = new ByteBuffer[NUMBER_OF_SECTIONS];
+            for (int i = 0; i < NUMBER_OF_SECTIONS; i++) {
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, header.offsets[i], header.lengths[i]);
+            }
+
+            try {
+                TermDictionary dictionary = new TermDictionary(sections[DICTIONARY_BLOCKS].asIntBuffer(),
+                        sections[DICTIONARY].asCharBuffer(), header.numberOfTerms);
+                IntBuffer documentLengths = sections[DOCUMENT_LENGTHS].asIntBuffer();
+                List<Website> documents = new SnapshotDocuments(sections[DOCUMENTS].asIntBuffer(),
+                        sections[DOCUMENT_DATA], sections[WORDS], documentLengths, dictionary, header.numberOfDocuments);
+
+                InvertedIndexCompressed index = new InvertedIndexCompressed();
+                index.restore(documents, documentLengths, dictionary, sections[MAX_SCORES].asFloatBuffer(),
+                        sections[BLOCK_MAX_OFFSETS].asIntBuffer(), sections[BLOCK_MAX_SCORES].asFloatBuffer(),
+                        header.corpusSize, header.averageDocumentLength);
+                index.restorePostings(sections[POSTINGS_OFFSETS].asIntBuffer(), sections[POSTINGS]);
+                return index;
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IOException("The index snapshot is corrupt: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the header and all sections of a snapshot. Each section is streamed to the file while it is encoded;
+     * only the positions within the sections are collected, one number per website or word.
+     */
+    private static void write(InvertedIndex index, Path file, BasicFileAttributes database) throws IOException {
+        TermDictionary dictionary = index.getTermDictionary();
+        List<Website> documents = index.documents;
+        List<String> terms = dictionary.getTerms(0, dictionary.size());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long[] offsets = new long[NUMBER_OF_SECTIONS];
+            long[] lengths = new long[NUMBER_OF_SECTIONS];
+            channel.position(HEADER_SIZE);
+
+            // the urls and titles, and the words of each website
+            int[] dataOffsets = new int[documents.size()];
+            DataOutputStream out = startSection(channel, DOCUMENT_DATA, offsets);
+            for (int docId = 0; docId < documents.size(); docId++) {
+                dataOffsets[docId] = position(out);
+                writeString(out, documents.get(docId).getUrl());
+                writeString(out, documents.get(docId).getTitle());
+            }
+            endSection(channel, out, DOCUMENT_DATA, offsets, lengths);
+
+            Map<String, Integer> termIds = new HashMap<>();
+            for (int termId = 0; termId < terms.size(); termId++) {
+                termIds.put(terms.get(termId), termId);
+            }
+            int[] wordsOffsets = new int[documents.size()];
+            ByteArrayOutputStream words = new ByteArrayOutputStream();
+            out = startSection(channel, WORDS, offsets);
+            for (int docId = 0; docId < documents.size(); docId++) {
+                wordsOffsets[docId] = position(out);
+                words.reset();
+                for (String word : documents.get(docId).getWords()) {
+                    PostingsCodec.writeVByte(words, termIds.get(word));
+                }
+                words.writeTo(out);
+            }
+            endSection(channel, out, WORDS, offsets, lengths);
+
+            // the document table and the document lengths
+            out = startSection(channel, DOCUMENTS, offsets);
+            for (int docId = 0; docId < documents.size(); docId++) {
+                out.writeInt(dataOffsets[docId]);
+                out.writeInt(wordsOffsets[docId]);
+            }
+            endSection(channel, out, DOCUMENTS, offsets, lengths);
+            out = startSection(channel, DOCUMENT_LENGTHS, offsets);
+            for (int docId = 0; docId < documents.size(); docId++) {
+                out.writeInt(index.getDocumentLength(docId));
+            }
+            endSection(channel, out, DOCUMENT_LENGTHS, offsets, lengths);
+
+            // the front coded term dictionary
+            IntBuffer blockOffsets = dictionary.getBlockOffsets();
+            out = startSection(channel, DICTIONARY_BLOCKS, offsets);
+            while (blockOffsets.hasRemaining()) {
+                out.writeInt(blockOffsets.get());
+            }
+            endSection(channel, out, DICTIONARY_BLOCKS, offsets, lengths);
+            out = startSection(channel, DICTIONARY, offsets);
+            for (char c : dictionary.getData()) {
+                out.writeChar(c);
+            }
+            endSection(channel, out, DICTIONARY, offsets, lengths);
+
+            // the score upper bounds
+            out = startSection(channel, MAX_SCORES, offsets);
+            for (int termId = 0; termId < terms.size(); termId++) {
+                out.writeFloat(index.getMaxScore(termId));
+            }
+            endSection(channel, out, MAX_SCORES, offsets, lengths);
+            int[] blockMaxOffsets = new int[terms.size() + 1];
+            out = startSection(channel, BLOCK_MAX_SCORES, offsets);
+            for (int termId = 0; termId < terms.size(); termId++) {
+                float[] blocks = index.getBlockMaxScores(termId);
+                blockMaxOffsets[termId + 1] = blockMaxOffsets[termId] + (blocks == null ? 0 : blocks.length);
+                if (blocks != null) {
+                    for (float block : blocks) {
+                        out.writeFloat(block);
+                    }
+                }
+            }
+            endSection(channel, out, BLOCK_MAX_SCORES, offsets, lengths);
+            writeInts(channel, BLOCK_MAX_OFFSETS, blockMaxOffsets, offsets, lengths);
+
+            // the postings lists and their positions
+            int[] postingsOffsets = new int[terms.size()];
+            out = startSection(channel, POSTINGS, offsets);
+            for (int termId = 0; termId < terms.size(); termId++) {
+                postingsOffsets[termId] = position(out);
+                out.write(PostingsCodec.encode(index.getPostings(terms.get(termId))));
+            }
+            endSection(channel, out, POSTINGS, offsets, lengths);
+            writeInts(channel, POSTINGS_OFFSETS, postingsOffsets, offsets, lengths);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(documents.size());
+            header.putInt(terms.size());
+            header.putDouble(index.getCorpusSize());
+            header.putDouble(index.getAverageDocumentLength());
+            header.putLong(database == null ? -1 : database.size());
+            header.putLong(database == null ? -1 : database.lastModifiedTime().toMillis());
+            for (int i = 0; i < NUMBER_OF_SECTIONS; i++) {
+                header.putLong(offsets[i]);
+                header.putLong(lengths[i]);
+            }
+            header.putLong(channel.size());
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Starts a section at the next multiple of 8 bytes, so its numbers are aligned when the section is mapped,
+     * and records its position.
+     * @return a stream writing the section to the file. It is flushed, but not closed, since that would close the channel
+     */
+    private static DataOutputStream startSection(FileChannel channel, int section, long[] offsets) throws IOException {
+        ByteBuffer padding = ByteBuffer.allocate((int) (-channel.position() & 7));
+        while (padding.hasRemaining()) {
+            channel.write(padding);
+        }
+        offsets[section] = channel.position();
+        return new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+    }
+
+    /**
+     * Flushes a section to the file and records its length.
+     */
+    private static void endSection(FileChannel channel, DataOutputStream out, int section, long[] offsets,
+                                   long[] lengths) throws IOException {
+        out.flush();
+        lengths[section] = channel.position() - offsets[section];
+    }
+
+    /**
+     * Writes a section of numbers.
+     */
+    private static void writeInts(FileChannel channel, int section, int[] values, long[] offsets,
+                                  long[] lengths) throws IOException {
+        DataOutputStream out = startSection(channel, section, offsets);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+        endSection(channel, out, section, offsets, lengths);
+    }
+
+    /**
+     * @return the number of bytes written to the section so far, which is the position of the next entry
+     * @throws IOException if the section is larger than 2 GB
+     */
+    private static int position(DataOutputStream out) throws IOException {
+        // the counter of DataOutputStream stops at Integer.MAX_VALUE
+        if (out.size() == Integer.MAX_VALUE) {
+            throw new IOException("A section of the index snapshot is larger than 2 GB");
+        }
+        return out.size();
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 bytes.
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@code writeString}.
+     * @param buffer the buffer to read from, whose position is not changed
+     * @param position the position of the string
+     */
+    private static String readString(ByteBuffer buffer, int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        ByteBuffer string = buffer.duplicate();
+        string.position(position + 4);
+        string.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The header of a snapshot.
+     */
+    private static class Header {
+        int numberOfDocuments;
+        int numberOfTerms;
+        double corpusSize;
+        double averageDocumentLength;
+        long databaseSize;
+        long databaseModified;
+        final long[] offsets = new long[NUMBER_OF_SECTIONS];
+        final long[] lengths = new long[NUMBER_OF_SECTIONS];
+
+        /**
+         * Reads and checks the header of a snapshot.
+         * @throws IOException if the file is not a valid snapshot of this version
+         */
+        static Header read(FileChannel channel, Path file) throws IOException {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not an index snapshot, the file is too short: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()) < 0) {
+                    throw new IOException("Not an index snapshot, the file is too short: " + file);
+                }
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an index snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported index snapshot version " + version + ", expected " + VERSION + ": " + file);
+            }
+            Header header = new Header();
+            header.numberOfDocuments = buffer.getInt();
+            header.numberOfTerms = buffer.getInt();
+            header.corpusSize = buffer.getDouble();
+            header.averageDocumentLength = buffer.getDouble();
+            header.databaseSize = buffer.getLong();
+            header.databaseModified = buffer.getLong();
+            for (int i = 0; i < NUMBER_OF_SECTIONS; i++) {
+                header.offsets[i] = buffer.getLong();
+                header.lengths[i] = buffer.getLong();
+            }
+            long fileLength = buffer.getLong();
+            if (fileLength != fileSize || header.numberOfDocuments < 0 || header.numberOfTerms < 0) {
+                throw new IOException("The index snapshot is truncated or corrupt: " + file);
+            }
+            for (int i = 0; i < NUMBER_OF_SECTIONS; i++) {
+                if (header.offsets[i] < HEADER_SIZE || header.lengths[i] < 0 || header.lengths[i] > Integer.MAX_VALUE
+                        || header.offsets[i] + header.lengths[i] > fileSize) {
+                    throw new IOException("The index snapshot is truncated or corrupt: " + file);
+                }
+            }
+            return header;
+        }
+    }
+
+    /**
+     * The document table of a snapshot. A website is decoded from the mapped sections the first time it is read,
+     * and kept, so each document id always gives the same {@code Website} object. Since the websites know their
+     * document ids, {@code indexOf} does not search the list.
+     */
+    private static class SnapshotDocuments extends AbstractList<Website> implements RandomAccess {
+        private final IntBuffer table;
+        private final ByteBuffer data;
+        private final ByteBuffer words;
+        private final IntBuffer documentLengths;
+        private final TermDictionary dictionary;
+        private final AtomicReferenceArray<SnapshotWebsite> websites;
+
+        SnapshotDocuments(IntBuffer table, ByteBuffer data, ByteBuffer words, IntBuffer documentLengths,
+                          TermDictionary dictionary, int size) {
+            if (table.limit() != 2 * size || documentLengths.limit() != size) {
+                throw new IllegalArgumentException("The document table does not match the number of websites");
+            }
+            this.table = table;
+            this.data = data;
+            this.words = words;
+            this.documentLengths = documentLengths;
+            this.dictionary = dictionary;
+            this.websites = new AtomicReferenceArray<>(size);
+        }
+
+        @Override
+        public Website get(int docId) {
+            SnapshotWebsite website = websites.get(docId);
+            if (website == null) {
+                int position = table.get(2 * docId);
+                String url = readString(data, position);
+                String title = readString(data, position + 4 + data.getInt(position));
+                websites.compareAndSet(docId, null, new SnapshotWebsite(url, title, this, docId));
+                website = websites.get(docId);
+            }
+            return website;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (o instanceof SnapshotWebsite && ((SnapshotWebsite) o).documents == this) {
+                return ((SnapshotWebsite) o).docId;
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+
+        @Override
+        public int size() {
+            return websites.length();
+        }
+    }
+
+    /**
+     * A website in a snapshot. Its words are decoded from the mapped words section, and looked up in the
+     * {@code Vocabulary}, the first time they are used; the number of words is known from the document lengths
+     * without decoding.
+     */
+    private static class SnapshotWebsite extends Website {
+        private final SnapshotDocuments documents;
+        private final int docId;
+        private volatile int[] termIds;
+
+        SnapshotWebsite(String url, String title, SnapshotDocuments documents, int docId) {
+            super(url, title);
+            this.documents = documents;
+            this.docId = docId;
+        }
+
+        @Override
+        public int[] getTermIds() {
+            int[] decoded = termIds;
+            if (decoded == null) {
+                decoded = new int[getNumberOfWords()];
+                int[] position = {documents.table.get(2 * docId + 1)};
+                for (int i = 0; i < decoded.length; i++) {
+                    int termId = PostingsCodec.readVByte(documents.words, position);
+                    decoded[i] = Vocabulary.getTermId(documents.dictionary.getTerm(termId));
+                }
+                termIds = decoded;
+            }
+            return decoded;
+        }
+
+        @Override
+        public int getNumberOfWords() {
+            return documents.documentLengths.get(docId);
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package searchengine;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Abstract class that implements the Index interface.
@@ -12,13 +17,71 @@ import java.util.stream.Collectors;
  * @author Philine Zeinert
  */
 
-abstract public class InvertedIndex implements Index {
+abstract public class InvertedIndex extends IndexReader implements Index {
 
     /**
      * Instance variable is a protected Map, so that the subclasses can access the indexMap
-     * The indexMap is the data structure for the inverted index. It maps words to lists of websites.
+     * The indexMap is the data structure for the inverted index. It maps words to postings lists, which hold
+     * the ids of the websites containing the word together with the word's term frequency on each website.
      */
-    protected Map<String, List<Website>> indexMap;
+    protected Map<String, Postings> indexMap;
+
+    /**
+     * The document table of the index. The position of a website in the list is its document id.
+     */
+    protected List<Website> documents = new ArrayList<>();
+
+    /**
+     * Maps each indexed website to its document id. A restored index has no map, its document table finds the
+     * document ids itself, see {@code restore}.
+     */
+    private Map<Website, Integer> docIds = new HashMap<>();
+
+    /**
+     * the number of words on each website, indexed by document id.
+     */
+    private IntBuffer documentLengths = IntBuffer.allocate(0);
+
+    /**
+     * The sorted dictionary of all words in the index, used to answer prefix queries.
+     */
+    protected TermDictionary termDictionary = new TermDictionary(Collections.<String>emptyList());
+
+    /**
+     * the highest Okapi BM25 score of each word on any website, indexed by term id.
+     */
+    private FloatBuffer maxScores = FloatBuffer.allocate(0);
+
+    /**
+     * the highest Okapi BM25 score of each word within each block of {@code PostingsCodec.BLOCK_SIZE} postings.
+     * The block maxima of the word with term id t are stored from blockMaxOffsets[t] to blockMaxOffsets[t + 1].
+     * Words with a single block have no entries, their maximum score is the block maximum.
+     */
+    private IntBuffer blockMaxOffsets = IntBuffer.wrap(new int[1]);
+    private FloatBuffer blockMaxScores = FloatBuffer.allocate(0);
+
+    /**
+     * the hosts and directories of the websites' urls, created when the index is built, or by the first site
+     * query of a restored index.
+     */
+    private volatile SiteIndex siteIndex = new SiteIndex(Collections.<Website>emptyList());
+
+    /**
+     * the number of websites a build thread inverts at once.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * the state of a running build: the threads inverting the batches, the partial indices they produce,
+     * the batch of websites that is being filled, the progress, and the corpus statistics counted so far.
+     */
+    private ExecutorService buildExecutor;
+    private List<Future<Map<String, Postings>>> partialIndices;
+    private List<Website> batch;
+    private IndexBuildProgress buildProgress;
+    private int[] addedLengths;
+    private long addedWebsites;
+    private double totalWords;
 
     /**
      * the total number of websites in the search engine's corpus.
@@ -30,84 +93,441 @@ abstract public class InvertedIndex implements Index {
      */
     private double averageDocumentLength;
 
-    /**
-     * Calculates the number of websites where the given word occurs.
-     * @param word a query word
-     * @return number of websites where the word occurs.
-     */
-    public Double getNumberOfWebsites(String word){
-        double websitesContainingQuery;
-        if (indexMap.containsKey(word)){
-            websitesContainingQuery = (double) indexMap.get(word).size();
-            return websitesContainingQuery;
-        }
-        else {
-            return 0.0;
-        }
-}
     /**
      * The build method processes a list of websites into an inverted index data structure.
+     * Every website gets a document id, and for each word on the website the term frequency is
+     * recorded in the word's postings list, so scoring does not need to scan the website's words again.
      * @param sites The list of websites that should be indexed
      */
     @Override
     public void build(List<Website> sites) {
+        build(sites, 1);
+    }
 
-        calculateavgDocumentLength(sites); //with every build,
+    /**
+     * Builds the inverted index using several threads. The websites are split into batches of consecutive
+     * document ids, each batch is inverted into a partial index by one thread, and the partial indices are
+     * merged at the end by appending their postings lists in the order of the batches. While the build runs,
+     * with one thread or several, the number of websites and words indexed per second is printed.
+     * @param sites The list of websites that should be indexed
+     * @param threads the number of threads to use, 1 builds the index on the calling thread
+     */
+    public void build(List<Website> sites, int threads) {
+        startBuild(threads);
+        try {
+            for (Website site : sites) {  // Loop through the list of websites
+                add(site);
+            }
+            finishBuild();
+        } finally {
+            abortBuild();
+        }
+    }
 
-        for (Website site : sites) {  // Loop through the list of websites
+    /**
+     * Starts building a new index from websites that are passed one by one to {@code add}, for example while
+     * they are read from a file. The build is completed by {@code finishBuild}, or stopped by {@code abortBuild}
+     * if it cannot be completed. Any previous content of the index is removed.
+     * @param threads the number of threads inverting the websites, 1 inverts them on the calling thread
+     */
+    public void startBuild(int threads) {
+        indexMap.clear();
+        documents = new ArrayList<>();
+        docIds = new HashMap<>();
+        addedLengths = new int[16];
+        addedWebsites = 0;
+        totalWords = 0;
+        batch = new ArrayList<>();
+        partialIndices = new ArrayList<>();
+        buildProgress = new IndexBuildProgress(-1);
+        buildProgress.start();
+        if (threads > 1) {
+            // daemon threads, so a build that is never finished or aborted does not keep the program running
+            buildExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "index-builder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            buildExecutor = null;
+        }
+    }
 
-            List<String> wordList = site.getWords(); // Stores the words from each website in a list
+    /**
+     * Adds a website to the index that is being built. The website gets the next document id.
+     * @param site the website
+     */
+    public void add(Website site) {
+        // the corpus statistics count every website of the input, like calculateavgDocumentLength
+        addedWebsites++;
+        totalWords += site.getNumberOfWords();
 
-            for (String word : wordList) {  // Loop through the list of words
-                // Checks if the indexMap contains the word, and if the list of websites does not contain the website yet.
-                if (indexMap.containsKey(word) && !(indexMap.get(word).contains(site))) {
+        if (docIds.containsKey(site)) {
+            return; // the same website is only indexed once
+        }
+        int docId = documents.size();
+        docIds.put(site, docId);
+        documents.add(site);
+        if (docId == addedLengths.length) {
+            addedLengths = Arrays.copyOf(addedLengths, docId * 2);
+        }
+        addedLengths[docId] = site.getNumberOfWords();
 
-                    indexMap.get(word).add(site); // Adds the website to the list of websites that contain the word.
+        if (buildExecutor == null) {
+            invertBatch(Collections.singletonList(site), docId, indexMap, buildProgress);
+        } else {
+            batch.add(site);
+            if (batch.size() >= BATCH_SIZE) {
+                submitBatch();
+            }
+        }
+    }
+
+    /**
+     * Completes the build started by {@code startBuild}. Waits for all batches to be inverted, merges the
+     * partial indices in the order of the batches, so the document ids of each postings list stay sorted,
+     * and calculates the corpus statistics, the term dictionary and the score upper bounds.
+     */
+    public void finishBuild() {
+        if (buildExecutor != null) {
+            try {
+                submitBatch();
+                for (Future<Map<String, Postings>> partialIndex : partialIndices) {
+                    for (Map.Entry<String, Postings> entry : partialIndex.get().entrySet()) {
+                        Postings postings = indexMap.get(entry.getKey());
+                        if (postings == null) {
+                            indexMap.put(entry.getKey(), entry.getValue());
+                        } else {
+                            postings.append(entry.getValue());
+                        }
+                    }
                 }
-                // Checks if the indexMap does not contain the word.
-                if (!indexMap.containsKey(word)) {
-                    // Maps the word to a new ArrayList of websites and adds the website to the ArrayList.
-                    List<Website> websiteList = new ArrayList<>();
-                    websiteList.add(site);
-                    indexMap.put(word, websiteList);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Building the index was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Building the index failed", e.getCause());
+            } finally {
+                buildExecutor.shutdown();
+                buildExecutor = null;
+            }
+        }
+        // small builds, like the segments of live updates, are not reported
+        buildProgress.finish(documents.size() >= BATCH_SIZE);
+        buildProgress = null;
+        partialIndices = null;
+        batch = null;
+
+        corpusSize = addedWebsites; //corpusSize also contains websites without any word
+        averageDocumentLength = totalWords / corpusSize;
+        documentLengths = IntBuffer.wrap(Arrays.copyOf(addedLengths, documents.size()));
+        addedLengths = null;
+
+        for (Postings postings : indexMap.values()) {
+            postings.trimToSize();
+        }
+        termDictionary = new TermDictionary(indexMap.keySet());
+        siteIndex = new SiteIndex(documents);
+        clearLengthNorms();
+        calculateScoreUpperBounds();
+        buildFinished();
+    }
+
+    /**
+     * Stops a build started by {@code startBuild} that has not been completed, for example because reading the
+     * websites failed. The build threads are stopped and the index is left empty. Does nothing if no build is
+     * running, so callers can call it in a {@code finally} block after {@code finishBuild}.
+     */
+    public void abortBuild() {
+        if (batch == null) {
+            return;
+        }
+        if (buildExecutor != null) {
+            buildExecutor.shutdownNow();
+            buildExecutor = null;
+        }
+        buildProgress.finish(false);
+        buildProgress = null;
+        partialIndices = null;
+        batch = null;
+        addedLengths = null;
+        indexMap.clear();
+        documents.clear();
+        docIds.clear();
+        documentLengths = IntBuffer.allocate(0);
+    }
+
+    /**
+     * Called at the end of every build. Subclasses that convert the postings lists of the indexMap into
+     * another format override this method.
+     */
+    protected void buildFinished() {
+    }
+
+    /**
+     * Hands the current batch of websites to the build threads.
+     */
+    private void submitBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Website> websites = batch;
+        int firstDocId = documents.size() - websites.size();
+        IndexBuildProgress progress = buildProgress;
+        partialIndices.add(buildExecutor.submit(() -> {
+            Map<String, Postings> partialIndex = new HashMap<>();
+            invertBatch(websites, firstDocId, partialIndex, progress);
+            return partialIndex;
+        }));
+        batch = new ArrayList<>();
+    }
+
+    /**
+     * Calculates the highest Okapi BM25 score of every word, and of every block of its postings list.
+     * Top-k queries use these upper bounds to skip websites that cannot be among the best results.
+     * The bounds are rounded up to the next float, so they are never smaller than the exact score.
+     */
+    private void calculateScoreUpperBounds() {
+        List<String> words = termDictionary.getTerms(0, termDictionary.size());
+        float[] max = new float[words.size()];
+        int[] offsets = new int[words.size() + 1];
+        float[] blockMax = new float[0];
+        for (int termId = 0; termId < words.size(); termId++) {
+            Postings postings = indexMap.get(words.get(termId));
+            double idf = Math.log10(corpusSize / postings.size());
+            int numberOfBlocks = (postings.size() + PostingsCodec.BLOCK_SIZE - 1) / PostingsCodec.BLOCK_SIZE;
+            float[] blocks = new float[numberOfBlocks];
+            for (int i = 0; i < postings.size(); i++) {
+                double score = OkapiBM25.getScore(postings.getFrequency(i), idf,
+                        documentLengths.get(postings.getDocId(i)), averageDocumentLength);
+                float bound = Math.nextUp((float) score);
+                int block = i / PostingsCodec.BLOCK_SIZE;
+                blocks[block] = Math.max(blocks[block], bound);
+                max[termId] = Math.max(max[termId], bound);
+            }
+            offsets[termId + 1] = offsets[termId];
+            if (numberOfBlocks > 1) {
+                if (offsets[termId] + numberOfBlocks > blockMax.length) {
+                    blockMax = Arrays.copyOf(blockMax, Math.max(offsets[termId] + numberOfBlocks, blockMax.length * 2));
                 }
-                // If the indexMap contains the word and its corresponding websites, do nothing.
+                System.arraycopy(blocks, 0, blockMax, offsets[termId], numberOfBlocks);
+                offsets[termId + 1] += numberOfBlocks;
             }
         }
+        maxScores = FloatBuffer.wrap(max);
+        blockMaxOffsets = IntBuffer.wrap(offsets);
+        blockMaxScores = FloatBuffer.wrap(Arrays.copyOf(blockMax, offsets[words.size()]));
     }
 
     /**
-     * Receives a word word and returns a list of all websites that contain the word.
-     * @param word The word.
-     * @return the list of websites that contain the word.
+     * Inverts a batch of websites with consecutive document ids into the given map.
+     * @param websites the websites
+     * @param firstDocId the document id of the first website
+     * @param target the map receiving the postings lists
+     * @param progress records the indexed websites, may be null
+     */
+    private void invertBatch(List<Website> websites, int firstDocId, Map<String, Postings> target, IndexBuildProgress progress) {
+        for (int i = 0; i < websites.size(); i++) {
+            int docId = firstDocId + i;
+
+            // Sorts the term ids of the website's words, so the occurrences of each word are next to each other
+            int[] termIds = websites.get(i).getTermIds().clone();
+            Arrays.sort(termIds);
+
+            int start = 0;
+            while (start < termIds.length) {
+                // Counts how often the word occurs on the website
+                int end = start + 1;
+                while (end < termIds.length && termIds[end] == termIds[start]) {
+                    end++;
+                }
+                // Maps the word to a new postings list, if the map does not contain the word yet.
+                Postings postings = target.computeIfAbsent(Vocabulary.getWord(termIds[start]), word -> new Postings(documents));
+                postings.add(docId, end - start); // Adds the website and its term frequency to the postings list.
+                start = end;
+            }
+            if (progress != null) {
+                progress.websiteIndexed(termIds.length);
+            }
+        }
+    }
+
+
+
+    /**
+     * Returns the postings list of a word. Subclasses that store their postings in a different
+     * format than the indexMap override this method.
+     * @param word a word
+     * @return the postings list of the word, or null if no website contains the word.
      */
     @Override
-    public List<Website> lookup(String word) {
+    protected Postings getPostings(String word) {
+        return indexMap.get(word);
+    }
 
-        List<Website> websites = new ArrayList<>();  // list of websites to store websites that match the word
 
-        if (word.endsWith("*")){
+    /**
+     * @param prefix the prefix
+     * @return all words of the index starting with the prefix, in sorted order
+     */
+    @Override
+    public List<String> getWordsWithPrefix(String prefix) {
+        return termDictionary.getTermsWithPrefix(prefix);
+    }
 
-            String prefixStr = word.substring(0, word.length()-1);  // Stores the word in front of "*" as a new prefix string
 
-            for(String keyWord : indexMap.keySet()){
 
-                if (keyWord.startsWith(prefixStr)){ // Checks if the keyWord starts with prefix string
-                    websites.addAll(indexMap.get(keyWord));} // Adds all websites that contain the keyWord to the results list
+    /**
+     * Finds the websites that may match a site url with the site index, so site queries are filtered by
+     * intersecting postings lists. The websites still have to be checked with {@code SiteIndex.matches}.
+     * @param siteUrl the lower case site url of a query
+     * @return a postings list of the websites of the host and first directory of the site url
+     */
+    @Override
+    public Postings getSitePostings(String siteUrl) {
+        SiteIndex sites = siteIndex;
+        if (sites == null) {
+            // a restored index reads the urls of all websites only when they are needed
+            synchronized (this) {
+                if (siteIndex == null) {
+                    siteIndex = new SiteIndex(documents);
+                }
+                sites = siteIndex;
             }
-            List<Website> result = websites.stream().distinct().collect(Collectors.toList());
-            return result;
         }
+        return sites.getPostings(siteUrl, getDocuments());
+    }
+
+
+    /**
+     * @param word a word
+     * @return the highest Okapi BM25 score the word has on any website, 0 if the word is not in the index.
+     */
+    @Override
+    public double getMaxScore(String word) {
+        int termId = termDictionary.getTermId(word);
+        return termId < 0 ? 0 : maxScores.get(termId);
+    }
+
+    /**
+     * Returns the highest Okapi BM25 score of a word within each block of its postings list. Block i contains
+     * the postings from position i * {@code PostingsCodec.BLOCK_SIZE} on.
+     * @param word a word
+     * @return the upper bounds of the scores in each block, an empty array if the word is not in the index.
+     */
+    @Override
+    public float[] getBlockMaxScores(String word) {
+        int termId = termDictionary.getTermId(word);
+        if (termId < 0) {
+            return new float[0];
+        }
+        float[] blocks = getBlockMaxScores(termId);
+        return blocks == null ? new float[]{maxScores.get(termId)} : blocks;
+    }
+
+    /**
+     * @param termId a term id
+     * @return the highest Okapi BM25 score of the word with the term id on any website.
+     */
+    float getMaxScore(int termId) {
+        return maxScores.get(termId);
+    }
 
-        // Checks if the word does not end with "*" and if the indexMap contains the word.
-        if (!word.endsWith("*") && indexMap.containsKey(word)){
-            // Stores the list of websites that contains the word in the list of results
-            return new ArrayList<>(indexMap.get(word));
+    /**
+     * @param termId a term id
+     * @return the block maxima of the word with the term id, or null if its postings list has a single block.
+     */
+    float[] getBlockMaxScores(int termId) {
+        int from = blockMaxOffsets.get(termId);
+        int to = blockMaxOffsets.get(termId + 1);
+        if (from == to) {
+            return null;
+        }
+        float[] blocks = new float[to - from];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = blockMaxScores.get(from + i);
         }
-        // Returns an empty list if the indexMap does not contain the word word
-        return new ArrayList<Website>();
+        return blocks;
     }
 
+    /**
+     * Replaces the content of the index with an index that has been built before, for example one read from an
+     * index snapshot. The buffers are used as they are, so restoring takes the same time for any number of
+     * websites; the site index is created by the first site query. Subclasses restore their postings lists
+     * themselves.
+     * @param documents the document table, the position of a website is its document id. Its {@code indexOf}
+     *                  must find the document id of a website without searching the list, since the index does not
+     *                  map the websites to their document ids itself
+     * @param documentLengths the number of words on each website, indexed by document id
+     * @param termDictionary the sorted dictionary of all words in the index
+     * @param maxScores the highest Okapi BM25 score of each word, indexed by term id
+     * @param blockMaxOffsets the start of each word's block maxima, indexed by term id, followed by their end
+     * @param blockMaxScores the block maxima of all words with more than one block
+     * @param corpusSize the total number of websites in the corpus
+     * @param averageDocumentLength the average number of words on the websites in the corpus
+     */
+    void restore(List<Website> documents, IntBuffer documentLengths, TermDictionary termDictionary,
+                 FloatBuffer maxScores, IntBuffer blockMaxOffsets, FloatBuffer blockMaxScores,
+                 double corpusSize, double averageDocumentLength) {
+        if (documentLengths.limit() != documents.size() || maxScores.limit() != termDictionary.size()
+                || blockMaxOffsets.limit() != termDictionary.size() + 1) {
+            throw new IllegalArgumentException("The parts of the index do not have the same number of websites and words");
+        }
+        this.documents = documents;
+        this.docIds = null;
+        this.documentLengths = documentLengths;
+        this.termDictionary = termDictionary;
+        this.maxScores = maxScores;
+        this.blockMaxOffsets = blockMaxOffsets;
+        this.blockMaxScores = blockMaxScores;
+        this.corpusSize = corpusSize;
+        this.averageDocumentLength = averageDocumentLength;
+        this.siteIndex = null;
+        clearLengthNorms();
+        indexMap.clear();
+    }
+
+    /**
+     * @return the sorted dictionary of all words in the index.
+     */
+    public TermDictionary getTermDictionary() {
+        return termDictionary;
+    }
+
+    /**
+     * Returns the document table of the index. Subclasses that assign the document ids differently override
+     * this method.
+     * @return the list of indexed websites, the position of a website is its document id.
+     */
+    @Override
+    protected List<Website> getDocuments() {
+        return documents;
+    }
+
+    /**
+     * @param website a website
+     * @return the document id of the website, or -1 if the website is not indexed.
+     */
+    @Override
+    protected int getDocId(Website website) {
+        if (docIds == null) {
+            return documents.indexOf(website);
+        }
+        Integer docId = docIds.get(website);
+        return docId == null ? -1 : docId;
+    }
+
+
+    /**
+     * @param docId a document id
+     * @return the number of words on the website with the given document id.
+     */
+    @Override
+    public int getDocumentLength(int docId) {
+        return documentLengths.get(docId);
+    }
+
+
     /**
      * Overrides the toString method
      * @return a string containing the keys and values of the indexMap
@@ -130,7 +550,7 @@ abstract public class InvertedIndex implements Index {
         double totalWords = 0;
 
         for (Website site : sites) {
-            totalWords += site.getWords().size(); //adds
+            totalWords += site.getNumberOfWords(); //adds
         }
 
         averageDocumentLength = totalWords / corpusSize;
@@ -140,6 +560,7 @@ abstract public class InvertedIndex implements Index {
      *
      * @return amount of all the documents in the database
      */
+    @Override
     public double getCorpusSize() {
         return corpusSize;
     }
@@ -147,6 +568,7 @@ abstract public class InvertedIndex implements Index {
     /**
      * @return average document length
      */
+    @Override
     public double getAverageDocumentLength() {
 
         return averageDocumentLength;
@@ -0,0 +1,125 @@
+package searchengine;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Extends the inverted index and stores the postings lists in compressed form.
+ * The websites are referred to by their integer document id, and the document ids of each postings list are
+ * delta and variable-byte encoded by the {@code PostingsCodec}. All postings lists are stored in a single byte
+ * array, and the term id of a word in the front coded {@code TermDictionary} gives the position of its
+ * postings list. Compared to the HashMap and TreeMap variants this needs a fraction of the heap.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class InvertedIndexCompressed extends InvertedIndex {
+
+    /**
+     * the start of each word's postings list in the postings buffer, indexed by term id.
+     */
+    private IntBuffer offsets = IntBuffer.allocate(0);
+
+    /**
+     * the encoded postings lists of all words.
+     */
+    private ByteBuffer postingsBuffer = ByteBuffer.allocate(0);
+
+    public InvertedIndexCompressed() {
+        this.indexMap = new HashMap<>();
+    }
+
+    /**
+     * Compresses all postings lists into a single byte array once the inverted index is built.
+     * The uncompressed indexMap is only used during the build.
+     */
+    @Override
+    protected void buildFinished() {
+        List<String> words = termDictionary.getTerms(0, termDictionary.size());
+        int[] starts = new int[words.size()];
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < words.size(); i++) {
+            starts[i] = out.size();
+            byte[] encoded = PostingsCodec.encode(indexMap.get(words.get(i)));
+            out.write(encoded, 0, encoded.length);
+        }
+        offsets = IntBuffer.wrap(starts);
+        postingsBuffer = ByteBuffer.wrap(out.toByteArray());
+
+        // the uncompressed postings lists are not needed anymore
+        indexMap = new HashMap<>();
+    }
+
+    /**
+     * Uses postings lists that have been encoded before, for example the postings section of an index snapshot.
+     * The term dictionary and the document table are restored by {@code InvertedIndex.restore}.
+     * @param offsets the start of each word's postings list in the buffer, indexed by term id
+     * @param postingsBuffer the encoded postings lists of all words
+     */
+    void restorePostings(IntBuffer offsets, ByteBuffer postingsBuffer) {
+        if (offsets.limit() != termDictionary.size()) {
+            throw new IllegalArgumentException("The number of postings lists does not match the number of words");
+        }
+        this.offsets = offsets;
+        this.postingsBuffer = postingsBuffer;
+    }
+
+    /**
+     * Decodes the postings list of a word.
+     * @param word a word
+     * @return the postings list of the word, or null if no website contains the word.
+     */
+    @Override
+    protected Postings getPostings(String word) {
+        int i = termDictionary.getTermId(word);
+        if (i < 0) {
+            return null;
+        }
+        return PostingsCodec.decode(postingsBuffer, offsets.get(i), documents);
+    }
+
+    /**
+     * Reads the number of websites containing the word without decoding the postings list.
+     * @param word a query word
+     * @return number of websites where the word occurs.
+     */
+    @Override
+    public Double getNumberOfWebsites(String word) {
+        int i = termDictionary.getTermId(word);
+        if (i < 0) {
+            return 0.0;
+        }
+        return (double) PostingsCodec.getDocumentFrequency(postingsBuffer, offsets.get(i));
+    }
+
+    /**
+     * Finds the term frequency of a word on a website by decoding only one block of the postings list.
+     * @param word a query word
+     * @param website an indexed website
+     * @return the term frequency of the word on the website, 0 if the word does not occur on it.
+     */
+    @Override
+    public int getTermFrequency(String word, Website website) {
+        int i = termDictionary.getTermId(word);
+        int docId = getDocId(website);
+        if (i < 0 || docId < 0) {
+            return 0;
+        }
+        return PostingsCodec.getFrequencyOfDocId(postingsBuffer, offsets.get(i), docId);
+    }
+
+    /**
+     * Overrides the toString method
+     * @return a string containing the words and the size of the compressed postings
+     */
+    @Override
+    public String toString() {
+        return "InvertedIndexCompressed{" +
+                "keys=" + termDictionary + ", postingsBytes=" + postingsBuffer.capacity() +
+                '}';
+    }
+}
@@ -0,0 +1,167 @@
+package searchengine;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Extends the inverted index and stores the compressed postings lists and the term dictionary outside of the
+ * Java heap. The postings lists are encoded by the {@code PostingsCodec} like in the {@code InvertedIndexCompressed},
+ * and copied into slabs: direct byte buffers of up to {@value #SLAB_SIZE} bytes, which the garbage collector
+ * neither scans nor copies. On the heap only a handle per word remains, the slab and the position of its postings
+ * list; the term dictionary is moved off-heap as well.
+ *
+ * The postings lists are decoded straight from the slabs into document ids and term frequencies when a query
+ * reads them; websites are only looked up for the results. The off-heap memory is released when the index is
+ * garbage collected, and is limited by the JVM option -XX:MaxDirectMemorySize.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class InvertedIndexOffHeap extends InvertedIndex {
+
+    /**
+     * the largest size of a slab, a postings list that is even larger gets a slab of its own.
+     */
+    static final int SLAB_SIZE = 1 << 26;
+
+    /**
+     * the position of each word's postings list, indexed by term id: the slab in the upper and the offset within
+     * the slab in the lower 32 bits.
+     */
+    private long[] handles = new long[0];
+
+    /**
+     * the direct byte buffers holding the encoded postings lists.
+     */
+    private ByteBuffer[] slabs = new ByteBuffer[0];
+
+    public InvertedIndexOffHeap() {
+        this.indexMap = new HashMap<>();
+    }
+
+    /**
+     * Encodes all postings lists into slabs once the inverted index is built, and moves the term dictionary
+     * off-heap. The postings lists are collected on the heap until a slab is full, so each slab is allocated with
+     * its final size. The uncompressed indexMap is only used during the build.
+     */
+    @Override
+    protected void buildFinished() {
+        List<String> words = termDictionary.getTerms(0, termDictionary.size());
+        handles = new long[words.size()];
+
+        List<ByteBuffer> filled = new ArrayList<>();
+        ByteArrayOutputStream slab = new ByteArrayOutputStream();
+        for (int i = 0; i < words.size(); i++) {
+            byte[] encoded = PostingsCodec.encode(indexMap.get(words.get(i)));
+            if (slab.size() > 0 && slab.size() + encoded.length > SLAB_SIZE) {
+                filled.add(toDirectBuffer(slab));
+                slab.reset();
+            }
+            handles[i] = ((long) filled.size() << 32) | slab.size();
+            slab.write(encoded, 0, encoded.length);
+        }
+        if (slab.size() > 0) {
+            filled.add(toDirectBuffer(slab));
+        }
+        slabs = filled.toArray(new ByteBuffer[0]);
+        termDictionary = termDictionary.toOffHeap();
+
+        // the uncompressed postings lists are not needed anymore
+        indexMap = new HashMap<>();
+    }
+
+    /**
+     * Copies the collected postings lists into a direct byte buffer.
+     */
+    private static ByteBuffer toDirectBuffer(ByteArrayOutputStream slab) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(slab.size());
+        buffer.put(slab.toByteArray());
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @param termId a term id
+     * @return the slab containing the postings list of the word with the term id
+     */
+    private ByteBuffer getSlab(int termId) {
+        return slabs[(int) (handles[termId] >>> 32)];
+    }
+
+    /**
+     * @param termId a term id
+     * @return the start of the postings list of the word with the term id within its slab
+     */
+    private int getOffset(int termId) {
+        return (int) handles[termId];
+    }
+
+    /**
+     * Decodes the postings list of a word from off-heap memory.
+     * @param word a word
+     * @return the postings list of the word, or null if no website contains the word.
+     */
+    @Override
+    protected Postings getPostings(String word) {
+        int i = termDictionary.getTermId(word);
+        if (i < 0) {
+            return null;
+        }
+        return PostingsCodec.decode(getSlab(i), getOffset(i), documents);
+    }
+
+    /**
+     * Reads the number of websites containing the word without decoding the postings list.
+     * @param word a query word
+     * @return number of websites where the word occurs.
+     */
+    @Override
+    public Double getNumberOfWebsites(String word) {
+        int i = termDictionary.getTermId(word);
+        if (i < 0) {
+            return 0.0;
+        }
+        return (double) PostingsCodec.getDocumentFrequency(getSlab(i), getOffset(i));
+    }
+
+    /**
+     * Finds the term frequency of a word on a website by decoding only one block of the postings list.
+     * @param word a query word
+     * @param website an indexed website
+     * @return the term frequency of the word on the website, 0 if the word does not occur on it.
+     */
+    @Override
+    public int getTermFrequency(String word, Website website) {
+        int i = termDictionary.getTermId(word);
+        int docId = getDocId(website);
+        if (i < 0 || docId < 0) {
+            return 0;
+        }
+        return PostingsCodec.getFrequencyOfDocId(getSlab(i), getOffset(i), docId);
+    }
+
+    /**
+     * @return the number of bytes of the slabs, which are allocated outside of the heap
+     */
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for (ByteBuffer slab : slabs) {
+            bytes += slab.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Overrides the toString method
+     * @return a string containing the words, the size of the slabs and their number
+     */
+    @Override
+    public String toString() {
+        return "InvertedIndexOffHeap{" +
+                "keys=" + termDictionary + ", postingsBytes=" + getOffHeapBytes() + ", slabs=" + slabs.length +
+                '}';
+    }
+}
@@ -9,35 +9,68 @@ package searchengine;
  */
 public class OkapiBM25 implements Score {
 
-
     /**
-     * Calculates a given website's Okapi BM25 score based on a query word.
-     * @param query the search query given by the user
-     * @param website the website which score is to be calculated
-     * @param idx the data structure used
-     * @return the Okapi BM25 score
+     * the document length normalization parameter b.
      */
-    @Override
-    public double getScore(String query, Website website, Index idx) {
+    static final double B = 0.75;
 
-        // sets the values for b and k
-        double b = 0.75;
-        double k = 1.2;
-
-        //creates a new TFScore() and new TFIDFScore() to calculate the scores
-        double TFScore = new TFScore().getScore(query, website, idx);
+    /**
+     * the term frequency saturation parameter k.
+     */
+    static final double K = 1.2;
 
-        if(TFScore!=0.0){
-            double TFIDFScore = new TFIDFScore().getScore(query, website, idx);
-            double IDFScore = TFIDFScore/TFScore;
+    /**
+     * The weight of a word is its inverse document frequency.
+     * @param word a word of the index
+     * @param index the index holding the corpus statistics
+     * @return the IDF score
+     */
+    @Override
+    public double getTermWeight(String word, IndexReader index) {
+        return TFIDFScore.getIDFScore(word, index);
+    }
 
-            //calculates length of the document's words
-            double documentLength = website.getWords().size();
+    /**
+     * The length norm of a website is the saturation of the term frequency, k, scaled by the length of the
+     * website relative to the average length.
+     * @param documentLength the number of words on the website
+     * @param averageDocumentLength the average number of words on the websites of the corpus
+     * @return the length norm
+     */
+    @Override
+    public double getLengthNorm(int documentLength, double averageDocumentLength) {
+        return lengthNorm(documentLength, averageDocumentLength);
+    }
 
-            double OkabiBM25 = IDFScore * (TFScore * (k + 1) / (TFScore + k * (1 - b + b * documentLength / ((InvertedIndex)idx).getAverageDocumentLength())));
+    /**
+     * Calculates the Okapi BM25 score of each website from its term frequency and length norm.
+     * @param termWeight the inverse document frequency of the word
+     * @param frequencies the term frequency of the word on each website
+     * @param lengthNorms the length norm of each website
+     * @param scores receives the Okapi BM25 score of each website
+     * @param count the number of websites
+     */
+    @Override
+    public void getScores(double termWeight, int[] frequencies, double[] lengthNorms, double[] scores, int count) {
+        for (int i = 0; i < count; i++) {
+            double TFScore = frequencies[i];
+            scores[i] = termWeight * (TFScore * (K + 1) / (TFScore + lengthNorms[i]));
+        }
+    }
 
-            return OkabiBM25;}
+    /**
+     * Calculates the Okapi BM25 score from the statistics of a word and a website.
+     * @param TFScore the term frequency of the word on the website
+     * @param IDFScore the inverse document frequency of the word
+     * @param documentLength the number of words on the website
+     * @param averageDocumentLength the average number of words on the websites of the corpus
+     * @return the Okapi BM25 score
+     */
+    static double getScore(double TFScore, double IDFScore, double documentLength, double averageDocumentLength) {
+        return IDFScore * (TFScore * (K + 1) / (TFScore + lengthNorm(documentLength, averageDocumentLength)));
+    }
 
-        else return 0.0;
+    private static double lengthNorm(double documentLength, double averageDocumentLength) {
+        return K * (1 - B + B * documentLength / averageDocumentLength);
     }
 }
@@ -0,0 +1,265 @@
+package searchengine;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A postings list of an inverted index. For one word it stores the ids of the documents that contain the word,
+ * in increasing order, together with the number of times the word occurs in each document (term frequency).
+ * The websites themselves are kept in the document table of the index, so the postings list can be read as a
+ * list of websites without storing a reference to each website.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class Postings extends AbstractList<Website> {
+
+    /**
+     * the document table of the index, mapping document ids to websites.
+     */
+    private final List<Website> documents;
+
+    /**
+     * the ids of the documents containing the word, in increasing order.
+     */
+    private int[] docIds;
+
+    /**
+     * the term frequencies, frequencies[i] belongs to docIds[i].
+     */
+    private int[] frequencies;
+
+    /**
+     * the number of postings in the list.
+     */
+    private int size;
+
+    /**
+     * Creates an empty {@code Postings} object.
+     * @param documents the document table used to resolve document ids to websites
+     */
+    public Postings(List<Website> documents) {
+        this.documents = documents;
+        this.docIds = new int[2];
+        this.frequencies = new int[2];
+    }
+
+    /**
+     * Creates a {@code Postings} object from given arrays. The arrays are used directly and not copied.
+     * @param documents the document table used to resolve document ids to websites
+     * @param docIds the document ids in increasing order
+     * @param frequencies the term frequencies belonging to the document ids
+     * @param size the number of valid entries in the arrays
+     */
+    public Postings(List<Website> documents, int[] docIds, int[] frequencies, int size) {
+        this.documents = documents;
+        this.docIds = docIds;
+        this.frequencies = frequencies;
+        this.size = size;
+    }
+
+    /**
+     * Appends a posting. Document ids have to be added in increasing order.
+     * @param docId the id of the document containing the word
+     * @param frequency the number of times the word occurs in the document
+     */
+    public void add(int docId, int frequency) {
+        if (size == docIds.length) {
+            int capacity = size + (size >> 1) + 1;
+            docIds = Arrays.copyOf(docIds, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+        }
+        docIds[size] = docId;
+        frequencies[size] = frequency;
+        size++;
+    }
+
+    /**
+     * Appends all postings of another postings list. The first document id of the other list has to be
+     * larger than the last document id of this list.
+     * @param other the postings list to append
+     */
+    public void append(Postings other) {
+        if (size + other.size > docIds.length) {
+            docIds = Arrays.copyOf(docIds, size + other.size);
+            frequencies = Arrays.copyOf(frequencies, size + other.size);
+        }
+        System.arraycopy(other.docIds, 0, docIds, size, other.size);
+        System.arraycopy(other.frequencies, 0, frequencies, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * @return a copy of the postings list, which can be changed without changing this list
+     */
+    public Postings copy() {
+        return new Postings(documents, Arrays.copyOf(docIds, size), Arrays.copyOf(frequencies, size), size);
+    }
+
+    /**
+     * Shrinks the internal arrays to the number of postings, once the list is complete.
+     */
+    public void trimToSize() {
+        if (size < docIds.length) {
+            docIds = Arrays.copyOf(docIds, size);
+            frequencies = Arrays.copyOf(frequencies, size);
+        }
+    }
+
+    /**
+     * @param i the position in the postings list
+     * @return the website at the given position
+     */
+    @Override
+    public Website get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return documents.get(docIds[i]);
+    }
+
+    /**
+     * @return the number of websites containing the word
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i the position in the postings list
+     * @return the document id at the given position
+     */
+    public int getDocId(int i) {
+        return docIds[i];
+    }
+
+    /**
+     * @param i the position in the postings list
+     * @return the term frequency at the given position
+     */
+    public int getFrequency(int i) {
+        return frequencies[i];
+    }
+
+    /**
+     * Finds the position of a document in the postings list with a binary search.
+     * @param docId the document id
+     * @return the position of the document, or a negative value if the document does not contain the word
+     */
+    public int indexOfDocId(int docId) {
+        return Arrays.binarySearch(docIds, 0, size, docId);
+    }
+
+    /**
+     * @param docId the document id
+     * @return how often the word occurs in the document, 0 if the document does not contain the word
+     */
+    public int getFrequencyOfDocId(int docId) {
+        int i = indexOfDocId(docId);
+        return i < 0 ? 0 : frequencies[i];
+    }
+
+    /**
+     * Intersects this postings list with another one. Every document id of this list is searched in the other
+     * list with a galloping (exponential) search starting from the position of the previous match, so the cost
+     * depends mostly on the length of the shorter list. This list should therefore be the shorter one.
+     * The term frequencies of the documents in the result are added up.
+     * @param other the postings list to intersect with
+     * @return the postings list of the documents contained in both lists
+     */
+    public Postings intersect(Postings other) {
+        int capacity = Math.min(size, other.size);
+        Postings result = new Postings(documents, new int[capacity], new int[capacity], 0);
+        int position = 0;
+        for (int i = 0; i < size && position < other.size; i++) {
+            position = other.gallop(position, docIds[i]);
+            if (position < other.size && other.docIds[position] == docIds[i]) {
+                result.docIds[result.size] = docIds[i];
+                result.frequencies[result.size] = frequencies[i] + other.frequencies[position];
+                result.size++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first position, starting from a given position, whose document id is not smaller than the target.
+     * The step size is doubled until the target is passed, followed by a binary search in the last step.
+     * @param from the position to start from
+     * @param target the document id to search for
+     * @return the first position with a document id not smaller than target, or the size if there is none
+     */
+    public int gallop(int from, int target) {
+        if (from >= size || docIds[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        while (low + step < size && docIds[low + step] < target) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(low + step, size - 1);
+        // docIds[low] < target, and docIds[high] >= target or high is the last position
+        int i = Arrays.binarySearch(docIds, low + 1, high + 1, target);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Merges several postings lists into one postings list containing every document once.
+     * The lists are merged like in merge sort, using a priority queue over the current document id of each list,
+     * so duplicates are found by comparing document ids instead of hashing websites. The term frequencies of a
+     * document that occurs in several lists are added up.
+     * @param lists the postings lists to merge
+     * @param documents the document table used to resolve document ids to websites
+     * @return the union of the postings lists, sorted by document id, a new list also if there is only one list
+     */
+    public static Postings union(List<Postings> lists, List<Website> documents) {
+        if (lists.size() == 1) {
+            return lists.get(0).copy();
+        }
+        int total = 0;
+        for (Postings postings : lists) {
+            total += postings.size;
+        }
+        Postings result = new Postings(documents, new int[total], new int[total], 0);
+        // each entry of the queue is the index of a list, ordered by the list's current document id
+        int[] positions = new int[lists.size()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(lists.size(), 1),
+                (a, b) -> Integer.compare(lists.get(a).docIds[positions[a]], lists.get(b).docIds[positions[b]]));
+        for (int i = 0; i < lists.size(); i++) {
+            if (lists.get(i).size > 0) {
+                queue.add(i);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int list = queue.poll();
+            Postings postings = lists.get(list);
+            int docId = postings.docIds[positions[list]];
+            int frequency = postings.frequencies[positions[list]];
+            if (result.size > 0 && result.docIds[result.size - 1] == docId) {
+                result.frequencies[result.size - 1] += frequency;
+            } else {
+                result.docIds[result.size] = docId;
+                result.frequencies[result.size] = frequency;
+                result.size++;
+            }
+            positions[list]++;
+            if (positions[list] < postings.size) {
+                queue.add(list);
+            }
+        }
+        result.trimToSize();
+        return result;
+    }
+
+    /**
+     * @return the document table used to resolve document ids
+     */
+    public List<Website> getDocuments() {
+        return documents;
+    }
+}
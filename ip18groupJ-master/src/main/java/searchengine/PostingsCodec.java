@@ -0,0 +1,211 @@
+package searchengine;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Encodes postings lists into a compact byte format and decodes them again.
+ * Document ids are stored as differences (deltas) to the previous document id, and all numbers are written
+ * with variable-byte encoding, so small numbers take a single byte. The postings are split into blocks, and a
+ * skip table at the beginning of each list stores the last document id and the end of every block.
+ * The entries of the skip table have a fixed size, so the block that may contain a document is found with a
+ * binary search, and the term frequency of one document is found by decoding a single block.
+ *
+ * The format of one encoded postings list is:
+ * document frequency, number of blocks, (last document id, end of the block) for each block as two 4 byte
+ * numbers, followed by the blocks, which contain (document id delta, term frequency) for each posting. The end
+ * of a block is its position after the end of the skip table, and the delta of the first posting of a block is
+ * taken to the last document id of the previous block.
+ *
+ * All methods read with absolute positions from a {@code ByteBuffer}, so the same encoded data can be read from
+ * a byte array, from direct memory, or from a memory mapped file, also by several threads at the same time.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class PostingsCodec {
+
+    /**
+     * the number of postings in a block.
+     */
+    public static final int BLOCK_SIZE = 128;
+
+    /**
+     * the number of bytes of an entry of the skip table.
+     */
+    static final int SKIP_ENTRY_SIZE = 8;
+
+    /**
+     * Encodes a postings list.
+     * @param postings the postings list
+     * @return the encoded postings list
+     */
+    public static byte[] encode(Postings postings) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+        int size = postings.size();
+        int numberOfBlocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        writeVByte(out, size);
+        writeVByte(out, numberOfBlocks);
+
+        int previousDocId = 0;
+        for (int start = 0; start < size; start += BLOCK_SIZE) {
+            int end = Math.min(start + BLOCK_SIZE, size);
+            block.reset();
+            for (int i = start; i < end; i++) {
+                writeVByte(block, postings.getDocId(i) - previousDocId);
+                writeVByte(block, postings.getFrequency(i));
+                previousDocId = postings.getDocId(i);
+            }
+            byte[] blockBytes = block.toByteArray();
+            blocks.write(blockBytes, 0, blockBytes.length);
+            // skip table entry: the last document id of the block and the end of the block
+            writeInt(out, previousDocId);
+            writeInt(out, blocks.size());
+        }
+        byte[] blockBytes = blocks.toByteArray();
+        out.write(blockBytes, 0, blockBytes.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the number of documents in an encoded postings list without decoding it.
+     * @param buffer the buffer holding the encoded postings list
+     * @param offset the position of the postings list in the buffer
+     * @return the document frequency
+     */
+    public static int getDocumentFrequency(ByteBuffer buffer, int offset) {
+        return readVByte(buffer, new int[]{offset});
+    }
+
+    /**
+     * Decodes a whole postings list.
+     * @param buffer the buffer holding the encoded postings list
+     * @param offset the position of the postings list in the buffer
+     * @param documents the document table used to resolve document ids to websites
+     * @return the decoded postings list
+     */
+    public static Postings decode(ByteBuffer buffer, int offset, List<Website> documents) {
+        int[] position = {offset};
+        int size = readVByte(buffer, position);
+        int numberOfBlocks = readVByte(buffer, position);
+        // skip the skip table, the blocks follow directly after each other
+        position[0] += numberOfBlocks * SKIP_ENTRY_SIZE;
+        int[] docIds = new int[size];
+        int[] frequencies = new int[size];
+        int docId = 0;
+        for (int i = 0; i < size; i++) {
+            docId += readVByte(buffer, position);
+            docIds[i] = docId;
+            frequencies[i] = readVByte(buffer, position);
+        }
+        return new Postings(documents, docIds, frequencies, size);
+    }
+
+    /**
+     * Finds the term frequency of a document in an encoded postings list. Only the block that may contain the
+     * document is decoded.
+     * @param buffer the buffer holding the encoded postings list
+     * @param offset the position of the postings list in the buffer
+     * @param docId the document id
+     * @return the term frequency, 0 if the document is not in the postings list
+     */
+    public static int getFrequencyOfDocId(ByteBuffer buffer, int offset, int docId) {
+        int[] position = {offset};
+        readVByte(buffer, position); // document frequency
+        int numberOfBlocks = readVByte(buffer, position);
+
+        // binary search for the first block whose last document id is not smaller than docId
+        int table = position[0];
+        int low = 0;
+        int high = numberOfBlocks;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (readInt(buffer, table + middle * SKIP_ENTRY_SIZE) < docId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == numberOfBlocks) {
+            return 0;
+        }
+
+        // the blocks start after the skip table, and each block starts at the end of the previous one
+        int blocks = table + numberOfBlocks * SKIP_ENTRY_SIZE;
+        int current = low == 0 ? 0 : readInt(buffer, table + (low - 1) * SKIP_ENTRY_SIZE);
+        int[] blockPosition = {blocks + (low == 0 ? 0 : readInt(buffer, table + (low - 1) * SKIP_ENTRY_SIZE + 4))};
+        int blockEnd = blocks + readInt(buffer, table + low * SKIP_ENTRY_SIZE + 4);
+        while (blockPosition[0] < blockEnd) {
+            current += readVByte(buffer, blockPosition);
+            int frequency = readVByte(buffer, blockPosition);
+            if (current == docId) {
+                return frequency;
+            }
+            if (current > docId) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes a non-negative number with variable-byte encoding. Each byte holds 7 bits of the number, the highest
+     * bit is set on all bytes except the last one.
+     * @param out the stream to write to
+     * @param value the number
+     */
+    static void writeVByte(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes a number as 4 bytes, the highest byte first.
+     * @param out the stream to write to
+     * @param value the number
+     */
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Reads a number written by {@code writeInt}, independent of the byte order of the buffer.
+     * @param buffer the buffer to read from
+     * @param position the position of the number
+     * @return the number
+     */
+    private static int readInt(ByteBuffer buffer, int position) {
+        return (buffer.get(position) & 0xFF) << 24 | (buffer.get(position + 1) & 0xFF) << 16
+                | (buffer.get(position + 2) & 0xFF) << 8 | (buffer.get(position + 3) & 0xFF);
+    }
+
+    /**
+     * Reads a variable-byte encoded number.
+     * @param buffer the buffer to read from
+     * @param position a one element array holding the read position, which is advanced past the number
+     * @return the number
+     */
+    static int readVByte(ByteBuffer buffer, int[] position) {
+        int pos = position[0];
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(pos++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        position[0] = pos;
+        return value;
+    }
+}
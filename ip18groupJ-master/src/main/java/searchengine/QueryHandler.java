@@ -1,7 +1,5 @@
 package searchengine;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -24,6 +22,11 @@ public class QueryHandler {
      */
     private Score score;
 
+    /**
+     * Compiles the queries and caches their plans.
+     */
+    private final QueryPlanner planner = new QueryPlanner();
+
     /**
      * Creates a {@code QueryHandler} object with given index and given score.
      * @param idx The index used by the QueryHandler.
@@ -48,165 +51,340 @@ public class QueryHandler {
      * @return the list of websites that matches the query, ranked by their score.
      */
     public List<Website> getMatchingWebsites(String query) {
-
-        // Checks if the query starts with "site:"
-        if (query.matches("^(site:)(\\S*)\\s+(.+)")){
-            return processSiteQuery(query);
-        }
-        // Checks if the query contains more than one word
-        else if (query.matches("\\S*\\s+\\S.*")){
-            return processMultipleWordQuery(query);
-        }
-        // Else processes the single word
-        else {
-            return processSingleWordQuery(query);
-        }
+        return getMatchingWebsites(planner.getPlan(query), new QueryTrace(query));
     }
 
     /**
-     * Processes a query containing a single word.
-     * @param query the query string
-     * @return the list of websites that match the word, ranked by their scores.
+     * Returns the plan of a query, from the cache of the query planner if the query string was planned recently.
+     * @param query the whole query string entered by the user
+     * @return the plan of the query
      */
+    QueryPlan getPlan(String query) {
+        return planner.getPlan(query);
+    }
 
-     List<Website> processSingleWordQuery(String query) {
-        String trimmedQuery = query.trim().toLowerCase();
-        //new
-        List<Website> matchingWebsite = new ArrayList<> (this.idx.lookup(trimmedQuery)); // get list of matching websites for word
+    /**
+     * Evaluates a query plan. The websites matching each subquery are found starting with the rarest word, and
+     * filtered by the site urls before they are scored. A website gets the highest score of all subqueries it
+     * matches.
+     * @param plan the plan of a query
+     * @param trace receives the time spent in each stage of the query
+     * @return the list of websites that matches the query, ranked by their score.
+     */
+    List<Website> getMatchingWebsites(QueryPlan plan, QueryTrace trace) {
+        IndexReader reader = getReader();
         Map<Website, Double> results = new HashMap<>();
+        List<String[]> subqueries = plan.getSubqueries();
+        if (subqueries.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        for(Website website : matchingWebsite){
-            double sc = prefixCheck(website, trimmedQuery);
-            results.put(website, sc);
+        // The websites of the site urls and those containing the words of all subqueries are found once
+        List<Website> common = getSiteWebsites(reader, plan, trace);
+        String[] commonWords = plan.getCommonWords();
+        if (commonWords.length > 0) {
+            common = getWebsitesInCommon(reader, commonWords, common, trace);
+        }
+        // The scores of words occurring more than once in the query, for each website
+        Map<String, Map<Website, Double>> repeatedWordScores = new HashMap<>();
+
+        for (int i = 0; i < subqueries.size(); i++) {
+            String[] splitWords = subqueries.get(i);
+            List<Website> websitesInCommon = getWebsitesInCommon(reader, plan.getRemainingWords(i), common, trace);
+            long start = System.nanoTime();
+            if (websitesInCommon instanceof Postings) {
+                scoreSubquery(reader, (Postings) websitesInCommon, splitWords, plan, repeatedWordScores, results);
+                trace.lap(QueryTrace.Stage.SCORING, start);
+                continue;
+            }
+            for (Website website : websitesInCommon) {
+                if (!plan.acceptsSite(website)) {
+                    continue;
+                }
+                // the score of a subquery is the sum of the scores of its words
+                double sc = 0;
+                for (String word : splitWords) {
+                    if (plan.isRepeated(word)) {
+                        sc += repeatedWordScores.computeIfAbsent(word, w -> new HashMap<>())
+                                .computeIfAbsent(website, w -> prefixCheck(reader, w, word));
+                    } else {
+                        sc += prefixCheck(reader, website, word);
+                    }
+                }
+                // For OR between subqueries, the website gets the highest score of the subqueries it matches
+                results.merge(website, sc, Math::max);
+            }
+            trace.lap(QueryTrace.Stage.SCORING, start);
         }
-        // return a list Websites sorted by their value
-        return sortResults(results);
+        long start = System.nanoTime();
+        List<Website> sorted = sortResults(results);
+        trace.lap(QueryTrace.Stage.SORT, start);
+        return sorted;
     }
 
     /**
-     * Processes a query containing multiple words. The query may or may not contain OR-statements.
-     * @param query the query string
-     * @return The list of websites ranked by their score. Each website matches all the words in the subquery and
-     * if applicable, at least one OR-statement.
+     * Returns the index the postings lists of a query are read from. A segmented index changes while it is
+     * searched, so each query is answered by the reader of its segments at the time the query starts.
+     * @return the reader of the query, or null if the index has no postings lists
      */
-
-     List<Website> processMultipleWordQuery(String query) {
-        // Creates a new list for the websites to store query-result
-        Map<Website, Double> results = new HashMap<>();
-
-        // Splits the query string at " OR " into an array of strings
-        String [] splitAtOR = query.split("(\\sOR(\\s|$))");
-
-        // Loop through each subquery in the splitAtOR array
-        for (String aSplitAtOR : splitAtOR) {
-
-            // Split given subquery of the splitAtOR array at a whitespace into an array of single words
-            String[] splitWords = aSplitAtOR.trim().toLowerCase().split("\\s+");
-
-            List<Website> websitesInCommon = getWebsitesInCommon(splitWords);
-
-            Map<Website, Double> websiteToScore = createScoreForSubquery(websitesInCommon, splitWords);
-
-            // puts sorted websites of each element in the splitAtOR into final result list
-            results.putAll(getHighestScoreForOrQuery(results, websiteToScore));
+    private IndexReader getReader() {
+        if (this.idx instanceof SegmentedIndex) {
+            return ((SegmentedIndex) this.idx).getReader();
         }
-        return sortResults(results);
+        return this.idx instanceof IndexReader ? (IndexReader) this.idx : null;
     }
 
     /**
-     * Processes a query containing a "site:"-statement.
-     * @param query The query string.
-     * @return The list of websites that match the given URL and query word, ranked by their scores.
+     * Scores the websites of an inverted index that match a subquery. The websites are scored word by word with
+     * the batch scoring of the {@code Score}, so the weight of each word is calculated once; only prefix words are
+     * scored website by website.
+     * @param reader the index
+     * @param candidates the websites containing all words of the subquery
+     * @param splitWords the words of the subquery
+     * @param plan the plan of the query
+     * @param repeatedWordScores the scores of prefix words occurring more than once in the query, for each website
+     * @param results receives the highest score of each website
      */
+    private void scoreSubquery(IndexReader reader, Postings candidates, String[] splitWords, QueryPlan plan,
+                               Map<String, Map<Website, Double>> repeatedWordScores, Map<Website, Double> results) {
+        int[] docIds = new int[candidates.size()];
+        int count = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (plan.acceptsSite(candidates.get(i))) {
+                docIds[count++] = candidates.getDocId(i);
+            }
+        }
+        List<Website> documents = reader.getDocuments();
+        // the score of a subquery is the sum of the scores of its words
+        double[] subqueryScores = new double[count];
+        double[] wordScores = new double[count];
+        for (String word : splitWords) {
+            if (word.endsWith("*")) {
+                for (int i = 0; i < count; i++) {
+                    Website website = documents.get(docIds[i]);
+                    subqueryScores[i] += plan.isRepeated(word)
+                            ? repeatedWordScores.computeIfAbsent(word, w -> new HashMap<>()).computeIfAbsent(website, w -> prefixCheck(reader, w, word))
+                            : prefixCheck(reader, website, word);
+                }
+            } else {
+                getScores(reader, word, docIds, count, wordScores);
+                for (int i = 0; i < count; i++) {
+                    subqueryScores[i] += wordScores[i];
+                }
+            }
+        }
+        // For OR between subqueries, the website gets the highest score of the subqueries it matches
+        for (int i = 0; i < count; i++) {
+            results.merge(documents.get(docIds[i]), subqueryScores[i], Math::max);
+        }
+    }
 
-    List<Website> processSiteQuery(String query) {
-        // Creates a new list for the websites we wish to return
-        List<Website> result = new ArrayList<>();
-
-        // Compile pattern if the string query matches the pattern
-        Pattern pattern = Pattern.compile("^(site:)(\\S*)\\s+(.+)");
-        Matcher matcher = pattern.matcher(query);
-        if (matcher.matches()) {
+    /**
+     * Scores a word on a number of websites with the batch scoring of the {@code Score}: the term frequencies and
+     * the cached length norms of the websites are gathered into arrays, and scored at once.
+     * @param reader the index
+     * @param word a word, not a prefix
+     * @param docIds the document ids of the websites in ascending order
+     * @param count the number of websites
+     * @param scores receives the score of the word on each website
+     */
+    private void getScores(IndexReader reader, String word, int[] docIds, int count, double[] scores) {
+        Postings postings = reader.getPostings(word);
+        if (postings == null) {
+            Arrays.fill(scores, 0, count, 0);
+            return;
+        }
+        double[] lengthNorms = reader.getLengthNorms(this.score);
+        int[] frequencies = new int[count];
+        double[] norms = new double[count];
+        for (int i = 0, position = 0; i < count; i++) {
+            position = postings.gallop(position, docIds[i]);
+            frequencies[i] = position < postings.size() && postings.getDocId(position) == docIds[i]
+                    ? postings.getFrequency(position) : 0;
+            norms[i] = lengthNorms[docIds[i]];
+        }
+        this.score.getScores(this.score.getTermWeight(word, reader), frequencies, norms, scores, count);
+    }
 
-            String url = matcher.group(2).toLowerCase(); // Store the URL as string
-            String queryLine = matcher.group(3); // Store queryLine as string
+    /**
+     * Answers a query like {@code getMatchingWebsites}, but only returns the k websites with the highest scores.
+     * With an inverted index and the Okapi BM25 score, the websites are collected in a {@code TopKCollector}.
+     * The upper bounds of the scores stored in the index for each block of a postings list are compared with
+     * the k-th best score found so far, and blocks and websites that cannot reach it are skipped without
+     * calculating their score (block-max MaxScore). Other indices, scores and site queries rank all matching
+     * websites and return the first k.
+     * @param query the whole query string entered by the user
+     * @param k the number of websites to return
+     * @return the k websites with the highest scores that match the query, ranked by their score.
+     */
+    public List<Website> getTopWebsites(String query, int k) {
+        return getTopWebsites(planner.getPlan(query), k, new QueryTrace(query));
+    }
 
-            List<Website> websites = getMatchingWebsites(queryLine);
+    /**
+     * Evaluates a query plan like {@code getTopWebsites}. Reading, intersecting and scoring the postings lists are
+     * interleaved, so their time is traced as scoring.
+     * @param plan the plan of a query
+     * @param k the number of websites to return
+     * @param trace receives the time spent in each stage of the query
+     * @return the k websites with the highest scores that match the query, ranked by their score.
+     */
+    List<Website> getTopWebsites(QueryPlan plan, int k, QueryTrace trace) {
+        IndexReader reader = getReader();
+        if (reader == null || !(this.score instanceof OkapiBM25) || !plan.getSiteUrls().isEmpty()) {
+            List<Website> results = getMatchingWebsites(plan, trace);
+            return new ArrayList<>(results.subList(0, Math.min(k, results.size())));
+        }
+        TopKCollector collector = new TopKCollector(k);
 
-            for (Website website : websites) { // Loops through matching websites
-                // Puts the websites url to lower case, so that the "website:" search is not case sensitive
-                String lowerCaseURL = website.getUrl().toLowerCase();
-                // Checks if the website's URL contains the queryLine URL
-                // and that the queryLine URL is of the correct format,
-                // and that the website is not already in the list of results
-                if (lowerCaseURL.contains(url) && url.matches("\\w*\\.*\\w+\\.\\w+\\S*") && !result.contains(website)) {
-                    result.add(website);
-                }
+        // A website gets the highest score of all subqueries it matches, which is what the collector keeps
+        long start = System.nanoTime();
+        for (String[] splitWords : plan.getSubqueries()) {
+            if (splitWords.length == 1) {
+                collectTopWebsitesForWord(reader, collector, splitWords[0]);
+            } else {
+                collectTopWebsitesForSubquery(reader, collector, splitWords);
             }
         }
-        else {
-            System.out.println("The pattern does not match the query query");
+        start = trace.lap(QueryTrace.Stage.SCORING, start);
+
+        List<Website> result = new ArrayList<>();
+        for (int docId : collector.getDocIds()) {
+            result.add(reader.getDocuments().get(docId));
         }
+        trace.lap(QueryTrace.Stage.SORT, start);
         return result;
     }
 
     /**
-     * Sorts the websites in a given websitesToScore map according to their score in descending order.
-     * @param websitesToScore the map with websites as keys and scores as values.
-     * @return the list of websites sorted by their score.
+     * Collects the best websites for a single word. A prefix word is scored with the highest score of all words
+     * with the prefix, so each of these words is collected on its own and the collector keeps the maximum.
+     * @param reader the index
+     * @param collector the collector of the best websites
+     * @param word the word, may end with "*"
      */
-    private List<Website> sortResults(Map<Website, Double> websitesToScore){
-        List<Website> resultSorted = websitesToScore.entrySet().stream().sorted((x,y) -> y.getValue().compareTo(x.getValue())).map( Map.Entry::getKey).collect(Collectors.toList());
-        return resultSorted;
+    private void collectTopWebsitesForWord(IndexReader reader, TopKCollector collector, String word) {
+        if (word.endsWith("*")) {
+            String prefix = word.substring(0, word.length() - 1);
+            for (String prefixWord : reader.getWordsWithPrefix(prefix)) {
+                collectTopWebsitesForTerm(reader, collector, prefixWord);
+            }
+        } else {
+            collectTopWebsitesForTerm(reader, collector, word);
+        }
     }
 
     /**
-     * Sorts the result of matches for an OR-query by their maximum value of its subqueries.
-     * @param results The list containing the unsorted websites mapped to their value for an Or-query.
-     * @param websiteToScore the wordsToMatchingWebsitesMap containing the intersection of matching websites for a multiple word query mapped
-     *                       to their score.
-     * @return The list of websites for an Or-query linked to their highest score.
+     * Collects the best websites for a word of the index, skipping blocks of the postings list whose
+     * highest score is not above the collector's threshold.
+     * @param reader the index
+     * @param collector the collector of the best websites
+     * @param word the word
      */
-    private Map<Website, Double> getHighestScoreForOrQuery(Map<Website, Double> results, Map<Website, Double> websiteToScore){
-
-        for(Website website : websiteToScore.keySet()){
-            // For OR between two or more multiple-word queries, the highest score of the intersecting queries
-            // is added as a value to the website. If the values are equal, the one already in the wordsToMatchingWebsitesMap is kept.
-            if (results.containsKey(website) && results.get(website)<websiteToScore.get(website)) {
-                results.put(website, websiteToScore.get(website));
+    private void collectTopWebsitesForTerm(IndexReader reader, TopKCollector collector, String word) {
+        Postings postings = reader.getPostings(word);
+        if (postings == null || (collector.isFull() && reader.getMaxScore(word) <= collector.getThreshold())) {
+            return;
+        }
+        double termWeight = this.score.getTermWeight(word, reader);
+        double[] lengthNorms = reader.getLengthNorms(this.score);
+        float[] blockMaxScores = reader.getBlockMaxScores(word);
+        int[] frequencies = new int[PostingsCodec.BLOCK_SIZE];
+        double[] norms = new double[PostingsCodec.BLOCK_SIZE];
+        double[] scores = new double[PostingsCodec.BLOCK_SIZE];
+
+        for (int block = 0, start = 0; start < postings.size(); block++, start += PostingsCodec.BLOCK_SIZE) {
+            if (collector.isFull() && blockMaxScores[block] <= collector.getThreshold()) {
+                continue; // no website in this block can be among the best websites
+            }
+            // the block is scored at once
+            int count = Math.min(PostingsCodec.BLOCK_SIZE, postings.size() - start);
+            for (int i = 0; i < count; i++) {
+                frequencies[i] = postings.getFrequency(start + i);
+                norms[i] = lengthNorms[postings.getDocId(start + i)];
+            }
+            this.score.getScores(termWeight, frequencies, norms, scores, count);
+            for (int i = 0; i < count; i++) {
+                collector.offer(postings.getDocId(start + i), scores[i]);
             }
-            if(!results.containsKey(website)){results.put(website, websiteToScore.get(website));}
         }
-        return results;
     }
 
     /**
-     * Calculates the scores of a subquery by its sum of the word's scores.
-     * @param websitesInCommon the list of websitesInCommon that match the subquery
-     * @param splitWords the string array of all splitWords in a subquery
-     * @return a wordsToMatchingWebsitesMap, mapping websitesInCommon to their scores for given subquery
+     * Collects the best websites for a subquery of several words. The websites containing all words are found by
+     * intersecting the postings lists. The score of a website is the sum of its word scores, so the sum of the
+     * block upper bounds of all words is an upper bound of the website's score; websites where this bound is
+     * not above the collector's threshold are skipped.
+     * @param reader the index
+     * @param collector the collector of the best websites
+     * @param splitWords the words of the subquery
      */
-    private Map<Website,Double> createScoreForSubquery(List<Website> websitesInCommon, String[] splitWords) {
-        // creates a new wordsToMatchingWebsitesMap for all websitesInCommon mapped to score of the subquery
-        Map<Website, Double> websiteToScore = new HashMap<>();
-
-        // goes through all the websitesInCommon and calculates the score, when website is already contained
-        // the score is added to the current score
-        for (Website website : websitesInCommon) {
-
-            for (String word : splitWords) {
-
-                Double sc = prefixCheck(website, word);
-
-                //in case of multiple splitWords the score is the sum of both scores
-                if (websiteToScore.containsKey(website)) {
-                    websiteToScore.put(website, websiteToScore.get(website) + sc);
-                } else {
-                    websiteToScore.put(website, sc);
+    private void collectTopWebsitesForSubquery(IndexReader reader, TopKCollector collector, String[] splitWords) {
+        Postings candidates = reader.getPostingsContainingAll(splitWords);
+
+        for (String word : splitWords) {
+            if (word.endsWith("*")) {
+                // prefix words have no stored upper bound, so every candidate is scored
+                for (int i = 0; i < candidates.size(); i++) {
+                    double sc = 0;
+                    for (String splitWord : splitWords) {
+                        sc += prefixCheck(reader, candidates.get(i), splitWord);
+                    }
+                    collector.offer(candidates.getDocId(i), sc);
                 }
+                return;
+            }
+        }
+
+        int n = splitWords.length;
+        Postings[] lists = new Postings[n];
+        float[][] blockMaxScores = new float[n][];
+        double[] idf = new double[n];
+        int[] positions = new int[n];
+        for (int j = 0; j < n; j++) {
+            lists[j] = reader.getPostings(splitWords[j]);
+            blockMaxScores[j] = reader.getBlockMaxScores(splitWords[j]);
+            idf[j] = TFIDFScore.getIDFScore(splitWords[j], reader);
+        }
+        double averageDocumentLength = reader.getAverageDocumentLength();
+
+        for (int i = 0; i < candidates.size(); i++) {
+            int docId = candidates.getDocId(i);
+            double upperBound = 0;
+            for (int j = 0; j < n; j++) {
+                positions[j] = lists[j].gallop(positions[j], docId);
+                upperBound += blockMaxScores[j][positions[j] / PostingsCodec.BLOCK_SIZE];
+            }
+            if (collector.isFull() && upperBound <= collector.getThreshold()) {
+                continue;
+            }
+            double sc = 0;
+            int documentLength = reader.getDocumentLength(docId);
+            for (int j = 0; j < n; j++) {
+                sc += OkapiBM25.getScore(lists[j].getFrequency(positions[j]), idf[j], documentLength, averageDocumentLength);
             }
+            collector.offer(docId, sc);
         }
-        return websiteToScore;
+    }
+
+    /**
+     * Processes a query containing multiple words. The query may or may not contain OR-statements.
+     * @param query the query string
+     * @return The list of websites ranked by their score. Each website matches all the words in the subquery and
+     * if applicable, at least one OR-statement.
+     */
+    List<Website> processMultipleWordQuery(String query) {
+        return getMatchingWebsites(query);
+    }
+
+    /**
+     * Sorts the websites in a given websitesToScore map according to their score in descending order.
+     * @param websitesToScore the map with websites as keys and scores as values.
+     * @return the list of websites sorted by their score.
+     */
+    private List<Website> sortResults(Map<Website, Double> websitesToScore){
+        List<Website> resultSorted = websitesToScore.entrySet().stream().sorted((x,y) -> y.getValue().compareTo(x.getValue())).map( Map.Entry::getKey).collect(Collectors.toList());
+        return resultSorted;
     }
 
     /**
@@ -216,33 +394,72 @@ public class QueryHandler {
      * @return Score for the given word.
      */
     Double prefixCheck(Website website, String word){
+        return prefixCheck(getReader(), website, word);
+    }
+
+    /**
+     * Scores a word like {@code prefixCheck}, reading the index statistics from the reader of the query.
+     * @param reader the reader of the query, or null if the index has no postings lists
+     * @param website One of the websites that the subquery words have in common.
+     * @param word One word of the subquery.
+     * @return Score for the given word.
+     */
+    private Double prefixCheck(IndexReader reader, Website website, String word){
         double sc;
         if(word.endsWith("*")){
-            sc = getScorePrefixSearch(website, word);
+            sc = getScorePrefixSearch(reader, website, word);
         }
         else{
             // gets score for each website and puts it into a wordsToMatchingWebsitesMap with website and score
-            sc = this.score.getScore(word, website, this.idx);
+            sc = getScore(reader, word, website);
         }
         return sc;
     }
 
+    /**
+     * Scores a word on a website. With a reader, the score is calculated by the batch scoring of the
+     * {@code Score} from the reader's statistics, which gives the same result as {@code Score.getScore}.
+     * @param reader the reader of the query, or null if the index has no postings lists
+     * @param word a word, not a prefix
+     * @param website a website
+     * @return the score of the word on the website
+     */
+    private double getScore(IndexReader reader, String word, Website website) {
+        if (reader == null) {
+            return this.score.getScore(word, website, this.idx);
+        }
+        int termFrequency = reader.getTermFrequency(word, website);
+        if (termFrequency == 0) {
+            return 0;
+        }
+        double[] scores = new double[1];
+        double lengthNorm = reader.getLengthNorms(this.score)[reader.getDocId(website)];
+        this.score.getScores(this.score.getTermWeight(word, reader), new int[]{termFrequency}, new double[]{lengthNorm}, scores, 1);
+        return scores[0];
+    }
+
     /**
      * Gets the score for a prefix query by the highest score of all prefix words on the website.
+     * @param reader the reader of the query, or null if the index has no postings lists
      * @param website One of the websites that the subquery words have in common.
      * @param prefix the prefix query
      * @return Highest score for given website.
      */
-    private Double getScorePrefixSearch (Website website, String prefix){
+    private Double getScorePrefixSearch (IndexReader reader, Website website, String prefix){
 
-        List<String> wordsOnWebsite = website.getWords();
         double highestScore = 0;
         String prefixWord = prefix.substring(0, prefix.length()-1);
 
-
-        for (String word : wordsOnWebsite){
+        // Each distinct word on the website is compared with the prefix and scored once
+        int[] termIds = website.getTermIds().clone();
+        Arrays.sort(termIds);
+        for (int i = 0; i < termIds.length; i++){
+            if (i > 0 && termIds[i] == termIds[i - 1]){
+                continue;
+            }
+            String word = Vocabulary.getWord(termIds[i]);
             if(word.startsWith(prefixWord)){
-                double siteScore = this.score.getScore(word, website, this.idx);
+                double siteScore = getScore(reader, word, website);
                 if (highestScore == 0 || highestScore < siteScore){
                     highestScore = siteScore;
                 }
@@ -252,27 +469,73 @@ public class QueryHandler {
     }
 
     /**
-     * Creates a list of the websites that all the words in a given subquery have in common.
-     * @param splitWords An array with the subquery splitted into separate words.
-     * @return List of all the websites the words of the given subquery have in common.
+     * Finds the websites that may match the site urls of a plan with the site index of an inverted index, so the
+     * site filter is part of the intersection and no website of another site is scored. Other indices check the
+     * url of every matching website instead.
+     * @param reader the reader of the query, or null if the index has no postings lists
+     * @param plan the plan of a query
+     * @param trace receives the time spent reading the site index
+     * @return the websites of the site urls, or null if the plan has no site urls or the index is not inverted
      */
-    private List<Website> getWebsitesInCommon(String[] splitWords){
+    private List<Website> getSiteWebsites(IndexReader reader, QueryPlan plan, QueryTrace trace) {
+        if (plan.getSiteUrls().isEmpty() || reader == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        List<Postings> lists = new ArrayList<>();
+        for (String siteUrl : plan.getSiteUrls()) {
+            lists.add(reader.getSitePostings(siteUrl));
+        }
+        Postings websites = reader.intersect(lists);
+        trace.lap(QueryTrace.Stage.LOOKUP, start);
+        return websites;
+    }
 
-        List<Website> websitesInCommon = new ArrayList<>();
+    /**
+     * Creates a list of the websites that all the words in a given subquery have in common, starting with the
+     * rarest word.
+     * @param reader the reader of the query, or null if the index has no postings lists
+     * @param splitWords the distinct words of the subquery
+     * @param common the websites containing further words of the subquery or of its site urls, or null if there are none
+     * @param trace receives the time spent reading and intersecting the postings lists
+     * @return List of all the websites the words of the given subquery have in common.
+     */
+    private List<Website> getWebsitesInCommon(IndexReader reader, String[] splitWords, List<Website> common, QueryTrace trace) {
+        if (splitWords.length == 0) {
+            return common;
+        }
+        long start = System.nanoTime();
+
+        // An inverted index intersects its sorted postings lists, starting with the rarest word
+        if (reader != null) {
+            List<Postings> lists = reader.getPostingsLists(splitWords);
+            start = trace.lap(QueryTrace.Stage.LOOKUP, start);
+            if (lists == null) {
+                return new ArrayList<>();
+            }
+            if (common != null) {
+                lists.add((Postings) common);
+            }
+            Postings postings = reader.intersect(lists);
+            trace.lap(QueryTrace.Stage.INTERSECTION, start);
+            return postings;
+        }
 
-        // Loops through each element in the subquery and adds overlapping websites to a list
-        int check = 0; // makes sure that addAll method is only run once, even if the list is still empty.
+        // Other indices look up each word, and keep the websites of the shortest list that are in all other lists
+        List<List<Website>> lists = new ArrayList<>();
         for (String splitWord : splitWords) {
-            // Checks if the sitesWithAllWords list is empty
-            if (websitesInCommon.isEmpty() && check == 0) {
-                // Adds all websites the contains word at index z to the sitesWithAllWords list
-                websitesInCommon.addAll(this.idx.lookup(splitWord));
-                check++;
-            } else {
-                // Look at the words and check for websites that each word has in common with the others and retain the websites.
-                websitesInCommon.retainAll(this.idx.lookup(splitWord));
-            }
+            lists.add(this.idx.lookup(splitWord));
+        }
+        start = trace.lap(QueryTrace.Stage.LOOKUP, start);
+        if (common != null) {
+            lists.add(common);
+        }
+        lists.sort(Comparator.comparingInt(List::size));
+        List<Website> websitesInCommon = new ArrayList<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !websitesInCommon.isEmpty(); i++) {
+            websitesInCommon.retainAll(new HashSet<>(lists.get(i)));
         }
+        trace.lap(QueryTrace.Stage.INTERSECTION, start);
         return websitesInCommon;
     }
 }
@@ -0,0 +1,215 @@
+package searchengine;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the metrics of the queries answered by a search engine: a latency histogram for each stage of a query
+ * and for the whole query, counters of the query types, and a histogram of the result sizes. Queries that take
+ * longer than the slow query threshold are logged with the time of each stage.
+ * All methods are thread-safe and do not block.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class QueryMetrics {
+
+    /**
+     * The types of queries that are counted. A query can have several types, like a site query with an OR.
+     */
+    public enum QueryType {
+        SINGLE_WORD, MULTI_WORD, OR, PREFIX, SITE
+    }
+
+    /**
+     * the quantiles reported for each histogram.
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<QueryTrace.Stage, Histogram> stageLatencies = new EnumMap<>(QueryTrace.Stage.class);
+    private final Histogram totalLatency = new Histogram();
+    private final Histogram resultSizes = new Histogram();
+    private final Map<QueryType, AtomicLong> queryTypes = new EnumMap<>(QueryType.class);
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong slowQueries = new AtomicLong();
+
+    /**
+     * the time after which a query is logged as slow, in nanoseconds.
+     */
+    private volatile long slowQueryThreshold;
+
+    /**
+     * the log of the slow queries.
+     */
+    private final AsyncLogger slowQueryLog;
+
+    /**
+     * Creates a {@code QueryMetrics} object.
+     * @param slowQueryThresholdMillis the time in milliseconds after which a query is logged as slow
+     * @param slowQueryLog the log of the slow queries
+     */
+    public QueryMetrics(long slowQueryThresholdMillis, AsyncLogger slowQueryLog) {
+        for (QueryTrace.Stage stage : QueryTrace.Stage.values()) {
+            stageLatencies.put(stage, new Histogram());
+        }
+        for (QueryType type : QueryType.values()) {
+            queryTypes.put(type, new AtomicLong());
+        }
+        this.slowQueryLog = slowQueryLog;
+        setSlowQueryThreshold(slowQueryThresholdMillis);
+    }
+
+    /**
+     * @param millis the time in milliseconds after which a query is logged as slow
+     */
+    public void setSlowQueryThreshold(long millis) {
+        this.slowQueryThreshold = millis * 1000000;
+    }
+
+    /**
+     * Records a finished query. Stages that did not run, for example because the result was cached, are not
+     * recorded.
+     * @param trace the times of the stages of the query
+     * @param plan the plan of the query
+     * @param resultSize the number of websites found
+     */
+    public void record(QueryTrace trace, QueryPlan plan, int resultSize) {
+        long total = System.nanoTime() - trace.getStart();
+        totalLatency.record(total);
+        for (QueryTrace.Stage stage : QueryTrace.Stage.values()) {
+            long nanos = trace.getNanos(stage);
+            if (nanos > 0) {
+                stageLatencies.get(stage).record(nanos);
+            }
+        }
+        resultSizes.record(resultSize);
+        queries.incrementAndGet();
+        countQueryTypes(plan);
+
+        if (total > slowQueryThreshold) {
+            slowQueries.incrementAndGet();
+            StringBuilder message = new StringBuilder(String.format(Locale.ROOT, "Slow query \"%s\": %.1f ms, %d websites (",
+                    trace.getQuery(), total / 1e6, resultSize));
+            for (QueryTrace.Stage stage : QueryTrace.Stage.values()) {
+                message.append(String.format(Locale.ROOT, stage == QueryTrace.Stage.PARSE ? "%s %.1f ms" : ", %s %.1f ms",
+                        stage.name().toLowerCase(), trace.getNanos(stage) / 1e6));
+            }
+            slowQueryLog.log(message.append(')').toString());
+        }
+    }
+
+    /**
+     * Counts the types of a query.
+     */
+    private void countQueryTypes(QueryPlan plan) {
+        if (!plan.getSiteUrls().isEmpty()) {
+            queryTypes.get(QueryType.SITE).incrementAndGet();
+        }
+        if (plan.getSubqueries().size() > 1) {
+            queryTypes.get(QueryType.OR).incrementAndGet();
+        }
+        boolean prefix = false;
+        boolean multiWord = false;
+        for (String[] subquery : plan.getSubqueries()) {
+            multiWord |= subquery.length > 1;
+            for (String word : subquery) {
+                prefix |= word.endsWith("*");
+            }
+        }
+        if (prefix) {
+            queryTypes.get(QueryType.PREFIX).incrementAndGet();
+        }
+        if (multiWord) {
+            queryTypes.get(QueryType.MULTI_WORD).incrementAndGet();
+        } else if (plan.getSubqueries().size() == 1) {
+            queryTypes.get(QueryType.SINGLE_WORD).incrementAndGet();
+        }
+    }
+
+    /**
+     * @param stage a stage of a query
+     * @return the latency histogram of the stage, in nanoseconds
+     */
+    public Histogram getStageLatency(QueryTrace.Stage stage) {
+        return stageLatencies.get(stage);
+    }
+
+    /**
+     * @return the latency histogram of whole queries, in nanoseconds
+     */
+    public Histogram getTotalLatency() {
+        return totalLatency;
+    }
+
+    /**
+     * @param type a query type
+     * @return the number of queries of the type
+     */
+    public long getQueries(QueryType type) {
+        return queryTypes.get(type).get();
+    }
+
+    /**
+     * @return the number of queries that took longer than the slow query threshold
+     */
+    public long getSlowQueries() {
+        return slowQueries.get();
+    }
+
+    /**
+     * Writes the metrics in the text format of Prometheus. The histograms are written as summaries.
+     * @param writer the writer receiving the metrics
+     * @throws IOException if the writer fails
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        writer.write("# HELP searchengine_query_duration_seconds Time spent answering queries, by stage.\n");
+        writer.write("# TYPE searchengine_query_duration_seconds summary\n");
+        writeSummary(writer, "searchengine_query_duration_seconds", "stage=\"total\",", totalLatency, 1e9);
+        for (QueryTrace.Stage stage : QueryTrace.Stage.values()) {
+            writeSummary(writer, "searchengine_query_duration_seconds", "stage=\"" + stage.name().toLowerCase() + "\",",
+                    stageLatencies.get(stage), 1e9);
+        }
+
+        writer.write("# HELP searchengine_query_results Number of websites found per query.\n");
+        writer.write("# TYPE searchengine_query_results summary\n");
+        writeSummary(writer, "searchengine_query_results", "", resultSizes, 1);
+
+        writer.write("# HELP searchengine_queries_total Number of queries answered.\n");
+        writer.write("# TYPE searchengine_queries_total counter\n");
+        writer.write("searchengine_queries_total " + queries.get() + "\n");
+
+        writer.write("# HELP searchengine_queries_by_type_total Number of queries by type, a query can have several types.\n");
+        writer.write("# TYPE searchengine_queries_by_type_total counter\n");
+        for (QueryType type : QueryType.values()) {
+            writer.write("searchengine_queries_by_type_total{type=\"" + type.name().toLowerCase() + "\"} " + queryTypes.get(type).get() + "\n");
+        }
+
+        writer.write("# HELP searchengine_slow_queries_total Number of queries slower than the slow query threshold.\n");
+        writer.write("# TYPE searchengine_slow_queries_total counter\n");
+        writer.write("searchengine_slow_queries_total " + slowQueries.get() + "\n");
+    }
+
+    /**
+     * Writes the quantiles, the sum and the count of a histogram, divided by the number of recorded units per
+     * reported unit.
+     */
+    private static void writeSummary(Writer writer, String name, String labels, Histogram histogram, double unitsPerValue) throws IOException {
+        for (double quantile : QUANTILES) {
+            writer.write(name + "{" + labels + "quantile=\"" + quantile + "\"} " + format(histogram.getValueAtQuantile(quantile) / unitsPerValue) + "\n");
+        }
+        String plainLabels = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        writer.write(name + "_sum" + plainLabels + " " + format(histogram.getSum() / unitsPerValue) + "\n");
+        writer.write(name + "_count" + plainLabels + " " + histogram.getCount() + "\n");
+    }
+
+    /**
+     * @return the value in the number format of Prometheus
+     */
+    static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+}
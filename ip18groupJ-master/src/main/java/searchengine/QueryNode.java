@@ -0,0 +1,198 @@
+package searchengine;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A node of the tree a query is parsed into by the {@code QueryParser}. A query is a site filter, an OR of
+ * subqueries, an AND of words, or a single word, where a word is either a term or a prefix ending with "*".
+ * The {@code toString} method of a node returns the query it was parsed from, with normalized whitespace.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public abstract class QueryNode {
+
+    /**
+     * A word that matches websites containing exactly this word.
+     */
+    public static class Term extends QueryNode {
+        private final String word;
+
+        public Term(String word) {
+            this.word = word;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Term && word.equals(((Term) o).word);
+        }
+
+        @Override
+        public int hashCode() {
+            return word.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return word;
+        }
+    }
+
+    /**
+     * A word ending with "*", which matches websites containing a word that starts with the prefix.
+     */
+    public static class Prefix extends QueryNode {
+        private final String prefix;
+
+        public Prefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Prefix && prefix.equals(((Prefix) o).prefix);
+        }
+
+        @Override
+        public int hashCode() {
+            return prefix.hashCode() * 31 + 1;
+        }
+
+        @Override
+        public String toString() {
+            return prefix + "*";
+        }
+    }
+
+    /**
+     * A subquery of several words, which matches websites matching all of them.
+     */
+    public static class And extends QueryNode {
+        private final List<QueryNode> words;
+
+        /**
+         * @param words the terms and prefixes, in the order of the query
+         */
+        public And(List<QueryNode> words) {
+            this.words = Collections.unmodifiableList(new ArrayList<>(words));
+        }
+
+        public List<QueryNode> getWords() {
+            return words;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof And && words.equals(((And) o).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return words.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return join(words, " ");
+        }
+    }
+
+    /**
+     * A query of several subqueries, which matches websites matching at least one of them.
+     * Without subqueries, it matches no website.
+     */
+    public static class Or extends QueryNode {
+        private final List<QueryNode> subqueries;
+
+        /**
+         * @param subqueries the subqueries, each an {@code And}, {@code Term} or {@code Prefix}
+         */
+        public Or(List<QueryNode> subqueries) {
+            this.subqueries = Collections.unmodifiableList(new ArrayList<>(subqueries));
+        }
+
+        public List<QueryNode> getSubqueries() {
+            return subqueries;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Or && subqueries.equals(((Or) o).subqueries);
+        }
+
+        @Override
+        public int hashCode() {
+            return subqueries.hashCode() * 31 + 2;
+        }
+
+        @Override
+        public String toString() {
+            return join(subqueries, " OR ");
+        }
+    }
+
+    /**
+     * A query that only matches websites of the given site url, see {@code SiteIndex.matches}: the host of the
+     * site url must be the host of the website or one of its domains, and the path of the website must start with
+     * the rest of the site url. "site:wikipedia.org/wiki" matches "https://en.wikipedia.org/wiki/Denmark", but
+     * "site:ikipedia.org" does not.
+     */
+    public static class Site extends QueryNode {
+        private final String url;
+        private final QueryNode query;
+
+        /**
+         * @param url the url in lower case
+         * @param query the query the websites must match
+         */
+        public Site(String url, QueryNode query) {
+            this.url = url;
+            this.query = query;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public QueryNode getQuery() {
+            return query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Site && url.equals(((Site) o).url) && query.equals(((Site) o).query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, query);
+        }
+
+        @Override
+        public String toString() {
+            return "site:" + url + " " + query;
+        }
+    }
+
+    private static String join(List<QueryNode> nodes, String separator) {
+        StringBuilder builder = new StringBuilder();
+        for (QueryNode node : nodes) {
+            if (builder.length() > 0) {
+                builder.append(separator);
+            }
+            builder.append(node);
+        }
+        return builder.toString();
+    }
+}
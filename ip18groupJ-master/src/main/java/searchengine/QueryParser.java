@@ -0,0 +1,106 @@
+package searchengine;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a query into a tree of {@code QueryNode} objects in one pass over its characters, without regular
+ * expressions. The syntax is the one described in {@code QueryHandler.getMatchingWebsites}:
+ * <ul>
+ *     <li>a query starting with "site:", followed by a url, whitespace and another query, is a site query,</li>
+ *     <li>the word "OR" in upper case, after whitespace, separates subqueries,</li>
+ *     <li>the words of a subquery are separated by whitespace and changed to lower case,</li>
+ *     <li>a word ending with "*" is a prefix.</li>
+ * </ul>
+ * Empty subqueries, like the one after a trailing "OR", are left out.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class QueryParser {
+
+    private static final String SITE = "site:";
+
+    private QueryParser() {
+    }
+
+    /**
+     * Parses a query.
+     * @param query the query string entered by the user
+     * @return the root of the query tree: a {@code Site}, an {@code Or}, an {@code And}, a {@code Term} or a
+     * {@code Prefix}. A query without words is an {@code Or} without subqueries.
+     */
+    public static QueryNode parse(String query) {
+        if (query.startsWith(SITE)) {
+            int urlEnd = SITE.length();
+            while (urlEnd < query.length() && !isWhitespace(query.charAt(urlEnd))) {
+                urlEnd++;
+            }
+            // the url must be followed by whitespace and at least one more character
+            if (query.length() - urlEnd >= 2) {
+                int start = urlEnd;
+                while (start < query.length() && isWhitespace(query.charAt(start))) {
+                    start++;
+                }
+                String url = query.substring(SITE.length(), urlEnd).toLowerCase();
+                return new QueryNode.Site(url, parse(query.substring(start)));
+            }
+        }
+
+        List<QueryNode> subqueries = new ArrayList<>();
+        List<QueryNode> words = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            while (i < query.length() && isWhitespace(query.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < query.length() && !isWhitespace(query.charAt(i))) {
+                i++;
+            }
+            if (start == i) {
+                break;
+            }
+            String word = query.substring(start, i);
+            // "OR" at the very beginning of the query is a word, not a separator
+            if (word.equals("OR") && start > 0) {
+                addSubquery(subqueries, words);
+                words = new ArrayList<>();
+            } else {
+                words.add(createWord(word.toLowerCase()));
+            }
+        }
+        addSubquery(subqueries, words);
+        return subqueries.size() == 1 ? subqueries.get(0) : new QueryNode.Or(subqueries);
+    }
+
+    /**
+     * Adds the words of a subquery as a single word or an {@code And}, if there are any.
+     */
+    private static void addSubquery(List<QueryNode> subqueries, List<QueryNode> words) {
+        if (words.size() == 1) {
+            subqueries.add(words.get(0));
+        } else if (words.size() > 1) {
+            subqueries.add(new QueryNode.And(words));
+        }
+    }
+
+    /**
+     * @param word a word in lower case
+     * @return a {@code Prefix} if the word ends with "*", otherwise a {@code Term}
+     */
+    private static QueryNode createWord(String word) {
+        if (word.endsWith("*")) {
+            return new QueryNode.Prefix(word.substring(0, word.length() - 1));
+        }
+        return new QueryNode.Term(word);
+    }
+
+    /**
+     * @param c a character
+     * @return true for the whitespace characters of the regular expression "\s"
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,117 @@
+package searchengine;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The plan the {@code QueryPlanner} compiles a query into, and the {@code QueryHandler} evaluates. A plan does not
+ * depend on an index, so it can be reused for every query with the same query string.
+ *
+ * A website matches the plan if its url matches all site urls, see {@code SiteIndex.matches}, and it matches at
+ * least one subquery. The common words, which occur in every subquery, are intersected once; each subquery only
+ * intersects the result with its remaining words. The words of each subquery are kept in the order of the query, with repetitions, since the
+ * score of a website is the sum of the scores of all of them; the score of a repeated word is calculated once.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class QueryPlan {
+
+    private final String key;
+    private final List<String> siteUrls;
+    private final List<String[]> subqueries;
+    private final String[] commonWords;
+    private final List<String[]> remainingWords;
+    private final Set<String> repeatedWords;
+
+    /**
+     * Creates a {@code QueryPlan} object.
+     * @param key the normalized query, see {@code QueryResultCache.normalize}
+     * @param siteUrls the lower case site urls the url of a matching website must match
+     * @param subqueries the words of each subquery, in the order of the query
+     * @param commonWords the distinct words of all subqueries, if there are several subqueries
+     * @param remainingWords the distinct words of each subquery that are not common words
+     * @param repeatedWords the words occurring more than once in the plan
+     */
+    QueryPlan(String key, List<String> siteUrls, List<String[]> subqueries, String[] commonWords, List<String[]> remainingWords,
+              Set<String> repeatedWords) {
+        this.key = key;
+        this.siteUrls = Collections.unmodifiableList(siteUrls);
+        this.subqueries = Collections.unmodifiableList(subqueries);
+        this.commonWords = commonWords;
+        this.remainingWords = Collections.unmodifiableList(remainingWords);
+        this.repeatedWords = Collections.unmodifiableSet(repeatedWords);
+    }
+
+    /**
+     * @return the normalized query, which is the same for all queries with the same result
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the lower case site urls the url of a matching website must match
+     */
+    public List<String> getSiteUrls() {
+        return siteUrls;
+    }
+
+    /**
+     * @param website a website
+     * @return true if the url of the website matches all site urls
+     */
+    public boolean acceptsSite(Website website) {
+        for (String siteUrl : siteUrls) {
+            if (!SiteIndex.matches(website.getUrl(), siteUrl)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the words of each subquery, in the order of the query. Without subqueries, no website matches.
+     */
+    public List<String[]> getSubqueries() {
+        return subqueries;
+    }
+
+    /**
+     * @return the distinct words contained in all subqueries, empty if there is only one subquery
+     */
+    public String[] getCommonWords() {
+        return commonWords.clone();
+    }
+
+    /**
+     * @param subquery the position of a subquery
+     * @return the distinct words of the subquery that are not common words
+     */
+    public String[] getRemainingWords(int subquery) {
+        return remainingWords.get(subquery).clone();
+    }
+
+    /**
+     * @param word a word of the plan
+     * @return true if the word occurs more than once, so its score on a website should be calculated once
+     */
+    public boolean isRepeated(String word) {
+        return repeatedWords.contains(word);
+    }
+
+    /**
+     * Overrides the toString method
+     * @return a string containing the site urls, the common words and the subqueries
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("QueryPlan{sites=" + siteUrls + ", common=" + Arrays.toString(commonWords) + ", subqueries=[");
+        for (int i = 0; i < subqueries.size(); i++) {
+            builder.append(i > 0 ? ", " : "").append(String.join(" ", subqueries.get(i)));
+        }
+        return builder.append("]}").toString();
+    }
+}
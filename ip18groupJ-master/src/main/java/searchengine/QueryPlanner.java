@@ -0,0 +1,138 @@
+package searchengine;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles queries into {@code QueryPlan} objects and caches the plans of recent query strings, so a repeated
+ * query is neither parsed nor planned again. The planner
+ * <ul>
+ *     <li>removes repeated subqueries and marks repeated words, whose scores are calculated once,</li>
+ *     <li>factors the words contained in all subqueries out of an OR query, so they are intersected once,</li>
+ *     <li>applies the site filter before the websites are scored, with an inverted index while intersecting.</li>
+ * </ul>
+ * The order the words of a subquery are intersected in depends on the index: the {@code QueryHandler} starts with
+ * the rarest word when the plan is evaluated.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class QueryPlanner {
+
+    /**
+     * the format a site url must have, otherwise a site query matches no website.
+     */
+    private static final Pattern SITE_URL = Pattern.compile("\\w*\\.*\\w+\\.\\w+\\S*");
+
+    /**
+     * the number of plans kept in the cache.
+     */
+    private static final int CACHE_SIZE = 1000;
+
+    /**
+     * the plans of recent query strings, from the least to the most recently used.
+     */
+    private final Map<String, QueryPlan> plans = Collections.synchronizedMap(
+            new LinkedHashMap<String, QueryPlan>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, QueryPlan> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    /**
+     * Returns the plan of a query, from the cache if the query string was planned recently.
+     * @param query the query string entered by the user
+     * @return the plan of the query
+     */
+    public QueryPlan getPlan(String query) {
+        QueryPlan plan = plans.get(query);
+        if (plan == null) {
+            plan = plan(QueryParser.parse(query));
+            plans.put(query, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Compiles a query tree into a plan.
+     * @param query the root of the query tree
+     * @return the plan of the query
+     */
+    public static QueryPlan plan(QueryNode query) {
+        String key = QueryResultCache.normalize(query);
+        List<String> siteUrls = new ArrayList<>();
+        boolean validUrls = true;
+        while (query instanceof QueryNode.Site) {
+            QueryNode.Site site = (QueryNode.Site) query;
+            siteUrls.add(site.getUrl());
+            validUrls &= SITE_URL.matcher(site.getUrl()).matches();
+            query = site.getQuery();
+        }
+
+        // Subqueries with the same words in the same order have the same matches and scores
+        List<String[]> subqueries = new ArrayList<>();
+        if (validUrls) {
+            Set<List<String>> distinctSubqueries = new LinkedHashSet<>();
+            List<QueryNode> nodes = query instanceof QueryNode.Or
+                    ? ((QueryNode.Or) query).getSubqueries() : Collections.singletonList(query);
+            for (QueryNode node : nodes) {
+                List<QueryNode> words = node instanceof QueryNode.And
+                        ? ((QueryNode.And) node).getWords() : Collections.singletonList(node);
+                List<String> subquery = new ArrayList<>();
+                for (QueryNode word : words) {
+                    subquery.add(word.toString());
+                }
+                distinctSubqueries.add(subquery);
+            }
+            for (List<String> subquery : distinctSubqueries) {
+                subqueries.add(subquery.toArray(new String[0]));
+            }
+        }
+
+        // Counts the words of all subqueries, and finds the words contained in all of them
+        Map<String, Integer> counts = new HashMap<>();
+        Set<String> common = null;
+        for (String[] subquery : subqueries) {
+            Set<String> words = new LinkedHashSet<>();
+            for (String word : subquery) {
+                counts.merge(word, 1, Integer::sum);
+                words.add(word);
+            }
+            if (common == null) {
+                common = words;
+            } else {
+                common.retainAll(words);
+            }
+        }
+        if (common == null || subqueries.size() < 2) {
+            common = Collections.emptySet();
+        }
+
+        List<String[]> remainingWords = new ArrayList<>();
+        for (String[] subquery : subqueries) {
+            Set<String> remaining = new LinkedHashSet<>();
+            for (String word : subquery) {
+                if (!common.contains(word)) {
+                    remaining.add(word);
+                }
+            }
+            remainingWords.add(remaining.toArray(new String[0]));
+        }
+        Set<String> repeatedWords = new HashSet<>();
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            if (count.getValue() > 1) {
+                repeatedWords.add(count.getKey());
+            }
+        }
+        return new QueryPlan(key, siteUrls, subqueries, common.toArray(new String[0]), remainingWords, repeatedWords);
+    }
+}
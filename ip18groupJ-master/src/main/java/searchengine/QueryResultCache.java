@@ -0,0 +1,366 @@
+package searchengine;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of query results, following the W-TinyLFU design. The size of the cache is limited by an
+ * estimate of the memory the results take, not by the number of results.
+ *
+ * New results enter a small LRU window, which holds 1% of the memory. Results pushed out of the window compete
+ * for a place in the main area with the least recently used result of the main area: a frequency sketch estimates
+ * how often both queries were asked recently, and the more frequent one stays. The main area is a segmented LRU:
+ * results hit a second time move from the probation part to the protected part, which holds 80% of the main area.
+ * This keeps the frequent queries of a skewed query log in the cache, while a burst of queries asked only once
+ * cannot push them out.
+ *
+ * Each result belongs to a version of the index. A result of another version than the one asked for, because
+ * websites have been added or deleted, counts as a miss and is removed, while the other results stay. All methods
+ * are thread-safe.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class QueryResultCache {
+
+    /**
+     * the estimated memory of a cached result besides its key and its list of websites, in bytes.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * the estimated memory of one website reference in a cached list, in bytes. The websites themselves are
+     * part of the index.
+     */
+    private static final int REFERENCE_SIZE = 8;
+
+    /**
+     * the maximum memory of the window, the main area and its protected part, in bytes.
+     */
+    private final long maximumBytes;
+    private final long windowMaximumBytes;
+    private final long protectedMaximumBytes;
+
+    /**
+     * the results of the window, the probation part and the protected part, each from the least to the most
+     * recently used.
+     */
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Entry> protectedArea = new LinkedHashMap<>();
+    private long windowBytes;
+    private long probationBytes;
+    private long protectedBytes;
+
+    /**
+     * estimates how often each query was asked recently.
+     */
+    private final FrequencySketch sketch;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a {@code QueryResultCache} object.
+     * @param maximumBytes the estimated memory the cached results may take, in bytes
+     */
+    public QueryResultCache(long maximumBytes) {
+        this.maximumBytes = maximumBytes;
+        this.windowMaximumBytes = Math.max(maximumBytes / 100, 1);
+        this.protectedMaximumBytes = (maximumBytes - windowMaximumBytes) * 8 / 10;
+        // assumes that an average result takes about 1 KB
+        this.sketch = new FrequencySketch((int) Math.min(Math.max(maximumBytes / 1024, 1024), 1 << 22));
+    }
+
+    /**
+     * Turns a query into the key of its result. Queries that differ only in upper and lower case, in whitespace,
+     * or in the order or repetition of their OR-subqueries have the same result and the same key. The query is
+     * parsed by the {@code QueryParser}, so the word "OR" only separates subqueries in upper case.
+     * @param query the query
+     * @return the key of the query
+     */
+    public static String normalize(String query) {
+        return normalize(QueryParser.parse(query));
+    }
+
+    /**
+     * @param query the root of a query tree
+     * @return the key of the query
+     */
+    static String normalize(QueryNode query) {
+        if (query instanceof QueryNode.Site) {
+            QueryNode.Site site = (QueryNode.Site) query;
+            // a control character keeps the key apart from the key of a query whose first word starts with "site:"
+            return "\u0001site:" + site.getUrl() + " " + normalize(site.getQuery());
+        }
+        if (query instanceof QueryNode.Or) {
+            TreeSet<String> subqueries = new TreeSet<>();
+            for (QueryNode subquery : ((QueryNode.Or) query).getSubqueries()) {
+                subqueries.add(subquery.toString());
+            }
+            return String.join(" OR ", subqueries);
+        }
+        return query.toString();
+    }
+
+    /**
+     * Returns the cached result of a query. A cached result of another version of the index is removed, and
+     * counts as a miss.
+     * @param key the key of the query, see {@code normalize}
+     * @param version the current version of the index
+     * @return the result, or null if it is not cached
+     */
+    public synchronized List<Website> get(String key, Object version) {
+        sketch.increment(key);
+        Entry stale = find(key);
+        if (stale != null && stale.version != version) {
+            remove(key);
+        }
+        Entry entry = window.remove(key);
+        if (entry != null) {
+            window.put(key, entry);
+        } else if ((entry = probation.remove(key)) != null) {
+            // a second hit moves the result to the protected part
+            probationBytes -= entry.bytes;
+            protectedArea.put(key, entry);
+            protectedBytes += entry.bytes;
+            while (protectedBytes > protectedMaximumBytes) {
+                Entry demoted = removeEldest(protectedArea);
+                protectedBytes -= demoted.bytes;
+                probation.put(demoted.key, demoted);
+                probationBytes += demoted.bytes;
+            }
+        } else if ((entry = protectedArea.remove(key)) != null) {
+            protectedArea.put(key, entry);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.websites;
+    }
+
+    /**
+     * Caches the result of a query. The result is only returned by {@code get} for the same version, so a result
+     * calculated with an older index is never returned for a newer one. It replaces a cached result of another
+     * version.
+     * @param key the key of the query, see {@code normalize}
+     * @param websites the result
+     * @param version the version of the index the result was calculated with
+     */
+    public synchronized void put(String key, List<Website> websites, Object version) {
+        Entry entry = new Entry(key, new ArrayList<>(websites), version);
+        Entry cached = find(key);
+        if (entry.bytes > maximumBytes - windowMaximumBytes || (cached != null && cached.version == version)) {
+            return;
+        }
+        if (cached != null) {
+            remove(key);
+        }
+        window.put(key, entry);
+        windowBytes += entry.bytes;
+        while (windowBytes > windowMaximumBytes) {
+            Entry candidate = removeEldest(window);
+            windowBytes -= candidate.bytes;
+            admit(candidate);
+        }
+    }
+
+    /**
+     * Lets a result pushed out of the window into the main area if it was asked more often than the results it
+     * would push out of the main area.
+     * @param candidate the result
+     */
+    private void admit(Entry candidate) {
+        long mainMaximumBytes = maximumBytes - windowMaximumBytes;
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (probationBytes + protectedBytes + candidate.bytes > mainMaximumBytes) {
+            boolean fromProbation = !probation.isEmpty();
+            LinkedHashMap<String, Entry> area = fromProbation ? probation : protectedArea;
+            Entry victim = area.values().iterator().next();
+            if (candidateFrequency <= sketch.frequency(victim.key)) {
+                return; // the candidate is not admitted
+            }
+            area.remove(victim.key);
+            if (fromProbation) {
+                probationBytes -= victim.bytes;
+            } else {
+                protectedBytes -= victim.bytes;
+            }
+            evictions.incrementAndGet();
+        }
+        probation.put(candidate.key, candidate);
+        probationBytes += candidate.bytes;
+    }
+
+    /**
+     * @return the cached result of a query, without changing its recency, or null
+     */
+    private Entry find(String key) {
+        Entry entry = window.get(key);
+        if (entry == null) {
+            entry = probation.get(key);
+        }
+        return entry != null ? entry : protectedArea.get(key);
+    }
+
+    /**
+     * Removes the cached result of a query.
+     */
+    private void remove(String key) {
+        Entry entry;
+        if ((entry = window.remove(key)) != null) {
+            windowBytes -= entry.bytes;
+        } else if ((entry = probation.remove(key)) != null) {
+            probationBytes -= entry.bytes;
+        } else if ((entry = protectedArea.remove(key)) != null) {
+            protectedBytes -= entry.bytes;
+        }
+    }
+
+    /**
+     * Removes the least recently used result.
+     */
+    private static Entry removeEldest(LinkedHashMap<String, Entry> area) {
+        Iterator<Entry> iterator = area.values().iterator();
+        Entry eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+
+    /**
+     * Removes all results.
+     */
+    public synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedArea.clear();
+        windowBytes = 0;
+        probationBytes = 0;
+        protectedBytes = 0;
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedArea.size();
+    }
+
+    /**
+     * @return the estimated memory of the cached results, in bytes
+     */
+    public synchronized long getBytes() {
+        return windowBytes + probationBytes + protectedBytes;
+    }
+
+    /**
+     * @return the number of queries answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of queries not found in the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of results evicted from the main area to admit another result
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the hit, miss and eviction counters and the size of the cache
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("hits", getHits());
+        statistics.put("misses", getMisses());
+        statistics.put("evictions", getEvictions());
+        statistics.put("size", (long) size());
+        statistics.put("bytes", getBytes());
+        return statistics;
+    }
+
+    /**
+     * A cached result.
+     */
+    private static class Entry {
+        final String key;
+        final List<Website> websites;
+        final Object version;
+        final long bytes;
+
+        Entry(String key, List<Website> websites, Object version) {
+            this.key = key;
+            this.websites = websites;
+            this.version = version;
+            this.bytes = ENTRY_OVERHEAD + 2L * key.length() + (long) REFERENCE_SIZE * websites.size();
+        }
+    }
+
+    /**
+     * A count-min sketch with four rows of counters up to 15, which estimates how often a query was asked.
+     * When the number of recorded queries reaches ten times the width of the sketch, all counters are halved,
+     * so the frequencies describe the recent queries.
+     */
+    private static class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xb3c1b2c5, 0x8b1c9e53, 0x5ff79a15};
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int width) {
+            int size = Integer.highestOneBit(width - 1) << 1;
+            counters = new byte[SEEDS.length][size];
+            mask = size - 1;
+            sampleSize = 10 * size;
+        }
+
+        private int index(String key, int row) {
+            int hash = key.hashCode() * SEEDS[row];
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+        void increment(String key) {
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int i = index(key, row);
+                if (counters[row][i] < 15) {
+                    counters[row][i]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (byte[] row : counters) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(String key) {
+            int frequency = 15;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, counters[row][index(key, row)]);
+            }
+            return frequency;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package searchengine;
+
+/**
+ * Measures how long the stages of one query take. The {@code SearchEngine} creates a trace for each query and
+ * passes it to the {@code QueryHandler}, which adds the time of each stage; a stage that runs several times,
+ * like the postings lookup of each subquery, adds up. Each stage is measured as a whole, never per website, so a
+ * trace costs a few calls of {@code System.nanoTime} per query.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class QueryTrace {
+
+    /**
+     * The stages of a query.
+     */
+    public enum Stage {
+        /** parsing and planning the query, a lookup in the plan cache for repeated queries */
+        PARSE,
+        /** reading the postings lists of the query words */
+        LOOKUP,
+        /** intersecting the postings lists of the words of each subquery */
+        INTERSECTION,
+        /** scoring the matching websites */
+        SCORING,
+        /** ranking the websites by their score */
+        SORT
+    }
+
+    private final String query;
+    private final long start;
+    private final long[] stageNanos = new long[Stage.values().length];
+
+    /**
+     * Creates a {@code QueryTrace} object, the query starts now.
+     * @param query the query string
+     */
+    public QueryTrace(String query) {
+        this.query = query;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * @return the query string
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return the value of {@code System.nanoTime} when the query started
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Adds the time since the given start to a stage.
+     * @param stage the stage
+     * @param since the value of {@code System.nanoTime} when the stage started
+     * @return the current value of {@code System.nanoTime}, where the next stage starts
+     */
+    public long lap(Stage stage, long since) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] += now - since;
+        return now;
+    }
+
+    /**
+     * @param stage a stage
+     * @return the time spent in the stage, in nanoseconds
+     */
+    public long getNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+}
@@ -2,6 +2,12 @@ package searchengine;
 
 /**
  * The score interface provides the means for calculating a website's ranking score.
+ *
+ * Besides scoring one website at a time, a score can score many websites containing a word at once, which is how
+ * the {@code QueryHandler} scores the websites found in an inverted index. The parts of the score that are the same
+ * for all websites are calculated once per word by {@code getTermWeight}, the parts that only depend on the length
+ * of a website once per website by {@code getLengthNorm}, and {@code getScores} combines them with the term
+ * frequencies in a simple loop over primitive arrays.
  * @author Kim Ida Schild
  * @author Matthias Giovanni Moller
  * @author Frederik Wonsild
@@ -11,13 +17,58 @@ package searchengine;
 public interface Score {
 
     /**
-     * Calculates a given website's ranking score based on a query word.
+     * Calculates a given website's ranking score based on a query word. The score is calculated by
+     * {@code getScores} from the term weight and the length norm, with the statistics of the index' reader, so
+     * it is the same for every kind of index.
      *
      * @param query the search query given by the user
      * @param website the website which score is to be calculated
      * @param index the data structure used
      * @return the score
      */
-    double getScore(String query, Website website, Index index);
+    default double getScore(String query, Website website, Index index) {
+        IndexReader reader = IndexReader.of(index);
+        int termFrequency = reader.getTermFrequency(query, website);
+        if (termFrequency == 0) {
+            return 0.0;
+        }
+        double lengthNorm = getLengthNorm(reader.getDocumentLength(website), reader.getAverageDocumentLength());
+        double[] scores = new double[1];
+        getScores(getTermWeight(query, reader), new int[]{termFrequency}, new double[]{lengthNorm}, scores, 1);
+        return scores[0];
+    }
+
+    /**
+     * Calculates the part of the score of a word that is the same on every website, like its inverse document
+     * frequency.
+     *
+     * @param word a word of the index
+     * @param index the index holding the corpus statistics
+     * @return the weight of the word
+     */
+    double getTermWeight(String word, IndexReader index);
+
+    /**
+     * Calculates the part of the score that only depends on the length of a website. The index calculates it once
+     * for each website, see {@code IndexReader.getLengthNorms}, so it must only depend on the class of the score.
+     *
+     * @param documentLength the number of words on the website
+     * @param averageDocumentLength the average number of words on the websites of the corpus
+     * @return the length norm of the website
+     */
+    double getLengthNorm(int documentLength, double averageDocumentLength);
+
+    /**
+     * Scores a word on a number of websites: the score of the i-th website is calculated from its term frequency
+     * {@code frequencies[i]} and its length norm {@code lengthNorms[i]}, and stored in {@code scores[i]}. The
+     * results are the same as those of {@code getScore}.
+     *
+     * @param termWeight the weight of the word returned by {@code getTermWeight}
+     * @param frequencies the term frequency of the word on each website
+     * @param lengthNorms the length norm of each website returned by {@code getLengthNorm}
+     * @param scores receives the score of each website
+     * @param count the number of websites
+     */
+    void getScores(double termWeight, int[] frequencies, double[] lengthNorms, double[] scores, int count);
 
 }
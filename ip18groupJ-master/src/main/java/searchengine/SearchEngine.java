@@ -1,5 +1,12 @@
 package searchengine;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -17,7 +24,40 @@ import java.util.ArrayList;
  * @author Philine Zeinert
  */
 public class SearchEngine {
-    private QueryHandler queryHandler;
+    private volatile QueryHandler queryHandler;
+    private volatile Index index;
+
+    /**
+     * the time in milliseconds after which updated websites are searchable.
+     */
+    private static final long REFRESH_INTERVAL = 1000;
+
+    /**
+     * the estimated memory the cached query results may take, in bytes.
+     */
+    private static final long CACHE_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * the results of recent queries, which are removed when the index changes.
+     */
+    private final QueryResultCache cache = new QueryResultCache(CACHE_SIZE);
+
+    /**
+     * the time in milliseconds after which a query is logged as slow, unless the system property
+     * {@code searchengine.slowQueryThreshold} is set.
+     */
+    private static final long SLOW_QUERY_THRESHOLD = 500;
+
+    /**
+     * the log of the slow queries, shared by all search engines, so they do not each start a thread of their own.
+     */
+    private static final AsyncLogger SLOW_QUERY_LOG = new AsyncLogger(System.out, 1000);
+
+    /**
+     * the latencies, types and result sizes of the answered queries.
+     */
+    private final QueryMetrics metrics = new QueryMetrics(
+            Long.getLong("searchengine.slowQueryThreshold", SLOW_QUERY_THRESHOLD), SLOW_QUERY_LOG);
 
     /**
      * Creates a {@code SearchEngine} object from a list of websites.
@@ -25,14 +65,185 @@ public class SearchEngine {
      * @param sites the list of websites
      */
     public SearchEngine(List<Website> sites) {
-        Index idx = new InvertedIndexHashMap();
-        Score score = new OkapiBM25();
-        idx.build(sites);
+        Index idx = createIndex();
+        Score score = createScore();
+        if (idx instanceof InvertedIndex) {
+            // builds the inverted index on all available cores
+            ((InvertedIndex) idx).build(sites, Runtime.getRuntime().availableProcessors());
+        } else {
+            idx.build(sites);
+        }
+        index = idx;
+        queryHandler = new QueryHandler(idx, score);
+    }
+
+    /**
+     * Creates a {@code SearchEngine} object from a database file. An inverted index is built while
+     * the file is read: each website is passed to the index as soon as it has been parsed.
+     *
+     * @param filename the path of the database file
+     * @throws IOException if the database file cannot be read
+     */
+    public SearchEngine(String filename) throws IOException {
+        Index idx = createIndex();
+        Score score = createScore();
+        if (idx instanceof InvertedIndex) {
+            InvertedIndex invertedIndex = (InvertedIndex) idx;
+            invertedIndex.startBuild(Runtime.getRuntime().availableProcessors());
+            try {
+                FileHelper.parseFile(filename, invertedIndex::add);
+                invertedIndex.finishBuild();
+            } finally {
+                // stops the build threads if the file could not be read
+                invertedIndex.abortBuild();
+            }
+        } else {
+            idx.build(FileHelper.parseFile(filename));
+        }
+        index = idx;
         queryHandler = new QueryHandler(idx, score);
     }
 
     /**
-     * Returns the list of websites matching the query.
+     * Creates a {@code SearchEngine} object from an index that has already been built.
+     *
+     * @param idx the index
+     */
+    private SearchEngine(Index idx) {
+        index = idx;
+        queryHandler = new QueryHandler(idx, createScore());
+    }
+
+    /**
+     * Opens a search engine from an index snapshot written by {@code save}. The snapshot is memory mapped
+     * instead of parsing the database and building the index again.
+     *
+     * @param snapshot the path of the index snapshot
+     * @return the search engine
+     * @throws IOException if the snapshot cannot be read or is not valid
+     */
+    public static SearchEngine open(String snapshot) throws IOException {
+        return new SearchEngine(IndexSnapshot.open(Paths.get(snapshot)));
+    }
+
+    /**
+     * Opens the search engine for a database file. If the snapshot of the database, {@code database + ".index"},
+     * exists and was saved from the database with its current size and modification time, it is opened.
+     * Otherwise the index is built from the database and saved as snapshot, so the next start does not need to
+     * build it again.
+     *
+     * @param database the path of the database file
+     * @return the search engine
+     * @throws IOException if the database file cannot be read
+     */
+    public static SearchEngine load(String database) throws IOException {
+        String snapshot = database + ".index";
+        try {
+            if (IndexSnapshot.isUpToDate(Paths.get(snapshot), Paths.get(database))) {
+                SearchEngine searchEngine = open(snapshot);
+                System.out.println("Opened index snapshot \"" + snapshot + "\".");
+                return searchEngine;
+            }
+        } catch (IOException e) {
+            System.out.println("Could not open index snapshot \"" + snapshot + "\", rebuilding the index: " + e.getMessage());
+        }
+        // read before the database, so the snapshot is stale if the database changes while the index is built
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(database), BasicFileAttributes.class);
+        SearchEngine searchEngine = new SearchEngine(database);
+        try {
+            searchEngine.save(snapshot, attributes);
+            System.out.println("Saved index snapshot \"" + snapshot + "\".");
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Could not save index snapshot \"" + snapshot + "\": " + e.getMessage());
+        }
+        return searchEngine;
+    }
+
+    /**
+     * Saves the index of the search engine as snapshot, which can be opened with {@code open}.
+     *
+     * @param snapshot the path of the index snapshot
+     * @throws IOException if the snapshot cannot be written
+     * @throws IllegalStateException if the search engine does not use an inverted index, or has been updated
+     */
+    public void save(String snapshot) throws IOException {
+        save(snapshot, null);
+    }
+
+    /**
+     * Saves the index of the search engine as snapshot of the database it was built from.
+     *
+     * @param snapshot the path of the index snapshot
+     * @param database the attributes of the database file, or null
+     * @throws IOException if the snapshot cannot be written
+     * @throws IllegalStateException if the search engine does not use an inverted index, or has been updated
+     */
+    private void save(String snapshot, BasicFileAttributes database) throws IOException {
+        if (!(index instanceof InvertedIndex)) {
+            throw new IllegalStateException("Only an inverted index that has not been updated can be saved as snapshot");
+        }
+        IndexSnapshot.save((InvertedIndex) index, Paths.get(snapshot), database);
+    }
+
+    /**
+     * Adds, replaces and deletes websites while the search engine is running. A website replaces the indexed
+     * website with the same url. The changes of one call become searchable together, within
+     * {@value #REFRESH_INTERVAL} milliseconds or when {@code refresh} is called; queries are never blocked by
+     * them. On the first call, the index of the search engine becomes the first segment of a
+     * {@code SegmentedIndex}, which receives all changes.
+     *
+     * @param added the websites to add or replace
+     * @param deletedUrls the urls of the websites to delete
+     * @throws IllegalStateException if the search engine does not use an inverted index
+     */
+    public void update(List<Website> added, List<String> deletedUrls) {
+        getSegmentedIndex().update(added, deletedUrls);
+    }
+
+    /**
+     * Makes all changes passed to {@code update} searchable now.
+     *
+     * @throws IllegalStateException if the search engine does not use an inverted index
+     */
+    public void refresh() {
+        getSegmentedIndex().flush();
+    }
+
+    /**
+     * @return the segmented index receiving the changes, which replaces the index of the search engine on the first call
+     */
+    private synchronized SegmentedIndex getSegmentedIndex() {
+        if (index instanceof SegmentedIndex) {
+            return (SegmentedIndex) index;
+        }
+        if (!(index instanceof InvertedIndex)) {
+            throw new IllegalStateException("Only an inverted index can be updated");
+        }
+        SegmentedIndex segmentedIndex = new SegmentedIndex();
+        segmentedIndex.addSegment((InvertedIndex) index);
+        segmentedIndex.setRefreshInterval(REFRESH_INTERVAL);
+        queryHandler = new QueryHandler(segmentedIndex, createScore());
+        index = segmentedIndex;
+        return segmentedIndex;
+    }
+
+    /**
+     * @return the index used by the search engine
+     */
+    private static Index createIndex() {
+        return new InvertedIndexHashMap();
+    }
+
+    /**
+     * @return the ranking algorithm used by the search engine
+     */
+    private static Score createScore() {
+        return new OkapiBM25();
+    }
+
+    /**
+     * Returns the list of websites matching the query. Results of recent queries are taken from the cache, as
+     * long as the index has not changed since.
      *
      * @param query the query
      * @return the list of websites matching the query
@@ -41,7 +252,155 @@ public class SearchEngine {
         if (query == null || query.isEmpty() ) {
             return new ArrayList<>();
         }
-        List<Website> resultList = queryHandler.getMatchingWebsites(query);
+        return new ArrayList<>(runQuery(query, "", QueryHandler::getMatchingWebsites));
+    }
+
+    /**
+     * Returns the k websites with the highest scores matching the query.
+     *
+     * @param query the query
+     * @param k the maximum number of websites to return
+     * @return the list of the best websites matching the query, ranked by their score
+     */
+    public List<Website> search(String query, int k) {
+        if (query == null || query.isEmpty() ) {
+            return new ArrayList<>();
+        }
+        // the top k results are cached apart from the complete results
+        return new ArrayList<>(runQuery(query, "\u0000" + k, (handler, plan, trace) -> handler.getTopWebsites(plan, k, trace)));
+    }
+
+    /**
+     * Returns one page of the websites matching the query, without copying the other websites of the result.
+     * Further pages of the same query are taken from the cache.
+     *
+     * @param query the query
+     * @param offset the position of the first website of the page in the ranked result
+     * @param limit the maximum number of websites on the page
+     * @return the websites from position offset on, and the total number of websites matching the query
+     */
+    public SearchResultPage search(String query, int offset, int limit) {
+        if (query == null || query.isEmpty() ) {
+            return new SearchResultPage(0, offset, new ArrayList<>());
+        }
+        List<Website> resultList = runQuery(query, "", QueryHandler::getMatchingWebsites);
+        int from = Math.min(offset, resultList.size());
+        int to = (int) Math.min((long) from + limit, resultList.size());
+        return new SearchResultPage(resultList.size(), offset, new ArrayList<>(resultList.subList(from, to)));
+    }
+
+    /**
+     * Evaluates a query plan with a query handler, adding the time of each stage to a trace.
+     */
+    private interface QueryEvaluator {
+        List<Website> evaluate(QueryHandler handler, QueryPlan plan, QueryTrace trace);
+    }
+
+    /**
+     * Answers a query from the cache, or plans and evaluates it and caches the result. The time of each stage is
+     * recorded in the query metrics.
+     *
+     * @param query the query
+     * @param keySuffix distinguishes results of the same query that are calculated differently in the cache
+     * @param evaluator calculates the result
+     * @return the result, which must not be changed
+     */
+    private List<Website> runQuery(String query, String keySuffix, QueryEvaluator evaluator) {
+        QueryHandler handler = queryHandler;
+        QueryTrace trace = new QueryTrace(query);
+        QueryPlan plan = handler.getPlan(query);
+        trace.lap(QueryTrace.Stage.PARSE, trace.getStart());
+        // the version is read before the query runs, so a result is never cached for an older index than its own
+        String key = plan.getKey() + keySuffix;
+        Object version = getIndexVersion();
+        List<Website> resultList = cache.get(key, version);
+        if (resultList == null) {
+            resultList = evaluator.evaluate(handler, plan, trace);
+            cache.put(key, resultList, version);
+        }
+        metrics.record(trace, plan, resultList.size());
         return resultList;
     }
+
+    /**
+     * @return an object that changes whenever the searchable websites change: the current reader of a
+     * segmented index, otherwise the index itself
+     */
+    private Object getIndexVersion() {
+        Index idx = index;
+        return idx instanceof SegmentedIndex ? ((SegmentedIndex) idx).getReader() : idx;
+    }
+
+    /**
+     * Fills the query result cache by running the queries of a query log, one query per line, in the order they
+     * were asked. Queries asked often are kept in the cache.
+     *
+     * @param queryLog the path of the query log
+     * @throws IOException if the query log cannot be read
+     */
+    public void warmUp(String queryLog) throws IOException {
+        int queries = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(queryLog), StandardCharsets.UTF_8)) {
+            String query;
+            while ((query = reader.readLine()) != null) {
+                if (!query.trim().isEmpty()) {
+                    search(query);
+                    queries++;
+                }
+            }
+        }
+        System.out.println("Ran " + queries + " queries of the query log \"" + queryLog + "\", "
+                + cache.size() + " results are cached.");
+    }
+
+    /**
+     * @return the query result cache of the search engine, with its hit, miss and eviction counters
+     */
+    public QueryResultCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the latencies, types and result sizes of the queries answered by the search engine
+     */
+    public QueryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Writes the query metrics, the counters of the query result cache and the size of the index in the text
+     * format of Prometheus.
+     *
+     * @param writer the writer receiving the metrics
+     * @throws IOException if the writer fails
+     */
+    public void writeMetrics(Writer writer) throws IOException {
+        metrics.writePrometheus(writer);
+        writeMetric(writer, "searchengine_cache_hits_total", "counter", "Number of queries answered from the result cache.", cache.getHits());
+        writeMetric(writer, "searchengine_cache_misses_total", "counter", "Number of queries not found in the result cache.", cache.getMisses());
+        writeMetric(writer, "searchengine_cache_evictions_total", "counter", "Number of results evicted from the result cache.", cache.getEvictions());
+        writeMetric(writer, "searchengine_cache_bytes", "gauge", "Estimated memory of the cached results.", cache.getBytes());
+
+        Index idx = index;
+        if (idx instanceof SegmentedIndex) {
+            SegmentedIndex segmentedIndex = (SegmentedIndex) idx;
+            writeMetric(writer, "searchengine_index_segments", "gauge", "Number of segments of the index.", segmentedIndex.getNumberOfSegments());
+            writeMetric(writer, "searchengine_index_websites", "gauge", "Number of searchable websites.", (long) segmentedIndex.getReader().getCorpusSize());
+        }
+        if (idx instanceof InvertedIndex) {
+            InvertedIndex invertedIndex = (InvertedIndex) idx;
+            writeMetric(writer, "searchengine_index_websites", "gauge", "Number of searchable websites.", (long) invertedIndex.getCorpusSize());
+            writeMetric(writer, "searchengine_index_terms", "gauge", "Number of distinct words in the index.", invertedIndex.getTermDictionary().size());
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes one metric without labels.
+     */
+    private static void writeMetric(Writer writer, String name, String type, String help, long value) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+        writer.write(name + " " + value + "\n");
+    }
 }
@@ -0,0 +1,136 @@
+package searchengine;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * One page of the ranked result of a query: the websites from position offset on, and the total number of
+ * websites matching the query. Only the title and url of the websites are sent to clients; the words of a website
+ * are never written.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class SearchResultPage {
+
+    /**
+     * the total number of websites matching the query.
+     */
+    private final int total;
+
+    /**
+     * the position of the first website of the page in the ranked result.
+     */
+    private final int offset;
+
+    /**
+     * the websites of the page.
+     */
+    private final List<Website> websites;
+
+    /**
+     * Creates a {@code SearchResultPage} object.
+     * @param total the total number of websites matching the query
+     * @param offset the position of the first website of the page in the ranked result
+     * @param websites the websites of the page
+     */
+    public SearchResultPage(int total, int offset, List<Website> websites) {
+        this.total = total;
+        this.offset = offset;
+        this.websites = websites;
+    }
+
+    /**
+     * @return the total number of websites matching the query
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the position of the first website of the page in the ranked result
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the websites of the page
+     */
+    public List<Website> getWebsites() {
+        return websites;
+    }
+
+    /**
+     * Writes the page as JSON object of the form
+     * {@code {"total":120,"offset":50,"results":[{"title":"...","url":"..."},...]}}. The websites are written one
+     * at a time, so the response is never held in memory as a whole.
+     * @param writer the writer receiving the JSON
+     * @throws IOException if the writer fails
+     */
+    public void writeJson(Writer writer) throws IOException {
+        writer.write("{\"total\":");
+        writer.write(Integer.toString(total));
+        writer.write(",\"offset\":");
+        writer.write(Integer.toString(offset));
+        writer.write(",\"results\":[");
+        for (int i = 0; i < websites.size(); i++) {
+            Website website = websites.get(i);
+            writer.write(i == 0 ? "{\"title\":" : ",{\"title\":");
+            writeString(writer, website.getTitle());
+            writer.write(",\"url\":");
+            writeString(writer, website.getUrl());
+            writer.write('}');
+        }
+        writer.write("]}");
+        writer.flush();
+    }
+
+    /**
+     * Writes a string as JSON string, escaping quotes, backslashes and control characters.
+     */
+    static void writeString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Overrides the toString method
+     * @return a string containing the total number of websites and the websites of the page
+     */
+    @Override
+    public String toString() {
+        return "SearchResultPage{total=" + total + ", offset=" + offset + ", websites=" + websites + '}';
+    }
+}
@@ -0,0 +1,407 @@
+package searchengine;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An index that can be changed one website at a time, without building it again. It follows a log-structured
+ * design: added websites are collected in a buffer, which is flushed into a new immutable {@code IndexSegment}
+ * when it is full or when {@code flush} is called. Deleting a website marks it in the deleted bitmap of the
+ * segment containing it. Adding a website with the url of an indexed website replaces the old website.
+ *
+ * Changes become visible to queries when they are flushed: each flush publishes a new {@code SegmentedIndexReader}
+ * over the current segments, which {@code getReader} returns and the {@code QueryHandler} answers queries with.
+ * Publishing a reader is a single volatile write, so queries never wait for writers and never see a part of a
+ * batch passed to {@code update}. With {@code setRefreshInterval} the changes are flushed periodically.
+ *
+ * A background thread merges segments under a tiered merge policy, so the number of segments stays small:
+ * segments are grouped into tiers by their number of live websites, each tier holding segments up to
+ * {@code mergeFactor} times larger than the tier below, and as soon as a tier has {@code mergeFactor} segments
+ * they are merged into one segment of the next tier. Segments where more than half of the websites are deleted
+ * are rewritten without the deleted websites.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class SegmentedIndex implements Index {
+
+    /**
+     * the number of added websites after which the buffer is flushed into a segment.
+     */
+    private final int maxBufferedWebsites;
+
+    /**
+     * the number of segments of a tier that are merged into one segment.
+     */
+    private final int mergeFactor;
+
+    /**
+     * the added websites that are not flushed yet, mapped by url.
+     */
+    private final Map<String, Website> buffer = new LinkedHashMap<>();
+
+    /**
+     * the urls of the websites to delete from the segments at the next flush.
+     */
+    private final Set<String> pendingDeletes = new HashSet<>();
+
+    /**
+     * the current segments, from the oldest to the newest.
+     */
+    private List<IndexSegment> segments = new ArrayList<>();
+
+    /**
+     * the ids of the segments that are being merged.
+     */
+    private final Set<Long> merging = new HashSet<>();
+
+    /**
+     * the id of the next segment.
+     */
+    private long nextSegmentId;
+
+    /**
+     * the reader over the segments of the last flush or merge.
+     */
+    private volatile SegmentedIndexReader reader = new SegmentedIndexReader(Collections.<IndexSegment>emptyList());
+
+    /**
+     * merges the segments in the background.
+     */
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "segment-merger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * runs the periodic flushes, on its own thread so that long merges do not delay them.
+     */
+    private ScheduledExecutorService refresher;
+
+    /**
+     * the periodic flush, null if the changes are only flushed when the buffer is full or on {@code flush}.
+     */
+    private ScheduledFuture<?> periodicFlush;
+
+    /**
+     * Creates a {@code SegmentedIndex} object that flushes every 1000 websites and merges 10 segments at a time.
+     */
+    public SegmentedIndex() {
+        this(1000, 10);
+    }
+
+    /**
+     * Creates a {@code SegmentedIndex} object.
+     * @param maxBufferedWebsites the number of added websites after which the buffer is flushed into a segment
+     * @param mergeFactor the number of segments of a tier that are merged into one segment
+     */
+    public SegmentedIndex(int maxBufferedWebsites, int mergeFactor) {
+        if (maxBufferedWebsites < 1 || mergeFactor < 2) {
+            throw new IllegalArgumentException("The buffer must hold at least one website and at least two segments must be merged");
+        }
+        this.maxBufferedWebsites = maxBufferedWebsites;
+        this.mergeFactor = mergeFactor;
+    }
+
+    /**
+     * Replaces the content of the index with a list of websites, which are written into a single segment.
+     * Of several websites with the same url, the last one is indexed.
+     * @param sites The list of websites that should be indexed
+     */
+    @Override
+    public synchronized void build(List<Website> sites) {
+        buffer.clear();
+        pendingDeletes.clear();
+        segments = new ArrayList<>();
+        for (Website site : sites) {
+            buffer.remove(site.getUrl());
+            buffer.put(site.getUrl(), site);
+        }
+        flush();
+    }
+
+    /**
+     * Adds a website to the index. If a website with the same url is indexed, it is replaced.
+     * The website is searchable after the next flush.
+     * @param site the website
+     */
+    public synchronized void add(Website site) {
+        // the old website with this url is deleted from the segments, the new one is in the buffer
+        pendingDeletes.add(site.getUrl());
+        buffer.remove(site.getUrl());
+        buffer.put(site.getUrl(), site);
+        if (buffer.size() >= maxBufferedWebsites) {
+            flush();
+        }
+    }
+
+    /**
+     * Deletes the website with the given url from the index. The website is not found anymore after the next flush.
+     * @param url the url of the website
+     */
+    public synchronized void delete(String url) {
+        buffer.remove(url);
+        pendingDeletes.add(url);
+    }
+
+    /**
+     * Deletes and adds a batch of websites. The batch is never split by a flush, so queries see either none or
+     * all of its changes. The deletes are applied first, so a url that is deleted and added is replaced.
+     * @param added the websites to add or replace
+     * @param deletedUrls the urls of the websites to delete
+     */
+    public synchronized void update(Collection<Website> added, Collection<String> deletedUrls) {
+        for (String url : deletedUrls) {
+            delete(url);
+        }
+        for (Website site : added) {
+            pendingDeletes.add(site.getUrl());
+            buffer.remove(site.getUrl());
+            buffer.put(site.getUrl(), site);
+        }
+        if (buffer.size() >= maxBufferedWebsites) {
+            flush();
+        }
+    }
+
+    /**
+     * Adds an index that has already been built as a new segment, without indexing its websites again, and
+     * publishes a new reader. The index must not be changed afterwards.
+     * @param index a built inverted index
+     */
+    public synchronized void addSegment(InvertedIndex index) {
+        flush();
+        segments.add(new IndexSegment(nextSegmentId++, index));
+        reader = new SegmentedIndexReader(segments);
+        merger.execute(this::mergeSegments);
+    }
+
+    /**
+     * Flushes the changes periodically, so added and deleted websites are searchable after at most the interval.
+     * @param interval the time between two flushes in milliseconds, 0 to stop the periodic flushes
+     */
+    public synchronized void setRefreshInterval(long interval) {
+        if (periodicFlush != null) {
+            periodicFlush.cancel(false);
+            periodicFlush = null;
+        }
+        if (interval > 0) {
+            if (refresher == null) {
+                refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "segment-refresher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            periodicFlush = refresher.scheduleWithFixedDelay(() -> {
+                synchronized (this) {
+                    if (!buffer.isEmpty() || !pendingDeletes.isEmpty()) {
+                        flush();
+                    }
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Applies the pending deletes to the segments, writes the buffered websites into a new segment and publishes
+     * a new reader, so all changes so far become visible to queries. Merges are started in the background.
+     */
+    public synchronized void flush() {
+        List<IndexSegment> updated = new ArrayList<>();
+        for (IndexSegment segment : segments) {
+            IndexSegment current = segment.withDeletedUrls(pendingDeletes);
+            // segments without any live website are dropped, unless they are being merged
+            if (current.getLiveDocs() > 0 || merging.contains(current.getId())) {
+                updated.add(current);
+            }
+        }
+        pendingDeletes.clear();
+        if (!buffer.isEmpty()) {
+            updated.add(new IndexSegment(nextSegmentId++, new ArrayList<>(buffer.values())));
+            buffer.clear();
+        }
+        segments = updated;
+        reader = new SegmentedIndexReader(segments);
+        merger.execute(this::mergeSegments);
+    }
+
+    /**
+     * @return a reader over the segments of the last flush or merge, which does not change anymore
+     */
+    public SegmentedIndexReader getReader() {
+        return reader;
+    }
+
+    /**
+     * @return the number of segments of the index
+     */
+    public synchronized int getNumberOfSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Waits until the background thread has finished all merges started so far.
+     */
+    public void waitForMerges() {
+        try {
+            merger.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Merging the segments failed", e.getCause());
+        }
+    }
+
+    /**
+     * Receives a query word and returns the websites containing it, as found by the current reader.
+     * @param query The query
+     * @return the list of websites that contains the query word.
+     */
+    @Override
+    public List<Website> lookup(String query) {
+        return reader.lookup(query);
+    }
+
+    /**
+     * Merges segments as long as the merge policy finds segments to merge. The merged segment is built from the
+     * live websites of the merged segments without holding the lock, so websites can be added, deleted and flushed
+     * in the meantime. Websites deleted from the merged segments during the merge are deleted from the merged
+     * segment before it replaces them.
+     */
+    private void mergeSegments() {
+        while (true) {
+            List<IndexSegment> sources;
+            long id;
+            synchronized (this) {
+                sources = findMerge();
+                if (sources == null) {
+                    return;
+                }
+                for (IndexSegment source : sources) {
+                    merging.add(source.getId());
+                }
+                id = nextSegmentId++;
+            }
+            try {
+                // the live websites of the merged segments and where they come from
+                List<Website> websites = new ArrayList<>();
+                List<long[]> origins = new ArrayList<>();
+                for (IndexSegment source : sources) {
+                    for (int docId = 0; docId < source.size(); docId++) {
+                        if (!source.isDeleted(docId)) {
+                            websites.add(source.getWebsite(docId));
+                            origins.add(new long[]{source.getId(), docId});
+                        }
+                    }
+                }
+                IndexSegment merged = new IndexSegment(id, websites);
+
+                synchronized (this) {
+                    Map<Long, IndexSegment> current = new HashMap<>();
+                    for (IndexSegment segment : segments) {
+                        current.put(segment.getId(), segment);
+                    }
+                    List<Integer> deleted = new ArrayList<>();
+                    for (int docId = 0; docId < origins.size(); docId++) {
+                        // a merged segment is only missing if the index was built again in the meantime
+                        IndexSegment source = current.get(origins.get(docId)[0]);
+                        if (source == null || source.isDeleted((int) origins.get(docId)[1])) {
+                            deleted.add(docId);
+                        }
+                    }
+                    merged = merged.withDeletedDocs(deleted);
+
+                    List<IndexSegment> updated = new ArrayList<>();
+                    for (IndexSegment segment : segments) {
+                        if (segment.getId() == sources.get(0).getId() && merged.getLiveDocs() > 0) {
+                            updated.add(merged);
+                        } else if (!merging.contains(segment.getId())) {
+                            updated.add(segment);
+                        }
+                    }
+                    for (IndexSegment source : sources) {
+                        merging.remove(source.getId());
+                    }
+                    segments = updated;
+                    reader = new SegmentedIndexReader(segments);
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    for (IndexSegment source : sources) {
+                        merging.remove(source.getId());
+                    }
+                }
+                System.out.println("Error: Could not merge the segments " + sources + ": " + e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * The tiered merge policy. A segment where more than half of the websites are deleted is rewritten on its own.
+     * Otherwise the lowest tier with at least {@code mergeFactor} segments has its {@code mergeFactor} smallest
+     * segments merged.
+     * @return the segments to merge, or null if nothing needs to be merged
+     */
+    private List<IndexSegment> findMerge() {
+        Map<Integer, List<IndexSegment>> tiers = new HashMap<>();
+        for (IndexSegment segment : segments) {
+            if (merging.contains(segment.getId())) {
+                continue;
+            }
+            if (segment.getDeletedDocs() * 2 > segment.size()) {
+                return Collections.singletonList(segment);
+            }
+            tiers.computeIfAbsent(getTier(segment.getLiveDocs()), tier -> new ArrayList<>()).add(segment);
+        }
+        List<Integer> tierNumbers = new ArrayList<>(tiers.keySet());
+        Collections.sort(tierNumbers);
+        for (int tier : tierNumbers) {
+            List<IndexSegment> candidates = tiers.get(tier);
+            if (candidates.size() >= mergeFactor) {
+                candidates.sort(Comparator.comparingInt(IndexSegment::getLiveDocs));
+                return new ArrayList<>(candidates.subList(0, mergeFactor));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param liveDocs the number of live websites of a segment
+     * @return the tier of the segment, tier 0 holds segments with less than maxBufferedWebsites * mergeFactor websites
+     */
+    private int getTier(int liveDocs) {
+        int tier = 0;
+        long limit = (long) maxBufferedWebsites * mergeFactor;
+        while (liveDocs >= limit) {
+            tier++;
+            limit *= mergeFactor;
+        }
+        return tier;
+    }
+
+    /**
+     * Overrides the toString method
+     * @return a string containing the segments
+     */
+    @Override
+    public synchronized String toString() {
+        return "SegmentedIndex{segments=" + segments + ", bufferedWebsites=" + buffer.size() + '}';
+    }
+}
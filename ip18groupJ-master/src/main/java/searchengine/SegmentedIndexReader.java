@@ -0,0 +1,260 @@
+package searchengine;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A read-only view of the segments of a {@code SegmentedIndex} at one point in time. The websites of all segments
+ * get consecutive document ids: the websites of the first segment come first, then those of the second segment,
+ * and so on. The postings lists of a word are the postings lists of all segments joined together, without the
+ * deleted websites. The corpus statistics count the live websites of all segments, so the scores of
+ * {@code OkapiBM25} and {@code TFIDFScore} are the same as for an index built from the live websites only.
+ *
+ * A reader never changes, so a query answered by one reader is not affected by websites added, deleted or merged
+ * while the query runs.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class SegmentedIndexReader extends IndexReader {
+
+    /**
+     * the segments of the index.
+     */
+    private final List<IndexSegment> segments;
+
+    /**
+     * the document id of the first website of each segment.
+     */
+    private final int[] bases;
+
+    /**
+     * the websites of all segments, the position of a website is its document id.
+     */
+    private final List<Website> documentTable;
+
+    /**
+     * the number of live websites and their average number of words.
+     */
+    private final double liveDocs;
+    private final double averageDocumentLength;
+
+    /**
+     * the upper bounds of the Okapi BM25 scores in each block of the joined postings lists, by word. They are
+     * calculated when a word is first queried, since the reader never changes.
+     */
+    private final ConcurrentHashMap<String, float[]> blockMaxScores = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a {@code SegmentedIndexReader} object.
+     * @param segments the segments of the index
+     */
+    public SegmentedIndexReader(List<IndexSegment> segments) {
+        this.segments = new ArrayList<>(segments);
+        this.bases = new int[segments.size() + 1];
+        long words = 0;
+        long docs = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            bases[i + 1] = bases[i] + segments.get(i).size();
+            docs += segments.get(i).getLiveDocs();
+            words += segments.get(i).getLiveWords();
+        }
+        this.liveDocs = docs;
+        this.averageDocumentLength = docs == 0 ? 0 : (double) words / docs;
+        this.documentTable = new AbstractList<Website>() {
+            @Override
+            public Website get(int docId) {
+                int segment = getSegment(docId);
+                return SegmentedIndexReader.this.segments.get(segment).getWebsite(docId - bases[segment]);
+            }
+
+            @Override
+            public int size() {
+                return bases[bases.length - 1];
+            }
+        };
+    }
+
+    /**
+     * @return the segments of the index
+     */
+    public List<IndexSegment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Finds the segment containing a document id.
+     * @param docId a document id
+     * @return the position of the segment in the list of segments
+     */
+    private int getSegment(int docId) {
+        int segment = Arrays.binarySearch(bases, docId);
+        if (segment < 0) {
+            return -segment - 2;
+        }
+        // skips empty segments starting at the same document id
+        while (segment + 1 < bases.length - 1 && bases[segment + 1] == docId) {
+            segment++;
+        }
+        return segment;
+    }
+
+    /**
+     * Joins the live postings of a word in all segments.
+     * @param word a word
+     * @return the postings list of the word, or null if no segment contains the word.
+     */
+    @Override
+    protected Postings getPostings(String word) {
+        Postings postings = null;
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).getIndex().getNumberOfWebsites(word) == 0) {
+                continue;
+            }
+            if (postings == null) {
+                postings = new Postings(documentTable);
+            }
+            segments.get(i).appendLivePostings(word, bases[i], postings);
+        }
+        if (postings != null) {
+            postings.trimToSize();
+        }
+        return postings;
+    }
+
+    /**
+     * Joins the live websites of all segments that may match a site url.
+     * @param siteUrl the lower case site url of a query
+     * @return a postings list of the websites of the host and first directory of the site url
+     */
+    @Override
+    public Postings getSitePostings(String siteUrl) {
+        Postings postings = new Postings(documentTable);
+        for (int i = 0; i < segments.size(); i++) {
+            segments.get(i).appendLiveSitePostings(siteUrl, bases[i], postings);
+        }
+        postings.trimToSize();
+        return postings;
+    }
+
+    /**
+     * @param word a query word
+     * @return the number of live websites containing the word in all segments
+     */
+    @Override
+    public Double getNumberOfWebsites(String word) {
+        int count = 0;
+        for (IndexSegment segment : segments) {
+            count += segment.getDocumentFrequency(word);
+        }
+        return (double) count;
+    }
+
+    /**
+     * Reads the term frequency from the segment containing the website.
+     * @param word a query word
+     * @param website an indexed website
+     * @return the term frequency of the word on the website, 0 if the word does not occur on it.
+     */
+    @Override
+    public int getTermFrequency(String word, Website website) {
+        for (IndexSegment segment : segments) {
+            if (segment.getDocId(website) >= 0) {
+                return segment.getIndex().getTermFrequency(word, website);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public List<String> getWordsWithPrefix(String prefix) {
+        TreeSet<String> words = new TreeSet<>();
+        for (IndexSegment segment : segments) {
+            words.addAll(segment.getIndex().getWordsWithPrefix(prefix));
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Returns an upper bound of the Okapi BM25 score of a word, the highest of its block bounds.
+     * @param word a word
+     * @return an upper bound of the word's score on any website, 0 if no live website contains the word.
+     */
+    @Override
+    public double getMaxScore(String word) {
+        float max = 0;
+        for (float block : getBlockMaxScores(word)) {
+            max = Math.max(max, block);
+        }
+        return max;
+    }
+
+    /**
+     * Returns an upper bound of the Okapi BM25 score of a word within each block of its joined postings list.
+     * The bounds stored in the segments were calculated with the corpus statistics of each segment, so they
+     * cannot be used for the whole index. Instead they are calculated from the joined postings, which hold the
+     * live websites only, with the idf and average length of all segments, see {@code calculateBlockMaxScores}.
+     * @param word a word
+     * @return the upper bounds of the scores in each block, an empty array if no live website contains the word.
+     */
+    @Override
+    public float[] getBlockMaxScores(String word) {
+        float[] blocks = blockMaxScores.get(word);
+        if (blocks == null) {
+            blocks = calculateBlockMaxScores(getPostings(word));
+            blockMaxScores.putIfAbsent(word, blocks);
+        }
+        return blocks.clone();
+    }
+
+    @Override
+    protected List<Website> getDocuments() {
+        return documentTable;
+    }
+
+    @Override
+    protected int getDocId(Website website) {
+        for (int i = 0; i < segments.size(); i++) {
+            int docId = segments.get(i).getDocId(website);
+            if (docId >= 0) {
+                return bases[i] + docId;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getDocumentLength(int docId) {
+        int segment = getSegment(docId);
+        return segments.get(segment).getIndex().getDocumentLength(docId - bases[segment]);
+    }
+
+    /**
+     * @return the number of live websites in all segments
+     */
+    @Override
+    public double getCorpusSize() {
+        return liveDocs;
+    }
+
+    /**
+     * @return the average number of words on the live websites in all segments
+     */
+    @Override
+    public double getAverageDocumentLength() {
+        return averageDocumentLength;
+    }
+
+    /**
+     * Overrides the toString method
+     * @return a string containing the segments
+     */
+    @Override
+    public String toString() {
+        return "SegmentedIndexReader{segments=" + segments + '}';
+    }
+}
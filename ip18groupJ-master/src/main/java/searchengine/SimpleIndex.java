@@ -3,14 +3,42 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class SimpleIndex implements Index {
+/**
+ * An index without postings lists, which looks at the words of every website for each query. The postings lists
+ * and corpus statistics of {@code IndexReader} are calculated from the term ids of the websites when they are
+ * needed, so the scores work on this index like on an inverted index.
+ */
+public class SimpleIndex extends IndexReader implements Index {
 
     /**
      * The list of websites stored in the index.
      */
     private List<Website> sites = null;
 
+    /**
+     * the document id of each website, its position in the list of websites.
+     */
+    private Map<Website, Integer> docIds = new HashMap<>();
+
+    /**
+     * the average number of words on the websites.
+     */
+    private double averageDocumentLength;
+
+    /**
+     * the site index, built the first time a site query is answered.
+     */
+    private volatile SiteIndex siteIndex;
+
+    /**
+     * the number of websites containing each word, and the upper bounds of its scores, for the words counted so far.
+     */
+    private final Map<String, Double> documentFrequencies = new ConcurrentHashMap<>();
+    private final Map<String, float[]> blockMaxScores = new ConcurrentHashMap<>();
+
     /**
      * The build method processes a list of websites into the index data structure.
      *
@@ -19,6 +47,18 @@ public class SimpleIndex implements Index {
     @Override
     public void build(List<Website> sites) {
         this.sites = sites;
+        Map<Website, Integer> ids = new HashMap<>();
+        long words = 0;
+        for (int docId = 0; docId < sites.size(); docId++) {
+            ids.putIfAbsent(sites.get(docId), docId);
+            words += sites.get(docId).getNumberOfWords();
+        }
+        this.docIds = ids;
+        this.averageDocumentLength = sites.isEmpty() ? 0 : (double) words / sites.size();
+        this.siteIndex = null;
+        documentFrequencies.clear();
+        blockMaxScores.clear();
+        clearLengthNorms();
     }
 
     /**
@@ -38,6 +78,130 @@ public class SimpleIndex implements Index {
         return result;
     }
 
+    /**
+     * Counts the occurrences of the word's term id on every website.
+     * @param word a word
+     * @return the postings list of the word, or null if no website contains the word.
+     */
+    @Override
+    protected Postings getPostings(String word) {
+        int termId = Vocabulary.getTermIdIfPresent(word);
+        if (termId < 0) {
+            return null;
+        }
+        Postings postings = new Postings(sites);
+        for (int docId = 0; docId < sites.size(); docId++) {
+            int frequency = sites.get(docId).getTermFrequency(termId);
+            if (frequency > 0) {
+                postings.add(docId, frequency);
+            }
+        }
+        postings.trimToSize();
+        return postings.isEmpty() ? null : postings;
+    }
+
+    /**
+     * @param word a query word
+     * @return the number of websites containing the word
+     */
+    @Override
+    public Double getNumberOfWebsites(String word) {
+        return documentFrequencies.computeIfAbsent(word, w -> super.getNumberOfWebsites(w));
+    }
+
+    /**
+     * Counts the occurrences of the word's term id on the website.
+     * @param word a query word
+     * @param website an indexed website
+     * @return the term frequency of the word on the website, 0 if the word does not occur on it.
+     */
+    @Override
+    public int getTermFrequency(String word, Website website) {
+        return getDocId(website) < 0 ? 0 : website.getTermFrequency(Vocabulary.getTermIdIfPresent(word));
+    }
+
+    @Override
+    public List<String> getWordsWithPrefix(String prefix) {
+        TreeSet<String> words = new TreeSet<>();
+        for (Website site : sites) {
+            for (int termId : site.getTermIds()) {
+                String word = Vocabulary.getWord(termId);
+                if (word.startsWith(prefix)) {
+                    words.add(word);
+                }
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    @Override
+    public Postings getSitePostings(String siteUrl) {
+        SiteIndex index = siteIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (siteIndex == null) {
+                    siteIndex = new SiteIndex(sites);
+                }
+                index = siteIndex;
+            }
+        }
+        return index.getPostings(siteUrl, sites);
+    }
+
+    /**
+     * @param word a word
+     * @return an upper bound of the word's Okapi BM25 score on any website, the highest of its block bounds.
+     */
+    @Override
+    public double getMaxScore(String word) {
+        float max = 0;
+        for (float block : getBlockMaxScores(word)) {
+            max = Math.max(max, block);
+        }
+        return max;
+    }
+
+    /**
+     * @param word a word
+     * @return the upper bounds of the word's scores in each block, see {@code calculateBlockMaxScores}.
+     */
+    @Override
+    public float[] getBlockMaxScores(String word) {
+        return blockMaxScores.computeIfAbsent(word, w -> calculateBlockMaxScores(getPostings(w))).clone();
+    }
+
+    @Override
+    protected List<Website> getDocuments() {
+        return sites;
+    }
+
+    @Override
+    protected int getDocId(Website website) {
+        Integer docId = docIds.get(website);
+        return docId == null ? -1 : docId;
+    }
+
+    @Override
+    public int getDocumentLength(int docId) {
+        return sites.get(docId).getNumberOfWords();
+    }
+
+    /**
+     * @return the number of websites in the index
+     */
+    @Override
+    public double getCorpusSize() {
+        return sites.size();
+    }
+
+    /**
+     * @return the average number of words on the websites
+     */
+    @Override
+    public double getAverageDocumentLength() {
+        return averageDocumentLength;
+    }
+
     /**
      * Overrides the toString method
      *
@@ -0,0 +1,181 @@
+package searchengine;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the hosts and the first directory of the urls of an index's websites, so the websites matching a site
+ * query are found with a lookup instead of comparing the url of every result.
+ *
+ * A website matches the site url of a query, like "wikipedia.org/wiki/d", if the host of the site url is the host of
+ * the website or one of its domains ("en.wikipedia.org" or "wikipedia.org", but not "ikipedia.org"), and the path of
+ * the website starts with the rest of the site url ("/wiki/denmark"). The scheme of the website's url is ignored.
+ *
+ * The index maps every domain of a website's host to the websites, and every domain followed by the first directory
+ * of the path, like "wikipedia.org/wiki". The websites found for a site url are those of its host and its first
+ * directory, if it has one; they are checked with {@code matches} afterwards, since the rest of the path is not
+ * indexed.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class SiteIndex {
+
+    /**
+     * the document ids of the websites of each domain and directory, in increasing order.
+     */
+    private final Map<String, int[]> docIds = new HashMap<>();
+
+    /**
+     * the term frequencies of the postings lists, which are all 0, shared by all lists.
+     */
+    private final int[] frequencies;
+
+    /**
+     * Creates a {@code SiteIndex} object.
+     * @param documents the document table of an index, the position of a website is its document id
+     */
+    public SiteIndex(List<Website> documents) {
+        Map<String, List<Integer>> lists = new HashMap<>();
+        for (int docId = 0; docId < documents.size(); docId++) {
+            for (String key : getKeys(documents.get(docId).getUrl())) {
+                List<Integer> list = lists.computeIfAbsent(key, k -> new ArrayList<>());
+                // a key occurs once per url, but the document ids are checked anyway
+                if (list.isEmpty() || list.get(list.size() - 1) != docId) {
+                    list.add(docId);
+                }
+            }
+        }
+        int longest = 0;
+        for (Map.Entry<String, List<Integer>> entry : lists.entrySet()) {
+            int[] ids = new int[entry.getValue().size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = entry.getValue().get(i);
+            }
+            docIds.put(entry.getKey(), ids);
+            longest = Math.max(longest, ids.length);
+        }
+        frequencies = new int[longest];
+    }
+
+    /**
+     * Finds the websites that may match a site url: those of the host and the first directory of the site url.
+     * @param siteUrl the lower case site url of a query
+     * @param documents the document table the postings list refers to
+     * @return the postings list of the websites, with term frequencies of 0
+     */
+    public Postings getPostings(String siteUrl, List<Website> documents) {
+        int[] ids = docIds.get(getKey(siteUrl));
+        if (ids == null) {
+            return new Postings(documents);
+        }
+        return new Postings(documents, ids, frequencies, ids.length);
+    }
+
+    /**
+     * @return the number of domains and directories in the index
+     */
+    public int size() {
+        return docIds.size();
+    }
+
+    /**
+     * Checks if a website matches a site url.
+     * @param url the url of a website
+     * @param siteUrl the lower case site url of a query
+     * @return true if a domain of the url's host is the host of the site url, and the path starts with its rest
+     */
+    public static boolean matches(String url, String siteUrl) {
+        int hostStart = getHostStart(url);
+        int hostEnd = getHostEnd(url, hostStart);
+        int siteHostEnd = getHostEnd(siteUrl, 0);
+        int domainStart = hostEnd - siteHostEnd;
+        if (domainStart < hostStart || (domainStart > hostStart && url.charAt(domainStart - 1) != '.')) {
+            return false;
+        }
+        // compares the url ignoring its case, without creating a lower case copy of it
+        return url.regionMatches(true, domainStart, siteUrl, 0, siteHostEnd)
+                && url.regionMatches(true, hostEnd, siteUrl, siteHostEnd, siteUrl.length() - siteHostEnd);
+    }
+
+    /**
+     * Finds the keys a website is indexed with: every domain of its host, and every domain followed by the first
+     * directory of the path.
+     * @param url the url of a website
+     * @return the keys
+     */
+    static List<String> getKeys(String url) {
+        url = url.toLowerCase();
+        int hostStart = getHostStart(url);
+        int hostEnd = getHostEnd(url, hostStart);
+        String directory = getDirectory(url, hostEnd);
+        List<String> keys = new ArrayList<>();
+        int domainStart = hostStart;
+        while (domainStart < hostEnd) {
+            String domain = url.substring(domainStart, hostEnd);
+            keys.add(domain);
+            if (directory != null) {
+                keys.add(domain + directory);
+            }
+            int dot = url.indexOf('.', domainStart);
+            if (dot < 0 || dot >= hostEnd) {
+                break;
+            }
+            domainStart = dot + 1;
+        }
+        return keys;
+    }
+
+    /**
+     * Finds the key of a site url: its host, followed by its first directory if the site url contains it completely.
+     * @param siteUrl the lower case site url of a query
+     * @return the key
+     */
+    static String getKey(String siteUrl) {
+        int hostEnd = getHostEnd(siteUrl, 0);
+        String directory = getDirectory(siteUrl, hostEnd);
+        return directory == null ? siteUrl.substring(0, hostEnd) : siteUrl.substring(0, hostEnd) + directory;
+    }
+
+    /**
+     * @return the position after the scheme of the url, 0 if it has none
+     */
+    private static int getHostStart(String url) {
+        int scheme = url.indexOf("://");
+        return scheme < 0 ? 0 : scheme + 3;
+    }
+
+    /**
+     * @return the position of the first '/', '?' or '#' after the start of the host, or the length of the url
+     */
+    private static int getHostEnd(String url, int hostStart) {
+        for (int i = hostStart; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return url.length();
+    }
+
+    /**
+     * @return the first directory of the path like "/wiki", if the path continues with a '/' after it, else null
+     */
+    private static String getDirectory(String url, int hostEnd) {
+        if (hostEnd >= url.length() || url.charAt(hostEnd) != '/') {
+            return null;
+        }
+        for (int i = hostEnd + 1; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '/') {
+                return i == hostEnd + 1 ? null : url.substring(hostEnd, i);
+            }
+            if (c == '?' || c == '#') {
+                return null;
+            }
+        }
+        return null;
+    }
+}
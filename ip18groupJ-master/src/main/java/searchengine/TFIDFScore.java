@@ -13,31 +13,51 @@ public class TFIDFScore implements Score {
 
 
     /**
-     * Calculates a given website's TFIDF score based on a word.
-     *
-     * @param word the search word given by the user
-     * @param website the website for which the score is to be calculated
-     * @param idx the data structure used
-     * @return the TFIDF score
+     * The weight of a word is its inverse document frequency.
+     * @param word a word of the index
+     * @param index the index holding the corpus statistics
+     * @return the IDF score
      */
     @Override
-    public double getScore(String word, Website website, Index idx) {
-
-        // Creates a new TFScore class to calculate the TFScore using its getScore() method
-        double TFScore = new TFScore().getScore(word, website, idx);
-
-        if(TFScore!=0.0){
-
-            double docsContainingWord = ((InvertedIndex)idx).getNumberOfWebsites(word);
-
-            // Calculates the IDF score
-            double IDFScore = Math.log10(((InvertedIndex) idx).getCorpusSize() / docsContainingWord);
+    public double getTermWeight(String word, IndexReader index) {
+        return getIDFScore(word, index);
+    }
 
-            // Calculates the TFIDF score
-            double TFIDFScore = IDFScore *TFScore;
+    /**
+     * The TFIDF score does not depend on the length of a website.
+     * @param documentLength the number of words on the website
+     * @param averageDocumentLength the average number of words on the websites of the corpus
+     * @return 1
+     */
+    @Override
+    public double getLengthNorm(int documentLength, double averageDocumentLength) {
+        return 1;
+    }
 
-            return TFIDFScore;
+    /**
+     * Calculates the TFIDF score of each website, its term frequency times the IDF score of the word.
+     * @param termWeight the IDF score of the word
+     * @param frequencies the term frequency of the word on each website
+     * @param lengthNorms the length norm of each website, which is not used
+     * @param scores receives the TFIDF score of each website
+     * @param count the number of websites
+     */
+    @Override
+    public void getScores(double termWeight, int[] frequencies, double[] lengthNorms, double[] scores, int count) {
+        for (int i = 0; i < count; i++) {
+            scores[i] = termWeight * frequencies[i];
         }
-        else return 0.0;
+    }
+
+    /**
+     * Calculates the inverse document frequency (IDF) of a word.
+     *
+     * @param word the search word given by the user
+     * @param idx the index holding the corpus statistics
+     * @return the IDF score
+     */
+    static double getIDFScore(String word, IndexReader idx) {
+        double docsContainingWord = idx.getNumberOfWebsites(word);
+        return Math.log10(idx.getCorpusSize() / docsContainingWord);
     }
 }
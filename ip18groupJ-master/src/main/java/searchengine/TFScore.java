@@ -11,23 +11,39 @@ package searchengine;
 public class TFScore implements Score {
 
     /**
-     * Calculates a given website's term frequency score based on a query word.
-     *
-     * @param query the search query given by the user
-     * @param website the website which score is to be calculated
-     * @param idx the data structure used
-     * @return the term frequency score
+     * The term frequency score is the same for all words.
+     * @param word a word of the index
+     * @param index the index
+     * @return 1
      */
     @Override
-    public double getScore(String query, Website website, Index idx) {
+    public double getTermWeight(String word, IndexReader index) {
+        return 1;
+    }
 
-        int count = 0;
+    /**
+     * The term frequency score does not depend on the length of a website.
+     * @param documentLength the number of words on the website
+     * @param averageDocumentLength the average number of words on the websites of the corpus
+     * @return 1
+     */
+    @Override
+    public double getLengthNorm(int documentLength, double averageDocumentLength) {
+        return 1;
+    }
 
-        for (String word: website.getWords()){
-            if(word.equals(query)){
-                count++;
-            }
+    /**
+     * The term frequency score of each website is its term frequency.
+     * @param termWeight the weight of the word, which is not used
+     * @param frequencies the term frequency of the word on each website
+     * @param lengthNorms the length norm of each website, which is not used
+     * @param scores receives the term frequency score of each website
+     * @param count the number of websites
+     */
+    @Override
+    public void getScores(double termWeight, int[] frequencies, double[] lengthNorms, double[] scores, int count) {
+        for (int i = 0; i < count; i++) {
+            scores[i] = frequencies[i];
         }
-       return count;
     }
 }
@@ -0,0 +1,319 @@
+package searchengine;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A sorted dictionary of all words in an index. Each word gets a term id, which is its position in sorted order.
+ * The words are stored with front coding: they are grouped into blocks of {@value #BLOCK_SIZE}, the first word
+ * of each block is stored completely, and every following word only stores the length of the prefix it shares
+ * with the word before and the remaining characters. Since words with a common prefix are next to each other
+ * in sorted order, all words starting with a prefix form one range of term ids, which is found with a binary
+ * search over the first words of the blocks in O(log V) time. The first words are read from the front coded
+ * data like all other words, so a dictionary can work directly on the buffers of a memory mapped index snapshot.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class TermDictionary {
+
+    /**
+     * the number of words in a block.
+     */
+    public static final int BLOCK_SIZE = 16;
+
+    /**
+     * the start of each block in the data buffer.
+     */
+    private final IntBuffer blockOffsets;
+
+    /**
+     * the front coded words. The first word of a block is stored as its length and its characters, every
+     * following word as shared prefix length, suffix length and the suffix characters. The buffers wrap arrays,
+     * are direct buffers outside of the heap, see {@code toOffHeap}, or views of a mapped file.
+     */
+    private final CharBuffer data;
+
+    /**
+     * the number of words in the dictionary.
+     */
+    private final int size;
+
+    /**
+     * Creates a {@code TermDictionary} object from a collection of distinct words.
+     * @param words the words, in any order
+     */
+    public TermDictionary(Collection<String> words) {
+        String[] sorted = words.toArray(new String[0]);
+        Arrays.sort(sorted);
+        size = sorted.length;
+        int[] offsets = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+
+        StringBuilder builder = new StringBuilder();
+        String previous = null;
+        for (int i = 0; i < size; i++) {
+            String word = sorted[i];
+            if (word.length() > Character.MAX_VALUE) {
+                throw new IllegalArgumentException("Word is too long for the dictionary: " + word.length() + " characters");
+            }
+            if (i % BLOCK_SIZE == 0) {
+                offsets[i / BLOCK_SIZE] = builder.length();
+                builder.append((char) word.length()).append(word);
+            } else {
+                int common = commonPrefixLength(previous, word);
+                builder.append((char) common).append((char) (word.length() - common)).append(word, common, word.length());
+            }
+            previous = word;
+        }
+        char[] chars = new char[builder.length()];
+        builder.getChars(0, builder.length(), chars, 0);
+        data = CharBuffer.wrap(chars);
+        blockOffsets = IntBuffer.wrap(offsets);
+    }
+
+    /**
+     * Creates a {@code TermDictionary} object from its front coded parts, for example the mapped sections of an
+     * index snapshot. The buffers are used as they are, nothing is decoded.
+     * @param blockOffsets the start of each block in the data buffer
+     * @param data the front coded words
+     * @param size the number of words
+     */
+    TermDictionary(IntBuffer blockOffsets, CharBuffer data, int size) {
+        if (blockOffsets.limit() != (size + BLOCK_SIZE - 1) / BLOCK_SIZE) {
+            throw new IllegalArgumentException("The number of blocks does not match the size of the dictionary");
+        }
+        this.blockOffsets = blockOffsets;
+        this.data = data;
+        this.size = size;
+    }
+
+    /**
+     * Copies the front coded words and the block offsets into direct buffers outside of the heap.
+     * @return a dictionary with the same words, which are stored off-heap
+     */
+    public TermDictionary toOffHeap() {
+        if (data.isDirect()) {
+            return this;
+        }
+        CharBuffer directData = ByteBuffer.allocateDirect(2 * data.limit()).order(ByteOrder.nativeOrder()).asCharBuffer();
+        directData.put(data.duplicate());
+        directData.clear();
+        IntBuffer directOffsets = ByteBuffer.allocateDirect(4 * blockOffsets.limit()).order(ByteOrder.nativeOrder()).asIntBuffer();
+        directOffsets.put(blockOffsets.duplicate());
+        directOffsets.clear();
+        return new TermDictionary(directOffsets, directData, size);
+    }
+
+    /**
+     * @return the number of words in the dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the term id of a word.
+     * @param word the word
+     * @return the term id, or -1 if the word is not in the dictionary
+     */
+    public int getTermId(String word) {
+        int id = lowerBound(word);
+        if (id < size && getTerm(id).equals(word)) {
+            return id;
+        }
+        return -1;
+    }
+
+    /**
+     * @param termId a term id
+     * @return the word with the given term id
+     */
+    public String getTerm(int termId) {
+        return getTerms(termId, termId + 1).get(0);
+    }
+
+    /**
+     * Decodes the words of a range of term ids.
+     * @param from the first term id (inclusive)
+     * @param to the last term id (exclusive)
+     * @return the words of the term ids in sorted order
+     */
+    public List<String> getTerms(int from, int to) {
+        List<String> terms = new ArrayList<>(Math.max(to - from, 0));
+        if (from >= to) {
+            return terms;
+        }
+        char[] current = new char[16];
+        int length = 0;
+        int position = 0;
+        for (int id = from - from % BLOCK_SIZE; id < to; id++) {
+            int common = 0;
+            int suffixLength;
+            if (id % BLOCK_SIZE == 0) {
+                // the first word of a block has no shared prefix
+                position = blockOffsets.get(id / BLOCK_SIZE);
+                suffixLength = data.get(position);
+                position += 1;
+            } else {
+                common = data.get(position);
+                suffixLength = data.get(position + 1);
+                position += 2;
+            }
+            if (current.length < common + suffixLength) {
+                current = Arrays.copyOf(current, Math.max(common + suffixLength, current.length * 2));
+            }
+            for (int i = 0; i < suffixLength; i++) {
+                current[common + i] = data.get(position + i);
+            }
+            length = common + suffixLength;
+            position += suffixLength;
+            if (id >= from) {
+                terms.add(new String(current, 0, length));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Finds the range of term ids of all words starting with a prefix.
+     * @param prefix the prefix
+     * @return an array {from, to} with the first term id (inclusive) and the last term id (exclusive)
+     */
+    public int[] getPrefixRange(String prefix) {
+        int from = lowerBound(prefix);
+        int to = from;
+        // the words with the prefix follow directly after each other, decode block by block until one does not match
+        while (to < size) {
+            int blockEnd = Math.min((to / BLOCK_SIZE + 1) * BLOCK_SIZE, size);
+            List<String> terms = getTerms(to, blockEnd);
+            int matching = 0;
+            while (matching < terms.size() && terms.get(matching).startsWith(prefix)) {
+                matching++;
+            }
+            to += matching;
+            if (matching < terms.size()) {
+                break;
+            }
+        }
+        return new int[]{from, to};
+    }
+
+    /**
+     * @param prefix the prefix
+     * @return all words starting with the prefix, in sorted order
+     */
+    public List<String> getTermsWithPrefix(String prefix) {
+        int[] range = getPrefixRange(prefix);
+        return getTerms(range[0], range[1]);
+    }
+
+    /**
+     * Finds the term id of the first word that is not smaller than the given word.
+     * @param word the word
+     * @return the term id, or the size of the dictionary if all words are smaller
+     */
+    private int lowerBound(String word) {
+        if (size == 0) {
+            return 0;
+        }
+        // find the last block whose first word is not larger than the word
+        int low = 0;
+        int high = blockOffsets.limit() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareBlockHead(middle, word);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle * BLOCK_SIZE;
+            }
+        }
+        int block = low - 1;
+        if (block < 0) {
+            return 0;
+        }
+        int from = block * BLOCK_SIZE;
+        List<String> terms = getTerms(from, Math.min(from + BLOCK_SIZE, size));
+        for (int i = 0; i < terms.size(); i++) {
+            if (terms.get(i).compareTo(word) >= 0) {
+                return from + i;
+            }
+        }
+        return from + terms.size();
+    }
+
+    /**
+     * Compares the first word of a block with a word like {@code String.compareTo}, without decoding it.
+     * @param block a block
+     * @param word the word
+     * @return a negative number, zero or a positive number if the first word of the block is smaller than, equal
+     * to or larger than the word
+     */
+    private int compareBlockHead(int block, String word) {
+        int position = blockOffsets.get(block);
+        int length = data.get(position);
+        int max = Math.min(length, word.length());
+        for (int i = 0; i < max; i++) {
+            char c = data.get(position + 1 + i);
+            if (c != word.charAt(i)) {
+                return c - word.charAt(i);
+            }
+        }
+        return length - word.length();
+    }
+
+    /**
+     * @return the length of the prefix shared by both words
+     */
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the start of each block in the front coded words, as a read-only view
+     */
+    IntBuffer getBlockOffsets() {
+        return blockOffsets.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the front coded words, copied if they are stored off-heap
+     */
+    char[] getData() {
+        if (data.hasArray() && data.arrayOffset() == 0 && data.array().length == data.limit()) {
+            return data.array();
+        }
+        char[] chars = new char[data.limit()];
+        data.duplicate().get(chars);
+        return chars;
+    }
+
+    /**
+     * @return true if the front coded words are stored off-heap
+     */
+    boolean isOffHeap() {
+        return data.isDirect();
+    }
+
+    /**
+     * Overrides the toString method
+     * @return a string containing all words of the dictionary
+     */
+    @Override
+    public String toString() {
+        return getTerms(0, size).toString();
+    }
+}
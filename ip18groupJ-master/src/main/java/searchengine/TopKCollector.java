@@ -0,0 +1,111 @@
+package searchengine;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the k websites with the highest scores, identified by their document id.
+ * The websites are kept in a min-heap of size k, so the lowest of the k best scores (the threshold) is at
+ * the top of the heap. A website can be offered several times; it keeps its highest score, which is the
+ * behaviour needed for OR-queries, where a website gets the highest score of the subqueries it matches.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public class TopKCollector {
+
+    /**
+     * the number of websites to collect.
+     */
+    private final int k;
+
+    /**
+     * the scores of the websites currently in the heap, mapped by document id.
+     */
+    private final Map<Integer, Double> scores = new HashMap<>();
+
+    /**
+     * the document ids in the heap, the one with the lowest score at the top. On equal scores the higher
+     * document id is at the top and is replaced first.
+     */
+    private final PriorityQueue<Integer> heap;
+
+    /**
+     * Creates a {@code TopKCollector} object.
+     * @param k the number of websites to collect
+     */
+    public TopKCollector(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.max(k, 1), (a, b) -> {
+            int comparison = Double.compare(scores.get(a), scores.get(b));
+            return comparison != 0 ? comparison : Integer.compare(b, a);
+        });
+    }
+
+    /**
+     * Offers a website with its score.
+     * @param docId the document id of the website
+     * @param score the score of the website
+     */
+    public void offer(int docId, double score) {
+        Double current = scores.get(docId);
+        if (current != null) {
+            if (score > current) {
+                heap.remove(docId);
+                scores.put(docId, score);
+                heap.add(docId);
+            }
+            return;
+        }
+        if (heap.size() < k) {
+            scores.put(docId, score);
+            heap.add(docId);
+        } else if (score > getThreshold()) {
+            scores.remove(heap.poll());
+            scores.put(docId, score);
+            heap.add(docId);
+        }
+    }
+
+    /**
+     * @return true if k websites have been collected
+     */
+    public boolean isFull() {
+        return heap.size() >= k;
+    }
+
+    /**
+     * Returns the score a website must exceed to be collected. A website whose score cannot be higher than
+     * the threshold can be skipped without calculating its score.
+     * @return the lowest score among the collected websites if k websites are collected, otherwise negative infinity
+     */
+    public double getThreshold() {
+        if (k == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return isFull() ? scores.get(heap.peek()) : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return the document ids of the collected websites, sorted by their score in descending order
+     */
+    public List<Integer> getDocIds() {
+        List<Integer> docIds = new ArrayList<>(heap);
+        docIds.sort((a, b) -> {
+            int comparison = Double.compare(scores.get(b), scores.get(a));
+            return comparison != 0 ? comparison : Integer.compare(a, b);
+        });
+        return docIds;
+    }
+
+    /**
+     * @param docId the document id of a collected website
+     * @return the score of the website
+     */
+    public double getScore(int docId) {
+        return scores.get(docId);
+    }
+}
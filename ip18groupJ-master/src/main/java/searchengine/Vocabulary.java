@@ -0,0 +1,104 @@
+package searchengine;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The global dictionary of all words the search engine has seen. Each distinct word gets a term id, the next
+ * free number, the first time it is seen, and keeps it for the lifetime of the program. Websites store their
+ * words as term ids, so each word is stored once, however often it occurs on the websites, and comparing words
+ * is comparing numbers.
+ *
+ * Unlike the {@code TermDictionary} of an index, the term ids are not sorted, and words are never removed, also
+ * not when the websites containing them are deleted. Looking up a term id and its word is thread-safe and does
+ * not block; adding a word takes a lock.
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+public final class Vocabulary {
+
+    /**
+     * the number of words in a chunk of the word table, as power of two.
+     */
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /**
+     * the term ids of the words.
+     */
+    private static final ConcurrentHashMap<String, Integer> TERM_IDS = new ConcurrentHashMap<>();
+
+    /**
+     * the words by term id, in chunks, so the table grows without copying the words.
+     */
+    private static volatile String[][] words = new String[16][];
+
+    /**
+     * the number of words.
+     */
+    private static volatile int size;
+
+    private Vocabulary() {
+    }
+
+    /**
+     * Returns the term id of a word, and adds the word if it has not been seen before.
+     * @param word the word
+     * @return the term id of the word
+     */
+    public static int getTermId(String word) {
+        Integer termId = TERM_IDS.get(word);
+        return termId != null ? termId : add(word);
+    }
+
+    /**
+     * Returns the term id of a word without adding the word, for example the word of a query.
+     * @param word the word
+     * @return the term id of the word, or -1 if the word has never been seen
+     */
+    public static int getTermIdIfPresent(String word) {
+        Integer termId = TERM_IDS.get(word);
+        return termId != null ? termId : -1;
+    }
+
+    /**
+     * @param termId a term id returned by {@code getTermId}
+     * @return the word with the term id
+     */
+    public static String getWord(int termId) {
+        return words[termId >>> CHUNK_BITS][termId & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * @return the number of distinct words that have been seen
+     */
+    public static int size() {
+        return size;
+    }
+
+    /**
+     * Adds a word, unless another thread has added it in the meantime.
+     */
+    private static synchronized int add(String word) {
+        Integer termId = TERM_IDS.get(word);
+        if (termId != null) {
+            return termId;
+        }
+        int id = size;
+        int chunk = id >>> CHUNK_BITS;
+        String[][] table = words;
+        if (chunk == table.length) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        if (table[chunk] == null) {
+            table[chunk] = new String[CHUNK_SIZE];
+        }
+        table[chunk][id & (CHUNK_SIZE - 1)] = word;
+        // the word is in the table before its term id can be found, so every term id has its word
+        words = table;
+        size = id + 1;
+        TERM_IDS.put(word, id);
+        return id;
+    }
+}
@@ -3,13 +3,25 @@ package searchengine;
 // Spring Imports (first Application, then Controller)
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
+// Servlet Imports
+import javax.servlet.http.HttpServletResponse;
+
 // Other Imports
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Turns our search engine into a Web application, using Spring
@@ -27,6 +39,9 @@ public class WebApplication {
     // Search Engine instance
     public static SearchEngine searchengine;
 
+    // The maximum number of websites on a page of "/search/page"
+    private static final int MAX_PAGE_SIZE = 1000;
+
     /**
      * Starts a web server that serves our search engine to the
      * Web. It reads the list of websites from the input file given as
@@ -38,11 +53,24 @@ public class WebApplication {
     public static void main(String[] args) {
         System.out.println("Welcome to the SearchEngine!");
         
-        System.out.println("Reading database...");
-        List<Website> sites = FileHelper.parseFile(args);
-        
-        System.out.println("Building the search engine...");
-        searchengine = new SearchEngine(sites);
+        String database = FileHelper.getDatabasePath(args);
+
+        System.out.println("Reading database and building the search engine...");
+        try {
+            searchengine = SearchEngine.load(database);
+        } catch (IOException e) {
+            System.out.println("Error: Could not read the database \"" + database + "\": " + e);
+            System.exit(1);
+        }
+
+        // the optional second argument is a query log, whose queries fill the query result cache
+        if (args.length > 1) {
+            try {
+                searchengine.warmUp(args[1]);
+            } catch (IOException e) {
+                System.out.println("Could not read the query log \"" + args[1] + "\": " + e);
+            }
+        }
 
         System.out.println("Search engine is ready to receive queries.");
         System.out.println("Starting web server:");
@@ -56,18 +84,122 @@ public class WebApplication {
      * matching the given query. This method is invoked by the web
      * server whenever it receives an HTTP request to "/search".
      * @param query the query string
+     * @param limit the maximum number of websites to return, 0 returns all matching websites
      * @return the list of websites that matches the query
      */
     @CrossOrigin(origins = "*")
     @RequestMapping("/search")
-    public List<Website> search(@RequestParam(value="query", defaultValue="") String query) {
+    public List<Website> search(@RequestParam(value="query", defaultValue="") String query,
+                                @RequestParam(value="limit", defaultValue="0") int limit) {
         
         System.out.println("Handling request for query word \"" + query + "\"");
 
-        List<Website> resultList = searchengine.search(query);
+        List<Website> resultList = limit > 0 ? searchengine.search(query, limit) : searchengine.search(query);
         
         System.out.println("Found " + resultList.size() + " websites.");
         
         return resultList;
     }
+
+    /**
+     * Uses the search engine to search for one page of the websites matching the given query. Only the title
+     * and url of each website are returned, together with the total number of matching websites. The response is
+     * written as JSON while the websites of the page are read, instead of being built in memory first. This method
+     * is invoked by the web server whenever it receives an HTTP request to "/search/page".
+     * @param query the query string
+     * @param offset the position of the first website of the page in the ranked result
+     * @param limit the maximum number of websites on the page, at most {@value #MAX_PAGE_SIZE}
+     * @param response the HTTP response receiving the JSON
+     * @throws IOException if the response cannot be written
+     */
+    @CrossOrigin(origins = "*")
+    @RequestMapping("/search/page")
+    public void searchPage(@RequestParam(value="query", defaultValue="") String query,
+                           @RequestParam(value="offset", defaultValue="0") int offset,
+                           @RequestParam(value="limit", defaultValue="50") int limit,
+                           HttpServletResponse response) throws IOException {
+
+        System.out.println("Handling request for query word \"" + query + "\"");
+
+        SearchResultPage page = searchengine.search(query, Math.max(offset, 0), Math.max(0, Math.min(limit, MAX_PAGE_SIZE)));
+
+        System.out.println("Found " + page.getTotal() + " websites.");
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        page.writeJson(response.getWriter());
+    }
+
+    /**
+     * Adds or replaces websites while the search engine is running. The request body lists the websites in the
+     * format of a database file, like the output of the web crawler: a line "*PAGE:" followed by the url, a line
+     * with the title, and one line for each word. A website replaces the indexed website with the same url.
+     * All websites of a request become searchable together, within a second.
+     * @param body the websites in the format of a database file
+     * @return the number of websites received
+     * @throws IOException if the request body cannot be read
+     */
+    @CrossOrigin(origins = "*")
+    @RequestMapping(value = "/websites", method = RequestMethod.POST)
+    public Map<String, Integer> addWebsites(@RequestBody String body) throws IOException {
+        List<Website> websites = new ArrayList<>();
+        FileHelper.parse(new BufferedReader(new StringReader(body)), websites::add);
+
+        System.out.println("Handling request to add " + websites.size() + " websites");
+        searchengine.update(websites, Collections.<String>emptyList());
+
+        Map<String, Integer> result = new HashMap<>();
+        result.put("added", websites.size());
+        return result;
+    }
+
+    /**
+     * Deletes websites while the search engine is running. They are not found anymore within a second.
+     * @param urls the urls of the websites to delete
+     * @return the number of urls received
+     */
+    @CrossOrigin(origins = "*")
+    @RequestMapping(value = "/websites", method = RequestMethod.DELETE)
+    public Map<String, Integer> deleteWebsites(@RequestParam(value = "url") List<String> urls) {
+        System.out.println("Handling request to delete " + urls.size() + " websites");
+        searchengine.update(Collections.<Website>emptyList(), urls);
+
+        Map<String, Integer> result = new HashMap<>();
+        result.put("deleted", urls.size());
+        return result;
+    }
+
+    /**
+     * Reports how well the query result cache works. This method is invoked by the web server whenever it
+     * receives an HTTP request to "/cache".
+     * @return the numbers of cache hits, misses and evictions, and the number and estimated bytes of the cached results
+     */
+    @CrossOrigin(origins = "*")
+    @RequestMapping("/cache")
+    public Map<String, Long> cacheStatistics() {
+        return searchengine.getCache().getStatistics();
+    }
+
+    /**
+     * Reports the metrics of the search engine in the text format of Prometheus: the latency of each stage of
+     * the queries, the numbers of queries by type, the result sizes, the cache counters and the size of the index.
+     * This method is invoked by the web server whenever it receives an HTTP request to "/metrics".
+     * @param response the HTTP response receiving the metrics
+     * @throws IOException if the response cannot be written
+     */
+    @RequestMapping("/metrics")
+    public void metrics(HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        searchengine.writeMetrics(response.getWriter());
+    }
+
+    /**
+     * Makes all added and deleted websites searchable now, instead of within a second.
+     */
+    @CrossOrigin(origins = "*")
+    @RequestMapping(value = "/refresh", method = RequestMethod.POST)
+    public void refresh() {
+        searchengine.refresh();
+    }
 }
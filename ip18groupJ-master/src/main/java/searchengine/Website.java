@@ -1,9 +1,12 @@
 package searchengine;
-import java.util.ArrayList;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.AbstractList;
 import java.util.List;
 
 /**
  * A website is the basic entity of the search engine. It has a url, a title, and a list of words.
+ * The words are stored as term ids of the {@code Vocabulary}, so a word occurring on many websites is stored once.
  *
  * @author Martin Aumüller
  */
@@ -20,9 +23,9 @@ public class Website {
     private String url;
 
     /**
-     * a list of words storing the words on the website
+     * the term ids of the words on the website, in the order of the words
      */
-    private List<String> words;
+    private int[] termIds;
 
     /**
      * Creates a {@code Website} object from a url, a title, and a list of words
@@ -35,7 +38,36 @@ public class Website {
     public Website(String url, String title, List<String> words) {
         this.url = url;
         this.title = title;
-        this.words = words;
+        this.termIds = new int[words.size()];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = Vocabulary.getTermId(words.get(i));
+        }
+    }
+
+    /**
+     * Creates a {@code Website} object from a url, a title, and the term ids of the words
+     * that are contained on the website.
+     *
+     * @param url the website's url
+     * @param title the website's title
+     * @param termIds the term ids of the website's words, see {@code Vocabulary}, which the website keeps
+     */
+    public Website(String url, String title, int[] termIds) {
+        this.url = url;
+        this.title = title;
+        this.termIds = termIds;
+    }
+
+    /**
+     * Creates a {@code Website} object whose words are read when they are used. The subclass overrides
+     * {@code getTermIds} and {@code getNumberOfWords}.
+     *
+     * @param url the website's url
+     * @param title the website's title
+     */
+    protected Website(String url, String title) {
+        this.url = url;
+        this.title = title;
     }
 
     /**
@@ -56,8 +88,44 @@ public class Website {
         return url;
     }
 
+    /**
+     * Returns the website's words. The list looks the words up in the {@code Vocabulary} and cannot be changed.
+     *
+     * @return the website's list of words.
+     */
     public List<String> getWords() {
-        return words;
+        int[] ids = getTermIds();
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return Vocabulary.getWord(ids[index]);
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+    /**
+     * Returns the term ids of the website's words, in the order of the words. The array must not be changed.
+     *
+     * @return the term ids of the website's words.
+     */
+    @JsonIgnore
+    public int[] getTermIds() {
+        return termIds;
+    }
+
+    /**
+     * Returns the number of words on the website, counting repeated words.
+     *
+     * @return the number of words.
+     */
+    @JsonIgnore
+    public int getNumberOfWords() {
+        return termIds.length;
     }
 
     /**
@@ -67,7 +135,26 @@ public class Website {
      * @return True, if the word is present on the website
      */
     public Boolean containsWord(String word) {
-        return words.contains(word);
+        return getTermFrequency(Vocabulary.getTermIdIfPresent(word)) > 0;
+    }
+
+    /**
+     * Counts how often a word occurs on the website.
+     *
+     * @param termId the term id of the word, -1 for a word that has never been seen
+     * @return the number of occurrences of the word
+     */
+    public int getTermFrequency(int termId) {
+        int count = 0;
+        if (termId < 0) {
+            return count;
+        }
+        for (int id : getTermIds()) {
+            if (id == termId) {
+                count++;
+            }
+        }
+        return count;
     }
 
     @Override
@@ -75,7 +162,7 @@ public class Website {
         return "Website{" +
                 "title='" + title + '\'' +
                 ", url='" + url + '\'' +
-                ", words=" + words +
+                ", words=" + getWords() +
                 '}';
     }
 }
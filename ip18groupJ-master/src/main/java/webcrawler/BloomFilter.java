@@ -0,0 +1,144 @@
+package webcrawler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A Bloom filter of strings: a set that may answer "contains" for a string that was never added, with a chosen
+ * probability, but never "does not contain" for a string that was added. It needs about 10 bits per string for a
+ * false positive probability of 1%, independent of the length of the strings, so the urls of millions of pages fit
+ * in a few megabytes.
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long numberOfBits;
+    private final int numberOfHashes;
+
+    /**
+     * Creates a {@code BloomFilter} object.
+     * @param expectedInsertions the number of strings the filter is sized for
+     * @param falsePositiveProbability the probability that the filter contains a string that was not added, once
+     * the expected number of strings have been added
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        long n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, (m + 63) / 64 * 64);
+        if (m / 64 > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The filter would be too large: " + m + " bits");
+        }
+        this.bits = new long[(int) (m / 64)];
+        this.numberOfBits = m;
+        this.numberOfHashes = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    private BloomFilter(long[] bits, int numberOfHashes) {
+        this.bits = bits;
+        this.numberOfBits = (long) bits.length * 64;
+        this.numberOfHashes = numberOfHashes;
+    }
+
+    /**
+     * Adds a string.
+     * @param value the string
+     * @return true if the filter did not contain the string before
+     */
+    public boolean put(String value) {
+        long hash = hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, numberOfBits);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((bits[word] & mask) == 0) {
+                bits[word] |= mask;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param value a string
+     * @return false if the string was never added, true if it probably was
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, numberOfBits);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the size of the filter in bytes
+     */
+    public long getSizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    /**
+     * Writes the filter to a stream.
+     * @param out the stream
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(numberOfHashes);
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Reads a filter written by {@code writeTo}.
+     * @param in the stream
+     * @return the filter
+     * @throws IOException if the stream cannot be read
+     */
+    public static BloomFilter readFrom(DataInputStream in) throws IOException {
+        int numberOfHashes = in.readInt();
+        int length = in.readInt();
+        if (numberOfHashes < 1 || length < 1) {
+            throw new IOException("Not a Bloom filter");
+        }
+        long[] bits = new long[length];
+        for (int i = 0; i < length; i++) {
+            bits[i] = in.readLong();
+        }
+        return new BloomFilter(bits, numberOfHashes);
+    }
+
+    /**
+     * The 64 bit FNV-1a hash of the characters of a string.
+     */
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The finalizer of MurmurHash3, which spreads every bit of the input over all bits of the output.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,84 @@
+package webcrawler;
+
+import searchengine.BlockCompressedOutputStream;
+import searchengine.Website;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+
+/**
+ * This class is responsible for writing the websites of a crawl to a compressed .gz file, as they are crawled.
+ * The websites are written in the format {@code FileHelper} reads, compressed in blocks by
+ * {@code BlockCompressedOutputStream}, so only the current block is kept in memory and {@code FileHelper}
+ * decompresses the blocks in parallel when the file is loaded.
+ *
+ * The websites are appended to the file if it exists: the blocks of the file are independent of each other, so a
+ * crawl resumed from a checkpoint can continue the file of the crawl before.
+ */
+public class CompressedFileSink implements PageSink {
+
+    private final Writer writer;
+
+    /**
+     * Creates a {@code CompressedFileSink} object with blocks of the default size.
+     * @param filename the name of the .gz file we want to append the websites to
+     * @throws IOException if the file cannot be opened
+     */
+    public CompressedFileSink(String filename) throws IOException {
+        this(filename, BlockCompressedOutputStream.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a {@code CompressedFileSink} object.
+     * @param filename the name of the .gz file we want to append the websites to
+     * @param blockSize the number of uncompressed bytes per block
+     * @throws IOException if the file cannot be opened
+     */
+    public CompressedFileSink(String filename, int blockSize) throws IOException {
+        this(new BlockCompressedOutputStream(Files.newOutputStream(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), blockSize, Deflater.DEFAULT_COMPRESSION));
+    }
+
+    /**
+     * Creates a {@code CompressedFileSink} object.
+     * @param out the stream of the blocks, closed by {@code close}
+     */
+    public CompressedFileSink(BlockCompressedOutputStream out) {
+        this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void write(Website site) throws IOException {
+        // Every line ends with a line break, so a flush writes the whole website into the block
+        writer.write("*PAGE:");
+        writer.write(site.getUrl());
+        writer.write('\n');
+        // An empty line is skipped when the file is read, so a website without title gets its url as title
+        writer.write(site.getTitle().trim().isEmpty() ? site.getUrl() : site.getTitle());
+        writer.write('\n');
+        for (String word : site.getWords()) {
+            writer.write(word);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Compresses the websites written so far into a block and writes it to the file.
+     */
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
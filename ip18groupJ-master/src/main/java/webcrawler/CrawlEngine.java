@@ -0,0 +1,386 @@
+package webcrawler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * This class is responsible for crawling many websites at the same time, while staying polite to every host.
+ * A fixed number of threads take urls from a {@code Frontier}, which hands out a url of a host only when no other
+ * thread is visiting it and its politeness delay has passed, so a crawl of many hosts runs in parallel while each
+ * host sees at most one request per delay. The robots.txt file of every host is respected, including its
+ * Crawl-delay if that is longer than ours, and the connections to a host are reused between its pages.
+ *
+ * The crawled pages are handed to a consumer, which is called by the crawling threads and must be thread-safe.
+ * With a checkpoint directory, the urls of the crawl are kept on disk with a fixed amount of memory, and a crawl
+ * that stopped or crashed resumes from its last checkpoint.
+ */
+public class CrawlEngine {
+
+    // The name our crawler identifies itself with
+    public static final String USER_AGENT = "MerkelSearchBot/1.0";
+
+    private final PageFetcher fetcher;
+    private final RobotsCache robots;
+
+    // Number of threads crawling at the same time
+    private int threads = 8;
+
+    // Number of maximum pages to visit
+    private int maxPages = Integer.MAX_VALUE;
+
+    // Time in milliseconds between two requests to the same host
+    private long politenessDelay = 1000;
+
+    // Delays of hosts that need another delay than the default, by scheme and host
+    private final Map<String, Long> hostDelays = new ConcurrentHashMap<>();
+
+    // Number of threads extracting the downloaded pages, 0 to extract them on the crawling threads
+    private int extractThreads;
+    private int extractQueueCapacity = 1;
+
+    // The directory the frontier keeps its urls and checkpoints in, null to keep them in memory
+    private Path checkpointDirectory;
+    private int checkpointInterval = 1000;
+    private int memoryLimit = 100000;
+    private long expectedUrls = 10000000;
+
+    /**
+     * Creates a {@code CrawlEngine} object that identifies itself as {@code USER_AGENT}.
+     */
+    public CrawlEngine() {
+        this(new PageFetcher(USER_AGENT));
+    }
+
+    /**
+     * Creates a {@code CrawlEngine} object.
+     * @param fetcher the fetcher used to download the pages and robots.txt files
+     */
+    public CrawlEngine(PageFetcher fetcher) {
+        this.fetcher = fetcher;
+        this.robots = new RobotsCache(fetcher);
+    }
+
+    /**
+     * @param threads the number of threads crawling at the same time
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed, got " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @param maxPages the maximum number of pages to visit
+     */
+    public void setMaxPages(int maxPages) {
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * @param delay the time in milliseconds between two requests to the same host
+     */
+    public void setPolitenessDelay(long delay) {
+        this.politenessDelay = delay;
+    }
+
+    /**
+     * Sets the delay of one host, instead of the default politeness delay.
+     * @param url a url of the host, like "https://www.dr.dk"
+     * @param delay the time in milliseconds between two requests to the host
+     */
+    public void setHostDelay(String url, long delay) {
+        String host = Frontier.getHost(url);
+        if (host == null) {
+            throw new IllegalArgumentException("Not an http or https url: " + url);
+        }
+        hostDelays.put(host, delay);
+    }
+
+    /**
+     * Extracts the downloaded pages on threads of their own, so the crawling threads only wait for the network.
+     * The downloaded pages wait for the extracting threads in a queue; when it is full, the crawling threads wait,
+     * so a slow consumer slows the crawl down instead of filling the memory.
+     * @param threads the number of extracting threads, 0 to extract the pages on the crawling threads
+     * @param queueCapacity the number of downloaded pages waiting to be extracted at most
+     */
+    public void setExtractThreads(int threads, int queueCapacity) {
+        if (threads < 0 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Negative number of threads or empty queue: " + threads + ", " + queueCapacity);
+        }
+        this.extractThreads = threads;
+        this.extractQueueCapacity = queueCapacity;
+    }
+
+    /**
+     * Keeps the urls of the crawl in a directory instead of memory, and saves a checkpoint there regularly and at
+     * the end of the crawl. A crawl started on a directory with a checkpoint resumes from it.
+     * @param directory the directory of the frontier
+     * @param memoryLimit the number of urls the frontier keeps in memory
+     * @param expectedUrls the number of urls the crawl is expected to see
+     */
+    public void setCheckpointDirectory(Path directory, int memoryLimit, long expectedUrls) {
+        this.checkpointDirectory = directory;
+        this.memoryLimit = memoryLimit;
+        this.expectedUrls = expectedUrls;
+    }
+
+    /**
+     * Keeps the urls of the crawl in a directory, with the memory limit and the expected number of urls set
+     * before, by default 100000 and 10000000 urls.
+     * @param directory the directory of the frontier, or null to keep the urls in memory
+     */
+    public void setCheckpointDirectory(Path directory) {
+        this.checkpointDirectory = directory;
+    }
+
+    /**
+     * @return the directory the frontier keeps its urls and checkpoints in, or null if they are kept in memory
+     */
+    public Path getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    /**
+     * @param pages the number of pages visited between two checkpoints
+     */
+    public void setCheckpointInterval(int pages) {
+        if (pages < 1) {
+            throw new IllegalArgumentException("The checkpoint interval must be at least one page, got " + pages);
+        }
+        this.checkpointInterval = pages;
+    }
+
+    /**
+     * Crawls the given urls and the pages they link to, until the maximum number of pages has been visited or no
+     * links are left.
+     * @param seeds the urls to start the crawl on
+     * @param consumer called with every crawled page, from the crawling threads
+     * @return the report of the crawl
+     */
+    public CrawlReport crawl(Collection<String> seeds, Consumer<CrawledPage> consumer) {
+        Frontier frontier;
+        try {
+            frontier = checkpointDirectory == null ? new Frontier()
+                    : new Frontier(checkpointDirectory, memoryLimit, expectedUrls);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the frontier in " + checkpointDirectory, e);
+        }
+        // A resumed crawl has seen the seeds already, so they are not visited again
+        for (String seed : seeds) {
+            frontier.add(seed);
+        }
+        CrawlReport report = new CrawlReport();
+        AtomicInteger visits = new AtomicInteger();
+
+        // The downloaded pages wait for the extracting threads in a bounded queue, if there are any
+        BlockingQueue<FetchedPage> fetched = extractThreads > 0 ? new ArrayBlockingQueue<>(extractQueueCapacity) : null;
+        ExecutorService extractors = null;
+        if (fetched != null) {
+            extractors = Executors.newFixedThreadPool(extractThreads);
+            for (int i = 0; i < extractThreads; i++) {
+                extractors.execute(() -> extract(frontier, report, consumer, fetched));
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            pool.execute(() -> work(frontier, report, visits, consumer, fetched));
+        }
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // wait until every thread has run out of urls
+            }
+            if (extractors != null) {
+                // the crawling threads end when no page is being visited, so every page has been extracted
+                for (int i = 0; i < extractThreads; i++) {
+                    fetched.put(FetchedPage.END);
+                }
+                extractors.shutdown();
+                while (!extractors.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // wait until the extracting threads have ended
+                }
+            }
+        } catch (InterruptedException e) {
+            frontier.stop();
+            pool.shutdownNow();
+            if (extractors != null) {
+                extractors.shutdownNow();
+            }
+            Thread.currentThread().interrupt();
+        }
+        if (checkpointDirectory != null) {
+            checkpoint(frontier);
+        }
+        try {
+            frontier.close();
+        } catch (IOException e) {
+            System.out.println("**Failure** Could not close the frontier: " + e);
+        }
+        report.finish();
+        return report;
+    }
+
+    /**
+     * Saves a checkpoint of the frontier, a crawl continues if it fails.
+     */
+    private void checkpoint(Frontier frontier) {
+        try {
+            frontier.checkpoint();
+        } catch (IOException e) {
+            System.out.println("**Failure** Could not save the checkpoint: " + e);
+        }
+    }
+
+    /**
+     * Crawls urls of the frontier until it is empty or stopped. Runs in every thread of a crawl.
+     */
+    private void work(Frontier frontier, CrawlReport report, AtomicInteger visits, Consumer<CrawledPage> consumer,
+                      BlockingQueue<FetchedPage> fetched) {
+        while (true) {
+            String url;
+            try {
+                url = frontier.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (url == null) {
+                return;
+            }
+            long delay = hostDelays.getOrDefault(Frontier.getHost(url), politenessDelay);
+            // The thread extracting the page marks the url as done, after adding its links to the frontier
+            boolean done = true;
+            try {
+                RobotsCache.Rules rules = robots.getRules(url);
+                delay = Math.max(delay, rules.getCrawlDelay());
+                if (!rules.isAllowed(RobotsCache.getPath(url))) {
+                    report.recordDisallowed();
+                    continue;
+                }
+                // Every visit takes one of the pages, the thread taking one too many ends the crawl, and leaves
+                // its url in the frontier for a resumed crawl
+                int visit = visits.incrementAndGet();
+                if (visit > maxPages) {
+                    done = false;
+                    frontier.stop();
+                    return;
+                }
+                PageFetcher.Response response = fetch(url, report);
+                if (response != null && fetched != null) {
+                    // waits while the extracting threads are behind, so the crawl slows down instead of
+                    // filling the memory
+                    fetched.put(new FetchedPage(url, response, delay));
+                    done = false;
+                } else if (response != null) {
+                    try {
+                        extract(url, response, frontier, consumer);
+                    } catch (RuntimeException e) {
+                        // the thread goes on with the next url, else the crawl would go on with one thread less
+                        System.out.println("**Failure** Could not extract " + url + ": " + e);
+                        report.recordFailure();
+                    }
+                }
+                if (checkpointDirectory != null && visit % checkpointInterval == 0) {
+                    checkpoint(frontier);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                if (done) {
+                    frontier.done(url, delay);
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts the pages downloaded by the crawling threads, until it takes the end of the crawl.
+     */
+    private void extract(Frontier frontier, CrawlReport report, Consumer<CrawledPage> consumer,
+                         BlockingQueue<FetchedPage> fetched) {
+        while (true) {
+            FetchedPage page;
+            try {
+                page = fetched.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (page == FetchedPage.END) {
+                return;
+            }
+            try {
+                extract(page.url, page.response, frontier, consumer);
+            } catch (RuntimeException e) {
+                // the other pages are still extracted, else the crawling threads would wait for this one forever
+                System.out.println("**Failure** Could not extract " + page.url + ": " + e);
+                report.recordFailure();
+            } finally {
+                frontier.done(page.url, page.delay);
+            }
+        }
+    }
+
+    /**
+     * Downloads a page.
+     * @return the response, or null if the page could not be downloaded or is not an HTML page
+     */
+    private PageFetcher.Response fetch(String url, CrawlReport report) {
+        PageFetcher.Response response;
+        try {
+            response = fetcher.fetch(url);
+        } catch (IOException e) {
+            System.out.println("**Failure** " + url + ": " + e);
+            report.recordFailure();
+            return null;
+        }
+        if (!response.isHtml()) {
+            report.recordFailure();
+            return null;
+        }
+        report.recordPage(url, response.getLength(), response.getLatency());
+        return response;
+    }
+
+    /**
+     * Extracts a downloaded page, hands it to the consumer and adds its links to the frontier.
+     */
+    private void extract(String url, PageFetcher.Response response, Frontier frontier, Consumer<CrawledPage> consumer) {
+        // Links are resolved against the url after redirects
+        CrawledPage page = CrawledPage.parse(response.getUrl(), response.getText());
+        consumer.accept(new CrawledPage(url, page.getTitle(), page.getWords(), page.getLinks()));
+        for (String link : page.getLinks()) {
+            frontier.add(link);
+        }
+    }
+
+    /**
+     * A page downloaded by a crawling thread, waiting to be extracted.
+     */
+    private static class FetchedPage {
+
+        // Marks the end of the crawl for the extracting threads
+        static final FetchedPage END = new FetchedPage(null, null, 0);
+
+        private final String url;
+        private final PageFetcher.Response response;
+        private final long delay;
+
+        FetchedPage(String url, PageFetcher.Response response, long delay) {
+            this.url = url;
+            this.response = response;
+            this.delay = delay;
+        }
+    }
+}
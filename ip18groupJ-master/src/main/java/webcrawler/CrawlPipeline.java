@@ -0,0 +1,272 @@
+package webcrawler;
+
+import searchengine.AsyncLogger;
+import searchengine.HttpServerApplication;
+import searchengine.SearchEngine;
+import searchengine.Website;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * This class is responsible for streaming the pages of a crawl into a search engine, without collecting them in
+ * memory or in a file first. The pages flow through four stages connected by bounded queues:
+ *
+ * fetch: the threads of the {@code CrawlEngine} download the pages;
+ * extract: threads of their own parse the HTML into the title, the words and the links;
+ * tokenize: one thread turns the words into the term ids of a {@code Website};
+ * index: one thread writes the websites to the sinks, like an {@code IndexSink} of a running search engine, or a
+ * {@code FlatFileSink} of a database file.
+ *
+ * A stage that has a full queue in front of it waits, so a slow stage slows the stages before it down up to the
+ * downloads (back-pressure). The pages in flight are never more than the capacity of the queues, however large the
+ * crawl is. The urls of the crawl are kept on disk as well: in the checkpoint directory of the {@code CrawlEngine},
+ * or else in a temporary directory, which is deleted at the end of the crawl.
+ */
+public class CrawlPipeline {
+
+    // Marks the end of the crawl for the tokenizing and the indexing stage
+    private static final CrawledPage END_OF_PAGES = new CrawledPage(null, null, new ArrayList<>(), new ArrayList<>());
+    private static final Website END_OF_WEBSITES = new Website(null, null, new int[0]);
+
+    private final CrawlEngine engine;
+    private final List<PageSink> sinks = new ArrayList<>();
+
+    // Number of pages waiting between two stages at most
+    private int queueCapacity = 1000;
+
+    // Number of threads extracting the downloaded pages
+    private int extractThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    // Time in milliseconds without new websites after which the sinks are flushed
+    private long flushDelay = 500;
+
+    /**
+     * Creates a {@code CrawlPipeline} object.
+     * @param engine the crawl engine downloading the pages
+     */
+    public CrawlPipeline(CrawlEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Adds a sink the websites are written to. The sink is closed at the end of the crawl.
+     * @param sink the sink
+     */
+    public void addSink(PageSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * @param queueCapacity the number of pages waiting between two stages at most
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The queues must hold at least one page, got " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param threads the number of threads extracting the downloaded pages
+     */
+    public void setExtractThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed, got " + threads);
+        }
+        this.extractThreads = threads;
+    }
+
+    /**
+     * @param flushDelay the time in milliseconds without new websites after which the sinks are flushed
+     */
+    public void setFlushDelay(long flushDelay) {
+        this.flushDelay = flushDelay;
+    }
+
+    /**
+     * Crawls the given urls and the pages they link to, and writes every crawled page with words to the sinks.
+     * The sinks are flushed and closed at the end. Without a checkpoint directory of the {@code CrawlEngine}, the
+     * urls are kept in a temporary directory during the crawl.
+     * @param seeds the urls to start the crawl on
+     * @return the report of the crawl
+     * @throws IOException if a sink fails, or the temporary directory cannot be created
+     */
+    public CrawlReport run(Collection<String> seeds) throws IOException {
+        if (engine.getCheckpointDirectory() != null) {
+            return crawl(seeds);
+        }
+        Path frontier = Files.createTempDirectory("crawl-frontier");
+        engine.setCheckpointDirectory(frontier);
+        try {
+            return crawl(seeds);
+        } finally {
+            engine.setCheckpointDirectory(null);
+            delete(frontier);
+        }
+    }
+
+    /**
+     * Crawls into the sinks through the stages of the pipeline.
+     */
+    private CrawlReport crawl(Collection<String> seeds) throws IOException {
+        BlockingQueue<CrawledPage> pages = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Website> websites = new ArrayBlockingQueue<>(queueCapacity);
+        IOException[] failure = new IOException[1];
+
+        Thread tokenizer = new Thread(() -> tokenize(pages, websites), "crawl-tokenizer");
+        Thread indexer = new Thread(() -> failure[0] = index(websites), "crawl-indexer");
+        tokenizer.start();
+        indexer.start();
+
+        engine.setExtractThreads(extractThreads, queueCapacity);
+        CrawlReport report;
+        try {
+            report = engine.crawl(seeds, page -> put(pages, page));
+        } finally {
+            put(pages, END_OF_PAGES);
+            join(tokenizer);
+            join(indexer);
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return report;
+    }
+
+    /**
+     * Turns the pages into websites, until the end of the crawl. Pages without words are skipped, like the
+     * database files skip them.
+     */
+    private void tokenize(BlockingQueue<CrawledPage> pages, BlockingQueue<Website> websites) {
+        try {
+            while (true) {
+                CrawledPage page = pages.take();
+                if (page == END_OF_PAGES) {
+                    break;
+                }
+                if (!page.getWords().isEmpty()) {
+                    websites.put(new Website(page.getUrl(), page.getTitle(), page.getWords()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            put(websites, END_OF_WEBSITES);
+        }
+    }
+
+    /**
+     * Writes the websites to the sinks until the end of the crawl, and closes the sinks. If a sink fails, the
+     * websites are still taken from the queue, so the crawl does not wait forever, but not written anymore.
+     * @return the first failure of a sink, or null
+     */
+    private IOException index(BlockingQueue<Website> websites) {
+        IOException failure = null;
+        boolean flushed = true;
+        try {
+            while (true) {
+                Website site = websites.poll(flushDelay, TimeUnit.MILLISECONDS);
+                if (site == END_OF_WEBSITES) {
+                    break;
+                }
+                try {
+                    if (site == null && !flushed && failure == null) {
+                        // no new websites for a while, so the websites so far become searchable now
+                        for (PageSink sink : sinks) {
+                            sink.flush();
+                        }
+                        flushed = true;
+                    } else if (site != null && failure == null) {
+                        for (PageSink sink : sinks) {
+                            sink.write(site);
+                        }
+                        flushed = false;
+                    }
+                } catch (IOException e) {
+                    System.out.println("**Failure** Could not write the crawled pages: " + e);
+                    failure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (PageSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Puts an element into a queue, waiting while it is full.
+     */
+    private static <T> void put(BlockingQueue<T> queue, T element) {
+        try {
+            queue.put(element);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deletes a directory and its files. A file that cannot be deleted is left behind.
+     */
+    private static void delete(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.out.println("**Failure** Could not delete the frontier " + directory + ": " + e);
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts a search engine without websites on the HTTP server of the JDK, and crawls into it, so the crawled
+     * pages can be searched while the crawl is running.
+     * @param args the url to start the crawl on, the maximum number of pages, the port of the server (default
+     * 8080), and optionally a database file the pages are also written to, compressed if its name ends with ".gz"
+     * @throws IOException if the server cannot be started or the database file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: CrawlPipeline <url> <max pages> [port] [database file]");
+            return;
+        }
+        SearchEngine searchEngine = new SearchEngine(new ArrayList<>());
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 8080;
+        new HttpServerApplication(searchEngine, Paths.get("static"), new AsyncLogger(System.out, 10000)).start(port);
+        System.out.println("Search the crawled pages on http://localhost:" + port + "/");
+
+        CrawlEngine engine = new CrawlEngine();
+        engine.setMaxPages(Integer.parseInt(args[1]));
+        CrawlPipeline pipeline = new CrawlPipeline(engine);
+        pipeline.addSink(new IndexSink(searchEngine, 100));
+        if (args.length > 3) {
+            pipeline.addSink(PageSink.open(args[3]));
+        }
+        CrawlReport report = pipeline.run(Collections.singletonList(args[0]));
+        System.out.println("\n**Done** " + report);
+    }
+}
@@ -0,0 +1,132 @@
+package webcrawler;
+
+import searchengine.Histogram;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is responsible for the numbers of a crawl: how many pages were crawled, how fast, and how long the
+ * hosts took to answer. All threads of a crawl record into the same report, so the counters are atomic.
+ */
+public class CrawlReport {
+
+    private final AtomicInteger pages = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger disallowed = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final Set<String> hosts = ConcurrentHashMap.newKeySet();
+
+    // Time from sending a request to reading the last byte of the response, in nanoseconds
+    private final Histogram latency = new Histogram();
+
+    private final long start = System.nanoTime();
+    private volatile long end;
+
+    /**
+     * Records a page that was downloaded.
+     * @param url the url of the page
+     * @param length the number of bytes of the page
+     * @param latency the time it took to download the page in nanoseconds
+     */
+    void recordPage(String url, int length, long latency) {
+        pages.incrementAndGet();
+        bytes.addAndGet(length);
+        hosts.add(Frontier.getHost(url));
+        this.latency.record(latency);
+    }
+
+    /**
+     * Records a url that could not be downloaded or was not an HTML page.
+     */
+    void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Records a url that robots.txt did not allow us to crawl.
+     */
+    void recordDisallowed() {
+        disallowed.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of the crawl.
+     */
+    void finish() {
+        end = System.nanoTime();
+    }
+
+    /**
+     * @return the number of pages crawled
+     */
+    public int getPages() {
+        return pages.get();
+    }
+
+    /**
+     * @return the number of urls that could not be downloaded or were not HTML pages
+     */
+    public int getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return the number of urls robots.txt did not allow us to crawl
+     */
+    public int getDisallowed() {
+        return disallowed.get();
+    }
+
+    /**
+     * @return the number of bytes downloaded
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return the number of hosts pages were crawled from
+     */
+    public int getHosts() {
+        return hosts.size();
+    }
+
+    /**
+     * @return the latencies of the downloads in nanoseconds
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the time from the start to the end of the crawl, or until now if it is still running, in seconds
+     */
+    public double getSeconds() {
+        long stop = end == 0 ? System.nanoTime() : end;
+        return (stop - start) / 1e9;
+    }
+
+    /**
+     * @return the number of pages crawled per second
+     */
+    public double getPagesPerSecond() {
+        double seconds = getSeconds();
+        return seconds == 0 ? 0 : getPages() / seconds;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = getSeconds();
+        return String.format(Locale.ROOT, "Crawled %d pages from %d hosts in %.1f s: %.1f pages/s, %.2f MB/s%n"
+                        + "Fetch latency: p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n"
+                        + "Failed %d, disallowed by robots.txt %d",
+                getPages(), getHosts(), seconds, getPagesPerSecond(), seconds == 0 ? 0 : getBytes() / 1e6 / seconds,
+                latency.getValueAtQuantile(0.5) / 1e6, latency.getValueAtQuantile(0.9) / 1e6,
+                latency.getValueAtQuantile(0.99) / 1e6, latency.getMax() / 1e6,
+                getFailures(), getDisallowed());
+    }
+}
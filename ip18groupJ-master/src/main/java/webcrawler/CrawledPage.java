@@ -0,0 +1,107 @@
+package webcrawler;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class holds a page found by the crawler: its url, title, words and the links on it.
+ */
+public class CrawledPage {
+
+    // Regex so that we only get the word an not commas, dots etc.
+    private static final Pattern WORD = Pattern.compile("(\\w+)");
+
+    private final String url;
+    private final String title;
+    private final List<String> words;
+    private final List<String> links;
+
+    /**
+     * Creates a {@code CrawledPage} object.
+     * @param url the url of the page
+     * @param title the title of the page
+     * @param words the words of the paragraphs of the page, in lower case
+     * @param links the absolute urls of the links on the page
+     */
+    public CrawledPage(String url, String title, List<String> words, List<String> links) {
+        this.url = url;
+        this.title = title;
+        this.words = Collections.unmodifiableList(words);
+        this.links = Collections.unmodifiableList(links);
+    }
+
+    /**
+     * Extracts the title, the words of all paragraphs and all links from an HTML page.
+     * @param url the url of the page, used to resolve relative links
+     * @param html the HTML of the page
+     * @return the page
+     */
+    public static CrawledPage parse(String url, String html) {
+        return parse(url, Jsoup.parse(html, url));
+    }
+
+    /**
+     * Extracts the title, the words of all paragraphs and all links from a parsed HTML page.
+     * @param url the url of the page
+     * @param htmlDocument the parsed page
+     * @return the page
+     */
+    public static CrawledPage parse(String url, Document htmlDocument) {
+        // Get all links from the htmlDocument
+        List<String> links = new ArrayList<>();
+        for (Element link : htmlDocument.select("a[href]")) {
+            links.add(link.absUrl("href"));
+        }
+
+        // Get all paragraphs from the htmlDocument and concatenate them into one string.
+        List<String> paragraphs = new ArrayList<>();
+        for (Element paragraph : htmlDocument.select("p")) {
+            paragraphs.add(paragraph.text());
+        }
+
+        // Split paragraphs into single words, and only keep the words without punctuation
+        List<String> words = new ArrayList<>();
+        for (String word : String.join(" ", paragraphs).split(" ")) {
+            Matcher matcher = WORD.matcher(word);
+            if (matcher.matches()) {
+                words.add(matcher.group(1).toLowerCase());
+            }
+        }
+        return new CrawledPage(url, htmlDocument.title(), words, links);
+    }
+
+    /**
+     * @return the url of the page
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the title of the page
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the words of the paragraphs of the page, in lower case
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * @return the absolute urls of the links on the page
+     */
+    public List<String> getLinks() {
+        return links;
+    }
+}
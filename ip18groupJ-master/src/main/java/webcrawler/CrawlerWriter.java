@@ -3,9 +3,12 @@ package webcrawler;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is responsible for writing the websites found by the webcrawler to a flat .txt file format.
@@ -31,6 +34,29 @@ public class CrawlerWriter {
         this.siteToWords = webCrawler.getUrlWordMap();
     }
 
+    /**
+     * Creates a {@code CrawlerWriter} object.
+     * Crawls the given url and the sites it links to with several threads at the same time, waiting the politeness
+     * delay of {@code CrawlEngine} between two pages of the same host. Prints the report of the crawl.
+     * @param url the url string we want to start the crawling on
+     * @param maxPages the amount of pages we want our webcrawler to crawl
+     * @param threads the number of threads crawling at the same time
+     */
+    public CrawlerWriter(String url, int maxPages, int threads) {
+        CrawlEngine engine = new CrawlEngine();
+        engine.setMaxPages(maxPages);
+        engine.setThreads(threads);
+        this.siteToWords = new ConcurrentHashMap<>();
+        CrawlReport report = engine.crawl(Collections.singletonList(url), page -> {
+            // The title of the website is the first line, like the words of the Spider
+            List<String> words = new ArrayList<>();
+            words.add(page.getTitle());
+            words.addAll(page.getWords());
+            siteToWords.put(page.getUrl(), words);
+        });
+        System.out.println("\n**Done** " + report);
+    }
+
     /**
      * Writes the result from the webcrawl to a flat file format.
      * @param filename the name of the .txt file we want to write the result to
@@ -59,16 +85,41 @@ public class CrawlerWriter {
 
     }
 
+    /**
+     * Crawls the given url and the sites it links to, and appends every website to a file as soon as it has been
+     * crawled, instead of collecting the whole crawl in memory first. Prints the report of the crawl.
+     * @param url the url string we want to start the crawling on
+     * @param maxPages the amount of pages we want our webcrawler to crawl
+     * @param threads the number of threads crawling at the same time
+     * @param filename the name of the file we want to write the result to, compressed if it ends with ".gz"
+     * @throws IOException if the file cannot be written
+     */
+    public static void crawlToFile(String url, int maxPages, int threads, String filename) throws IOException {
+        CrawlEngine engine = new CrawlEngine();
+        engine.setMaxPages(maxPages);
+        engine.setThreads(threads);
+        CrawlPipeline pipeline = new CrawlPipeline(engine);
+        pipeline.addSink(PageSink.open(filename));
+        CrawlReport report = pipeline.run(Collections.singletonList(url));
+        System.out.println("\n**Done** " + report);
+    }
+
     public static void main(String[] args) {
         Scanner sc = new Scanner(System.in);
         System.out.println("Enter the URL of the website you wish to start the crawl on (https format)");
         String siteURl = sc.nextLine();
         System.out.println("Enter the number of pages you wish the crawler to visit");
         int pages = sc.nextInt();
+        System.out.println("Enter the number of threads you wish the crawler to use (1 crawls one page at a time)");
+        int threads = sc.nextInt();
         sc.nextLine();
-        System.out.println("Enter the path and name of the file you wish to write on (path in relation to this file)");
+        System.out.println("Enter the path and name of the file you wish to write on (path in relation to this file, "
+                + "ending in .gz to compress it)");
         String fileName = sc.nextLine();
-        CrawlerWriter crawlerWriter = new CrawlerWriter(siteURl,pages);
-        crawlerWriter.writeToFile(fileName);
+        try {
+            crawlToFile(siteURl, pages, threads, fileName);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 }
\ No newline at end of file
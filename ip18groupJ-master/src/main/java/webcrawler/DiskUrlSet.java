@@ -0,0 +1,438 @@
+package webcrawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * This class is responsible for remembering every url a crawl has seen, with a fixed amount of memory.
+ *
+ * The urls are kept exactly on disk, in sorted run files like those of a log-structured merge tree: new urls are
+ * collected in memory, and written as a sorted run when the buffer is full; when there are too many runs, they are
+ * merged into one. A run keeps every 128th url and its position in memory, so finding a url reads one block of at
+ * most 128 urls per run. A Bloom filter in front of the runs answers most questions for new urls without reading
+ * the disk, so only urls that were seen before, and about 1% of the new ones, are looked up in the runs.
+ *
+ * Run files are deleted only at the next {@code checkpoint}, so a crash never loses a run that the last
+ * checkpoint refers to.
+ */
+public class DiskUrlSet implements Closeable {
+
+    // Every INDEX_INTERVAL-th url of a run is kept in memory
+    private static final int INDEX_INTERVAL = 128;
+
+    // The runs are merged into one when there are more than this
+    private static final int MAX_RUNS = 8;
+
+    // The probability that the Bloom filter lets a new url through to the runs
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final Path directory;
+    private final int bufferSize;
+    private BloomFilter filter;
+
+    // The urls added since the last run was written
+    private final Set<String> buffer = new HashSet<>();
+
+    // The runs, from the oldest to the newest
+    private final List<Run> runs = new ArrayList<>();
+
+    // Runs that were merged, deleted at the next checkpoint
+    private final List<Path> obsolete = new ArrayList<>();
+
+    private long size;
+    private int nextRun;
+
+    /**
+     * Creates an empty {@code DiskUrlSet} object.
+     * @param directory the directory of the run files
+     * @param expectedUrls the number of urls the Bloom filter is sized for
+     * @param bufferSize the number of new urls kept in memory before they are written as a run
+     * @throws IOException if the directory cannot be created
+     */
+    public DiskUrlSet(Path directory, long expectedUrls, int bufferSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.bufferSize = bufferSize;
+        this.filter = new BloomFilter(expectedUrls, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    /**
+     * Adds a url.
+     * @param url the url
+     * @return true if the url was not in the set before
+     * @throws IOException if the runs cannot be read or written
+     */
+    public synchronized boolean add(String url) throws IOException {
+        if (filter.mightContain(url) && contains(url)) {
+            return false;
+        }
+        filter.put(url);
+        buffer.add(url);
+        size++;
+        if (buffer.size() >= bufferSize) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * @param url a url
+     * @return true if the url is in the set
+     * @throws IOException if the runs cannot be read
+     */
+    public synchronized boolean contains(String url) throws IOException {
+        if (!filter.mightContain(url)) {
+            return false;
+        }
+        if (buffer.contains(url)) {
+            return true;
+        }
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            if (runs.get(i).contains(url)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of urls in the set
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of run files
+     */
+    public synchronized int getNumberOfRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Writes the buffered urls as a run, and the state of the set to a checkpoint. Runs merged since the last
+     * checkpoint are deleted once the checkpoint has been saved, with {@code deleteObsolete}.
+     * @param out the checkpoint
+     * @throws IOException if the run or the checkpoint cannot be written
+     */
+    public synchronized void checkpoint(DataOutputStream out) throws IOException {
+        flush();
+        out.writeLong(size);
+        out.writeInt(nextRun);
+        out.writeInt(runs.size());
+        for (Run run : runs) {
+            out.writeUTF(run.path.getFileName().toString());
+        }
+        filter.writeTo(out);
+    }
+
+    /**
+     * Restores the state of a checkpoint, and deletes the run files it does not refer to, which were written after
+     * the checkpoint.
+     * @param in the checkpoint
+     * @throws IOException if the checkpoint or the runs cannot be read
+     */
+    public synchronized void restore(DataInputStream in) throws IOException {
+        close();
+        buffer.clear();
+        size = in.readLong();
+        nextRun = in.readInt();
+        int numberOfRuns = in.readInt();
+        for (int i = 0; i < numberOfRuns; i++) {
+            runs.add(Run.open(directory.resolve(in.readUTF())));
+        }
+        filter = BloomFilter.readFrom(in);
+        deleteUnreferenced();
+    }
+
+    /**
+     * Deletes the run files in the directory that the set does not use, like those of an earlier crawl.
+     * @throws IOException if the directory cannot be read or a file cannot be deleted
+     */
+    public synchronized void deleteUnreferenced() throws IOException {
+        Set<Path> referenced = new HashSet<>();
+        for (Run run : runs) {
+            referenced.add(run.path);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "seen-*.run")) {
+            for (Path path : stream) {
+                if (!referenced.contains(path)) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the runs that were merged before the last checkpoint.
+     * @throws IOException if a file cannot be deleted
+     */
+    public synchronized void deleteObsolete() throws IOException {
+        for (Path path : obsolete) {
+            Files.deleteIfExists(path);
+        }
+        obsolete.clear();
+    }
+
+    /**
+     * Closes the run files. The buffered urls are not written, call {@code checkpoint} to keep them.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (Run run : runs) {
+            run.file.close();
+        }
+        runs.clear();
+    }
+
+    /**
+     * Writes the buffered urls as a sorted run, and merges the runs if there are too many.
+     */
+    private void flush() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        String[] urls = buffer.toArray(new String[0]);
+        Arrays.sort(urls);
+        runs.add(Run.write(nextRunPath(), Arrays.asList(urls).iterator()));
+        buffer.clear();
+        if (runs.size() > MAX_RUNS) {
+            merge();
+        }
+    }
+
+    /**
+     * Merges all runs into one.
+     */
+    private void merge() throws IOException {
+        PriorityQueue<RunReader> readers = new PriorityQueue<>((a, b) -> a.current.compareTo(b.current));
+        try {
+            for (Run run : runs) {
+                RunReader reader = new RunReader(run.path);
+                if (reader.next()) {
+                    readers.add(reader);
+                } else {
+                    reader.in.close();
+                }
+            }
+            Run merged = Run.write(nextRunPath(), new Iterator<String>() {
+                @Override
+                public boolean hasNext() {
+                    return !readers.isEmpty();
+                }
+
+                @Override
+                public String next() {
+                    RunReader reader = readers.poll();
+                    String url = reader.current;
+                    try {
+                        if (reader.next()) {
+                            readers.add(reader);
+                        } else {
+                            reader.in.close();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return url;
+                }
+            });
+            for (Run run : runs) {
+                run.file.close();
+                obsolete.add(run.path);
+            }
+            runs.clear();
+            runs.add(merged);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+
+    private Path nextRunPath() {
+        return directory.resolve(String.format("seen-%06d.run", nextRun++));
+    }
+
+    /**
+     * Writes a url as its length and its UTF-8 bytes.
+     */
+    static void writeUrl(DataOutputStream out, String url) throws IOException {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads the UTF-8 bytes of a url written by {@code writeUrl}.
+     * @throws EOFException at the end of the stream
+     */
+    static byte[] readUrl(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Moves a file in place, atomically if the file system supports it.
+     */
+    static void replace(Path temporary, Path file) throws IOException {
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * A sorted run file, with every INDEX_INTERVAL-th url and its position in memory.
+     */
+    private static class Run {
+        private final Path path;
+        private final RandomAccessFile file;
+        private final List<String> keys;
+        private final long[] positions;
+        private final long length;
+
+        private Run(Path path, List<String> keys, long[] positions) throws IOException {
+            this.path = path;
+            this.file = new RandomAccessFile(path.toFile(), "r");
+            this.keys = keys;
+            this.positions = positions;
+            this.length = file.length();
+        }
+
+        /**
+         * Writes sorted urls to a run file.
+         */
+        static Run write(Path path, Iterator<String> urls) throws IOException {
+            List<String> keys = new ArrayList<>();
+            List<Long> positions = new ArrayList<>();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+                for (int count = 0; urls.hasNext(); count++) {
+                    String url = urls.next();
+                    if (count % INDEX_INTERVAL == 0) {
+                        keys.add(url);
+                        positions.add((long) out.size());
+                    }
+                    writeUrl(out, url);
+                }
+            }
+            return new Run(path, keys, toArray(positions));
+        }
+
+        /**
+         * Opens a run file written before, reading it once to find the urls kept in memory.
+         */
+        static Run open(Path path) throws IOException {
+            List<String> keys = new ArrayList<>();
+            List<Long> positions = new ArrayList<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                long position = 0;
+                for (int count = 0; ; count++) {
+                    byte[] url;
+                    try {
+                        url = readUrl(in);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (count % INDEX_INTERVAL == 0) {
+                        keys.add(new String(url, StandardCharsets.UTF_8));
+                        positions.add(position);
+                    }
+                    position += 2 + url.length;
+                }
+            }
+            return new Run(path, keys, toArray(positions));
+        }
+
+        private static long[] toArray(List<Long> list) {
+            long[] array = new long[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        /**
+         * Finds the block that would contain the url, and reads it.
+         */
+        boolean contains(String url) throws IOException {
+            int low = 0;
+            int high = keys.size() - 1;
+            int block = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = keys.get(middle).compareTo(url);
+                if (comparison == 0) {
+                    return true;
+                }
+                if (comparison < 0) {
+                    block = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (block < 0) {
+                return false;
+            }
+            long start = positions[block];
+            long end = block + 1 < positions.length ? positions[block + 1] : length;
+            byte[] bytes = new byte[(int) (end - start)];
+            file.seek(start);
+            file.readFully(bytes);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            while (in.available() > 0) {
+                int comparison = new String(readUrl(in), StandardCharsets.UTF_8).compareTo(url);
+                if (comparison >= 0) {
+                    return comparison == 0;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Reads the urls of a run file in order.
+     */
+    private static class RunReader {
+        private final DataInputStream in;
+        private String current;
+
+        RunReader(Path path) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        }
+
+        boolean next() throws IOException {
+            try {
+                current = new String(readUrl(in), StandardCharsets.UTF_8);
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package webcrawler;
+
+import searchengine.Website;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * This class is responsible for writing the websites of a crawl to a flat .txt file, as they are crawled.
+ * Each website starts with a line "*PAGE:" followed by the url, then the title, then one word per line, which is the
+ * format {@code FileHelper} reads.
+ */
+public class FlatFileSink implements PageSink {
+
+    private final Writer writer;
+
+    /**
+     * Creates a {@code FlatFileSink} object, which replaces the file if it exists.
+     * @param filename the name of the .txt file we want to write the websites to
+     * @throws IOException if the file cannot be created
+     */
+    public FlatFileSink(String filename) throws IOException {
+        this(new OutputStreamWriter(Files.newOutputStream(Paths.get(filename)), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a {@code FlatFileSink} object.
+     * @param writer the writer of the websites, closed by {@code close}
+     */
+    public FlatFileSink(Writer writer) {
+        this.writer = new BufferedWriter(writer);
+    }
+
+    @Override
+    public void write(Website site) throws IOException {
+        writer.write("\n*PAGE:");
+        writer.write(site.getUrl());
+        writer.write('\n');
+        // An empty line is skipped when the file is read, so a website without title gets its url as title
+        writer.write(site.getTitle().trim().isEmpty() ? site.getUrl() : site.getTitle());
+        for (String word : site.getWords()) {
+            writer.write('\n');
+            writer.write(word);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,375 @@
+package webcrawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * This class is responsible for keeping track of the urls a crawl still has to visit.
+ * The urls are kept in one queue per host, and every url is only added once. The threads of a crawl take urls with
+ * {@code take}, which hands out the url of a host only if no other thread is visiting the host, and the politeness
+ * delay since the last visit of the host has passed. Hosts are handed out in the order their delay ends, so a host
+ * with many urls does not hold up the others. Adding and taking urls is O(log h) for h hosts.
+ *
+ * Urls are normalized with {@code UrlNormalizer} before they are compared. A frontier created with a directory
+ * keeps a fixed number of urls in memory: the urls seen are kept in a {@code DiskUrlSet}, and urls beyond the
+ * memory limit wait in a {@code SpillQueue} on disk until there is room again. Such a frontier saves its state with
+ * {@code checkpoint}, and a frontier created on the same directory later resumes from the last checkpoint, visiting
+ * the urls that were queued or being visited at that time again.
+ */
+public class Frontier implements Closeable {
+
+    // The name of the checkpoint file in the directory of a frontier
+    static final String CHECKPOINT = "frontier.checkpoint";
+
+    // The first bytes of a checkpoint, "MKFC"
+    private static final int MAGIC = 0x4D4B4643;
+
+    // The urls to visit of each host
+    private final Map<String, ArrayDeque<String>> queues = new HashMap<>();
+
+    // The hosts that have urls to visit and are not being visited, ordered by the time they may be visited again
+    private final PriorityQueue<HostTime> readyHosts = new PriorityQueue<>();
+
+    // The url being visited by a thread, by host
+    private final Map<String, String> busyHosts = new HashMap<>();
+
+    // The earliest time each host may be visited again, in milliseconds
+    private final Map<String, Long> nextVisits = new HashMap<>();
+
+    // All urls ever added, in memory if the frontier has no directory, else on disk
+    private final Set<String> seen;
+    private final DiskUrlSet seenOnDisk;
+
+    // The urls beyond the memory limit, if the frontier has a directory
+    private final SpillQueue spill;
+    private final Path directory;
+    private final int memoryLimit;
+
+    // Number of urls waiting in the queues
+    private int size;
+
+    private boolean stopped;
+
+    /**
+     * Creates a {@code Frontier} object that keeps all urls in memory.
+     */
+    public Frontier() {
+        this.seen = new HashSet<>();
+        this.seenOnDisk = null;
+        this.spill = null;
+        this.directory = null;
+        this.memoryLimit = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Creates a {@code Frontier} object that keeps at most a given number of urls in memory, and the rest in a
+     * directory. If the directory contains a checkpoint, the frontier resumes from it.
+     * @param directory the directory of the frontier
+     * @param memoryLimit the number of urls waiting in memory, and of new seen urls buffered in memory
+     * @param expectedUrls the number of urls the crawl is expected to see, which sizes the Bloom filter
+     * @throws IOException if the directory or the checkpoint cannot be read
+     */
+    public Frontier(Path directory, int memoryLimit, long expectedUrls) throws IOException {
+        if (memoryLimit < 2) {
+            throw new IllegalArgumentException("The memory limit must be at least 2 urls, got " + memoryLimit);
+        }
+        this.seen = null;
+        this.directory = directory;
+        this.memoryLimit = memoryLimit;
+        this.seenOnDisk = new DiskUrlSet(directory, expectedUrls, memoryLimit);
+        this.spill = new SpillQueue(directory, memoryLimit);
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            restore(checkpoint);
+        } else {
+            // files of a crawl that never saved a checkpoint
+            seenOnDisk.deleteUnreferenced();
+            spill.deleteUnreferenced();
+        }
+    }
+
+    /**
+     * Adds a url, unless it has been added before or is not an http or https url. The url is normalized, so
+     * urls differing only in their fragment, case of the host and the like are added once.
+     * @param url the url
+     * @return true if the url was added
+     */
+    public synchronized boolean add(String url) {
+        url = UrlNormalizer.normalize(url);
+        if (url == null || !markSeen(url)) {
+            return false;
+        }
+        if (size >= memoryLimit || spill != null && spill.size() > 0) {
+            // the urls on disk are older, so new urls wait behind them
+            try {
+                spill.add(url);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            enqueue(url);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a url to the queue of its host.
+     */
+    private void enqueue(String url) {
+        String host = getHost(url);
+        ArrayDeque<String> queue = queues.computeIfAbsent(host, h -> new ArrayDeque<>());
+        queue.add(url);
+        size++;
+        if (queue.size() == 1 && !busyHosts.containsKey(host)) {
+            readyHosts.add(new HostTime(host, nextVisits.getOrDefault(host, 0L)));
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return true if the url was not seen before
+     */
+    private boolean markSeen(String url) {
+        if (seen != null) {
+            return seen.add(url);
+        }
+        try {
+            return seenOnDisk.add(url);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Moves urls from disk to memory once half of the memory limit is free.
+     */
+    private void refill() {
+        if (spill == null || size > memoryLimit / 2) {
+            return;
+        }
+        try {
+            while (size < memoryLimit && spill.size() > 0) {
+                enqueue(spill.poll());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Takes the next url to visit, waiting until a host may be visited. The caller has to call {@code done} when it
+     * has visited the url, so the host can be visited again.
+     * @return the url, or null if the frontier is stopped, or no url is left and no url is being visited, which
+     * could add new urls
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized String take() throws InterruptedException {
+        while (!stopped) {
+            refill();
+            HostTime next = readyHosts.peek();
+            if (next == null) {
+                if (busyHosts.isEmpty()) {
+                    return null;
+                }
+                wait();
+                continue;
+            }
+            long delay = next.time - System.currentTimeMillis();
+            if (delay > 0) {
+                wait(delay);
+                continue;
+            }
+            readyHosts.poll();
+            ArrayDeque<String> queue = queues.get(next.host);
+            String url = queue.poll();
+            if (queue.isEmpty()) {
+                queues.remove(next.host);
+            }
+            size--;
+            busyHosts.put(next.host, url);
+            return url;
+        }
+        return null;
+    }
+
+    /**
+     * Marks the visit of a url as finished, so the next url of its host can be taken after the politeness delay.
+     * @param url a url returned by {@code take}
+     * @param delay the time in milliseconds before the host may be visited again
+     */
+    public synchronized void done(String url, long delay) {
+        String host = getHost(url);
+        busyHosts.remove(host);
+        long nextVisit = System.currentTimeMillis() + delay;
+        nextVisits.put(host, nextVisit);
+        if (queues.containsKey(host)) {
+            readyHosts.add(new HostTime(host, nextVisit));
+        }
+        if (nextVisits.size() > Math.max(1024, 2 * queues.size())) {
+            // hosts whose delay has passed may be visited right away, like hosts never visited
+            long now = System.currentTimeMillis();
+            nextVisits.values().removeIf(time -> time <= now);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Stops the frontier, so {@code take} returns null. Urls are still added, and the urls being visited stay in
+     * the frontier until {@code done} is called, so a checkpoint taken afterwards keeps the links of the pages
+     * being visited, and visits the pages that were not done again when resumed.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * Saves the state of the frontier to its directory: the urls seen, the urls waiting, and the urls being
+     * visited, which a resumed frontier visits again. The checkpoint is written to a temporary file first and then
+     * moved in place, so a crash while writing keeps the last checkpoint.
+     * @throws IOException if the checkpoint cannot be written
+     * @throws IllegalStateException if the frontier has no directory
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("The frontier keeps its urls in memory and has no checkpoint");
+        }
+        Path file = directory.resolve(CHECKPOINT);
+        Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            List<String> waiting = new ArrayList<>(busyHosts.values());
+            for (ArrayDeque<String> queue : queues.values()) {
+                waiting.addAll(queue);
+            }
+            out.writeInt(waiting.size());
+            for (String url : waiting) {
+                DiskUrlSet.writeUrl(out, url);
+            }
+            seenOnDisk.checkpoint(out);
+            spill.checkpoint(out);
+        }
+        DiskUrlSet.replace(temporary, file);
+        seenOnDisk.deleteObsolete();
+        spill.deleteObsolete();
+    }
+
+    /**
+     * Restores the state of a checkpoint.
+     */
+    private synchronized void restore(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a frontier checkpoint: " + file);
+            }
+            int waiting = in.readInt();
+            List<String> urls = new ArrayList<>(waiting);
+            for (int i = 0; i < waiting; i++) {
+                urls.add(new String(DiskUrlSet.readUrl(in), StandardCharsets.UTF_8));
+            }
+            seenOnDisk.restore(in);
+            spill.restore(in);
+            // the urls of the checkpoint's memory may be more than the limit, the rest wait behind the spilled urls
+            for (String url : urls) {
+                if (size < memoryLimit) {
+                    enqueue(url);
+                } else {
+                    spill.add(url);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the files of the frontier. The state since the last {@code checkpoint} is not saved.
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        stop();
+        if (directory != null) {
+            seenOnDisk.close();
+            spill.close();
+        }
+    }
+
+    /**
+     * @return the number of urls waiting to be visited, in memory and on disk
+     */
+    public synchronized long size() {
+        return size + (spill == null ? 0 : spill.size());
+    }
+
+    /**
+     * @return the number of urls seen, including those visited
+     */
+    public synchronized long getNumberOfSeenUrls() {
+        return seen != null ? seen.size() : seenOnDisk.size();
+    }
+
+    /**
+     * @return the number of hosts with urls waiting to be visited
+     */
+    public synchronized int getNumberOfHosts() {
+        return queues.size();
+    }
+
+    /**
+     * Finds the scheme and host of a url, like "https://www.dr.dk" or "http://127.0.0.1:8080", in lower case.
+     * @param url a url
+     * @return the scheme and host, or null if the url is not an http or https url
+     */
+    public static String getHost(String url) {
+        int start = url.indexOf("://");
+        if (start < 0) {
+            return null;
+        }
+        String scheme = url.substring(0, start).toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            return null;
+        }
+        int end = start + 3;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        if (end == start + 3) {
+            return null;
+        }
+        return scheme + url.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A host and the time it may be visited again.
+     */
+    private static class HostTime implements Comparable<HostTime> {
+        private final String host;
+        private final long time;
+
+        HostTime(String host, long time) {
+            this.host = host;
+            this.time = time;
+        }
+
+        @Override
+        public int compareTo(HostTime other) {
+            return Long.compare(time, other.time);
+        }
+    }
+}
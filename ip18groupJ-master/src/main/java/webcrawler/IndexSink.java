@@ -0,0 +1,55 @@
+package webcrawler;
+
+import searchengine.SearchEngine;
+import searchengine.Website;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is responsible for adding the websites of a crawl to a running search engine. The websites are passed
+ * to {@code SearchEngine.update} in batches, and become searchable within the refresh interval of the search engine
+ * after their batch, without blocking its queries.
+ */
+public class IndexSink implements PageSink {
+
+    private final SearchEngine searchEngine;
+    private final int batchSize;
+    private List<Website> batch = new ArrayList<>();
+
+    /**
+     * Creates an {@code IndexSink} object.
+     * @param searchEngine the search engine, which must use an inverted index
+     * @param batchSize the number of websites added to the search engine at once
+     */
+    public IndexSink(SearchEngine searchEngine, int batchSize) {
+        this.searchEngine = searchEngine;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void write(Website site) {
+        batch.add(site);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (!batch.isEmpty()) {
+            searchEngine.update(batch, Collections.<String>emptyList());
+            batch = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Adds the last batch, and makes all websites searchable now.
+     */
+    @Override
+    public void close() {
+        flush();
+        searchEngine.refresh();
+    }
+}
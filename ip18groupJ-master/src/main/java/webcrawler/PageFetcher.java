@@ -0,0 +1,178 @@
+package webcrawler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * This class is responsible for downloading web pages over HTTP.
+ * Unlike {@code Jsoup.connect}, which closes the connection after every page, the fetcher reads every response to
+ * the end and closes only its stream, so the JDK keeps the connection open and reuses it for the next page of the
+ * same host (HTTP keep-alive). A fetcher is thread-safe and is shared by all threads of a crawl.
+ */
+public class PageFetcher {
+
+    // The user agent sent with every request
+    private final String userAgent;
+
+    // Timeouts for connecting and reading in milliseconds
+    private int timeout = 10000;
+
+    // Responses larger than this are cut off
+    private int maxBytes = 5 << 20;
+
+    /**
+     * Creates a {@code PageFetcher} object.
+     * @param userAgent the user agent sent with every request
+     */
+    public PageFetcher(String userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * @param timeout the timeout for connecting and for reading in milliseconds
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param maxBytes the number of bytes of a response that are read at most
+     */
+    public void setMaxBytes(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the user agent sent with every request
+     */
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    /**
+     * Downloads a page. Redirects are followed.
+     * @param url the url of the page
+     * @return the response, also for HTTP error codes
+     * @throws IOException if the server cannot be reached or the connection fails
+     */
+    public Response fetch(String url) throws IOException {
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestProperty("User-Agent", userAgent);
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setInstanceFollowRedirects(true);
+
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        byte[] body = new byte[0];
+        if (in != null) {
+            // Reading to the end and closing the stream, not the connection, returns the connection for reuse
+            try (InputStream stream = in) {
+                body = read(stream);
+            }
+        }
+        return new Response(connection.getURL().toString(), status, connection.getContentType(), body,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Reads a stream to its end, or up to the maximum number of bytes.
+     */
+    private byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, Math.min(read, maxBytes - out.size()));
+            if (out.size() >= maxBytes) {
+                break;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A response of a web server.
+     */
+    public static class Response {
+
+        private final String url;
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+        private final long latency;
+
+        Response(String url, int status, String contentType, byte[] body, long latency) {
+            this.url = url;
+            this.status = status;
+            this.contentType = contentType == null ? "" : contentType;
+            this.body = body;
+            this.latency = latency;
+        }
+
+        /**
+         * @return the url of the page, after redirects
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * @return the HTTP status code
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the content type of the response, empty if the server did not send one
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return true if the request succeeded and the response is an HTML page
+         */
+        public boolean isHtml() {
+            return status == 200 && contentType.toLowerCase(Locale.ROOT).contains("text/html");
+        }
+
+        /**
+         * @return the number of bytes of the body
+         */
+        public int getLength() {
+            return body.length;
+        }
+
+        /**
+         * @return the body decoded with the charset of the content type, UTF-8 if it has none
+         */
+        public String getText() {
+            Charset charset = StandardCharsets.UTF_8;
+            int position = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if (position >= 0) {
+                try {
+                    charset = Charset.forName(contentType.substring(position + 8).replace("\"", "").split(";")[0].trim());
+                } catch (IllegalArgumentException e) {
+                    // Unknown charsets are read as UTF-8
+                }
+            }
+            return new String(body, charset);
+        }
+
+        /**
+         * @return the time from sending the request to reading the last byte in nanoseconds
+         */
+        public long getLatency() {
+            return latency;
+        }
+    }
+}
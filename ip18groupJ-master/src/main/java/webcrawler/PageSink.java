@@ -0,0 +1,38 @@
+package webcrawler;
+
+import searchengine.Website;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A destination of the websites of a crawl, like a running search engine or a database file. A {@code CrawlPipeline}
+ * writes the websites to its sinks one at a time, as they are crawled, from a single thread.
+ */
+public interface PageSink extends Closeable {
+
+    /**
+     * Writes a website.
+     * @param site the website
+     * @throws IOException if the website cannot be written
+     */
+    void write(Website site) throws IOException;
+
+    /**
+     * Makes the websites written so far available, like searchable or on disk. Called when no new websites have
+     * arrived for a while, and at the end of the crawl.
+     * @throws IOException if the websites cannot be written
+     */
+    void flush() throws IOException;
+
+    /**
+     * Opens the sink of a database file: a {@code CompressedFileSink} if the name of the file ends with ".gz",
+     * or else a {@code FlatFileSink}.
+     * @param filename the name of the file
+     * @return the sink
+     * @throws IOException if the file cannot be opened
+     */
+    static PageSink open(String filename) throws IOException {
+        return filename.endsWith(".gz") ? new CompressedFileSink(filename) : new FlatFileSink(filename);
+    }
+}
@@ -0,0 +1,240 @@
+package webcrawler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This class is responsible for the robots.txt files of the hosts we crawl.
+ * The robots.txt file of a host is downloaded when the first page of the host is crawled, and its rules are kept
+ * for the most recently used hosts, so the file is not downloaded again for every page.
+ *
+ * The rules follow RFC 9309: the group of the most specific user agent matching ours applies, else the group of
+ * "*"; the longest matching Allow or Disallow rule decides, Allow wins a tie; "*" matches any characters and "$"
+ * the end of the path. If the file does not exist, everything is allowed; if the server fails, nothing is.
+ */
+public class RobotsCache {
+
+    // Number of hosts whose rules are kept
+    private static final int CAPACITY = 10000;
+
+    private final PageFetcher fetcher;
+
+    // The name of our crawler in the User-agent lines, like "merkelsearchbot"
+    private final String agent;
+
+    // The rules by scheme and host, from the least to the most recently used
+    private final Map<String, Rules> rules = Collections.synchronizedMap(
+            new LinkedHashMap<String, Rules>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Rules> eldest) {
+                    return size() > CAPACITY;
+                }
+            });
+
+    /**
+     * Creates a {@code RobotsCache} object.
+     * @param fetcher the fetcher used to download the robots.txt files, its user agent names our crawler
+     */
+    public RobotsCache(PageFetcher fetcher) {
+        this.fetcher = fetcher;
+        this.agent = fetcher.getUserAgent().split("/")[0].trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds the rules of the host of a url, downloading its robots.txt file if it is not in the cache.
+     * @param url a url
+     * @return the rules of the host
+     */
+    public Rules getRules(String url) {
+        String host = Frontier.getHost(url);
+        Rules hostRules = rules.get(host);
+        if (hostRules == null) {
+            hostRules = download(host);
+            rules.put(host, hostRules);
+        }
+        return hostRules;
+    }
+
+    /**
+     * @param url a url
+     * @return true if the robots.txt file of the host allows us to crawl the url
+     */
+    public boolean isAllowed(String url) {
+        return getRules(url).isAllowed(getPath(url));
+    }
+
+    /**
+     * Downloads and parses the robots.txt file of a host.
+     */
+    private Rules download(String host) {
+        try {
+            PageFetcher.Response response = fetcher.fetch(host + "/robots.txt");
+            if (response.getStatus() >= 500) {
+                return Rules.DISALLOW_ALL;
+            }
+            if (response.getStatus() >= 400) {
+                return Rules.ALLOW_ALL;
+            }
+            return Rules.parse(response.getText(), agent);
+        } catch (IOException e) {
+            return Rules.DISALLOW_ALL;
+        }
+    }
+
+    /**
+     * @return the path and query of a url, "/" if it has none
+     */
+    static String getPath(String url) {
+        int start = url.indexOf("://");
+        int path = url.indexOf('/', start < 0 ? 0 : start + 3);
+        if (path < 0) {
+            return "/";
+        }
+        int fragment = url.indexOf('#', path);
+        return fragment < 0 ? url.substring(path) : url.substring(path, fragment);
+    }
+
+    /**
+     * The rules of a robots.txt file for our crawler.
+     */
+    public static class Rules {
+
+        static final Rules ALLOW_ALL = new Rules(new ArrayList<>(), new ArrayList<>(), 0);
+        static final Rules DISALLOW_ALL = new Rules(new ArrayList<>(), Collections.singletonList("/"), 0);
+
+        private final List<String> allow;
+        private final List<String> disallow;
+        private long crawlDelay;
+
+        Rules(List<String> allow, List<String> disallow, long crawlDelay) {
+            this.allow = allow;
+            this.disallow = disallow;
+            this.crawlDelay = crawlDelay;
+        }
+
+        /**
+         * Parses a robots.txt file.
+         * @param text the content of the file
+         * @param agent the lower case name of our crawler
+         * @return the rules of the most specific group matching the name, or of the group of "*"
+         */
+        public static Rules parse(String text, String agent) {
+            // The rules of each user agent; an agent named in several groups gets the rules of all of them
+            Map<String, Rules> groups = new LinkedHashMap<>();
+            List<String> groupAgents = new ArrayList<>();
+            List<Rules> group = new ArrayList<>();
+            for (String line : text.split("\r?\n|\r")) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                if (field.equals("user-agent")) {
+                    // consecutive User-agent lines start one group
+                    if (!group.isEmpty()) {
+                        groupAgents = new ArrayList<>();
+                        group = new ArrayList<>();
+                    }
+                    groupAgents.add(value.toLowerCase(Locale.ROOT));
+                    continue;
+                }
+                if (group.isEmpty()) {
+                    // rules before the first User-agent line belong to no group
+                    for (String groupAgent : groupAgents) {
+                        group.add(groups.computeIfAbsent(groupAgent, a -> new Rules(new ArrayList<>(), new ArrayList<>(), 0)));
+                    }
+                }
+                for (Rules rules : group) {
+                    if (field.equals("allow") && !value.isEmpty()) {
+                        rules.allow.add(value);
+                    } else if (field.equals("disallow") && !value.isEmpty()) {
+                        rules.disallow.add(value);
+                    } else if (field.equals("crawl-delay")) {
+                        try {
+                            rules.crawlDelay = (long) (Double.parseDouble(value) * 1000);
+                        } catch (NumberFormatException e) {
+                            // an invalid delay is ignored
+                        }
+                    }
+                }
+            }
+
+            String best = null;
+            for (String groupAgent : groups.keySet()) {
+                if (!groupAgent.equals("*") && !groupAgent.isEmpty() && agent.contains(groupAgent)
+                        && (best == null || groupAgent.length() > best.length())) {
+                    best = groupAgent;
+                }
+            }
+            Rules rules = groups.get(best != null ? best : "*");
+            return rules == null ? ALLOW_ALL : rules;
+        }
+
+        /**
+         * @param path the path and query of a url
+         * @return true if the longest matching rule is an Allow rule, or no rule matches
+         */
+        public boolean isAllowed(String path) {
+            int allowed = longestMatch(allow, path);
+            int disallowed = longestMatch(disallow, path);
+            return allowed >= disallowed;
+        }
+
+        /**
+         * @return the delay between two requests the host asks for in milliseconds, 0 if it asks for none
+         */
+        public long getCrawlDelay() {
+            return crawlDelay;
+        }
+
+        /**
+         * @return the length of the longest pattern matching the path, -1 if none matches
+         */
+        private static int longestMatch(List<String> patterns, String path) {
+            int longest = -1;
+            for (String pattern : patterns) {
+                if (pattern.length() > longest && matches(pattern, 0, path, 0)) {
+                    longest = pattern.length();
+                }
+            }
+            return longest;
+        }
+
+        /**
+         * Matches the start of a path with a pattern, where "*" matches any characters and a final "$" the end of
+         * the path.
+         */
+        private static boolean matches(String pattern, int p, String path, int i) {
+            while (p < pattern.length()) {
+                char c = pattern.charAt(p);
+                if (c == '*') {
+                    for (int j = i; j <= path.length(); j++) {
+                        if (matches(pattern, p + 1, path, j)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if (c == '$' && p == pattern.length() - 1) {
+                    return i == path.length();
+                }
+                if (i == path.length() || path.charAt(i) != c) {
+                    return false;
+                }
+                p++;
+                i++;
+            }
+            return true;
+        }
+    }
+}
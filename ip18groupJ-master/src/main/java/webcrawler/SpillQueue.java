@@ -0,0 +1,218 @@
+package webcrawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class is responsible for the urls of a crawl that do not fit in memory. It is a first-in-first-out queue of
+ * urls in segment files: urls are appended to the newest segment until it is full, and read from the oldest, which
+ * is deleted once it has been read. Only one segment is written and one is read at a time, so the queue needs a
+ * constant amount of memory however many urls it holds.
+ *
+ * Segments are deleted only at the next {@code checkpoint}, and a checkpoint remembers how far the newest segment
+ * was written, so a crawl resumed from a checkpoint finds the queue as it was.
+ */
+public class SpillQueue implements Closeable {
+
+    private final Path directory;
+    private final int segmentSize;
+
+    // The numbers of the segments, from the oldest to the newest
+    private final ArrayDeque<Integer> segments = new ArrayDeque<>();
+
+    // The newest segment, while it is written
+    private DataOutputStream writer;
+    private int written;
+
+    // The oldest segment, while it is read, and the number of bytes read from it
+    private DataInputStream reader;
+    private long read;
+
+    // Segments that were read, deleted at the next checkpoint
+    private final List<Path> obsolete = new ArrayList<>();
+
+    private long size;
+    private int nextSegment;
+
+    /**
+     * Creates an empty {@code SpillQueue} object.
+     * @param directory the directory of the segment files
+     * @param segmentSize the number of urls per segment
+     * @throws IOException if the directory cannot be created
+     */
+    public SpillQueue(Path directory, int segmentSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Appends a url to the queue.
+     * @param url the url
+     * @throws IOException if the segment cannot be written
+     */
+    public synchronized void add(String url) throws IOException {
+        if (writer == null) {
+            int segment = nextSegment++;
+            segments.addLast(segment);
+            writer = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(getPath(segment))));
+            written = 0;
+        }
+        DiskUrlSet.writeUrl(writer, url);
+        size++;
+        if (++written >= segmentSize) {
+            closeWriter();
+        }
+    }
+
+    /**
+     * Takes the oldest url of the queue.
+     * @return the url, or null if the queue is empty
+     * @throws IOException if the segment cannot be read
+     */
+    public synchronized String poll() throws IOException {
+        while (size > 0) {
+            if (reader == null) {
+                if (writer != null && segments.size() == 1) {
+                    // the urls being written are read from the file, so the segment is closed first
+                    closeWriter();
+                }
+                reader = new DataInputStream(new BufferedInputStream(Files.newInputStream(getPath(segments.peekFirst()))));
+                read = 0;
+            }
+            try {
+                byte[] url = DiskUrlSet.readUrl(reader);
+                read += 2 + url.length;
+                size--;
+                return new String(url, StandardCharsets.UTF_8);
+            } catch (EOFException e) {
+                reader.close();
+                reader = null;
+                obsolete.add(getPath(segments.removeFirst()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of urls in the queue
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Writes the state of the queue to a checkpoint.
+     * @param out the checkpoint
+     * @throws IOException if the newest segment or the checkpoint cannot be written
+     */
+    public synchronized void checkpoint(DataOutputStream out) throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        out.writeLong(size);
+        out.writeInt(nextSegment);
+        out.writeInt(segments.size());
+        for (int segment : segments) {
+            out.writeInt(segment);
+            out.writeLong(segment == segments.peekLast() && writer != null ? writer.size() : Files.size(getPath(segment)));
+        }
+        out.writeLong(reader == null ? 0 : read);
+    }
+
+    /**
+     * Restores the state of a checkpoint. The segments are cut to their length at the time of the checkpoint, and
+     * segment files it does not refer to are deleted.
+     * @param in the checkpoint
+     * @throws IOException if the checkpoint or the segments cannot be read
+     */
+    public synchronized void restore(DataInputStream in) throws IOException {
+        close();
+        segments.clear();
+        size = in.readLong();
+        nextSegment = in.readInt();
+        int numberOfSegments = in.readInt();
+        for (int i = 0; i < numberOfSegments; i++) {
+            int segment = in.readInt();
+            long length = in.readLong();
+            try (FileChannel channel = FileChannel.open(getPath(segment), StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+            }
+            segments.addLast(segment);
+        }
+        long skip = in.readLong();
+        deleteUnreferenced();
+        if (skip > 0) {
+            reader = new DataInputStream(new BufferedInputStream(Files.newInputStream(getPath(segments.peekFirst()))));
+            reader.skipBytes((int) skip);
+            read = skip;
+        }
+    }
+
+    /**
+     * Deletes the segments that were read before the last checkpoint.
+     * @throws IOException if a file cannot be deleted
+     */
+    public synchronized void deleteObsolete() throws IOException {
+        for (Path path : obsolete) {
+            Files.deleteIfExists(path);
+        }
+        obsolete.clear();
+    }
+
+    /**
+     * Closes the segment files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closeWriter();
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private Path getPath(int segment) {
+        return directory.resolve(String.format("frontier-%06d.seg", segment));
+    }
+
+    /**
+     * Deletes the segment files in the directory that the queue does not use, like those of an earlier crawl.
+     * @throws IOException if the directory cannot be read or a file cannot be deleted
+     */
+    public synchronized void deleteUnreferenced() throws IOException {
+        Set<Path> referenced = new HashSet<>();
+        for (int segment : segments) {
+            referenced.add(getPath(segment));
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "frontier-*.seg")) {
+            for (Path path : stream) {
+                if (!referenced.contains(path)) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package webcrawler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class is responsible for bringing urls into one form, so the same page is not crawled twice under
+ * different urls, like "HTTPS://www.DR.dk:443/a/../b#top" and "https://www.dr.dk/b".
+ *
+ * The normalization follows RFC 3986: the scheme and host are lower cased, the default port is removed, the
+ * fragment is removed, an empty path becomes "/", the "." and ".." segments of the path are resolved, and
+ * percent-encodings are upper cased, decoding those of letters, digits and "-._~".
+ */
+public final class UrlNormalizer {
+
+    // Urls longer than this are not crawled, like most search engines do
+    public static final int MAX_LENGTH = 2048;
+
+    private UrlNormalizer() {
+    }
+
+    /**
+     * Normalizes an http or https url.
+     * @param url an absolute url
+     * @return the normalized url, or null if the url is not an http or https url, or is too long
+     */
+    public static String normalize(String url) {
+        url = url.trim();
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd < 0 || url.length() > MAX_LENGTH) {
+            return null;
+        }
+        String scheme = url.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            return null;
+        }
+
+        // The fragment refers to a part of the same page
+        int fragment = url.indexOf('#');
+        if (fragment >= 0) {
+            url = url.substring(0, fragment);
+        }
+
+        int hostStart = schemeEnd + 3;
+        int hostEnd = hostStart;
+        while (hostEnd < url.length() && "/?".indexOf(url.charAt(hostEnd)) < 0) {
+            hostEnd++;
+        }
+        String host = url.substring(hostStart, hostEnd).toLowerCase(Locale.ROOT);
+        int userInfo = host.lastIndexOf('@');
+        if (userInfo >= 0) {
+            host = host.substring(userInfo + 1);
+        }
+        if (host.endsWith(":80") && scheme.equals("http") || host.endsWith(":443") && scheme.equals("https")) {
+            host = host.substring(0, host.lastIndexOf(':'));
+        } else if (host.endsWith(":")) {
+            host = host.substring(0, host.length() - 1);
+        }
+        if (host.isEmpty()) {
+            return null;
+        }
+
+        int queryStart = url.indexOf('?', hostEnd);
+        String path = url.substring(hostEnd, queryStart < 0 ? url.length() : queryStart);
+        String query = queryStart < 0 ? "" : url.substring(queryStart + 1);
+
+        StringBuilder normalized = new StringBuilder(url.length());
+        normalized.append(scheme).append("://").append(host).append(removeDotSegments(normalizeEncoding(path)));
+        if (!query.isEmpty()) {
+            normalized.append('?').append(normalizeEncoding(query));
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Upper cases the hexadecimal digits of percent-encodings, and decodes the encodings of unreserved characters.
+     */
+    private static String normalizeEncoding(String part) {
+        if (part.indexOf('%') < 0) {
+            return part;
+        }
+        StringBuilder builder = new StringBuilder(part.length());
+        for (int i = 0; i < part.length(); i++) {
+            char c = part.charAt(i);
+            int high = i + 2 < part.length() ? Character.digit(part.charAt(i + 1), 16) : -1;
+            int low = i + 2 < part.length() ? Character.digit(part.charAt(i + 2), 16) : -1;
+            if (c != '%' || high < 0 || low < 0) {
+                builder.append(c);
+                continue;
+            }
+            char decoded = (char) (high * 16 + low);
+            if (decoded < 128 && (Character.isLetterOrDigit(decoded) || "-._~".indexOf(decoded) >= 0)) {
+                builder.append(decoded);
+            } else {
+                builder.append('%').append(part.substring(i + 1, i + 3).toUpperCase(Locale.ROOT));
+            }
+            i += 2;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Resolves the "." and ".." segments of a path, as in section 5.2.4 of RFC 3986.
+     */
+    private static String removeDotSegments(String path) {
+        if (path.isEmpty()) {
+            return "/";
+        }
+        if (!path.contains("/.")) {
+            return path;
+        }
+        List<String> segments = new ArrayList<>();
+        String[] parts = path.split("/", -1);
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i];
+            boolean last = i == parts.length - 1;
+            if (part.equals("..")) {
+                if (!segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
+                }
+                if (last) {
+                    segments.add("");
+                }
+            } else if (part.equals(".")) {
+                if (last) {
+                    segments.add("");
+                }
+            } else {
+                segments.add(part);
+            }
+        }
+        return "/" + String.join("/", segments);
+    }
+}
@@ -13,8 +13,8 @@ public class WebCrawler {
     // Set to keep track of websites visited
     private Set<String> sitesVisited;
 
-    // List of sites to be visited
-    private List<String> sitesToVisit;
+    // Queue of sites to be visited
+    private Deque<String> sitesToVisit;
 
     // Map to store URL mapped to list of words
     private Map<String, List<String>> urlWordMap;
@@ -29,7 +29,7 @@ public class WebCrawler {
     public WebCrawler(int maxPages){
         this.maxPages = maxPages;
         this.sitesVisited = new HashSet<>();
-        this.sitesToVisit = new ArrayList<>();
+        this.sitesToVisit = new ArrayDeque<>();
         this.urlWordMap = new HashMap<>();
     }
 
@@ -54,17 +54,16 @@ public class WebCrawler {
             // Check to see if this is the first site we look at
             if(this.sitesVisited.isEmpty())
             {
-                // if that is the case, set the url given as a parameter to the local variable
-                currentUrl = url;
-                // add url to list of sites we have looked at.
-                this.sitesVisited.add(url);
+                // if that is the case, add the url given as a parameter to the sites to visit
+                this.sitesToVisit.add(url);
             }
 
-            // If it is not the first website we look at, call nextUrl method that returns a new url from the list of sites we have not visited (looked at) yet.
-            else
-            {
-                // Set the url we want to look at, to a url we haven't looked at yet.
-                currentUrl = this.nextUrl();
+            // Set the url we want to look at, to a url we haven't looked at yet.
+            currentUrl = this.nextUrl();
+
+            // Stop when there are no more websites to look at
+            if (currentUrl == null) {
+                break;
             }
 
             // Crawl the url
@@ -82,28 +81,23 @@ public class WebCrawler {
 
 
     /**
-     * Looks at the list of websites found by the webcrawler and returns the first url in that list.
-     * Deletes the returned website so that the list - sitesToVisit - only contains websites that have not been crawled by the webcrawler.
-     * @return the next Url from the list of websites that have not been visited yet.
+     * Looks at the queue of websites found by the webcrawler and returns the first url in it that has not been visited.
+     * Urls are normalized first, so the same website is not visited twice under two urls.
+     * Deletes the returned website from the queue and adds it to sitesVisited.
+     * @return the next Url from the queue of websites that have not been visited yet, or null if there is none.
      */
     // Find next URL
     private String nextUrl() {
-        // local variable to store the nextUrl
-        String nextUrl;
-
-        // Get the first URL in our siteToVisit list
-        nextUrl = this.sitesToVisit.get(0);
+        while (!this.sitesToVisit.isEmpty()) {
+            // Get and remove the first URL in our siteToVisit queue, and skip urls that are not web pages
+            String nextUrl = UrlNormalizer.normalize(this.sitesToVisit.poll());
 
-        // Remove the site since it will now be visited
-        sitesToVisit.remove(0);
-
-        // If we have visited the nextURL, add it to sitesVisited
-        if (this.sitesToVisit.contains(nextUrl)) {
-            this.sitesVisited.add(nextUrl);
+            // Only return the url if we have not visited it yet, and remember that we visit it now
+            if (nextUrl != null && this.sitesVisited.add(nextUrl)) {
+                return nextUrl;
+            }
         }
-
-        // Return the nextURL
-        return nextUrl;
+        return null;
     }
 
     public Map<String, List<String>> getUrlWordMap() {
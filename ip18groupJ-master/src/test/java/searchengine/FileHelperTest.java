@@ -3,8 +3,22 @@ import org.junit.Rule;
 import org.junit.jupiter.api.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -49,4 +63,135 @@ class FileHelperTest {
         assertTrue(sites.get(0).containsWord("word1"));
         assertFalse(sites.get(0).containsWord("word3"));
     }
+
+    // Test that the same seed gives the same corpus, of at least the requested size
+    @Test
+    void generateSameCorpus() throws IOException {
+        StringWriter corpus = new StringWriter();
+        new CorpusGenerator(42).generate(corpus, 200000, false);
+        StringWriter again = new StringWriter();
+        new CorpusGenerator(42).generate(again, 200000, false);
+        assertEquals(corpus.toString(), again.toString());
+        assertTrue(corpus.toString().length() >= 200000);
+    }
+
+    // Test that a generated corpus can be parsed and searched
+    @Test
+    void parseGeneratedCorpus() throws IOException {
+        StringWriter corpus = new StringWriter();
+        long websites = new CorpusGenerator(42).generate(corpus, 200000, false);
+        List<Website> sites = new ArrayList<>();
+        FileHelper.parse(new BufferedReader(new StringReader(corpus.toString())), sites::add);
+        assertEquals(websites, sites.size());
+        assertTrue(sites.get(0).getUrl().startsWith("https://www."));
+        assertTrue(new SearchEngine(sites).search("ba").size() > websites / 2);
+    }
+
+    // Test that a corpus can be generated in the format of the web crawler, with a blank line before each page
+    @Test
+    void generateCrawlerCorpus() throws IOException {
+        StringWriter crawler = new StringWriter();
+        new CorpusGenerator(7).generate(crawler, 50000, true);
+        assertTrue(crawler.toString().startsWith("\n*PAGE:"));
+        StringWriter flat = new StringWriter();
+        new CorpusGenerator(42).generate(flat, 50000, false);
+        assertNotEquals(flat.toString().substring(0, 1000), crawler.toString().substring(1, 1001));
+    }
+
+    // Test that the size of a corpus can be given with a unit
+    @Test
+    void parseCorpusSize() {
+        assertEquals(10L << 30, CorpusGenerator.parseSize("10GB"));
+        assertEquals(512L << 20, CorpusGenerator.parseSize("0.5gb"));
+        assertEquals(100L << 10, CorpusGenerator.parseSize("100 KB"));
+        assertEquals(2000, CorpusGenerator.parseSize("2000"));
+    }
+
+    // Test that a database compressed in blocks is read like the plain database, and is an ordinary gzip file
+    @Test
+    void parseCompressedFile() throws IOException {
+        StringWriter flat = new StringWriter();
+        new CorpusGenerator(42).generate(flat, 200000, true);
+        List<Website> expected = new ArrayList<>();
+        FileHelper.parse(new BufferedReader(new StringReader(flat.toString())), expected::add);
+
+        Path file = Files.createTempFile("database", ".gz");
+        try {
+            try (OutputStream out = new BlockCompressedOutputStream(
+                    Files.newOutputStream(file), 4096, Deflater.DEFAULT_COMPRESSION)) {
+                out.write(flat.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            assertTrue(Files.size(file) < flat.toString().length() / 2);
+
+            List<Website> sites = FileHelper.parseFile(file.toString());
+            assertEquals(expected.size(), sites.size());
+            for (int i = 0; i < sites.size(); i++) {
+                assertEquals(expected.get(i).getUrl(), sites.get(i).getUrl());
+                assertEquals(expected.get(i).getTitle(), sites.get(i).getTitle());
+                assertEquals(expected.get(i).getWords(), sites.get(i).getWords());
+            }
+
+            ByteArrayOutputStream unzipped = new ByteArrayOutputStream();
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                byte[] buffer = new byte[8192];
+                for (int n; (n = in.read(buffer)) > 0; ) {
+                    unzipped.write(buffer, 0, n);
+                }
+            }
+            assertEquals(flat.toString(), new String(unzipped.toByteArray(), StandardCharsets.UTF_8));
+
+            // a gzip file without blocks is decompressed in one piece
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+                out.write(flat.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(expected.size(), FileHelper.parseFile(file.toString()).size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Test that a corrupt block size or uncompressed size is reported as an IOException naming the block
+    @Test
+    void parseCorruptCompressedFile() throws IOException {
+        StringWriter flat = new StringWriter();
+        new CorpusGenerator(42).generate(flat, 200000, true);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new BlockCompressedOutputStream(compressed, 4096, Deflater.DEFAULT_COMPRESSION)) {
+            for (String line : flat.toString().split("\n")) {
+                out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        byte[] bytes = compressed.toByteArray();
+        int firstBlock = readInt(bytes, 16);
+        int secondBlock = readInt(bytes, firstBlock + 16);
+
+        Path file = Files.createTempFile("database", ".gz");
+        try {
+            int[][] corruptions = {
+                    {16, 0}, {16, 27}, {16, -1}, {16, bytes.length + 1},
+                    {firstBlock + 16, bytes.length}, {firstBlock + secondBlock - 4, Integer.MAX_VALUE},
+                    {firstBlock + secondBlock - 4, -1}, {firstBlock + secondBlock - 4, 1032 * secondBlock}};
+            for (int[] corruption : corruptions) {
+                byte[] corrupt = bytes.clone();
+                writeInt(corrupt, corruption[0], corruption[1]);
+                Files.write(file, corrupt);
+                IOException e = assertThrows(IOException.class, () -> FileHelper.parseFile(file.toString(), site -> { }));
+                String block = corruption[0] < firstBlock ? "byte 0 " : "byte " + firstBlock + " ";
+                assertTrue(e.getMessage().contains(block), e.getMessage());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            bytes[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package searchengine;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+class HttpServerApplicationTest {
+    private HttpServer server;
+    private AsyncLogger log;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<Website> sites = new ArrayList<>();
+        sites.add(new Website("page1.com", "Page1", Arrays.asList("word1", "word2")));
+        sites.add(new Website("page2.com", "Page2", Arrays.asList("word1", "word3")));
+        log = new AsyncLogger(System.out, 100);
+        HttpServerApplication application = new HttpServerApplication(new SearchEngine(sites), Paths.get("static"), log);
+        server = application.start(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        log.close();
+    }
+
+    // Sends a request to the server and returns the status and the body of the response
+    private String request(String method, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getAddress().getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                byte[] buffer = new byte[4096];
+                for (int n; (n = in.read(buffer)) > 0; ) {
+                    body.write(buffer, 0, n);
+                }
+            }
+        }
+        return status + " " + new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testSearch() throws IOException {
+        assertEquals("200 [{\"title\":\"Page1\",\"url\":\"page1.com\",\"words\":[\"word1\",\"word2\"]}]", request("GET", "/search?query=word2"));
+        String page = request("GET", "/search/page?query=WORD1&offset=1&limit=5");
+        assertTrue(page.startsWith("200 {\"total\":2,\"offset\":1,\"results\":[{\"title\":\"Page"), page);
+        assertEquals("400 ", request("GET", "/search/page?query=word1&limit=x"));
+        assertEquals("405 ", request("POST", "/search?query=word1"));
+        assertTrue(request("GET", "/metrics").contains("\nsearchengine_queries_total 2\n"));
+    }
+
+    @Test
+    void testStaticFiles() throws IOException {
+        assertTrue(request("GET", "/").contains("Merkel Search"));
+        assertTrue(request("GET", "/code.js").startsWith("200 "));
+        assertEquals("404 ", request("GET", "/%2e%2e/build.gradle"));
+        assertEquals("404 ", request("GET", "/missing.html"));
+    }
+}
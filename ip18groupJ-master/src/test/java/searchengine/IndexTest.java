@@ -4,6 +4,14 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -20,6 +28,8 @@ class IndexTest {
     Index simpleIndex = null;
     InvertedIndex invertedIndexHashMap = null;
     InvertedIndex invertedIndexTreeMap = null;
+    InvertedIndex invertedIndexCompressed = null;
+    InvertedIndex invertedIndexOffHeap = null;
 
     @BeforeEach
     void setUp() {
@@ -29,10 +39,14 @@ class IndexTest {
         simpleIndex = new SimpleIndex();
         invertedIndexHashMap = new InvertedIndexHashMap();
         invertedIndexTreeMap = new InvertedIndexTreeMap();
+        invertedIndexCompressed = new InvertedIndexCompressed();
+        invertedIndexOffHeap = new InvertedIndexOffHeap();
 
         simpleIndex.build(sites);
         invertedIndexHashMap.build(sites);
         invertedIndexTreeMap.build(sites);
+        invertedIndexCompressed.build(sites);
+        invertedIndexOffHeap.build(sites);
     }
 
     @AfterEach
@@ -40,6 +54,8 @@ class IndexTest {
         simpleIndex = null;
         invertedIndexHashMap = null;
         invertedIndexTreeMap = null;
+        invertedIndexCompressed = null;
+        invertedIndexOffHeap = null;
     }
 
     @Test
@@ -95,4 +111,256 @@ class IndexTest {
         lookup(invertedIndexTreeMap);
     }
 
-}
\ No newline at end of file
+    @Test
+    void lookupInvertedIndexCompressed(){
+        lookup(invertedIndexCompressed);
+        assertEquals(2, invertedIndexCompressed.getTermFrequency("word1", invertedIndexCompressed.lookup("word1").get(0)));
+        assertEquals(2.0, invertedIndexCompressed.getNumberOfWebsites("word2"), 0.0);
+    }
+
+    @Test
+    void lookupInvertedIndexOffHeap(){
+        lookup(invertedIndexOffHeap);
+        assertEquals(2, invertedIndexOffHeap.getTermFrequency("word1", invertedIndexOffHeap.lookup("word1").get(0)));
+        assertEquals(2.0, invertedIndexOffHeap.getNumberOfWebsites("word2"), 0.0);
+        assertTrue(invertedIndexOffHeap.getTermDictionary().isOffHeap());
+        assertEquals(Arrays.asList("word1", "word2", "word3"), invertedIndexOffHeap.getWordsWithPrefix("word"));
+        assertEquals(invertedIndexCompressed.getTermDictionary().getData().length,
+                invertedIndexOffHeap.getTermDictionary().getData().length);
+    }
+
+    // Check that the parallel build produces the same postings lists as the sequential build
+    @Test
+    void buildInvertedIndexParallel(){
+        List<Website> sites = new ArrayList<>();
+        // more websites than a batch, so several partial indices are merged
+        for (int i = 0; i < 2500; i++) {
+            sites.add(new Website("example" + i + ".com", "example" + i, Arrays.asList("word" + (i % 7), "word" + (i % 3), "word1")));
+        }
+        InvertedIndex sequential = new InvertedIndexHashMap();
+        InvertedIndex parallel = new InvertedIndexHashMap();
+        sequential.build(sites);
+        parallel.build(sites, 4);
+        // Postings.equals only compares the websites, so the document ids and frequencies are compared one by one
+        assertEquals(sequential.indexMap.keySet(), parallel.indexMap.keySet());
+        for (String word : sequential.indexMap.keySet()) {
+            Postings expected = sequential.indexMap.get(word);
+            Postings actual = parallel.indexMap.get(word);
+            assertEquals(expected.size(), actual.size(), word);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getDocId(i), actual.getDocId(i), word);
+                assertEquals(expected.getFrequency(i), actual.getFrequency(i), word);
+                assertEquals(sequential.getTermFrequency(word, sites.get(expected.getDocId(i))),
+                        parallel.getTermFrequency(word, sites.get(actual.getDocId(i))), word);
+            }
+        }
+        assertEquals(2, parallel.getTermFrequency("word1", sites.get(4)));
+        assertEquals(sequential.getAverageDocumentLength(), parallel.getAverageDocumentLength(), 0.0);
+    }
+
+    // Check that an aborted build, like one whose database cannot be read, leaves an empty index and no threads
+    @Test
+    void abortBuild() throws InterruptedException {
+        InvertedIndex index = new InvertedIndexHashMap();
+        index.startBuild(4);
+        // more websites than a batch, so the build threads are started
+        for (int i = 0; i < 1500; i++) {
+            index.add(new Website("example" + i + ".com", "example" + i, Arrays.asList("word1")));
+        }
+        assertTrue(countBuildThreads() > 0);
+        index.abortBuild();
+        assertEquals(0, index.lookup("word1").size());
+        index.abortBuild();
+
+        assertThrows(IOException.class, () -> new SearchEngine("wrong filename"));
+        for (int i = 0; i < 100 && countBuildThreads() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, countBuildThreads());
+    }
+
+    private static long countBuildThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("index-builder")).count();
+    }
+
+    // Check that the front coded term dictionary finds words and prefix ranges across several blocks
+    @Test
+    void termDictionaryPrefixRange(){
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            words.add("word" + i);
+            words.add("term" + i);
+        }
+        words.add("wor");
+        TermDictionary dictionary = new TermDictionary(words);
+        assertEquals(101, dictionary.size());
+        assertEquals("term0", dictionary.getTerm(0));
+        assertEquals("word7", dictionary.getTerm(dictionary.getTermId("word7")));
+        assertEquals(-1, dictionary.getTermId("word"));
+        assertEquals(11, dictionary.getTermsWithPrefix("word1").size());
+        assertEquals(51, dictionary.getTermsWithPrefix("wor").size());
+        assertEquals(101, dictionary.getTermsWithPrefix("").size());
+        assertEquals(0, dictionary.getTermsWithPrefix("x").size());
+        assertEquals(0, dictionary.getTermsWithPrefix("a").size());
+    }
+
+    // Check that the union of prefix postings contains each website once
+    @Test
+    void lookupPrefixUnion(){
+        Postings union = invertedIndexTreeMap.getPostingsWithPrefix("word");
+        assertEquals(2, union.size());
+        assertEquals(0, union.getDocId(0));
+        assertEquals(3, union.getFrequency(0));
+        assertEquals(2, union.getFrequency(1));
+
+        // a prefix of a single word returns a list of its own, like a single word
+        List<Website> single = invertedIndexTreeMap.lookup("word3*");
+        single.add(single.get(0));
+        Postings prefix = invertedIndexHashMap.getPostingsWithPrefix("word3");
+        prefix.add(5, 1);
+        assertEquals(1, invertedIndexTreeMap.lookup("word3*").size());
+        assertEquals(1, invertedIndexHashMap.lookup("word3").size());
+    }
+
+    // Check that the galloping intersection finds exactly the common document ids
+    @Test
+    void postingsIntersection(){
+        Postings multiplesOfTwo = new Postings(new ArrayList<>());
+        Postings multiplesOfThree = new Postings(new ArrayList<>());
+        for (int docId = 0; docId < 600; docId++) {
+            if (docId % 2 == 0) multiplesOfTwo.add(docId, 1);
+            if (docId % 3 == 0) multiplesOfThree.add(docId, 1);
+        }
+        Postings common = multiplesOfThree.intersect(multiplesOfTwo);
+        assertEquals(100, common.size());
+        assertEquals(594, common.getDocId(99));
+        assertEquals(2, common.getFrequency(0));
+        assertEquals(300, multiplesOfTwo.gallop(0, 599));
+        assertEquals(2, invertedIndexHashMap.getPostingsContainingAll(new String[]{"word2", "word*"}).size());
+        assertEquals(0, invertedIndexCompressed.getPostingsContainingAll(new String[]{"word1", "word3"}).size());
+
+        // the result of a single word is a copy, changing it does not change the index
+        Postings word2 = invertedIndexHashMap.getPostingsContainingAll(new String[]{"word2", "word2"});
+        word2.add(5, 1);
+        assertEquals(2, invertedIndexHashMap.lookup("word2").size());
+    }
+
+    // Check that postings lists spanning several blocks are decoded correctly
+    @Test
+    void postingsCodecRoundTrip(){
+        Postings postings = new Postings(new ArrayList<>());
+        for (int docId = 0; docId < 1000; docId += 3) {
+            postings.add(docId, docId % 7 + 1);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(PostingsCodec.encode(postings));
+        Postings decoded = PostingsCodec.decode(buffer, 0, new ArrayList<>());
+        assertEquals(postings.size(), decoded.size());
+        assertEquals(postings.size(), PostingsCodec.getDocumentFrequency(buffer, 0));
+        for (int i = 0; i < postings.size(); i++) {
+            assertEquals(postings.getDocId(i), decoded.getDocId(i));
+            assertEquals(postings.getFrequency(i), PostingsCodec.getFrequencyOfDocId(buffer, 0, postings.getDocId(i)));
+        }
+        assertEquals(0, PostingsCodec.getFrequencyOfDocId(buffer, 0, 4));
+        assertEquals(0, PostingsCodec.getFrequencyOfDocId(buffer, 0, 5000));
+    }
+
+    // Check that an index saved as snapshot is opened with the same content, and that a damaged snapshot is rejected
+    @Test
+    void indexSnapshotRoundTrip() throws IOException {
+        Path file = Files.createTempFile("index", ".snapshot");
+        try {
+            IndexSnapshot.save(invertedIndexTreeMap, file);
+            InvertedIndex opened = IndexSnapshot.open(file);
+            lookup(opened);
+            Website example1 = opened.lookup("word1").get(0);
+            assertEquals("example1.com", example1.getUrl());
+            assertEquals(Arrays.asList("word1", "word2", "word1"), example1.getWords());
+            assertEquals(2, opened.getTermFrequency("word1", example1));
+            assertEquals(3, opened.getDocumentLength(example1));
+            assertEquals(invertedIndexTreeMap.getAverageDocumentLength(), opened.getAverageDocumentLength(), 0.0);
+            assertEquals(invertedIndexTreeMap.getMaxScore("word2"), opened.getMaxScore("word2"), 0.0);
+            // the websites are decoded once, so every lookup returns the same objects
+            assertSame(example1, opened.lookup("word2").get(0));
+            assertEquals(1, opened.getSitePostings("example1.com").size());
+
+            Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+            assertThrows(IOException.class, () -> IndexSnapshot.open(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Check that a snapshot is only up to date for the database it was saved from, as long as the database is unchanged
+    @Test
+    void indexSnapshotUpToDate() throws IOException {
+        Path database = Files.createTempFile("database", ".txt");
+        Path file = Files.createTempFile("index", ".snapshot");
+        try {
+            Files.write(database, "*PAGE:example1.com\nexample1\nword1\n".getBytes(StandardCharsets.UTF_8));
+            IndexSnapshot.save(invertedIndexTreeMap, file);
+            assertFalse(IndexSnapshot.isUpToDate(file, database));
+            IndexSnapshot.save(invertedIndexTreeMap, file, Files.readAttributes(database, BasicFileAttributes.class));
+            assertTrue(IndexSnapshot.isUpToDate(file, database));
+
+            // a changed database is detected even if its modification time is kept
+            FileTime modified = Files.getLastModifiedTime(database);
+            Files.write(database, "word2\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            Files.setLastModifiedTime(database, modified);
+            assertFalse(IndexSnapshot.isUpToDate(file, database));
+        } finally {
+            Files.deleteIfExists(database);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Check that added, updated and deleted websites are found after the next flush
+    @Test
+    void segmentedIndexUpdates(){
+        SegmentedIndex segmentedIndex = new SegmentedIndex(10, 2);
+        segmentedIndex.build(Arrays.asList(new Website("example1.com", "example1", Arrays.asList("word1", "word2", "word1")),
+                new Website("example2.com", "example2", Arrays.asList("word2", "word3"))));
+        lookup(segmentedIndex);
+
+        segmentedIndex.add(new Website("example3.com", "example3", Arrays.asList("word4")));
+        segmentedIndex.add(new Website("example1.com", "example1", Arrays.asList("word3")));
+        segmentedIndex.delete("example2.com");
+        assertEquals(0, segmentedIndex.lookup("word4").size());
+        segmentedIndex.flush();
+        assertEquals(1, segmentedIndex.lookup("word4").size());
+        assertEquals(0, segmentedIndex.lookup("word2").size());
+        assertEquals(1, segmentedIndex.lookup("word3").size());
+        assertEquals(2.0, segmentedIndex.getReader().getCorpusSize(), 0.0);
+        assertEquals(1.0, segmentedIndex.getReader().getAverageDocumentLength(), 0.0);
+
+        segmentedIndex.waitForMerges();
+        assertEquals(1, segmentedIndex.getNumberOfSegments());
+        assertEquals(2, segmentedIndex.lookup("word*").size());
+    }
+
+    // Check that the term frequencies and document lengths are recorded in the postings
+    @Test
+    void termFrequenciesInvertedIndex(){
+        List<Website> sites = invertedIndexHashMap.lookup("word2");
+        assertEquals(2, invertedIndexHashMap.getTermFrequency("word1", sites.get(0)));
+        assertEquals(1, invertedIndexHashMap.getTermFrequency("word2", sites.get(1)));
+        assertEquals(0, invertedIndexHashMap.getTermFrequency("word3", sites.get(0)));
+        assertEquals(3, invertedIndexTreeMap.getDocumentLength(sites.get(0)));
+        assertEquals(2, invertedIndexTreeMap.getDocumentLength(sites.get(1)));
+    }
+
+    // Check that websites store their words as term ids of the vocabulary, shared by all websites
+    @Test
+    void websiteTermIds() {
+        Website example1 = invertedIndexHashMap.lookup("word1").get(0);
+        Website copy = new Website("copy.com", "copy", Arrays.asList("word2", "word1"));
+        assertEquals(Vocabulary.getTermId("word1"), example1.getTermIds()[0]);
+        assertEquals(example1.getTermIds()[0], copy.getTermIds()[1]);
+        assertEquals("word2", Vocabulary.getWord(copy.getTermIds()[0]));
+        assertEquals(2, example1.getTermFrequency(Vocabulary.getTermId("word1")));
+        assertTrue(example1.containsWord("word2"));
+        assertFalse(example1.containsWord("a word that no website contains"));
+        assertEquals(-1, Vocabulary.getTermIdIfPresent("a word that no website contains"));
+        assertThrows(UnsupportedOperationException.class, () -> example1.getWords().add("word4"));
+    }
+}
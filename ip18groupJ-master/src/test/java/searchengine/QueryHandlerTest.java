@@ -4,7 +4,11 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -130,6 +134,176 @@ class QueryHandlerTest {
         assertEquals(0, qh.getMatchingWebsites("wikipedia.org term4").size());
     }
 
+    // Checks that site urls match the domains of a host and the start of the path, with the site index and without
+    @Test
+    void testSiteIndex() {
+        List<Website> pages = new ArrayList<>();
+        pages.add(new Website("https://en.wikipedia.org/wiki/Denmark", "Denmark", Arrays.asList("country")));
+        pages.add(new Website("https://da.wikipedia.org/wiki/Danmark", "Danmark", Arrays.asList("country")));
+        pages.add(new Website("https://example.com/?next=en.wikipedia.org/wiki/Denmark", "Redirect", Arrays.asList("country")));
+        pages.add(new Website("https://www.cia.gov/the-world-factbook/countries/denmark", "Factbook", Arrays.asList("country")));
+        assertEquals(Arrays.asList("en.wikipedia.org", "en.wikipedia.org/wiki", "wikipedia.org", "wikipedia.org/wiki",
+                "org", "org/wiki"), SiteIndex.getKeys(pages.get(0).getUrl()));
+
+        for (Index index : new Index[]{new InvertedIndexCompressed(), new SimpleIndex()}) {
+            index.build(pages);
+            QueryHandler handler = new QueryHandler(index, new TFScore());
+            assertEquals(2, handler.getMatchingWebsites("site:wikipedia.org country").size());
+            assertEquals(pages.subList(0, 1), handler.getMatchingWebsites("site:en.wikipedia.org/wiki/d country"));
+            assertEquals(pages.subList(0, 1), handler.getMatchingWebsites("site:wikipedia.org/wiki/den country"));
+            assertEquals(0, handler.getMatchingWebsites("site:ikipedia.org country").size());
+            assertEquals(pages.subList(3, 4), handler.getMatchingWebsites("site:cia.gov/the-world-factbook/ country"));
+            assertEquals(0, handler.getMatchingWebsites("site:wikipedia.org site:cia.gov country").size());
+        }
+    }
+
+    /**
+     * Checks that the top-k results are the first k websites of the fully ranked result
+     */
+    @Test
+    void testTopWebsites() {
+        assertEquals(sites.get(6), qh.getTopWebsites("this is", 1).get(0));
+        assertEquals(1, qh.getTopWebsites("word2 OR word3", 1).size());
+        assertEquals(3, qh.getTopWebsites("word*", 10).size());
+        assertEquals(2, qh.getTopWebsites("site:wikipedia.org term1", 5).size());
+
+        // A larger corpus, so that postings lists have several blocks and websites are skipped
+        List<Website> corpus = randomCorpus(42, 2000, 40, 3, 50);
+        InvertedIndex corpusIndex = new InvertedIndexTreeMap();
+        corpusIndex.build(corpus);
+        QueryHandler corpusHandler = new QueryHandler(corpusIndex, score);
+        for (String query : Arrays.asList("w1", "w30", "w0 w2", "w3 w4 w5", "w2 OR w40", "w4 w1 OR w7 w9", "w4*", "w1 w2*")) {
+            List<Website> all = corpusHandler.getMatchingWebsites(query);
+            List<Website> top = corpusHandler.getTopWebsites(query, 10);
+            assertEquals(Math.min(10, all.size()), top.size(), query);
+            for (int i = 0; i < top.size(); i++) {
+                // compares the scores, websites with equal scores may be ordered differently
+                assertEquals(scoreOf(corpusHandler, all.get(i), query), scoreOf(corpusHandler, top.get(i), query), 0.0000001, query);
+            }
+        }
+    }
+
+    /**
+     * Checks that a segmented index with added, updated and deleted websites and merged segments answers queries
+     * like an index built from its live websites only
+     */
+    @Test
+    void testSegmentedIndex() {
+        List<Website> corpus = randomCorpus(7, 900, 20, 2, 30);
+        Random random = new Random(7);
+        Map<String, Website> live = new LinkedHashMap<>();
+        SegmentedIndex segmentedIndex = new SegmentedIndex(50, 3);
+        for (int i = 0; i < corpus.size(); i++) {
+            // every third website replaces an earlier website with the same url, every seventh deletes one
+            String url = (i % 3 == 0 ? random.nextInt(i + 1) : i) + ".com";
+            Website website = new Website(url, corpus.get(i).getTitle(), corpus.get(i).getWords());
+            segmentedIndex.add(website);
+            live.put(url, website);
+            if (i % 7 == 0) {
+                String deleted = random.nextInt(i + 1) + ".com";
+                segmentedIndex.delete(deleted);
+                live.remove(deleted);
+            }
+        }
+        segmentedIndex.flush();
+        segmentedIndex.waitForMerges();
+        assertTrue(segmentedIndex.getNumberOfSegments() < 900 / 50);
+
+        InvertedIndex reference = new InvertedIndexHashMap();
+        reference.build(new ArrayList<>(live.values()));
+        SegmentedIndexReader reader = segmentedIndex.getReader();
+        assertEquals(reference.getCorpusSize(), reader.getCorpusSize(), 0.0);
+        assertEquals(reference.getAverageDocumentLength(), reader.getAverageDocumentLength(), 0.0000001);
+
+        // the block bounds hold every score of their block, and are tighter than the bound idf * (k + 1)
+        Postings postings = reader.getPostings("w1");
+        float[] blocks = reader.getBlockMaxScores("w1");
+        double idf = TFIDFScore.getIDFScore("w1", reader);
+        assertTrue(blocks.length > 1);
+        for (int i = 0; i < postings.size(); i++) {
+            double bm25 = OkapiBM25.getScore(postings.getFrequency(i), idf,
+                    reader.getDocumentLength(postings.getDocId(i)), reader.getAverageDocumentLength());
+            assertTrue(bm25 <= blocks[i / PostingsCodec.BLOCK_SIZE]);
+        }
+        for (float block : blocks) {
+            assertTrue(block < idf * (OkapiBM25.K + 1));
+        }
+        assertTrue(reader.getMaxScore("w1") >= reference.getMaxScore("w1"));
+
+        QueryHandler referenceHandler = new QueryHandler(reference, score);
+        QueryHandler segmentedHandler = new QueryHandler(segmentedIndex, score);
+        for (String query : Arrays.asList("w1", "w25", "w0 w2", "w2 OR w20", "w4 w1 OR w7 w9", "w2*", "w1 w2*")) {
+            List<Website> expected = referenceHandler.getMatchingWebsites(query);
+            List<Website> actual = segmentedHandler.getMatchingWebsites(query);
+            assertEquals(new HashSet<>(expected), new HashSet<>(actual), query);
+            List<Website> top = segmentedHandler.getTopWebsites(query, 10);
+            for (int i = 0; i < top.size(); i++) {
+                assertEquals(scoreOf(referenceHandler, expected.get(i), query), scoreOf(segmentedHandler, top.get(i), query), 0.0000001, query);
+            }
+        }
+    }
+
+    // Helper method generating websites "0.com", "1.com", ... with 1 to maxLength words "w0" to "w<vocabulary - 1>";
+    // the higher the exponent, the more frequent the small numbers
+    private static List<Website> randomCorpus(long seed, int size, int maxLength, double exponent, int vocabulary) {
+        Random random = new Random(seed);
+        List<Website> corpus = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            List<String> words = new ArrayList<>();
+            int length = 1 + random.nextInt(maxLength);
+            for (int j = 0; j < length; j++) {
+                words.add("w" + (int) Math.floor(Math.pow(random.nextDouble(), exponent) * vocabulary));
+            }
+            corpus.add(new Website(i + ".com", "site" + i, words));
+        }
+        return corpus;
+    }
+
+    // Helper method calculating the score of a website for a query as the QueryHandler does
+    private double scoreOf(QueryHandler handler, Website website, String query) {
+        double best = 0;
+        for (String subquery : query.split(" OR ")) {
+            double sum = 0;
+            for (String word : subquery.split(" ")) {
+                if (!website.containsWord(word) && !word.endsWith("*")) {
+                    sum = Double.NEGATIVE_INFINITY;
+                }
+                sum += handler.prefixCheck(website, word);
+            }
+            best = Math.max(best, sum);
+        }
+        return best;
+    }
+
+    /**
+     * Checks the query tree of the parser and the plan compiled from it
+     */
+    @Test
+    void testQueryPlan() {
+        QueryNode tree = QueryParser.parse("site:Wikipedia.org  Term1 te*  OR term1 term3 OR");
+        assertEquals(new QueryNode.Site("wikipedia.org", new QueryNode.Or(Arrays.asList(
+                new QueryNode.And(Arrays.asList(new QueryNode.Term("term1"), new QueryNode.Prefix("te"))),
+                new QueryNode.And(Arrays.asList(new QueryNode.Term("term1"), new QueryNode.Term("term3")))))), tree);
+        assertEquals(new QueryNode.Term("or"), QueryParser.parse("OR"));
+
+        // term1 is contained in both subqueries, so it is intersected once
+        QueryPlan plan = QueryPlanner.plan(tree);
+        assertArrayEquals(new String[]{"term1"}, plan.getCommonWords());
+        plan.getCommonWords()[0] = "changed";
+        assertArrayEquals(new String[]{"term1"}, plan.getCommonWords());
+        assertArrayEquals(new String[]{"term3"}, plan.getRemainingWords(1));
+        assertTrue(plan.isRepeated("term1"));
+        assertEquals(2, qh.getMatchingWebsites("site:Wikipedia.org  Term1 te*  OR term1 term3 OR").size());
+
+        // repeated subqueries are removed, and an invalid site url matches nothing
+        assertEquals(1, QueryPlanner.plan(QueryParser.parse("word1 word2 OR word1 word2")).getSubqueries().size());
+        assertTrue(QueryPlanner.plan(QueryParser.parse("site:faulty term1")).getSubqueries().isEmpty());
+
+        // the plan of a repeated query string is taken from the cache
+        QueryPlanner planner = new QueryPlanner();
+        assertSame(planner.getPlan("word1 OR word2"), planner.getPlan("word1 OR word2"));
+    }
+
      // Test for problematic input
     @Test
     void testCornerCases() {
@@ -53,4 +53,46 @@ class ScoreTest {
         assertEquals(0.8577, OkapiBM25.getScore("word1",sites.get(0),idx), 0.000001);
         assertEquals(0.0, OkapiBM25.getScore("noMatch",sites.get(0),idx), 0.000001);
     }
+
+    // Check that the batch scoring gives the same scores as scoring one website at a time
+    @Test
+    void batchScores(){
+        for (Score score : new Score[]{TF, TFIDF, new OkapiBM25()}) {
+            for (String word : new String[]{"word1", "word2", "word3", "term1"}) {
+                Postings postings = idx.getPostings(word);
+                int[] frequencies = new int[postings.size()];
+                double[] norms = new double[postings.size()];
+                for (int i = 0; i < postings.size(); i++) {
+                    frequencies[i] = postings.getFrequency(i);
+                    norms[i] = idx.getLengthNorms(score)[postings.getDocId(i)];
+                }
+                double[] scores = new double[postings.size()];
+                score.getScores(score.getTermWeight(word, idx), frequencies, norms, scores, postings.size());
+                for (int i = 0; i < postings.size(); i++) {
+                    assertEquals(score.getScore(word, postings.get(i), idx), scores[i], 0.0);
+                }
+            }
+        }
+    }
+
+    // Check that every score works on an index that is not an inverted index, with the same results
+    @Test
+    void scoresOnOtherIndices(){
+        SimpleIndex simpleIndex = new SimpleIndex();
+        simpleIndex.build(sites);
+        SegmentedIndex segmentedIndex = new SegmentedIndex(2, 2);
+        for (Website site : sites) {
+            segmentedIndex.add(site);
+        }
+        segmentedIndex.flush();
+        for (Score score : new Score[]{TF, TFIDF, new OkapiBM25()}) {
+            for (String word : new String[]{"word1", "word3", "term1", "noMatch"}) {
+                for (Website site : sites) {
+                    double expected = score.getScore(word, site, idx);
+                    assertEquals(expected, score.getScore(word, site, simpleIndex), 0.000001);
+                    assertEquals(expected, score.getScore(word, site, segmentedIndex), 0.000001);
+                }
+            }
+        }
+    }
 }
@@ -3,6 +3,10 @@ package searchengine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -36,4 +40,122 @@ class SearchEngineTest {
         assertEquals(0, se.search("").size());
     }
 
-}
\ No newline at end of file
+    // Check that websites can be added, replaced and deleted while the search engine is running
+    @Test
+    void checkUpdate(){
+        se.update(Arrays.asList(new Website("page3.com", "Page3", Arrays.asList("word1", "word6"))), Arrays.asList("page1.com"));
+        assertEquals(0, se.search("word6").size());
+        se.refresh();
+        assertEquals(2, se.search("word1").size());
+        assertEquals(1, se.search("word6", 10).size());
+        assertEquals(0, se.search("word2").size());
+
+        // deletes both websites with the url page2.com
+        se.update(new ArrayList<>(), Arrays.asList("page2.com"));
+        se.refresh();
+        assertEquals(1, se.search("word1").size());
+        assertEquals(0, se.search("word3").size());
+    }
+
+    // Check that a page of the result contains the total number of websites and only the websites of the page
+    @Test
+    void checkSearchPage() throws IOException {
+        SearchResultPage page = se.search("word1", 1, 5);
+        assertEquals(2, page.getTotal());
+        assertEquals(1, page.getWebsites().size());
+        assertEquals(se.search("word1").get(1), page.getWebsites().get(0));
+        assertEquals(0, se.search("word1", 7, 5).getWebsites().size());
+
+        StringWriter json = new StringWriter();
+        new SearchResultPage(3, 0, Arrays.asList(new Website("a.com", "Say \"hi\"", Arrays.asList("word1")))).writeJson(json);
+        assertEquals("{\"total\":3,\"offset\":0,\"results\":[{\"title\":\"Say \\\"hi\\\"\",\"url\":\"a.com\"}]}", json.toString());
+    }
+
+    // Check that equivalent queries share a cached result, and that the cache keeps frequent queries
+    @Test
+    void checkCache(){
+        assertEquals("word1 OR word2 word3", QueryResultCache.normalize("  Word2   WORD3 OR word1 OR word1"));
+        assertNotEquals(QueryResultCache.normalize("word1 or word2"), QueryResultCache.normalize("word1 OR word2"));
+
+        assertEquals(3, se.search("word1 OR word3").size());
+        assertEquals(3, se.search("WORD3  OR word1").size());
+        assertEquals(1, se.getCache().getHits());
+        assertEquals(1, se.getCache().getMisses());
+
+        // a cache for about 20 results, where one query is asked often and 1000 queries once
+        QueryResultCache cache = new QueryResultCache(2000);
+        List<Website> result = se.search("word1");
+        for (int i = 0; i < 1000; i++) {
+            if (cache.get("word1", se) == null) {
+                cache.put("word1", result, se);
+            }
+            if (cache.get("query" + i, se) == null) {
+                cache.put("query" + i, result, se);
+            }
+        }
+        assertNotNull(cache.get("word1", se));
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.getBytes() <= 2000);
+
+        // a result of another version of the index is a miss, and only that result is removed
+        int size = cache.size();
+        long misses = cache.getMisses();
+        Object newVersion = new Object();
+        assertNull(cache.get("word1", newVersion));
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(size - 1, cache.size());
+        cache.put("word1", result, newVersion);
+        assertNotNull(cache.get("word1", newVersion));
+        assertNull(cache.get("word1", se));
+
+        // a candidate that is not admitted is not counted as an eviction
+        QueryResultCache small = new QueryResultCache(2000);
+        for (int i = 0; i < 100; i++) {
+            small.put("query" + i, result, se);
+        }
+        assertEquals(0, small.getEvictions());
+    }
+
+
+    @Test
+    void checkMetrics() throws IOException {
+        se.search("word1");
+        se.search("word1 word2 OR word3");
+        se.search("site:b.com word1", 1);
+        QueryMetrics metrics = se.getMetrics();
+        assertEquals(3, metrics.getTotalLatency().getCount());
+        assertEquals(2, metrics.getQueries(QueryMetrics.QueryType.SINGLE_WORD));
+        assertEquals(1, metrics.getQueries(QueryMetrics.QueryType.OR));
+        assertEquals(1, metrics.getQueries(QueryMetrics.QueryType.SITE));
+
+        StringWriter text = new StringWriter();
+        se.writeMetrics(text);
+        assertTrue(text.toString().contains("\nsearchengine_queries_total 3\n"));
+        assertTrue(text.toString().contains("\nsearchengine_queries_by_type_total{type=\"multi_word\"} 1\n"));
+        assertTrue(text.toString().contains("\nsearchengine_query_duration_seconds_count{stage=\"parse\"} 3\n"));
+        assertTrue(text.toString().contains("\nsearchengine_index_websites 3\n"));
+
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(50000, histogram.getValueAtQuantile(0.5), 50000 / 16.0);
+        assertEquals(99000, histogram.getValueAtQuantile(0.99), 99000 / 16.0);
+        assertEquals(100000, histogram.getValueAtQuantile(1));
+    }
+
+    @Test
+    void closeAsyncLogger() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncLogger log = new AsyncLogger(new PrintStream(bytes), 10);
+        log.log("first");
+        log.log("second");
+        log.close();
+        assertEquals("first" + System.lineSeparator() + "second" + System.lineSeparator(), bytes.toString());
+
+        // messages after close are dropped
+        log.log("third");
+        assertEquals(1, log.getDropped());
+        assertFalse(bytes.toString().contains("third"));
+    }
+}
@@ -0,0 +1,74 @@
+package searchengine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Kim Ida Schild
+ * @author Matthias Giovanni Moller
+ * @author Frederik Wonsild
+ * @author Philine Zeinert
+ */
+class WebApplicationTest {
+    private List<Website> sites;
+
+    @BeforeEach
+    void setUp() {
+        sites = new ArrayList<>();
+        sites.add(new Website("page1.com", "Page1", Arrays.asList("word1", "word2", "word1")));
+        sites.add(new Website("page2.com", "Page2", Arrays.asList("word1", "word3")));
+        WebApplication.searchengine = new SearchEngine(sites);
+    }
+
+    // Returns the names of the fields of a JSON object, in their order
+    private static List<String> fieldNames(JsonNode object) {
+        List<String> names = new ArrayList<>();
+        for (Iterator<String> it = object.fieldNames(); it.hasNext(); ) {
+            names.add(it.next());
+        }
+        return names;
+    }
+
+    // Test that the websites of "/search" are written with their title, url and words only, as Spring writes them
+    @Test
+    void searchJsonKeys() throws IOException {
+        List<Website> result = new WebApplication().search("word2", 0);
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode json = mapper.readTree(mapper.writeValueAsString(result));
+        assertEquals(1, json.size());
+        assertEquals(Arrays.asList("title", "url", "words"), fieldNames(json.get(0)));
+        assertEquals("Page1", json.get(0).get("title").asText());
+        assertEquals("page1.com", json.get(0).get("url").asText());
+        assertEquals("[\"word1\",\"word2\",\"word1\"]", json.get(0).get("words").toString());
+    }
+
+    // Test that the websites of an index snapshot are written like the websites of the database
+    @Test
+    void snapshotJsonKeys() throws IOException {
+        Index idx = new InvertedIndexHashMap();
+        idx.build(sites);
+        Path file = Files.createTempFile("snapshot", ".idx");
+        try {
+            IndexSnapshot.save((InvertedIndex) idx, file);
+            InvertedIndex opened = IndexSnapshot.open(file);
+            ObjectMapper mapper = new ObjectMapper();
+            JsonNode json = mapper.readTree(mapper.writeValueAsString(opened.lookup("word3")));
+            assertEquals(Arrays.asList("title", "url", "words"), fieldNames(json.get(0)));
+            assertEquals("[\"word1\",\"word3\"]", json.get(0).get("words").toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
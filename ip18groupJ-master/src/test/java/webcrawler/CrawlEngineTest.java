@@ -0,0 +1,336 @@
+package webcrawler;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import searchengine.FileHelper;
+import searchengine.SearchEngine;
+import searchengine.Website;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Crawls generated pages of a stub server on this machine, which is reached as two hosts: 127.0.0.1 and localhost.
+ */
+class CrawlEngineTest {
+    private static final int PAGES = 10;
+    private static final long DELAY = 50;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String host1;
+    private String host2;
+
+    // The times of the requests in milliseconds, by host and path
+    private final List<String[]> requests = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        int port = server.getAddress().getPort();
+        host1 = "http://127.0.0.1:" + port;
+        host2 = "http://localhost:" + port;
+        server.createContext("/", this::handle);
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    // Serves robots.txt, which disallows /private, and pages /page/0 to /page/9 which link to the next page, a
+    // private page, and the first page of the other host
+    private void handle(HttpExchange exchange) throws IOException {
+        String host = "http://" + exchange.getRequestHeaders().getFirst("Host");
+        String path = exchange.getRequestURI().getPath();
+        requests.add(new String[] {host, path, Long.toString(System.currentTimeMillis())});
+        String body;
+        String type = "text/html; charset=UTF-8";
+        int status = 200;
+        if (path.equals("/robots.txt")) {
+            body = "User-agent: *\nDisallow: /private\n";
+            type = "text/plain";
+        } else if (path.startsWith("/page/")) {
+            int page = Integer.parseInt(path.substring(6));
+            String other = host.equals(host1) ? host2 : host1;
+            body = "<html><head><title>Page " + page + "</title></head><body>"
+                    + "<p>word" + page + " common, words</p>"
+                    + (page + 1 < PAGES ? "<a href=\"/page/" + (page + 1) + "\">next</a>" : "")
+                    + "<a href=\"/page/" + page + "#top\">top</a>"
+                    + "<a href=\"/private/" + page + "\">private</a>"
+                    + "<a href=\"" + other + "/page/0\">other</a>"
+                    + "<a href=\"mailto:merkel@example.com\">mail</a>"
+                    + "</body></html>";
+        } else {
+            body = "not found";
+            status = 404;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private CrawlEngine createEngine() {
+        CrawlEngine engine = new CrawlEngine();
+        engine.setThreads(4);
+        engine.setPolitenessDelay(DELAY);
+        return engine;
+    }
+
+    @Test
+    void crawlsEveryPageOnce() {
+        Map<String, CrawledPage> pages = new ConcurrentHashMap<>();
+        CrawlReport report = createEngine().crawl(Collections.singletonList(host1 + "/page/0"),
+                page -> assertNull(pages.put(page.getUrl(), page)));
+
+        assertEquals(2 * PAGES, pages.size());
+        assertEquals(2 * PAGES, report.getPages());
+        assertEquals(2, report.getHosts());
+        assertEquals(2 * PAGES, report.getDisallowed());
+        assertEquals(0, report.getFailures());
+        assertEquals(2 * PAGES, report.getLatency().getCount());
+
+        CrawledPage page = pages.get(host2 + "/page/3");
+        assertEquals("Page 3", page.getTitle());
+        assertEquals(Arrays.asList("word3", "words"), page.getWords());
+        assertTrue(page.getLinks().contains(host2 + "/page/4"));
+
+        // every page and robots.txt is requested once per host, private pages never
+        Map<String, Integer> counts = new HashMap<>();
+        for (String[] request : requests) {
+            counts.merge(request[0] + request[1], 1, Integer::sum);
+            assertFalse(request[1].startsWith("/private"), request[1]);
+        }
+        assertEquals(2 * PAGES + 2, counts.size());
+        for (int count : counts.values()) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    void waitsPolitenessDelayPerHost() {
+        CrawlEngine engine = createEngine();
+        engine.setHostDelay(host2, 2 * DELAY);
+        engine.crawl(Arrays.asList(host1 + "/page/0", host2 + "/page/0"), page -> { });
+
+        Map<String, Long> lastRequests = new HashMap<>();
+        for (String[] request : requests) {
+            if (!request[1].startsWith("/page/")) {
+                continue;
+            }
+            long time = Long.parseLong(request[2]);
+            Long last = lastRequests.put(request[0], time);
+            if (last != null) {
+                long delay = request[0].equals(host2) ? 2 * DELAY : DELAY;
+                assertTrue(time - last >= delay, request[0] + request[1] + " after " + (time - last) + " ms");
+            }
+        }
+    }
+
+    // A page that fails is counted as failure, and the thread goes on with the other pages, with and without
+    // extracting threads
+    @Test
+    void survivesFailingPage() {
+        for (int extractThreads : new int[] {0, 2}) {
+            CrawlEngine engine = createEngine();
+            engine.setExtractThreads(extractThreads, 10);
+            Set<String> urls = ConcurrentHashMap.newKeySet();
+            CrawlReport report = engine.crawl(Collections.singletonList(host1 + "/page/0"), page -> {
+                if (page.getUrl().equals(host1 + "/page/3")) {
+                    throw new IllegalStateException("failing consumer");
+                }
+                urls.add(page.getUrl());
+            });
+            assertEquals(1, report.getFailures());
+            for (int i = 0; i < PAGES; i++) {
+                assertTrue(urls.contains(host2 + "/page/" + i), extractThreads + " threads, page " + i);
+            }
+        }
+    }
+
+    @Test
+    void stopsAtMaxPages() {
+        CrawlEngine engine = createEngine();
+        engine.setMaxPages(5);
+        List<String> urls = Collections.synchronizedList(new ArrayList<>());
+        CrawlReport report = engine.crawl(Collections.singletonList(host1 + "/page/0"), page -> urls.add(page.getUrl()));
+        assertEquals(5, urls.size());
+        assertEquals(5, report.getPages());
+    }
+
+    @Test
+    void resumesFromCheckpoint() throws IOException {
+        Path directory = Files.createTempDirectory("crawl");
+        try {
+            Set<String> urls = ConcurrentHashMap.newKeySet();
+            CrawlEngine engine = createEngine();
+            engine.setCheckpointDirectory(directory, 4, 1000);
+            engine.setMaxPages(5);
+            engine.crawl(Collections.singletonList(host1 + "/page/0"), page -> assertTrue(urls.add(page.getUrl())));
+            assertEquals(5, urls.size());
+
+            // the second crawl continues where the first stopped, and does not start over at the seed
+            engine.setMaxPages(Integer.MAX_VALUE);
+            CrawlReport report = engine.crawl(Collections.singletonList(host1 + "/page/0"),
+                    page -> assertTrue(urls.add(page.getUrl()), page.getUrl()));
+            assertEquals(2 * PAGES - 5, report.getPages());
+            assertEquals(2 * PAGES, urls.size());
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    void pipelineIndexesPages() throws IOException {
+        SearchEngine searchEngine = new SearchEngine(new ArrayList<>());
+        StringWriter file = new StringWriter();
+        CrawlPipeline pipeline = new CrawlPipeline(createEngine());
+        pipeline.setQueueCapacity(2);
+        pipeline.setExtractThreads(2);
+        pipeline.addSink(new IndexSink(searchEngine, 3));
+        pipeline.addSink(new FlatFileSink(file));
+        Path compressed = Files.createTempFile("crawl", ".gz");
+        pipeline.addSink(new CompressedFileSink(compressed.toString(), 256));
+        CrawlReport report;
+        List<Website> decompressed;
+        try {
+            report = pipeline.run(Collections.singletonList(host1 + "/page/0"));
+            decompressed = FileHelper.parseFile(compressed.toString());
+        } finally {
+            Files.delete(compressed);
+        }
+
+        assertEquals(2 * PAGES, report.getPages());
+        assertEquals(2 * PAGES, searchEngine.search("words").size());
+        List<Website> found = searchEngine.search("word3");
+        assertEquals(2, found.size());
+        assertEquals("Page 3", found.get(0).getTitle());
+
+        List<Website> parsed = new ArrayList<>();
+        FileHelper.parse(new BufferedReader(new StringReader(file.toString())), parsed::add);
+        assertEquals(2 * PAGES, parsed.size());
+        assertEquals(Arrays.asList("word3", "words"), parsed.stream()
+                .filter(site -> site.getUrl().equals(host2 + "/page/3")).findFirst().get().getWords());
+        assertEquals(parsed.size(), decompressed.size());
+        assertEquals(parsed.get(7).getUrl(), decompressed.get(7).getUrl());
+        assertEquals(parsed.get(7).getWords(), decompressed.get(7).getWords());
+    }
+
+    // Counts the requests for pages so far
+    private long countPageRequests() {
+        synchronized (requests) {
+            return requests.stream().filter(request -> request[1].startsWith("/page/")).count();
+        }
+    }
+
+    // Pages become searchable while the crawl is running, and a sink that does not keep up stops the downloads
+    @Test
+    void pipelineSearchableWhileCrawling() throws Exception {
+        SearchEngine searchEngine = new SearchEngine(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger written = new AtomicInteger();
+        CrawlPipeline pipeline = new CrawlPipeline(createEngine());
+        pipeline.setQueueCapacity(1);
+        pipeline.setExtractThreads(1);
+        pipeline.addSink(new IndexSink(searchEngine, 1));
+        pipeline.addSink(new PageSink() {
+            // waits at the third website until it is released
+            @Override
+            public void write(Website site) throws IOException {
+                if (written.incrementAndGet() == 3) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        ExecutorService crawl = Executors.newSingleThreadExecutor();
+        Future<CrawlReport> report = crawl.submit(() -> pipeline.run(Collections.singletonList(host1 + "/page/0")));
+        try {
+            // the first three websites become searchable within the refresh interval of the search engine
+            long deadline = System.currentTimeMillis() + 5000;
+            while (searchEngine.search("words").size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(3, searchEngine.search("words").size());
+            assertFalse(report.isDone());
+
+            // the full queues stop the downloads
+            Thread.sleep(500);
+            long fetched = countPageRequests();
+            Thread.sleep(500);
+            assertEquals(fetched, countPageRequests());
+            assertTrue(fetched < 2 * PAGES, fetched + " pages fetched");
+            assertFalse(report.isDone());
+        } finally {
+            release.countDown();
+            crawl.shutdown();
+        }
+        assertEquals(2 * PAGES, report.get(10, TimeUnit.SECONDS).getPages());
+        assertEquals(2 * PAGES, searchEngine.search("words").size());
+    }
+
+    @Test
+    void robotsRules() {
+        RobotsCache.Rules rules = RobotsCache.Rules.parse("User-agent: *\nDisallow: /\n\n"
+                + "User-agent: merkelsearchbot\nUser-agent: other\nDisallow: /private\nAllow: /private/public$\n"
+                + "Disallow: /*.pdf\nCrawl-delay: 0.5\n", "merkelsearchbot");
+        assertTrue(rules.isAllowed("/page"));
+        assertFalse(rules.isAllowed("/private/page"));
+        assertTrue(rules.isAllowed("/private/public"));
+        assertFalse(rules.isAllowed("/private/public/page"));
+        assertFalse(rules.isAllowed("/files/a.pdf"));
+        assertEquals(500, rules.getCrawlDelay());
+        assertFalse(RobotsCache.Rules.parse("User-agent: *\nDisallow: /\n", "merkelsearchbot").isAllowed("/page"));
+        assertEquals("/a?b", RobotsCache.getPath("https://www.dr.dk/a?b#c"));
+        assertEquals("/", RobotsCache.getPath("https://www.dr.dk"));
+        assertEquals("https://www.dr.dk", Frontier.getHost("HTTPS://www.DR.dk/Nyheder"));
+        assertNull(Frontier.getHost("mailto:merkel@example.com"));
+    }
+}
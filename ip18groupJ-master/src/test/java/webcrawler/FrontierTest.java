@@ -0,0 +1,107 @@
+package webcrawler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrontierTest {
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("frontier");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void normalize() {
+        assertEquals("https://www.dr.dk/", UrlNormalizer.normalize("HTTPS://www.DR.dk"));
+        assertEquals("https://www.dr.dk/b", UrlNormalizer.normalize("https://www.dr.dk:443/a/../b#top"));
+        assertEquals("http://dr.dk:8080/a/", UrlNormalizer.normalize("http://dr.dk:8080/a/./b/.."));
+        assertEquals("http://dr.dk/Nyheder?q=%C3%A6&x=a-b", UrlNormalizer.normalize("http://dr.dk:80/Nyheder?q=%c3%a6&x=a%2Db"));
+        assertNull(UrlNormalizer.normalize("mailto:merkel@example.com"));
+        assertNull(UrlNormalizer.normalize("javascript:void(0)"));
+    }
+
+    @Test
+    void diskUrlSetIsExact() throws IOException {
+        // a buffer of 10 urls writes 100 runs, which are merged whenever there are more than 8
+        try (DiskUrlSet set = new DiskUrlSet(directory, 1000, 10)) {
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(set.add("https://www.dr.dk/" + i));
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertFalse(set.add("https://www.dr.dk/" + i));
+            }
+            assertFalse(set.contains("https://www.dr.dk/1000"));
+            assertEquals(1000, set.size());
+            assertTrue(set.getNumberOfRuns() <= 9);
+        }
+    }
+
+    @Test
+    void spillsToDisk() throws Exception {
+        Set<String> urls = new HashSet<>();
+        try (Frontier frontier = new Frontier(directory, 10, 1000)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(frontier.add("https://host" + i % 7 + ".dk/" + i));
+            }
+            assertFalse(frontier.add("https://HOST0.dk/0#top"));
+            assertEquals(100, frontier.size());
+            String url;
+            while ((url = frontier.take()) != null) {
+                assertTrue(urls.add(url));
+                frontier.done(url, 0);
+            }
+        }
+        assertEquals(100, urls.size());
+    }
+
+    @Test
+    void resumesFromCheckpoint() throws Exception {
+        Set<String> urls = new HashSet<>();
+        try (Frontier frontier = new Frontier(directory, 10, 1000)) {
+            for (int i = 0; i < 50; i++) {
+                frontier.add("https://host" + i % 3 + ".dk/" + i);
+            }
+            for (int i = 0; i < 2; i++) {
+                String url = frontier.take();
+                urls.add(url);
+                frontier.done(url, 0);
+            }
+            // being visited at the checkpoint, so it is visited again after resuming
+            String busy = frontier.take();
+            frontier.checkpoint();
+            // lost in the crash, like everything after the checkpoint
+            frontier.done(busy, 0);
+            frontier.add("https://host0.dk/lost");
+            frontier.take();
+        }
+        try (Frontier frontier = new Frontier(directory, 10, 1000)) {
+            assertEquals(48, frontier.size());
+            assertFalse(frontier.add("https://host0.dk/0"));
+            String url;
+            while ((url = frontier.take()) != null) {
+                assertTrue(urls.add(url));
+                frontier.done(url, 0);
+            }
+            assertTrue(frontier.add("https://host0.dk/lost"));
+        }
+        assertEquals(50, urls.size());
+    }
+}
@@ -8,31 +8,27 @@ $(document).ready(function() {
         $("#spinner").show();
         $.ajax({
             method: "GET",
-            url: baseUrl + "/search",
-            data: {query: $('#searchbox').val()}
+            url: baseUrl + "/search/page",
+            data: {query: $('#searchbox').val(), offset: 0, limit: 50}
         }).success( function (data) {
             console.log("Received response " + data);
-            if (data.length == 0){
-                $("#responsesize").html("<p>" + data.length + " websites found</p>");
+            if (data.total == 0){
+                $("#responsesize").html("<p>" + data.total + " websites found</p>");
             }
-            else if(data.length < 50){
-                $("#responsesize").html("<p> Showing all " + data.length + " matches</p>");
+            else if(data.total <= 50){
+                $("#responsesize").html("<p> Showing all " + data.total + " matches</p>");
             }
             else {
-                $("#responsesize").html("<p> Showing top 50 results out of " + data.length + " matches</p>");
+                $("#responsesize").html("<p> Showing top 50 results out of " + data.total + " matches</p>");
             }
             var t1 = performance.now();
             var time = (t1-t0)/1000;
             var timeRounded = time.toFixed(2);
             $("#responsetime").html("<p>(" + timeRounded + " seconds) </p>");
             var buffer = "<ul style='list-style-type: none; text-decoration: none;'>\n";
-            var counter = 0;
-            $.each(data, function(index, value) {
-                if (counter != 50) {
-                    buffer += "<li><a href=\"" + value.url + "\">" + value.title + "</a><br>" +
-                        "<a>" + value.url + "</a></li><br>";
-                    counter++;
-                }
+            $.each(data.results, function(index, value) {
+                buffer += "<li><a href=\"" + value.url + "\">" + value.title + "</a><br>" +
+                    "<a>" + value.url + "</a></li><br>";
             });
             buffer += "</ul>";
             $("#urllist").html(buffer);